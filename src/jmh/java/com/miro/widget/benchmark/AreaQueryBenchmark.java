@@ -0,0 +1,88 @@
+package com.miro.widget.benchmark;
+
+import com.miro.widget.model.Widget;
+import com.miro.widget.repository.WidgetContainer;
+import com.miro.widget.repository.ZIndexContainer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Viewport query through the R-tree against filtering the full z-ordered list, which is what clients do today.
+ * The plane grows with the board so widget density, and therefore the result size, stays the same.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class AreaQueryBenchmark {
+
+    private static final int VIEWPORT_WIDTH = 1920;
+    private static final int VIEWPORT_HEIGHT = 1080;
+    private static final int VIEWPORTS = 1024;
+
+    @Param({"10000", "100000", "1000000"})
+    int boardSize;
+
+    private WidgetContainer widgetContainer;
+    private int[][] viewports;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        int plane = (int) Math.sqrt(boardSize) * 100;
+        widgetContainer = new WidgetContainer(new ZIndexContainer());
+        for (int i = 0; i < boardSize; i++) {
+            widgetContainer.saveAsForeground(Widget.builder()
+                    .xIndex(random.nextInt(plane))
+                    .yIndex(random.nextInt(plane))
+                    .width(10 + random.nextInt(90))
+                    .height(10 + random.nextInt(90))
+                    .build());
+        }
+        viewports = new int[VIEWPORTS][];
+        for (int i = 0; i < VIEWPORTS; i++) {
+            int x = random.nextInt(plane);
+            int y = random.nextInt(plane);
+            viewports[i] = new int[]{x, y, x + VIEWPORT_WIDTH, y + VIEWPORT_HEIGHT};
+        }
+    }
+
+    @Benchmark
+    public List<Widget> rTree() {
+        int[] viewport = nextViewport();
+        return widgetContainer.findAllInArea(viewport[0], viewport[1], viewport[2], viewport[3]);
+    }
+
+    @Benchmark
+    public List<Widget> linearScan() {
+        int[] viewport = nextViewport();
+        return widgetContainer.findAll().stream()
+                .filter(widget -> widget.getXIndex() <= viewport[2]
+                        && (long) widget.getXIndex() + widget.getWidth() >= viewport[0]
+                        && widget.getYIndex() <= viewport[3]
+                        && (long) widget.getYIndex() + widget.getHeight() >= viewport[1])
+                .collect(Collectors.toList());
+    }
+
+    private int[] nextViewport() {
+        next = (next + 1) & (VIEWPORTS - 1);
+        return viewports[next];
+    }
+}
@@ -0,0 +1,70 @@
+package com.miro.widget.benchmark;
+
+import com.miro.widget.model.BatchOperation;
+import com.miro.widget.model.BatchResult;
+import com.miro.widget.model.WidgetAttributes;
+import com.miro.widget.repository.WidgetContainer;
+import com.miro.widget.repository.ZIndexContainer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts batchSize widgets at random z-indexes into an empty board, once as a single batch and once as individual
+ * saves. The target for a 10k batch is below 100 ms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 30)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class BatchInsertBenchmark {
+
+    @Param({"10000"})
+    int batchSize;
+
+    private List<BatchOperation> operations;
+    private WidgetContainer widgetContainer;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        Random random = new Random(42);
+        operations = new ArrayList<>(batchSize);
+        for (int i = 0; i < batchSize; i++) {
+            WidgetAttributes attributes = new WidgetAttributes(10, 10);
+            attributes.setXIndex(random.nextInt(10_000));
+            attributes.setYIndex(random.nextInt(10_000));
+            attributes.setZIndex(random.nextInt(batchSize));
+            operations.add(BatchOperation.create(attributes));
+        }
+        widgetContainer = new WidgetContainer(new ZIndexContainer());
+    }
+
+    @Benchmark
+    public List<BatchResult> batch() {
+        return widgetContainer.applyBatch(operations);
+    }
+
+    @Benchmark
+    public WidgetContainer singleSaves() {
+        for (BatchOperation operation : operations) {
+            widgetContainer.saveWithZIndex(WidgetAttributes.toWidget(operation.getAttributes()));
+        }
+        return widgetContainer;
+    }
+}
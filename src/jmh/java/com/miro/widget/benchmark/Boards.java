@@ -0,0 +1,36 @@
+package com.miro.widget.benchmark;
+
+import com.miro.widget.model.Widget;
+import com.miro.widget.repository.WidgetContainer;
+import com.miro.widget.repository.ZIndexContainer;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+final class Boards {
+
+    private Boards() {
+    }
+
+    /**
+     * @param widgetIds receives the ids in z-order
+     * @return container holding boardSize 100x100 widgets at z-indexes 0 to boardSize - 1, scattered over the plane
+     */
+    static WidgetContainer filled(int boardSize, List<UUID> widgetIds) {
+        Random random = new Random(42);
+        int plane = (int) Math.sqrt(boardSize) * 100;
+        WidgetContainer widgetContainer = new WidgetContainer(new ZIndexContainer());
+        for (int i = 0; i < boardSize; i++) {
+            Widget widget = widgetContainer.saveWithZIndex(Widget.builder()
+                    .xIndex(random.nextInt(plane))
+                    .yIndex(random.nextInt(plane))
+                    .zIndex(i)
+                    .width(100)
+                    .height(100)
+                    .build());
+            widgetIds.add(widget.getId());
+        }
+        return widgetContainer;
+    }
+}
@@ -0,0 +1,128 @@
+package com.miro.widget.benchmark;
+
+import com.miro.widget.WidgetApplication;
+import com.miro.widget.execution.ExecutionMode;
+import com.miro.widget.model.Widget;
+import com.miro.widget.model.WidgetAttributes;
+import com.miro.widget.service.WidgetService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test of the web layer in each {@link ExecutionMode}, with and without the write bulkhead. Starts the
+ * application on a random port with a small Tomcat pool, then many writers post batches of moves, which serialize
+ * on the z-order lock, while a few readers fetch single widgets. Sample time mode reports throughput and latency
+ * percentiles per group, so reads starved of request threads show up in their tail. Rejected writes (503) count as
+ * completed operations.
+ * <p>
+ * {@code VIRTUAL} needs Java 21; on older runtimes restrict the run with {@code -p mode=PLATFORM}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class ExecutionModeBenchmark {
+
+    private static final int BATCH_SIZE = 200;
+    private static final Duration TIMEOUT = Duration.ofSeconds(30);
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    ExecutionMode mode;
+
+    @Param({"0", "4"})
+    int maxConcurrentWrites;
+
+    @Param({"16"})
+    int tomcatThreads;
+
+    @Param({"100000"})
+    int boardSize;
+
+    private ConfigurableApplicationContext context;
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final List<UUID> widgetIds = new ArrayList<>();
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(WidgetApplication.class)
+                .properties("server.port=0",
+                        "server.tomcat.threads.max=" + tomcatThreads,
+                        "widget.execution.mode=" + mode,
+                        "widget.execution.max-concurrent-writes=" + maxConcurrentWrites,
+                        "widget.rate-limit.enabled=false",
+                        "widget.response-cache.max-size=0",
+                        "logging.level.root=WARN")
+                .run();
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        baseUrl = "http://localhost:" + port + "/api/widgets";
+        WidgetService widgetService = context.getBean(WidgetService.class);
+        for (int i = 0; i < boardSize; i++) {
+            Widget widget = widgetService.addWidget(new WidgetAttributes(100, 100));
+            widgetIds.add(widget.getId());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public int read() throws IOException, InterruptedException {
+        UUID id = widgetIds.get(ThreadLocalRandom.current().nextInt(widgetIds.size()));
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/" + id)).GET());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(32)
+    public int write() throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            body.append(i == 0 ? "" : ",")
+                    .append("{\"op\":\"UPDATE\",\"id\":\"").append(widgetIds.get(random.nextInt(widgetIds.size())))
+                    .append("\",\"attributes\":{\"z-index\":").append(random.nextInt(boardSize)).append("}}");
+        }
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/batch"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.append(']').toString())));
+    }
+
+    private int send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return client.send(request.timeout(TIMEOUT).build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,87 @@
+package com.miro.widget.benchmark;
+
+import com.miro.widget.model.Widget;
+import com.miro.widget.repository.WidgetContainer;
+import com.miro.widget.repository.ZIndexContainer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Topmost widget at a point through the grid against scanning the full z-ordered list from the top, which is what
+ * clients do today. The plane grows with the board so about two widgets overlap an average point.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class HitTestBenchmark {
+
+    private static final int POINTS = 1024;
+
+    @Param({"10000", "100000", "1000000"})
+    int boardSize;
+
+    private WidgetContainer widgetContainer;
+    private int[][] points;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        int plane = (int) Math.sqrt(boardSize) * 50;
+        widgetContainer = new WidgetContainer(new ZIndexContainer());
+        for (int i = 0; i < boardSize; i++) {
+            widgetContainer.saveAsForeground(Widget.builder()
+                    .xIndex(random.nextInt(plane))
+                    .yIndex(random.nextInt(plane))
+                    .width(10 + random.nextInt(90))
+                    .height(10 + random.nextInt(90))
+                    .build());
+        }
+        points = new int[POINTS][];
+        for (int i = 0; i < POINTS; i++) {
+            points[i] = new int[]{random.nextInt(plane), random.nextInt(plane)};
+        }
+    }
+
+    @Benchmark
+    public Optional<Widget> grid() {
+        int[] point = nextPoint();
+        return widgetContainer.findTopmostAt(point[0], point[1]);
+    }
+
+    @Benchmark
+    public Optional<Widget> linearScan() {
+        int[] point = nextPoint();
+        List<Widget> widgets = widgetContainer.findAll();
+        for (int i = widgets.size() - 1; i >= 0; i--) {
+            Widget widget = widgets.get(i);
+            if (widget.getXIndex() <= point[0] && point[0] <= (long) widget.getXIndex() + widget.getWidth()
+                    && widget.getYIndex() <= point[1] && point[1] <= (long) widget.getYIndex() + widget.getHeight()) {
+                return Optional.of(widget);
+            }
+        }
+        return Optional.empty();
+    }
+
+    private int[] nextPoint() {
+        next = (next + 1) & (POINTS - 1);
+        return points[next];
+    }
+}
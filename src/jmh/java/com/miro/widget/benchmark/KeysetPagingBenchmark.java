@@ -0,0 +1,67 @@
+package com.miro.widget.benchmark;
+
+import com.miro.widget.model.CursorPage;
+import com.miro.widget.model.Widget;
+import com.miro.widget.repository.WidgetContainer;
+import com.miro.widget.repository.ZIndexContainer;
+import com.miro.widget.service.WidgetService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetches a page at the start and in the middle of the board, once by page number and once by cursor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class KeysetPagingBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"1000000"})
+    int boardSize;
+
+    @Param({"0", "5000"})
+    int page;
+
+    private WidgetService widgetService;
+    private String cursor;
+
+    @Setup
+    public void setUp() {
+        WidgetContainer widgetContainer = new WidgetContainer(new ZIndexContainer());
+        widgetService = new WidgetService(widgetContainer);
+        for (int i = 0; i < boardSize; i++) {
+            widgetContainer.saveAsForeground(Widget.builder().width(10).height(10).build());
+        }
+        cursor = "";
+        for (int i = 0; i < page; i++) {
+            cursor = widgetService.findWidgetsAfter(cursor, PAGE_SIZE).getNext();
+        }
+    }
+
+    @Benchmark
+    public Page<Widget> offset() {
+        return widgetService.findAllWidgets(page, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public CursorPage<Widget> keyset() {
+        return widgetService.findWidgetsAfter(cursor, PAGE_SIZE);
+    }
+}
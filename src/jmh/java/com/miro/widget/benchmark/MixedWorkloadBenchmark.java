@@ -0,0 +1,116 @@
+package com.miro.widget.benchmark;
+
+import com.miro.widget.model.Widget;
+import com.miro.widget.model.WidgetAttributes;
+import com.miro.widget.repository.WidgetContainer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Concurrent readers and writers on one board. Readers fetch single widgets and pages, writers move widgets to a
+ * z-index drawn from a {@link ZDistribution}, which keeps the board size constant. JMH reports each thread group
+ * separately, so read latency under write contention can be compared across the read-heavy, balanced and
+ * write-heavy mixes.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class MixedWorkloadBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"10000", "1000000"})
+    int boardSize;
+
+    @Param({"RANDOM", "BACK"})
+    ZDistribution distribution;
+
+    private final List<UUID> widgetIds = new ArrayList<>();
+    private WidgetContainer widgetContainer;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        widgetContainer = Boards.filled(boardSize, widgetIds);
+    }
+
+    @Benchmark
+    @Group("readHeavy")
+    @GroupThreads(3)
+    public Page<Widget> readHeavyRead() {
+        return readPage();
+    }
+
+    @Benchmark
+    @Group("readHeavy")
+    @GroupThreads(1)
+    public Widget readHeavyWrite() {
+        return move();
+    }
+
+    @Benchmark
+    @Group("balanced")
+    @GroupThreads(2)
+    public Optional<Widget> balancedRead() {
+        return widgetContainer.findById(randomWidgetId());
+    }
+
+    @Benchmark
+    @Group("balanced")
+    @GroupThreads(2)
+    public Widget balancedWrite() {
+        return move();
+    }
+
+    @Benchmark
+    @Group("writeHeavy")
+    @GroupThreads(1)
+    public Page<Widget> writeHeavyRead() {
+        return readPage();
+    }
+
+    @Benchmark
+    @Group("writeHeavy")
+    @GroupThreads(3)
+    public Widget writeHeavyWrite() {
+        return move();
+    }
+
+    private Page<Widget> readPage() {
+        int page = ThreadLocalRandom.current().nextInt(boardSize / PAGE_SIZE);
+        return widgetContainer.findAll(PageRequest.of(page, PAGE_SIZE));
+    }
+
+    private Widget move() {
+        WidgetAttributes attributes = new WidgetAttributes();
+        attributes.setZIndex(distribution.next(ThreadLocalRandom.current(), boardSize));
+        return widgetContainer.update(randomWidgetId(), attributes);
+    }
+
+    private UUID randomWidgetId() {
+        return widgetIds.get(ThreadLocalRandom.current().nextInt(boardSize));
+    }
+}
@@ -0,0 +1,92 @@
+package com.miro.widget.benchmark;
+
+import com.miro.widget.model.Widget;
+import com.miro.widget.model.WidgetAttributes;
+import com.miro.widget.repository.HeapWidgetStore;
+import com.miro.widget.repository.WidgetContainer;
+import com.miro.widget.repository.ZIndexContainer;
+import com.miro.widget.service.BoardProperties;
+import com.miro.widget.service.BoardService;
+import com.miro.widget.service.WidgetService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write throughput of four threads moving widgets to the back of a board, which shifts the whole board, once with all
+ * threads on one board and once with a board per thread. With enough cores the per-board variant scales with the
+ * thread count while the shared board is bound by its z-order lock.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@Threads(4)
+public class MultiBoardBenchmark {
+
+    private static final int THREADS = 4;
+
+    @Param({"10000"})
+    int boardSize;
+
+    @Param({"shared", "perThread"})
+    String boards;
+
+    private final List<List<UUID>> widgetIds = new ArrayList<>();
+    private BoardService boardService;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        BoardProperties boardProperties = new BoardProperties();
+        boardService = new BoardService(new WidgetService(new WidgetContainer(new ZIndexContainer())),
+                HeapWidgetStore::new, boardProperties);
+        for (int board = 0; board < THREADS; board++) {
+            WidgetService widgetService = boardService.getOrCreateBoard("board-" + board);
+            List<UUID> ids = new ArrayList<>(boardSize);
+            for (int i = 0; i < boardSize; i++) {
+                ids.add(widgetService.addWidget(new WidgetAttributes(10, 10)).getId());
+            }
+            widgetIds.add(ids);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        WidgetService board;
+        List<UUID> widgetIds;
+
+        @Setup(Level.Trial)
+        public void pickBoard(MultiBoardBenchmark benchmark, ThreadParams threadParams) {
+            int board = "shared".equals(benchmark.boards) ? 0 : threadParams.getThreadIndex() % THREADS;
+            this.board = benchmark.boardService.findBoard("board-" + board);
+            this.widgetIds = benchmark.widgetIds.get(board);
+        }
+    }
+
+    @Benchmark
+    public Widget moveToBack(Writer writer) {
+        WidgetAttributes attributes = new WidgetAttributes();
+        attributes.setZIndex(0);
+        UUID widgetId = writer.widgetIds.get(ThreadLocalRandom.current().nextInt(writer.widgetIds.size()));
+        return writer.board.updateWidget(widgetId, attributes);
+    }
+}
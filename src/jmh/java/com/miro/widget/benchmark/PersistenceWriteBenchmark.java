@@ -0,0 +1,88 @@
+package com.miro.widget.benchmark;
+
+import com.miro.widget.model.Widget;
+import com.miro.widget.model.WidgetAttributes;
+import com.miro.widget.persistence.FsyncPolicy;
+import com.miro.widget.persistence.PersistenceProperties;
+import com.miro.widget.persistence.WidgetPersistence;
+import com.miro.widget.repository.WidgetContainer;
+import com.miro.widget.repository.ZIndexContainer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Write throughput with the write-ahead log enabled, per fsync policy. {@code none} runs without persistence as the
+ * baseline. Eight writer threads show how group commit amortizes forces under {@link FsyncPolicy#ALWAYS}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@Threads(8)
+public class PersistenceWriteBenchmark {
+
+    @Param({"none", "ALWAYS", "INTERVAL", "OS"})
+    String fsync;
+
+    private Path directory;
+    private WidgetContainer widgetContainer;
+    private WidgetPersistence persistence;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        widgetContainer = new WidgetContainer(new ZIndexContainer());
+        if (!"none".equals(fsync)) {
+            directory = Files.createTempDirectory("widget-wal");
+            PersistenceProperties properties = new PersistenceProperties();
+            properties.setDirectory(directory);
+            properties.setFsync(FsyncPolicy.valueOf(fsync));
+            persistence = new WidgetPersistence(widgetContainer, properties);
+            persistence.start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (persistence != null) {
+            persistence.close();
+            try (Stream<Path> files = Files.walk(directory)) {
+                files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+            }
+        }
+    }
+
+    @Benchmark
+    public Widget create() {
+        int value = ThreadLocalRandom.current().nextInt(1_000);
+        return widgetContainer.saveWithZIndex(Widget.builder().zIndex(value).xIndex(value).yIndex(value).build());
+    }
+
+    @Benchmark
+    public Widget createAndUpdate() {
+        Widget widget = widgetContainer.saveAsForeground(Widget.builder().build());
+        return widgetContainer.update(widget.getId(), new WidgetAttributes(10, 10));
+    }
+}
@@ -0,0 +1,70 @@
+package com.miro.widget.benchmark;
+
+import com.miro.widget.ratelimit.RateLimitInterceptor;
+import com.miro.widget.ratelimit.RateLimitProperties;
+import com.miro.widget.ratelimit.RateLimiter;
+import io.github.bucket4j.ConsumptionProbe;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request overhead of the rate limiter: the bucket lookup and consumption alone and the whole interceptor
+ * including header handling. Buckets never run dry so every request takes the accepting path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateLimitBenchmark {
+
+    @Param({"100", "10000"})
+    int clients;
+
+    private RateLimiter rateLimiter;
+    private RateLimitInterceptor interceptor;
+    private String[] keys;
+    private MockHttpServletRequest[] requests;
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @Setup
+    public void setup() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setCapacity(1_000_000_000_000L);
+        properties.setRefillTokens(1_000_000_000L);
+        rateLimiter = new RateLimiter(properties);
+        interceptor = new RateLimitInterceptor(rateLimiter, properties);
+        keys = new String[clients];
+        requests = new MockHttpServletRequest[clients];
+        for (int i = 0; i < clients; i++) {
+            keys[i] = "key:" + i;
+            requests[i] = new MockHttpServletRequest(i % 10 == 0 ? "POST" : "GET", "/api/widgets");
+            requests[i].addHeader(properties.getApiKeyHeader(), Integer.toString(i));
+        }
+    }
+
+    @Benchmark
+    public ConsumptionProbe tryConsume() {
+        return rateLimiter.tryConsume(keys[ThreadLocalRandom.current().nextInt(clients)], 1);
+    }
+
+    @Benchmark
+    public boolean preHandle() {
+        return interceptor.preHandle(requests[ThreadLocalRandom.current().nextInt(clients)], response, null);
+    }
+}
@@ -0,0 +1,88 @@
+package com.miro.widget.benchmark;
+
+import com.miro.widget.model.Widget;
+import com.miro.widget.persistence.FsyncPolicy;
+import com.miro.widget.persistence.PersistenceProperties;
+import com.miro.widget.persistence.WidgetPersistence;
+import com.miro.widget.repository.WidgetContainer;
+import com.miro.widget.repository.ZIndexContainer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Startup time of a board of boardSize widgets, either from a snapshot or by replaying the whole log. Every
+ * iteration leaves an empty segment behind, which replay skips.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx8g")
+public class RecoveryBenchmark {
+
+    @Param({"1000000"})
+    int boardSize;
+
+    @Param({"snapshot", "log"})
+    String source;
+
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("widget-recovery");
+        WidgetContainer widgetContainer = new WidgetContainer(new ZIndexContainer());
+        WidgetPersistence persistence = new WidgetPersistence(widgetContainer, properties());
+        persistence.start();
+        Random random = new Random(42);
+        for (int i = 0; i < boardSize; i++) {
+            widgetContainer.saveWithZIndex(Widget.builder().zIndex(random.nextInt(boardSize))
+                    .xIndex(random.nextInt(100_000)).yIndex(random.nextInt(100_000)).width(10).height(10).build());
+        }
+        if ("snapshot".equals(source)) {
+            persistence.close();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public WidgetContainer recover() throws IOException {
+        WidgetContainer widgetContainer = new WidgetContainer(new ZIndexContainer());
+        new WidgetPersistence(widgetContainer, properties()).start();
+        return widgetContainer;
+    }
+
+    private PersistenceProperties properties() {
+        PersistenceProperties properties = new PersistenceProperties();
+        properties.setDirectory(directory);
+        properties.setFsync(FsyncPolicy.OS);
+        return properties;
+    }
+}
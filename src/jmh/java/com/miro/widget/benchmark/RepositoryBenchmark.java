@@ -0,0 +1,102 @@
+package com.miro.widget.benchmark;
+
+import com.miro.widget.model.Widget;
+import com.miro.widget.model.WidgetAttributes;
+import com.miro.widget.repository.WidgetContainer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-threaded cost of the repository operations that do not depend on where a widget lands in z-order; see
+ * {@link ZIndexWriteBenchmark} for those that do. saveAsForeground is scored per batch of
+ * {@value ZIndexWriteBenchmark#OPERATIONS} saves like the z-index writes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class RepositoryBenchmark {
+
+    private static final int PAGE_SIZE = 100;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int boardSize;
+
+    private final Random random = new Random(7);
+    private final List<UUID> widgetIds = new ArrayList<>();
+    private WidgetContainer widgetContainer;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        widgetContainer = Boards.filled(boardSize, widgetIds);
+    }
+
+    @Benchmark
+    public Optional<Widget> findById() {
+        return widgetContainer.findById(widgetIds.get(random.nextInt(boardSize)));
+    }
+
+    @Benchmark
+    public List<Widget> findAll() {
+        return widgetContainer.findAll();
+    }
+
+    @Benchmark
+    public Page<Widget> findAllPageable() {
+        return widgetContainer.findAll(PageRequest.of(random.nextInt(boardSize / PAGE_SIZE), PAGE_SIZE));
+    }
+
+    @Benchmark
+    public Widget updateAttributes() {
+        WidgetAttributes attributes = new WidgetAttributes(10 + random.nextInt(90), 10 + random.nextInt(90));
+        return widgetContainer.update(widgetIds.get(random.nextInt(boardSize)), attributes);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Warmup(iterations = 10)
+    @Measurement(iterations = 10)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Widget> saveAsForeground(Created created) {
+        for (int i = 0; i < ZIndexWriteBenchmark.OPERATIONS; i++) {
+            created.widgets.add(widgetContainer.saveAsForeground(Widget.builder().width(100).height(100).build()));
+        }
+        return created.widgets;
+    }
+
+    /**
+     * Widgets saved during an iteration, deleted afterwards to keep the board at boardSize.
+     */
+    @State(Scope.Thread)
+    public static class Created {
+        final List<Widget> widgets = new ArrayList<>(ZIndexWriteBenchmark.OPERATIONS);
+
+        @TearDown(Level.Iteration)
+        public void delete(RepositoryBenchmark benchmark) {
+            widgets.forEach(widget -> benchmark.widgetContainer.delete(widget.getId()));
+            widgets.clear();
+        }
+    }
+}
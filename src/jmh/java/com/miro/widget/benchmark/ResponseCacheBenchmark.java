@@ -0,0 +1,72 @@
+package com.miro.widget.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miro.widget.cache.ResponseCacheProperties;
+import com.miro.widget.cache.SerializedResponseCache;
+import com.miro.widget.model.Widget;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of producing the JSON body of a list read: encoding the widgets with the application's Jackson setup on every
+ * request against a hit in the {@link SerializedResponseCache} of an unchanged board.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseCacheBenchmark {
+
+    @Param({"100", "1000"})
+    int widgets;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final SerializedResponseCache cache = new SerializedResponseCache(new ResponseCacheProperties());
+    private List<Widget> list;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        list = new ArrayList<>(widgets);
+        for (int i = 0; i < widgets; i++) {
+            list.add(Widget.builder().xIndex(i).yIndex(-i).zIndex(i).width(10).height(20).version(i)
+                    .lastUpdatedAt(ZonedDateTime.now()).build());
+        }
+        hit();
+    }
+
+    @Benchmark
+    public byte[] encode() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(list);
+    }
+
+    @Benchmark
+    public byte[] hit() {
+        return cache.get("default", "all", 0, 0, 1, this::encodeUnchecked).getIdentity();
+    }
+
+    private byte[] encodeUnchecked() {
+        try {
+            return encode();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.miro.widget.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miro.widget.codec.WidgetBinaryHttpMessageConverter;
+import com.miro.widget.model.Widget;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encodes and decodes a list of widgets as JSON with the application's Jackson setup and as
+ * {@code application/x-widget-binary}. Widget has no Jackson creator, so JSON decoding stops at the tree model, which
+ * flatters Jackson.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WidgetCodecBenchmark {
+
+    private static final Type WIDGET_LIST = new ParameterizedTypeReference<List<Widget>>() {
+    }.getType();
+
+    @Param({"1000"})
+    int widgets;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final WidgetBinaryHttpMessageConverter converter = new WidgetBinaryHttpMessageConverter();
+    private List<Widget> list;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() throws IOException {
+        list = new ArrayList<>(widgets);
+        for (int i = 0; i < widgets; i++) {
+            list.add(Widget.builder().xIndex(i).yIndex(-i).zIndex(i).width(10).height(20).version(i)
+                    .lastUpdatedAt(ZonedDateTime.now()).build());
+        }
+        json = encodeJson();
+        binary = encodeBinary();
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws IOException {
+        return objectMapper.writeValueAsBytes(list);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() throws IOException {
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        converter.write(list, WIDGET_LIST, WidgetBinaryHttpMessageConverter.MEDIA_TYPE, output);
+        return output.getBodyAsBytes();
+    }
+
+    @Benchmark
+    public List<JsonNode> decodeJson() throws IOException {
+        return objectMapper.readValue(json, new TypeReference<List<JsonNode>>() {
+        });
+    }
+
+    @Benchmark
+    public Object decodeBinary() throws IOException {
+        return converter.read(WIDGET_LIST, null, new MockHttpInputMessage(binary));
+    }
+}
@@ -0,0 +1,66 @@
+package com.miro.widget.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.CountingOutputStream;
+import com.miro.widget.codec.WidgetProjection;
+import com.miro.widget.model.Widget;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of writing a 100k widget board as JSON with the application's Jackson setup: the full representation against
+ * {@link WidgetProjection}s of a few fields, including the wrapping of every widget. The body is counted instead of
+ * buffered, so the time is the encoding alone; the size of each body is printed once per trial.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WidgetProjectionBenchmark {
+
+    private static final int WIDGETS = 100_000;
+
+    @Param({"", "id,z-index", "id,x-index,y-index,z-index,width,height"})
+    String fields;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private List<Widget> widgets;
+    private WidgetProjection projection;
+
+    @Setup
+    public void setUp() throws IOException {
+        widgets = new ArrayList<>(WIDGETS);
+        for (int i = 0; i < WIDGETS; i++) {
+            widgets.add(Widget.builder().xIndex(i).yIndex(-i).zIndex(i).width(10).height(20).version(i)
+                    .lastUpdatedAt(ZonedDateTime.now()).build());
+        }
+        projection = fields.isEmpty() ? null : WidgetProjection.parse(fields);
+        System.out.printf("%nfields [%s] write %d bytes%n", fields, write());
+    }
+
+    @Benchmark
+    public long write() throws IOException {
+        CountingOutputStream output = new CountingOutputStream(OutputStream.nullOutputStream());
+        objectMapper.writeValue(output, projection == null ? widgets : projection.apply(widgets));
+        return output.getCount();
+    }
+}
@@ -0,0 +1,127 @@
+package com.miro.widget.benchmark;
+
+import com.miro.widget.model.Widget;
+import com.miro.widget.repository.HeapWidgetStore;
+import com.miro.widget.repository.OffHeapWidgetStore;
+import com.miro.widget.repository.WidgetStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads and attribute updates against a full heap and off-heap {@link WidgetStore}. Besides the scores, every trial
+ * prints the heap and direct memory retained per widget, the time of a full collection with the board loaded, and
+ * the collections and total pause time during the measurement, which is where the heap store pays for keeping
+ * millions of objects alive. Add {@code -prof gc} for allocation rates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx3g", "-XX:MaxDirectMemorySize=1g", "-XX:+UseG1GC"})
+public class WidgetStoreBenchmark {
+
+    private static final int LOOKUP_KEYS = 1 << 16;
+
+    @Param({"1000000", "3000000"})
+    int boardSize;
+
+    @Param({"heap", "off-heap"})
+    String store;
+
+    private WidgetStore widgetStore;
+    private UUID[] lookups;
+    private final Random random = new Random(7);
+    private int next;
+    private long gcCount;
+    private long gcMillis;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long heapBefore = usedHeap(memory);
+        long directBefore = usedDirect();
+        widgetStore = "heap".equals(store) ? new HeapWidgetStore() : new OffHeapWidgetStore();
+        lookups = new UUID[LOOKUP_KEYS];
+        for (int i = 0; i < boardSize; i++) {
+            Widget widget = Widget.builder().xIndex(i).yIndex(i).zIndex(i).width(10).height(10).build();
+            widgetStore.put(widget);
+            if (i < LOOKUP_KEYS) {
+                lookups[i] = widget.getId();
+            }
+        }
+        long started = System.nanoTime();
+        long heapAfter = usedHeap(memory);
+        System.out.printf("%n%s store retains %d heap and %d direct bytes per widget, full GC took %d ms%n", store,
+                (heapAfter - heapBefore) / boardSize, (usedDirect() - directBefore) / boardSize,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) / 3);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetGcCounters() {
+        gcCount = collections();
+        gcMillis = collectionMillis();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printGcCounters() {
+        System.out.printf("%n%d collections, %d ms paused%n", collections() - gcCount, collectionMillis() - gcMillis);
+    }
+
+    @Benchmark
+    public Widget get() {
+        return widgetStore.get(lookups[random.nextInt(LOOKUP_KEYS)]);
+    }
+
+    @Benchmark
+    public Widget update() {
+        return widgetStore.computeIfPresent(lookups[next++ & (LOOKUP_KEYS - 1)],
+                widget -> widget.toBuilder().height(widget.getHeight() + 1).version(widget.getVersion() + 1).build());
+    }
+
+    /**
+     * Three full collections, so the caller can time an average one.
+     */
+    private static long usedHeap(MemoryMXBean memory) {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static long usedDirect() {
+        return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> "direct".equals(pool.getName()))
+                .mapToLong(BufferPoolMXBean::getMemoryUsed)
+                .sum();
+    }
+
+    private static long collections() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long collectionMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+}
@@ -0,0 +1,49 @@
+package com.miro.widget.benchmark;
+
+import java.util.Random;
+
+/**
+ * Where new or moved widgets land on a board whose z-indexes are roughly 0 to boardSize - 1.
+ */
+public enum ZDistribution {
+
+    /**
+     * Above every widget, nothing shifts.
+     */
+    FRONT {
+        @Override
+        int next(Random random, int boardSize) {
+            return Integer.MAX_VALUE / 2;
+        }
+    },
+    /**
+     * Below every widget, the whole board shifts.
+     */
+    BACK {
+        @Override
+        int next(Random random, int boardSize) {
+            return 0;
+        }
+    },
+    RANDOM {
+        @Override
+        int next(Random random, int boardSize) {
+            return random.nextInt(boardSize);
+        }
+    },
+    /**
+     * Around a few hot spots, like users editing the same group of widgets.
+     */
+    CLUSTERED {
+        private static final int HOT_SPOTS = 8;
+        private static final int SPREAD = 32;
+
+        @Override
+        int next(Random random, int boardSize) {
+            int center = (random.nextInt(HOT_SPOTS) * 2 + 1) * boardSize / (HOT_SPOTS * 2);
+            return Math.max(0, center + (int) (random.nextGaussian() * SPREAD));
+        }
+    };
+
+    abstract int next(Random random, int boardSize);
+}
@@ -0,0 +1,110 @@
+package com.miro.widget.benchmark;
+
+import com.miro.widget.model.Widget;
+import com.miro.widget.model.WidgetAttributes;
+import com.miro.widget.repository.WidgetContainer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts, moves and deletes {@value #OPERATIONS} widgets per invocation at z-indexes drawn from a
+ * {@link ZDistribution}. The board is filled once per trial; after every iteration inserted widgets are deleted and
+ * deleted ones re-inserted, so its size stays at boardSize instead of growing with the measurement time. Scores are
+ * per invocation, i.e. for all {@value #OPERATIONS} operations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class ZIndexWriteBenchmark {
+
+    static final int OPERATIONS = 1_000;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int boardSize;
+
+    @Param({"FRONT", "BACK", "RANDOM", "CLUSTERED"})
+    ZDistribution distribution;
+
+    private final Random random = new Random(7);
+    private final List<UUID> widgetIds = new ArrayList<>();
+    private final List<Widget> created = new ArrayList<>(OPERATIONS);
+    private final List<Widget> deleted = new ArrayList<>(OPERATIONS);
+    private WidgetContainer widgetContainer;
+    private int[] zIndexes;
+    private UUID[] targets;
+    private Widget[] victims;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        widgetContainer = Boards.filled(boardSize, widgetIds);
+    }
+
+    @Setup(Level.Iteration)
+    public void draw() {
+        zIndexes = new int[OPERATIONS];
+        targets = new UUID[OPERATIONS];
+        victims = new Widget[OPERATIONS];
+        List<UUID> candidates = new ArrayList<>(widgetIds);
+        for (int i = 0; i < OPERATIONS; i++) {
+            zIndexes[i] = distribution.next(random, boardSize);
+            targets[i] = candidates.remove(random.nextInt(candidates.size()));
+            victims[i] = widgetContainer.findById(targets[i]).orElseThrow(IllegalStateException::new);
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void restore() {
+        created.forEach(widget -> widgetContainer.delete(widget.getId()));
+        created.clear();
+        deleted.forEach(widgetContainer::saveWithZIndex);
+        deleted.clear();
+    }
+
+    @Benchmark
+    public List<Widget> saveWithZIndex() {
+        for (int zIndex : zIndexes) {
+            created.add(widgetContainer.saveWithZIndex(Widget.builder().zIndex(zIndex).width(100).height(100)
+                    .build()));
+        }
+        return created;
+    }
+
+    @Benchmark
+    public WidgetContainer move() {
+        for (int i = 0; i < OPERATIONS; i++) {
+            WidgetAttributes attributes = new WidgetAttributes();
+            attributes.setZIndex(zIndexes[i]);
+            widgetContainer.update(targets[i], attributes);
+        }
+        return widgetContainer;
+    }
+
+    @Benchmark
+    public List<Widget> delete() {
+        for (Widget victim : victims) {
+            widgetContainer.delete(victim.getId());
+            deleted.add(victim);
+        }
+        return deleted;
+    }
+}
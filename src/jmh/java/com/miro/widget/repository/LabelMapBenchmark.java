@@ -0,0 +1,103 @@
+package com.miro.widget.repository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Label lookups and heap footprint of {@link UuidLongMap} against the {@code ConcurrentHashMap<UUID, Long>} it
+ * replaced in {@link ZIndexContainer}. Lookups use fresh key objects, as a request would, so neither side profits
+ * from identity hits. The retained heap per entry is printed once per trial, keys not counted because widgets hold
+ * them anyway. Lives in the repository package as the map is package-private.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class LabelMapBenchmark {
+
+    private static final int LOOKUP_KEYS = 1 << 16;
+
+    @Param({"1000000"})
+    int size;
+
+    @Param({"ConcurrentHashMap", "UuidLongMap"})
+    String map;
+
+    private UUID[] keys;
+    private UUID[] lookups;
+    private ConcurrentHashMap<UUID, Long> concurrentHashMap;
+    private UuidLongMap uuidLongMap;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        keys = new UUID[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+        lookups = new UUID[LOOKUP_KEYS];
+        for (int i = 0; i < LOOKUP_KEYS; i++) {
+            UUID key = keys[random.nextInt(size)];
+            lookups[i] = new UUID(key.getMostSignificantBits(), key.getLeastSignificantBits());
+        }
+        long before = usedHeap();
+        if ("ConcurrentHashMap".equals(map)) {
+            concurrentHashMap = fillConcurrentHashMap();
+        } else {
+            uuidLongMap = fillUuidLongMap();
+        }
+        System.out.printf("%n%s retains %d bytes per entry%n", map, (usedHeap() - before) / size);
+    }
+
+    @Benchmark
+    public long get() {
+        UUID key = lookups[next++ & (LOOKUP_KEYS - 1)];
+        if (uuidLongMap != null) {
+            return uuidLongMap.get(key);
+        }
+        Long label = concurrentHashMap.get(key);
+        return label == null ? UuidLongMap.NO_VALUE : label;
+    }
+
+    private ConcurrentHashMap<UUID, Long> fillConcurrentHashMap() {
+        ConcurrentHashMap<UUID, Long> filled = new ConcurrentHashMap<>();
+        for (int i = 0; i < size; i++) {
+            filled.put(keys[i], i * ZIndexContainer.LABEL_STEP);
+        }
+        return filled;
+    }
+
+    private UuidLongMap fillUuidLongMap() {
+        UuidLongMap filled = new UuidLongMap();
+        for (int i = 0; i < size; i++) {
+            filled.put(keys[i], i * ZIndexContainer.LABEL_STEP);
+        }
+        return filled;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
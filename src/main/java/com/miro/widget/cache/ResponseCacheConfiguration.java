@@ -0,0 +1,15 @@
+package com.miro.widget.cache;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ResponseCacheProperties.class)
+public class ResponseCacheConfiguration {
+
+    @Bean
+    public SerializedResponseCache serializedResponseCache(ResponseCacheProperties properties) {
+        return new SerializedResponseCache(properties);
+    }
+}
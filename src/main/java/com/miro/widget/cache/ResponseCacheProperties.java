@@ -0,0 +1,27 @@
+package com.miro.widget.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "widget.response-cache")
+public class ResponseCacheProperties {
+
+    /**
+     * Upper bound of the encoded responses kept, including their gzip variants; 0 disables caching.
+     */
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+
+    /**
+     * Also keep a gzip-compressed copy for clients sending {@code Accept-Encoding: gzip}.
+     */
+    private boolean gzip = true;
+
+    /**
+     * Responses smaller than this are not compressed, since gzip would barely shrink them.
+     */
+    private DataSize gzipMinSize = DataSize.ofKilobytes(1);
+}
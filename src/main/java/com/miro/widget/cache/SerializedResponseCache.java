@@ -0,0 +1,95 @@
+package com.miro.widget.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import lombok.Value;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps encoded response bodies keyed by board, endpoint, page, size and the board's modification sequence number,
+ * so a repeated read of an unchanged board writes stored bytes instead of mapping widgets again. Any change moves the
+ * board to a new sequence number; entries of older numbers are never hit again and age out. The cache is bounded by
+ * the total size of its bodies and evicts the least recently used first.
+ */
+public class SerializedResponseCache {
+
+    private final Cache<Key, CachedResponse> cache;
+    private final boolean gzip;
+    private final long gzipMinSize;
+
+    public SerializedResponseCache(ResponseCacheProperties properties) {
+        this.cache = CacheBuilder.newBuilder()
+                .maximumWeight(properties.getMaxSize().toBytes())
+                .weigher((Key key, CachedResponse response) -> response.weight())
+                .build();
+        this.gzip = properties.isGzip();
+        this.gzipMinSize = properties.getGzipMinSize().toBytes();
+    }
+
+    /**
+     * @param board    board id
+     * @param endpoint endpoint name
+     * @param page     page number, 0 if not paged
+     * @param size     page size, 0 if not paged
+     * @param version  modification sequence number read before the body is produced
+     * @param encoder  produces the encoded body on a miss
+     * @return cached or newly encoded response
+     */
+    public CachedResponse get(String board, String endpoint, int page, int size, long version,
+                              Supplier<byte[]> encoder) {
+        try {
+            return cache.get(new Key(board, endpoint, page, size, version), () -> encode(encoder.get()));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    long size() {
+        return cache.size();
+    }
+
+    private CachedResponse encode(byte[] body) {
+        if (!gzip || body.length < gzipMinSize) {
+            return new CachedResponse(body, null);
+        }
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new CachedResponse(body, compressed.toByteArray());
+    }
+
+    @Value
+    private static class Key {
+        String board;
+        String endpoint;
+        int page;
+        int size;
+        long version;
+    }
+
+    /**
+     * Encoded body and its gzip-compressed copy, which is null if compression is off or the body is small.
+     */
+    @Value
+    public static class CachedResponse {
+        byte[] identity;
+        byte[] gzip;
+
+        private int weight() {
+            return identity.length + (gzip == null ? 0 : gzip.length);
+        }
+    }
+}
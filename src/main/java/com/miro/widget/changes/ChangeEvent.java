@@ -0,0 +1,53 @@
+package com.miro.widget.changes;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.miro.widget.model.Widget;
+import lombok.Value;
+
+import java.util.UUID;
+
+/**
+ * One entry of the {@link ChangeFeed}. Applying the events of a feed in order to a copy of the board keeps it equal
+ * to the board:
+ * <ul>
+ * <li>{@link Type#SHIFTED}: every widget with a z-index of at least {@code from} moves up by {@code by}</li>
+ * <li>{@link Type#CREATED}, {@link Type#UPDATED}: put {@code widget}, which carries its z-index at that point</li>
+ * <li>{@link Type#DELETED}: remove widget {@code id}</li>
+ * <li>{@link Type#RESYNC}: events were lost, reload the board from the snapshot</li>
+ * </ul>
+ */
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChangeEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED, SHIFTED, RESYNC
+    }
+
+    long seq;
+    Type type;
+    UUID id;
+    Widget widget;
+    Integer from;
+    Integer by;
+
+    static ChangeEvent created(long seq, Widget widget) {
+        return new ChangeEvent(seq, Type.CREATED, widget.getId(), widget, null, null);
+    }
+
+    static ChangeEvent updated(long seq, Widget widget) {
+        return new ChangeEvent(seq, Type.UPDATED, widget.getId(), widget, null, null);
+    }
+
+    static ChangeEvent deleted(long seq, UUID widgetId) {
+        return new ChangeEvent(seq, Type.DELETED, widgetId, null, null, null);
+    }
+
+    static ChangeEvent shifted(long seq, int from, int by) {
+        return new ChangeEvent(seq, Type.SHIFTED, null, null, from, by);
+    }
+
+    static ChangeEvent resync(long seq) {
+        return new ChangeEvent(seq, Type.RESYNC, null, null, null, null);
+    }
+}
@@ -0,0 +1,368 @@
+package com.miro.widget.changes;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miro.widget.exception.ServiceUnavailableException;
+import com.miro.widget.repository.Mutation;
+import com.miro.widget.repository.MutationListener;
+import com.miro.widget.repository.WidgetContainer;
+import com.miro.widget.repository.ZIndexEntry;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the latest changes of a {@link WidgetContainer} in a bounded ring buffer and pushes them to Server-Sent Events
+ * subscribers.
+ * <p>
+ * A shift caused by an insert or move is published as a single {@link ChangeEvent.Type#SHIFTED} event, so a cascade
+ * costs one event instead of one per shifted widget. Each subscriber reads the buffer from its own cursor. A fixed
+ * number of dispatcher threads write to subscribers with non-blocking servlet output and move on as soon as a
+ * connection is not ready, so a slow client holds neither a thread nor a queue; it is picked up again once the
+ * container reports it writable. A subscriber that falls behind receives its backlog coalesced to the last record of
+ * each widget, and one that falls out of the buffer receives {@link ChangeEvent.Type#RESYNC} and has to reload the
+ * {@link #snapshot()}, or is disconnected if it is still not ready to be written to by then.
+ */
+@Slf4j
+public class ChangeFeed implements MutationListener, Closeable {
+
+    private static final long RETRY_AFTER_SECONDS = 1;
+
+    private final WidgetContainer widgetContainer;
+    private final ChangeFeedProperties properties;
+    private final ObjectMapper objectMapper;
+    private final ChangeEvent[] ring;
+    private long lastSeq;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Semaphore subscriberPermits;
+    private final ExecutorService dispatcher;
+
+    public ChangeFeed(WidgetContainer widgetContainer, ChangeFeedProperties properties, ObjectMapper objectMapper) {
+        this.widgetContainer = widgetContainer;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.ring = new ChangeEvent[properties.getCapacity()];
+        this.subscriberPermits = new Semaphore(properties.getMaxSubscribers());
+        AtomicInteger threads = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(properties.getDispatcherThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "widget-changes-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public void onMutation(Mutation mutation) {
+        if (mutation.getType() == Mutation.Type.BATCH) {
+            mutation.getMutations().forEach(this::onMutation);
+            return;
+        }
+        synchronized (this) {
+            switch (mutation.getType()) {
+                case CREATE:
+                    appendShift(mutation);
+                    append(ChangeEvent.created(lastSeq + 1, mutation.getWidget()));
+                    break;
+                case UPDATE:
+                    appendShift(mutation);
+                    append(ChangeEvent.updated(lastSeq + 1, mutation.getWidget()));
+                    break;
+                default:
+                    append(ChangeEvent.deleted(lastSeq + 1, mutation.getWidgetId()));
+            }
+        }
+    }
+
+    @Override
+    public void afterMutation() {
+        subscribers.forEach(this::schedule);
+    }
+
+    /**
+     * Skips the cursor past the buffer, so every subscriber receives {@link ChangeEvent.Type#RESYNC}.
+     */
+    @Override
+    public void onReset() {
+        synchronized (this) {
+            lastSeq += ring.length + 1;
+        }
+        subscribers.forEach(this::schedule);
+    }
+
+    /**
+     * @return sequence number of the latest event, 0 before the first
+     */
+    public synchronized long lastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * Events following cursor, coalesced so each widget appears at most once with its latest record.
+     *
+     * @param cursor sequence number of the last event the caller has seen
+     * @return events after cursor, or a single {@link ChangeEvent.Type#RESYNC} if some of them are no longer kept
+     * or cursor is ahead of the feed
+     */
+    public List<ChangeEvent> since(long cursor) {
+        List<ChangeEvent> events;
+        synchronized (this) {
+            if (cursor > lastSeq || cursor < lastSeq - ring.length) {
+                return List.of(ChangeEvent.resync(lastSeq));
+            }
+            events = new ArrayList<>((int) (lastSeq - cursor));
+            for (long seq = cursor + 1; seq <= lastSeq; seq++) {
+                events.add(ring[slot(seq)]);
+            }
+        }
+        return coalesce(events);
+    }
+
+    /**
+     * @return the widgets at the current position of the feed; events up to its seq are already contained and have
+     * to be skipped by the client
+     */
+    public ChangeSnapshot snapshot() {
+        Position position = widgetContainer.snapshotZOrder(order -> new Position(lastSeq(), order));
+        return new ChangeSnapshot(position.getSeq(),
+                widgetContainer.stream(position.getOrder()).collect(Collectors.toList()));
+    }
+
+    /**
+     * Starts async processing of request and streams the events after cursor to it as Server-Sent Events.
+     *
+     * @param cursor sequence number of the last event the client has seen, or null to start with the next event
+     * @throws ServiceUnavailableException if {@link ChangeFeedProperties#getMaxSubscribers()} are connected already
+     */
+    public void subscribe(Long cursor, HttpServletRequest request, HttpServletResponse response) {
+        subscribe(cursor, listener -> {
+            try {
+                return ServletChannel.open(request, response, properties.getSubscriptionTimeout(), listener);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    void subscribe(Long cursor, Function<ChannelListener, Channel> connect) {
+        if (!subscriberPermits.tryAcquire()) {
+            throw new ServiceUnavailableException("Too many change feed subscribers", RETRY_AFTER_SECONDS);
+        }
+        Subscriber subscriber = new Subscriber(cursor == null ? lastSeq() : cursor);
+        try {
+            subscriber.channel = connect.apply(subscriber);
+        } catch (RuntimeException e) {
+            if (subscriber.closed.compareAndSet(false, true)) {
+                subscriberPermits.release();
+            }
+            throw e;
+        }
+        subscribers.add(subscriber);
+        if (subscriber.closed.get()) {
+            subscribers.remove(subscriber);
+            return;
+        }
+        schedule(subscriber);
+    }
+
+    int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void close() {
+        dispatcher.shutdownNow();
+        subscribers.forEach(this::disconnect);
+    }
+
+    private void appendShift(Mutation mutation) {
+        if (mutation.isShifted()) {
+            append(ChangeEvent.shifted(lastSeq + 1, mutation.getZIndex(), 1));
+        }
+    }
+
+    private void append(ChangeEvent event) {
+        lastSeq = event.getSeq();
+        ring[slot(lastSeq)] = event;
+    }
+
+    private int slot(long seq) {
+        return (int) (seq % ring.length);
+    }
+
+    /**
+     * Keeps only the last record or deletion of every widget and merges adjacent shifts from the same z-index.
+     * Dropped records are always followed by a newer one of the same widget, so replaying the result yields the
+     * same board, and the last event, whose seq becomes the client's cursor, is never dropped.
+     */
+    static List<ChangeEvent> coalesce(List<ChangeEvent> events) {
+        Set<UUID> seen = new HashSet<>();
+        Deque<ChangeEvent> coalesced = new ArrayDeque<>(events.size());
+        for (int i = events.size() - 1; i >= 0; i--) {
+            ChangeEvent event = events.get(i);
+            if (event.getType() != ChangeEvent.Type.SHIFTED) {
+                if (seen.add(event.getId())) {
+                    coalesced.addFirst(event);
+                }
+                continue;
+            }
+            ChangeEvent next = coalesced.peekFirst();
+            if (next != null && next.getType() == ChangeEvent.Type.SHIFTED && next.getFrom().equals(event.getFrom())) {
+                coalesced.removeFirst();
+                coalesced.addFirst(ChangeEvent.shifted(next.getSeq(), event.getFrom(), event.getBy() + next.getBy()));
+            } else {
+                coalesced.addFirst(event);
+            }
+        }
+        return new ArrayList<>(coalesced);
+    }
+
+    private void schedule(Subscriber subscriber) {
+        subscriber.pending.set(true);
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            try {
+                dispatcher.execute(() -> drain(subscriber));
+            } catch (RejectedExecutionException e) {
+                subscriber.scheduled.set(false);
+            }
+        }
+    }
+
+    /**
+     * Writes the events after the subscriber's cursor for as long as its channel accepts them without blocking, and
+     * reschedules itself if it was woken up meanwhile. A channel that is not ready is left alone until it reports
+     * being writable, unless its cursor has fallen out of the buffer, in which case it is disconnected.
+     */
+    private void drain(Subscriber subscriber) {
+        subscriber.pending.set(false);
+        try {
+            write(subscriber);
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Dropping change feed subscriber", e);
+            disconnect(subscriber);
+            return;
+        } finally {
+            subscriber.scheduled.set(false);
+        }
+        if (subscriber.pending.get()) {
+            schedule(subscriber);
+        }
+    }
+
+    private void write(Subscriber subscriber) throws IOException {
+        Channel channel = subscriber.channel;
+        if (channel == null || subscriber.closed.get()) {
+            return;
+        }
+        if (!channel.isReady()) {
+            if (subscriber.cursor < lastSeq() - ring.length) {
+                log.debug("Disconnecting change feed subscriber that fell out of the buffer");
+                disconnect(subscriber);
+            }
+            return;
+        }
+        for (ChangeEvent event : since(subscriber.cursor)) {
+            channel.write(frame(event));
+            subscriber.cursor = event.getSeq();
+            if (!channel.isReady()) {
+                return;
+            }
+        }
+        channel.flush();
+    }
+
+    private byte[] frame(ChangeEvent event) throws IOException {
+        String name = event.getType() == ChangeEvent.Type.RESYNC ? "resync" : "change";
+        return ("id:" + event.getSeq() + "\nevent:" + name + "\ndata:" + objectMapper.writeValueAsString(event)
+                + "\n\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void disconnect(Subscriber subscriber) {
+        if (subscriber.closed.compareAndSet(false, true)) {
+            subscribers.remove(subscriber);
+            subscriberPermits.release();
+            if (subscriber.channel != null) {
+                subscriber.channel.close();
+            }
+        }
+    }
+
+    @Value
+    private static class Position {
+        long seq;
+        Iterator<ZIndexEntry> order;
+    }
+
+    /**
+     * Connection to one subscriber whose writes never block; it has to be ready before every write and flush.
+     */
+    interface Channel {
+
+        boolean isReady();
+
+        void write(byte[] frame) throws IOException;
+
+        void flush() throws IOException;
+
+        void close();
+    }
+
+    /**
+     * Callbacks of a {@link Channel} to the feed.
+     */
+    interface ChannelListener {
+
+        /**
+         * The channel has become ready after having reported it was not.
+         */
+        void onWritable();
+
+        /**
+         * The channel has been completed, has timed out or has failed.
+         */
+        void onClosed();
+    }
+
+    private final class Subscriber implements ChannelListener {
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean pending = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile Channel channel;
+        private volatile long cursor;
+
+        private Subscriber(long cursor) {
+            this.cursor = cursor;
+        }
+
+        @Override
+        public void onWritable() {
+            schedule(this);
+        }
+
+        @Override
+        public void onClosed() {
+            disconnect(this);
+        }
+    }
+}
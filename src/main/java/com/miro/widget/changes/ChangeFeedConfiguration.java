@@ -0,0 +1,20 @@
+package com.miro.widget.changes;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miro.widget.repository.WidgetContainer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(ChangeFeedProperties.class)
+public class ChangeFeedConfiguration {
+
+    @Bean(destroyMethod = "close")
+    public ChangeFeed changeFeed(WidgetContainer widgetContainer, ChangeFeedProperties properties,
+                                 ObjectMapper objectMapper) {
+        ChangeFeed changeFeed = new ChangeFeed(widgetContainer, properties, objectMapper);
+        widgetContainer.addMutationListener(changeFeed);
+        return changeFeed;
+    }
+}
@@ -0,0 +1,33 @@
+package com.miro.widget.changes;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "widget.changes")
+public class ChangeFeedProperties {
+
+    /**
+     * Number of events kept for clients catching up; clients falling further behind are told to resync.
+     */
+    private int capacity = 4096;
+
+    /**
+     * Threads writing events to subscribers. Writes never block, so the number does not grow with slow clients.
+     */
+    private int dispatcherThreads = 2;
+
+    /**
+     * Subscribers served at once; further subscriptions are answered with 503 Service Unavailable.
+     */
+    private int maxSubscribers = 1_000;
+
+    /**
+     * How long a subscription stays open before the client has to reconnect.
+     */
+    private Duration subscriptionTimeout = Duration.ofMinutes(30);
+}
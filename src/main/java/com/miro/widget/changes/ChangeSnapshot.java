@@ -0,0 +1,15 @@
+package com.miro.widget.changes;
+
+import com.miro.widget.model.Widget;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Widgets sorted by z-index as of feed position {@code seq}; a client follows the feed from there.
+ */
+@Value
+public class ChangeSnapshot {
+    long seq;
+    List<Widget> widgets;
+}
@@ -0,0 +1,98 @@
+package com.miro.widget.changes;
+
+import org.springframework.http.MediaType;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link ChangeFeed.Channel} over an async servlet response in non-blocking mode: the container buffers what a write
+ * could not hand to the socket, reports {@link #isReady()} false until it is sent and then calls
+ * {@link #onWritePossible()}.
+ */
+final class ServletChannel implements ChangeFeed.Channel, WriteListener, AsyncListener {
+
+    private final AsyncContext asyncContext;
+    private final ServletOutputStream out;
+    private final ChangeFeed.ChannelListener listener;
+    private final AtomicBoolean completed = new AtomicBoolean();
+
+    private ServletChannel(AsyncContext asyncContext, ServletOutputStream out, ChangeFeed.ChannelListener listener) {
+        this.asyncContext = asyncContext;
+        this.out = out;
+        this.listener = listener;
+    }
+
+    static ServletChannel open(HttpServletRequest request, HttpServletResponse response, Duration timeout,
+                               ChangeFeed.ChannelListener listener) throws IOException {
+        response.setContentType(MediaType.TEXT_EVENT_STREAM_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        AsyncContext asyncContext = request.startAsync();
+        asyncContext.setTimeout(timeout.toMillis());
+        ServletChannel channel = new ServletChannel(asyncContext, response.getOutputStream(), listener);
+        asyncContext.addListener(channel);
+        channel.out.setWriteListener(channel);
+        return channel;
+    }
+
+    @Override
+    public boolean isReady() {
+        return out.isReady();
+    }
+
+    @Override
+    public void write(byte[] frame) throws IOException {
+        out.write(frame);
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() {
+        if (completed.compareAndSet(false, true)) {
+            asyncContext.complete();
+        }
+    }
+
+    @Override
+    public void onWritePossible() {
+        listener.onWritable();
+    }
+
+    @Override
+    public void onError(Throwable error) {
+        listener.onClosed();
+    }
+
+    @Override
+    public void onComplete(AsyncEvent event) {
+        completed.set(true);
+        listener.onClosed();
+    }
+
+    @Override
+    public void onTimeout(AsyncEvent event) {
+        listener.onClosed();
+    }
+
+    @Override
+    public void onError(AsyncEvent event) {
+        listener.onClosed();
+    }
+
+    @Override
+    public void onStartAsync(AsyncEvent event) {
+    }
+}
@@ -0,0 +1,89 @@
+package com.miro.widget.codec;
+
+import com.miro.widget.model.Widget;
+import com.miro.widget.model.WidgetAttributes;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Fixed-width big-endian layout of {@code application/x-widget-binary}.
+ * <ul>
+ * <li>Widget, {@value #WIDGET_BYTES} bytes: id (2 longs), x-index, y-index, z-index, height, width (ints), version
+ * (long), lastUpdatedAt in epoch millis (long, {@link Long#MIN_VALUE} if unset). Timestamps are decoded in UTC.</li>
+ * <li>WidgetAttributes, {@value #ATTRIBUTES_BYTES} bytes: presence bits for x-index, y-index, z-index, height, width
+ * (byte) followed by the five ints, 0 if absent.</li>
+ * <li>Lists: element count (int) followed by the elements.</li>
+ * </ul>
+ */
+public final class WidgetBinaryCodec {
+
+    public static final int WIDGET_BYTES = 2 * Long.BYTES + 5 * Integer.BYTES + 2 * Long.BYTES;
+    public static final int ATTRIBUTES_BYTES = 1 + 5 * Integer.BYTES;
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    private WidgetBinaryCodec() {
+    }
+
+    public static void writeWidget(ByteBuffer buffer, Widget widget) {
+        buffer.putLong(widget.getId().getMostSignificantBits());
+        buffer.putLong(widget.getId().getLeastSignificantBits());
+        buffer.putInt(widget.getXIndex());
+        buffer.putInt(widget.getYIndex());
+        buffer.putInt(widget.getZIndex());
+        buffer.putInt(widget.getHeight());
+        buffer.putInt(widget.getWidth());
+        buffer.putLong(widget.getVersion());
+        ZonedDateTime lastUpdatedAt = widget.getLastUpdatedAt();
+        buffer.putLong(Objects.isNull(lastUpdatedAt) ? NO_TIMESTAMP : lastUpdatedAt.toInstant().toEpochMilli());
+    }
+
+    public static Widget readWidget(ByteBuffer buffer) {
+        UUID id = new UUID(buffer.getLong(), buffer.getLong());
+        Widget.WidgetBuilder builder = Widget.builder()
+                .id(id)
+                .xIndex(buffer.getInt())
+                .yIndex(buffer.getInt())
+                .zIndex(buffer.getInt())
+                .height(buffer.getInt())
+                .width(buffer.getInt())
+                .version(buffer.getLong());
+        long lastUpdatedAt = buffer.getLong();
+        return builder.lastUpdatedAt(lastUpdatedAt == NO_TIMESTAMP ? null
+                : ZonedDateTime.ofInstant(Instant.ofEpochMilli(lastUpdatedAt), ZoneOffset.UTC)).build();
+    }
+
+    public static void writeAttributes(ByteBuffer buffer, WidgetAttributes attributes) {
+        Integer[] values = {attributes.getXIndex(), attributes.getYIndex(), attributes.getZIndex(),
+                attributes.getHeight(), attributes.getWidth()};
+        int present = 0;
+        for (int i = 0; i < values.length; i++) {
+            if (Objects.nonNull(values[i])) {
+                present |= 1 << i;
+            }
+        }
+        buffer.put((byte) present);
+        for (Integer value : values) {
+            buffer.putInt(Objects.isNull(value) ? 0 : value);
+        }
+    }
+
+    public static WidgetAttributes readAttributes(ByteBuffer buffer) {
+        int present = buffer.get();
+        WidgetAttributes attributes = new WidgetAttributes();
+        attributes.setXIndex(optional(buffer.getInt(), present, 0));
+        attributes.setYIndex(optional(buffer.getInt(), present, 1));
+        attributes.setZIndex(optional(buffer.getInt(), present, 2));
+        attributes.setHeight(optional(buffer.getInt(), present, 3));
+        attributes.setWidth(optional(buffer.getInt(), present, 4));
+        return attributes;
+    }
+
+    private static Integer optional(int value, int present, int bit) {
+        return (present & 1 << bit) != 0 ? value : null;
+    }
+}
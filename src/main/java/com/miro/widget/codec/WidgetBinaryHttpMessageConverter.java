@@ -0,0 +1,129 @@
+package com.miro.widget.codec;
+
+import com.miro.widget.model.Widget;
+import com.miro.widget.model.WidgetAttributes;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Reads and writes {@link Widget}, {@link WidgetAttributes} and lists of them as {@value #MEDIA_TYPE_VALUE} using
+ * {@link WidgetBinaryCodec}. Lists are written through one reusable buffer, so the size of the response does not
+ * affect allocation.
+ */
+public class WidgetBinaryHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+    public static final String MEDIA_TYPE_VALUE = "application/x-widget-binary";
+    public static final MediaType MEDIA_TYPE = MediaType.parseMediaType(MEDIA_TYPE_VALUE);
+    private static final int BUFFER_SIZE = 8192;
+
+    public WidgetBinaryHttpMessageConverter() {
+        super(MEDIA_TYPE);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Widget.class == clazz || WidgetAttributes.class == clazz;
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return (type instanceof Class ? supports((Class<?>) type) : elementType(type) != null) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return (supports(clazz) || elementType(type) != null) && canWrite(mediaType);
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(StreamUtils.copyToByteArray(inputMessage.getBody()));
+        try {
+            Class<?> elementType = type instanceof Class ? null : elementType(type);
+            if (elementType == null) {
+                return readElement(buffer, type == Widget.class);
+            }
+            int size = buffer.getInt();
+            List<Object> elements = new ArrayList<>(Math.min(size, buffer.remaining()));
+            for (int i = 0; i < size; i++) {
+                elements.add(readElement(buffer, elementType == Widget.class));
+            }
+            return elements;
+        } catch (BufferUnderflowException e) {
+            throw new HttpMessageNotReadableException("Truncated " + MEDIA_TYPE_VALUE + " body", e, inputMessage);
+        }
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        return read(clazz, null, inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+        OutputStream body = outputMessage.getBody();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        if (object instanceof Collection) {
+            Collection<?> elements = (Collection<?>) object;
+            buffer.putInt(elements.size());
+            for (Object element : elements) {
+                if (buffer.remaining() < WidgetBinaryCodec.WIDGET_BYTES) {
+                    flush(buffer, body);
+                }
+                writeElement(buffer, element);
+            }
+        } else {
+            writeElement(buffer, object);
+        }
+        flush(buffer, body);
+    }
+
+    private static Object readElement(ByteBuffer buffer, boolean widget) {
+        return widget ? WidgetBinaryCodec.readWidget(buffer) : WidgetBinaryCodec.readAttributes(buffer);
+    }
+
+    private static void writeElement(ByteBuffer buffer, Object element) {
+        if (element instanceof Widget) {
+            WidgetBinaryCodec.writeWidget(buffer, (Widget) element);
+        } else {
+            WidgetBinaryCodec.writeAttributes(buffer, (WidgetAttributes) element);
+        }
+    }
+
+    private static void flush(ByteBuffer buffer, OutputStream body) throws IOException {
+        body.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+    }
+
+    /**
+     * @return Widget or WidgetAttributes if type is a collection of them, otherwise null
+     */
+    private static Class<?> elementType(Type type) {
+        if (!(type instanceof ParameterizedType)) {
+            return null;
+        }
+        ParameterizedType parameterized = (ParameterizedType) type;
+        Type[] arguments = parameterized.getActualTypeArguments();
+        if (!(parameterized.getRawType() instanceof Class)
+                || !Collection.class.isAssignableFrom((Class<?>) parameterized.getRawType())
+                || arguments.length != 1 || !(arguments[0] instanceof Class)) {
+            return null;
+        }
+        Class<?> element = (Class<?>) arguments[0];
+        return element == Widget.class || element == WidgetAttributes.class ? element : null;
+    }
+}
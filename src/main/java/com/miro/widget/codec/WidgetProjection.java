@@ -0,0 +1,196 @@
+package com.miro.widget.codec;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.miro.widget.exception.InvalidRequestException;
+import com.miro.widget.model.CursorPage;
+import com.miro.widget.model.Widget;
+import org.springframework.data.domain.Page;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Writes a subset of the JSON fields of a {@link Widget}, e.g. for {@code ?fields=id,z-index}. There is one
+ * precompiled projection per subset, holding the selected fields in a fixed order with pre-encoded names, so writing
+ * a widget only reads and formats the selected fields. Field names are those of the full representation.
+ */
+public final class WidgetProjection {
+
+    public enum Field {
+        ID("id") {
+            @Override
+            void write(Widget widget, JsonGenerator generator) throws IOException {
+                generator.writeString(widget.getId().toString());
+            }
+        },
+        X_INDEX("x-index") {
+            @Override
+            void write(Widget widget, JsonGenerator generator) throws IOException {
+                generator.writeNumber(widget.getXIndex());
+            }
+        },
+        Y_INDEX("y-index") {
+            @Override
+            void write(Widget widget, JsonGenerator generator) throws IOException {
+                generator.writeNumber(widget.getYIndex());
+            }
+        },
+        Z_INDEX("z-index") {
+            @Override
+            void write(Widget widget, JsonGenerator generator) throws IOException {
+                generator.writeNumber(widget.getZIndex());
+            }
+        },
+        HEIGHT("height") {
+            @Override
+            void write(Widget widget, JsonGenerator generator) throws IOException {
+                generator.writeNumber(widget.getHeight());
+            }
+        },
+        WIDTH("width") {
+            @Override
+            void write(Widget widget, JsonGenerator generator) throws IOException {
+                generator.writeNumber(widget.getWidth());
+            }
+        },
+        VERSION("version") {
+            @Override
+            void write(Widget widget, JsonGenerator generator) throws IOException {
+                generator.writeNumber(widget.getVersion());
+            }
+        },
+        LAST_UPDATED_AT("lastUpdatedAt") {
+            /**
+             * Delegates to the generator's codec, so the timestamp is formatted exactly like the full representation.
+             */
+            @Override
+            void write(Widget widget, JsonGenerator generator) throws IOException {
+                generator.writeObject(widget.getLastUpdatedAt());
+            }
+        };
+
+        private final SerializedString name;
+
+        Field(String name) {
+            this.name = new SerializedString(name);
+        }
+
+        public String getName() {
+            return name.getValue();
+        }
+
+        abstract void write(Widget widget, JsonGenerator generator) throws IOException;
+    }
+
+    private static final Field[] FIELDS = Field.values();
+    private static final WidgetProjection[] PROJECTIONS = new WidgetProjection[1 << FIELDS.length];
+
+    static {
+        for (int mask = 0; mask < PROJECTIONS.length; mask++) {
+            PROJECTIONS[mask] = new WidgetProjection(mask);
+        }
+    }
+
+    private final int mask;
+    private final Field[] fields;
+
+    private WidgetProjection(int mask) {
+        this.mask = mask;
+        List<Field> selected = new ArrayList<>();
+        for (Field field : FIELDS) {
+            if ((mask & 1 << field.ordinal()) != 0) {
+                selected.add(field);
+            }
+        }
+        this.fields = selected.toArray(new Field[0]);
+    }
+
+    /**
+     * @param fields comma separated field names, e.g. {@code id,z-index}
+     * @return projection of the named fields
+     * @throws InvalidRequestException if a name is unknown or none is given
+     */
+    public static WidgetProjection parse(String fields) {
+        int mask = 0;
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            mask |= 1 << fieldNamed(trimmed).ordinal();
+        }
+        if (mask == 0) {
+            throw new InvalidRequestException("No fields selected");
+        }
+        return PROJECTIONS[mask];
+    }
+
+    /**
+     * @return bit set of the selected fields by ordinal, identifying the projection
+     */
+    public int mask() {
+        return mask;
+    }
+
+    /**
+     * @return widget wrapped so that Jackson writes only the selected fields, e.g. as content of a page
+     */
+    public Projected apply(Widget widget) {
+        return new Projected(this, widget);
+    }
+
+    public List<Projected> apply(List<Widget> widgets) {
+        return widgets.stream().map(this::apply).collect(Collectors.toList());
+    }
+
+    public Page<Projected> apply(Page<Widget> page) {
+        return page.map(this::apply);
+    }
+
+    public CursorPage<Projected> apply(CursorPage<Widget> page) {
+        return new CursorPage<>(apply(page.getContent()), page.getNext());
+    }
+
+    public void write(Widget widget, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        for (Field field : fields) {
+            generator.writeFieldName(field.name);
+            field.write(widget, generator);
+        }
+        generator.writeEndObject();
+    }
+
+    private static Field fieldNamed(String name) {
+        for (Field field : FIELDS) {
+            if (field.getName().equals(name)) {
+                return field;
+            }
+        }
+        throw new InvalidRequestException("Unknown field : " + name);
+    }
+
+    @JsonSerialize(using = ProjectedSerializer.class)
+    public static final class Projected {
+        private final WidgetProjection projection;
+        private final Widget widget;
+
+        private Projected(WidgetProjection projection, Widget widget) {
+            this.projection = projection;
+            this.widget = widget;
+        }
+    }
+
+    static final class ProjectedSerializer extends JsonSerializer<Projected> {
+        @Override
+        public void serialize(Projected projected, JsonGenerator generator, SerializerProvider serializers)
+                throws IOException {
+            projected.projection.write(projected.widget, generator);
+        }
+    }
+}
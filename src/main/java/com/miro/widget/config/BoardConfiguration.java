@@ -0,0 +1,10 @@
+package com.miro.widget.config;
+
+import com.miro.widget.service.BoardProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(BoardProperties.class)
+public class BoardConfiguration {
+}
@@ -0,0 +1,20 @@
+package com.miro.widget.config;
+
+import com.miro.widget.codec.WidgetBinaryHttpMessageConverter;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+@Configuration
+public class WebConfiguration implements WebMvcConfigurer {
+
+    /**
+     * Appended after Jackson, so JSON stays the default and the binary format is only used when asked for.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new WidgetBinaryHttpMessageConverter());
+    }
+}
@@ -0,0 +1,36 @@
+package com.miro.widget.config;
+
+import com.miro.widget.repository.HeapWidgetStore;
+import com.miro.widget.repository.OffHeapWidgetStore;
+import com.miro.widget.repository.WidgetStore;
+import com.miro.widget.repository.WidgetStoreFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Selects the widget storage engine with {@code widget.store.type}: {@code heap} (default) or {@code off-heap}.
+ */
+@Configuration
+public class WidgetStoreConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "widget.store", name = "type", havingValue = "heap", matchIfMissing = true)
+    public WidgetStoreFactory heapWidgetStoreFactory() {
+        return HeapWidgetStore::new;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "widget.store", name = "type", havingValue = "off-heap")
+    public WidgetStoreFactory offHeapWidgetStoreFactory() {
+        return OffHeapWidgetStore::new;
+    }
+
+    /**
+     * Store of the default board behind {@code /api/widgets}.
+     */
+    @Bean
+    public WidgetStore widgetStore(WidgetStoreFactory widgetStoreFactory) {
+        return widgetStoreFactory.create();
+    }
+}
@@ -0,0 +1,27 @@
+package com.miro.widget.controller;
+
+import com.miro.widget.service.BoardService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Named boards; their widgets are served by {@link WidgetController}.
+ */
+@RestController
+@RequestMapping(value = "/api/boards/{boardId}")
+@RequiredArgsConstructor
+public class BoardController {
+
+    private final BoardService boardService;
+
+    @DeleteMapping
+    public ResponseEntity<Void> deleteBoard(@PathVariable String boardId) {
+        boardService.removeBoard(boardId);
+        return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+    }
+}
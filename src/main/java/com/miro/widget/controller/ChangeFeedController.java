@@ -0,0 +1,41 @@
+package com.miro.widget.controller;
+
+import com.miro.widget.changes.ChangeFeed;
+import com.miro.widget.changes.ChangeSnapshot;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import static java.util.Optional.ofNullable;
+
+@RestController
+@RequestMapping(value = "/api/widgets/changes")
+@RequiredArgsConstructor
+public class ChangeFeedController {
+
+    private final ChangeFeed changeFeed;
+
+    /**
+     * Streams changes after since, or after the Last-Event-ID of a reconnecting EventSource, or from now on.
+     * Answers 503 Service Unavailable once the maximum number of subscribers is connected.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public void streamChanges(@RequestParam(required = false) Long since,
+                              @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                              HttpServletRequest request, HttpServletResponse response) {
+        changeFeed.subscribe(ofNullable(since).orElse(lastEventId), request, response);
+    }
+
+    @GetMapping("/snapshot")
+    public ResponseEntity<ChangeSnapshot> snapshot() {
+        return ResponseEntity.ok(changeFeed.snapshot());
+    }
+}
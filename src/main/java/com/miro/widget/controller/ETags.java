@@ -0,0 +1,43 @@
+package com.miro.widget.controller;
+
+import com.miro.widget.exception.PreconditionFailedException;
+import com.miro.widget.model.Widget;
+
+/**
+ * Strong entity tags of widget resources. A single widget is tagged with its version and z-index, since shifts move
+ * widgets without a new version; lists and pages are tagged with the board's modification sequence number.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String of(Widget widget) {
+        return "\"" + widget.getVersion() + "-" + widget.getZIndex() + "\"";
+    }
+
+    static String ofBoard(long modificationSeq) {
+        return "\"" + modificationSeq + "\"";
+    }
+
+    /**
+     * Evaluates an If-Match header against the current widget. The z-index is compared here, the returned version is
+     * compared again while the record is replaced; a shift slipping in between is not detected, which is harmless
+     * because shifts never touch the attributes a PUT replaces.
+     *
+     * @param ifMatch If-Match header value, {@code *} or a list of entity tags
+     * @param current current widget
+     * @return version the update has to find
+     * @throws PreconditionFailedException if no entity tag matches
+     */
+    static long expectedVersion(String ifMatch, Widget current) {
+        String tag = of(current);
+        for (String candidate : ifMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if (trimmed.equals("*") || trimmed.equals(tag)) {
+                return current.getVersion();
+            }
+        }
+        throw new PreconditionFailedException("If-Match " + ifMatch + " does not match " + tag);
+    }
+}
@@ -1,64 +1,364 @@
 package com.miro.widget.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.miro.widget.cache.SerializedResponseCache;
+import com.miro.widget.codec.WidgetBinaryHttpMessageConverter;
+import com.miro.widget.codec.WidgetProjection;
+import com.miro.widget.model.BatchOperation;
+import com.miro.widget.model.BatchResult;
+import com.miro.widget.model.CursorPage;
+import com.miro.widget.model.RangeMove;
 import com.miro.widget.model.Widget;
 import com.miro.widget.model.WidgetAttributes;
+import com.miro.widget.model.WidgetChanges;
+import com.miro.widget.service.BoardService;
 import com.miro.widget.service.WidgetService;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.UncheckedIOException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static java.util.Optional.ofNullable;
 
+/**
+ * Widgets of the default board under {@code /api/widgets} and of named boards under
+ * {@code /api/boards/{boardId}/widgets}; every handler resolves its board per request. A named board is created by the
+ * first widget or batch posted to it; any other request to a board that does not exist returns 404.
+ */
 @RestController
-@RequestMapping(value = "/api/widgets")
+@RequestMapping(value = {"/api/widgets", "/api/boards/{boardId}/widgets"})
 @RequiredArgsConstructor
 public class WidgetController {
 
     public static final int DEFAULT_PAGE = 0;
     public static final int DEFAULT_SIZE = 10;
     public static final int MAX_SIZE = 500;
-    private final WidgetService widgetService;
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    private final BoardService boardService;
+    private final ObjectMapper objectMapper;
+    private final SerializedResponseCache responseCache;
 
     @PostMapping
-    public ResponseEntity<Widget> addWidget(@RequestBody WidgetAttributes attributes) {
-        return new ResponseEntity<>(widgetService.addWidget(attributes), HttpStatus.CREATED);
+    public ResponseEntity<Widget> addWidget(@PathVariable(required = false) String boardId,
+                                            @RequestBody WidgetAttributes attributes) {
+        return new ResponseEntity<>(boardForWrite(boardId).addWidget(attributes), HttpStatus.CREATED);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchResult>> applyBatch(@PathVariable(required = false) String boardId,
+                                                        @RequestBody List<BatchOperation> operations) {
+        return ResponseEntity.ok(boardForWrite(boardId).applyBatch(operations));
+    }
+
+    /**
+     * With If-Match the update only succeeds if the widget still has the tagged version, otherwise 412.
+     */
     @PutMapping("/{id}")
-    public ResponseEntity<Widget> updateWidget(@PathVariable UUID id, @RequestBody WidgetAttributes attributes) {
-        return ResponseEntity.ok(widgetService.updateWidget(id, attributes));
+    public ResponseEntity<Widget> updateWidget(@PathVariable(required = false) String boardId, @PathVariable UUID id,
+                                               @RequestBody WidgetAttributes attributes,
+                                               @RequestHeader(value = HttpHeaders.IF_MATCH, required = false)
+                                                       String ifMatch) {
+        WidgetService widgetService = board(boardId);
+        Widget updated = Objects.isNull(ifMatch) ? widgetService.updateWidget(id, attributes)
+                : widgetService.updateWidget(id, attributes,
+                ETags.expectedVersion(ifMatch, widgetService.findWidget(id)));
+        return ResponseEntity.ok().eTag(ETags.of(updated)).body(updated);
+    }
+
+    @PostMapping("/{id}/front")
+    public ResponseEntity<Widget> bringToFront(@PathVariable(required = false) String boardId, @PathVariable UUID id) {
+        return ResponseEntity.ok(board(boardId).bringToFront(id));
+    }
+
+    @PostMapping("/{id}/back")
+    public ResponseEntity<Widget> sendToBack(@PathVariable(required = false) String boardId, @PathVariable UUID id) {
+        return ResponseEntity.ok(board(boardId).sendToBack(id));
+    }
+
+    @PostMapping("/{id}/before/{otherId}")
+    public ResponseEntity<Widget> moveBefore(@PathVariable(required = false) String boardId, @PathVariable UUID id,
+                                             @PathVariable UUID otherId) {
+        return ResponseEntity.ok(board(boardId).moveBefore(id, otherId));
+    }
+
+    @PostMapping("/{id}/after/{otherId}")
+    public ResponseEntity<Widget> moveAfter(@PathVariable(required = false) String boardId, @PathVariable UUID id,
+                                            @PathVariable UUID otherId) {
+        return ResponseEntity.ok(board(boardId).moveAfter(id, otherId));
+    }
+
+    @PostMapping("/move-range")
+    public ResponseEntity<List<Widget>> moveRange(@PathVariable(required = false) String boardId,
+                                                  @RequestBody RangeMove move) {
+        if (Objects.isNull(move.getIds()) || Objects.isNull(move.getZIndex())) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(board(boardId).moveRange(move.getIds(), move.getZIndex()));
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Widget> findWidget(@PathVariable UUID id) {
-        return ResponseEntity.ok(widgetService.findWidget(id));
+    public ResponseEntity<Widget> findWidget(@PathVariable(required = false) String boardId, @PathVariable UUID id,
+                                             WebRequest request) {
+        Widget widget = board(boardId).findWidget(id);
+        if (request.checkNotModified(ETags.of(widget))) {
+            return null;
+        }
+        return ResponseEntity.ok(widget);
     }
 
+    /**
+     * The ETag is the last committed modification sequence number and changes are committed only once reads see them,
+     * so the widgets read afterwards are at least as new as the tag and If-None-Match returns 304 without reading any
+     * widget. JSON is answered from the {@link SerializedResponseCache}, other representations
+     * are negotiated as usual. {@code fields}, e.g. {@code id,z-index}, restricts the JSON to those fields and is
+     * ignored by other representations. {@code asOf} reads the board as it was at that modification sequence number,
+     * e.g. the ETag of an earlier read, as long as it is within the retention window, otherwise 410.
+     */
     @GetMapping
-    public ResponseEntity<List<Widget>> findAllWidgets() {
-        return ResponseEntity.ok(widgetService.findAllWidgets());
+    public ResponseEntity<?> findAllWidgets(@PathVariable(required = false) String boardId,
+                                            @RequestParam(required = false) String fields,
+                                            @RequestParam(required = false) Long asOf, WebRequest request) {
+        WidgetProjection projection = projection(fields);
+        String board = boardId(boardId);
+        WidgetService widgetService = boardService.findBoard(board);
+        if (Objects.nonNull(asOf)) {
+            return findAllWidgetsAsOf(board, widgetService, asOf, projection, request);
+        }
+        long version = widgetService.getModificationSeq();
+        if (request.checkNotModified(ETags.ofBoard(version))) {
+            return null;
+        }
+        if (!prefersJson(request)) {
+            return ResponseEntity.ok(widgetService.findAllWidgets());
+        }
+        if (Objects.isNull(projection)) {
+            return cachedJson(request, board, "all", 0, 0, version, widgetService::findAllWidgets);
+        }
+        return cachedJson(request, board, "all/" + projection.mask(), 0, 0, version,
+                () -> projection.apply(widgetService.findAllWidgets()));
+    }
+
+    /**
+     * Past versions never change, so the version read is the ETag and cached bodies stay valid until evicted.
+     */
+    private ResponseEntity<?> findAllWidgetsAsOf(String board, WidgetService widgetService, long asOf,
+                                                 WidgetProjection projection, WebRequest request) {
+        long version = widgetService.getVersionAsOf(asOf);
+        if (request.checkNotModified(ETags.ofBoard(version))) {
+            return null;
+        }
+        if (!prefersJson(request)) {
+            return ResponseEntity.ok(widgetService.findAllWidgetsAsOf(version));
+        }
+        if (Objects.isNull(projection)) {
+            return cachedJson(request, board, "asOf", 0, 0, version,
+                    () -> widgetService.findAllWidgetsAsOf(version));
+        }
+        return cachedJson(request, board, "asOf/" + projection.mask(), 0, 0, version,
+                () -> projection.apply(widgetService.findAllWidgetsAsOf(version)));
+    }
+
+    /**
+     * Binary list; declares its element type, which {@link WidgetBinaryHttpMessageConverter} needs to write it.
+     */
+    @GetMapping(produces = WidgetBinaryHttpMessageConverter.MEDIA_TYPE_VALUE)
+    public ResponseEntity<List<Widget>> findAllWidgetsBinary(@PathVariable(required = false) String boardId,
+                                                             @RequestParam(required = false) Long asOf,
+                                                             WebRequest request) {
+        WidgetService widgetService = board(boardId);
+        long version = Objects.isNull(asOf) ? widgetService.getModificationSeq() : widgetService.getVersionAsOf(asOf);
+        if (request.checkNotModified(ETags.ofBoard(version))) {
+            return null;
+        }
+        return ResponseEntity.ok().header(HttpHeaders.VARY, HttpHeaders.ACCEPT).body(Objects.isNull(asOf)
+                ? widgetService.findAllWidgets() : widgetService.findAllWidgetsAsOf(version));
+    }
+
+    @GetMapping(produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllWidgets(@PathVariable(required = false) String boardId) {
+        return streamWidgets(board(boardId));
+    }
+
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamAllWidgetsOnRequest(
+            @PathVariable(required = false) String boardId) {
+        return streamWidgets(board(boardId));
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity deleteWidget(@PathVariable UUID id) {
-        widgetService.removeWidget(id);
+    public ResponseEntity<Void> deleteWidget(@PathVariable(required = false) String boardId, @PathVariable UUID id) {
+        board(boardId).removeWidget(id);
         return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
     }
 
     @GetMapping("/page")
-    public ResponseEntity<Page<Widget>> findAllWidgets(@RequestParam(required = false) Integer page
-            , @RequestParam(required = false) Integer size) {
+    public ResponseEntity<?> findAllWidgets(@PathVariable(required = false) String boardId
+            , @RequestParam(required = false) Integer page
+            , @RequestParam(required = false) Integer size, @RequestParam(required = false) String fields
+            , WebRequest request) {
         if (Objects.nonNull(size) && size > MAX_SIZE) {
             return ResponseEntity.badRequest().build();
         }
-        Page<Widget> widgetPage = widgetService.findAllWidgets(ofNullable(page).orElse(DEFAULT_PAGE),
-                ofNullable(size).orElse(DEFAULT_SIZE));
-        return ResponseEntity.ok(widgetPage);
+        WidgetProjection projection = projection(fields);
+        String board = boardId(boardId);
+        WidgetService widgetService = boardService.findBoard(board);
+        long version = widgetService.getModificationSeq();
+        if (request.checkNotModified(ETags.ofBoard(version))) {
+            return null;
+        }
+        int pageNumber = ofNullable(page).orElse(DEFAULT_PAGE);
+        int pageSize = ofNullable(size).orElse(DEFAULT_SIZE);
+        if (!prefersJson(request)) {
+            return ResponseEntity.ok(widgetService.findAllWidgets(pageNumber, pageSize));
+        }
+        if (Objects.isNull(projection)) {
+            return cachedJson(request, board, "page", pageNumber, pageSize, version,
+                    () -> widgetService.findAllWidgets(pageNumber, pageSize));
+        }
+        return cachedJson(request, board, "page/" + projection.mask(), pageNumber, pageSize, version,
+                () -> projection.apply(widgetService.findAllWidgets(pageNumber, pageSize)));
+    }
+
+    @GetMapping(value = "/page", params = "after")
+    public ResponseEntity<?> findWidgetsAfter(@PathVariable(required = false) String boardId
+            , @RequestParam String after
+            , @RequestParam(required = false) Integer size, @RequestParam(required = false) String fields
+            , WebRequest request) {
+        if (Objects.nonNull(size) && (size < 1 || size > MAX_SIZE)) {
+            return ResponseEntity.badRequest().build();
+        }
+        WidgetProjection projection = projection(fields);
+        WidgetService widgetService = board(boardId);
+        if (request.checkNotModified(ETags.ofBoard(widgetService.getModificationSeq()))) {
+            return null;
+        }
+        CursorPage<Widget> widgets = widgetService.findWidgetsAfter(after, ofNullable(size).orElse(DEFAULT_SIZE));
+        return ResponseEntity.ok(Objects.isNull(projection) ? widgets : projection.apply(widgets));
+    }
+
+    @GetMapping("/area")
+    public ResponseEntity<List<Widget>> findWidgetsInArea(@PathVariable(required = false) String boardId,
+                                                          @RequestParam int x1, @RequestParam int y1,
+                                                          @RequestParam int x2, @RequestParam int y2) {
+        if (x1 > x2 || y1 > y2) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(board(boardId).findWidgetsInArea(x1, y1, x2, y2));
+    }
+
+    @GetMapping("/at")
+    public ResponseEntity<Widget> findWidgetAt(@PathVariable(required = false) String boardId, @RequestParam int x,
+                                               @RequestParam int y) {
+        return ResponseEntity.ok(board(boardId).findWidgetAt(x, y));
+    }
+
+    /**
+     * Delta sync; {@code since} is a modification sequence number, unlike the event sequence of the change feed under
+     * {@code /changes}.
+     */
+    @GetMapping("/delta")
+    public ResponseEntity<WidgetChanges> findChanges(@PathVariable(required = false) String boardId,
+                                                     @RequestParam(defaultValue = "0") long since) {
+        return ResponseEntity.ok(board(boardId).findChangesSince(since));
+    }
+
+    /**
+     * @return id of the board addressed, the default board's for {@code /api/widgets}
+     */
+    private static String boardId(String boardId) {
+        return ofNullable(boardId).orElse(BoardService.DEFAULT_BOARD_ID);
+    }
+
+    private WidgetService board(String boardId) {
+        return boardService.findBoard(boardId(boardId));
+    }
+
+    private WidgetService boardForWrite(String boardId) {
+        return boardService.getOrCreateBoard(boardId(boardId));
+    }
+
+    /**
+     * @return projection of the comma separated fields, or null for the full representation
+     */
+    static WidgetProjection projection(String fields) {
+        return Objects.isNull(fields) ? null : WidgetProjection.parse(fields);
+    }
+
+    private static boolean prefersJson(WebRequest request) {
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (Objects.isNull(accept)) {
+            return true;
+        }
+        try {
+            List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+            MediaType.sortBySpecificityAndQuality(mediaTypes);
+            return mediaTypes.isEmpty() || mediaTypes.get(0).isCompatibleWith(MediaType.APPLICATION_JSON);
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes the cached encoding of body, gzip-compressed if the client accepts it, without mapping widgets on a hit.
+     * The same URLs answer other representations by Accept, so shared caches have to key on both headers.
+     */
+    private ResponseEntity<byte[]> cachedJson(WebRequest request, String board, String endpoint, int page, int size,
+                                              long version, Supplier<Object> body) {
+        SerializedResponseCache.CachedResponse response = responseCache.get(board, endpoint, page, size, version,
+                () -> {
+                    try {
+                        return objectMapper.writeValueAsBytes(body.get());
+                    } catch (JsonProcessingException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        boolean gzip = Objects.nonNull(response.getGzip()) && Objects.nonNull(acceptEncoding)
+                && acceptEncoding.contains("gzip");
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return builder.body(gzip ? response.getGzip() : response.getIdentity());
+    }
+
+    /**
+     * Writes one widget per line straight to the response, so memory stays bounded by the output buffer no matter
+     * how large the board is.
+     */
+    private ResponseEntity<StreamingResponseBody> streamWidgets(WidgetService widgetService) {
+        Stream<Widget> widgets = widgetService.streamAllWidgets();
+        ObjectWriter writer = objectMapper.writerFor(Widget.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = outputStream -> {
+            try (widgets; JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                Iterator<Widget> iterator = widgets.iterator();
+                while (iterator.hasNext()) {
+                    writer.writeValue(generator, iterator.next());
+                    generator.writeRaw('\n');
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT).body(body);
     }
 }
@@ -0,0 +1,8 @@
+package com.miro.widget.exception;
+
+public class BoardNotFoundException extends RuntimeException {
+
+    public BoardNotFoundException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,8 @@
+package com.miro.widget.exception;
+
+public class InvalidRequestException extends RuntimeException {
+
+    public InvalidRequestException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,8 @@
+package com.miro.widget.exception;
+
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(String msg) {
+        super(msg);
+    }
+}
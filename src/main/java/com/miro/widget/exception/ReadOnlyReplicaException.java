@@ -0,0 +1,8 @@
+package com.miro.widget.exception;
+
+public class ReadOnlyReplicaException extends RuntimeException {
+
+    public ReadOnlyReplicaException(String msg) {
+        super(msg);
+    }
+}
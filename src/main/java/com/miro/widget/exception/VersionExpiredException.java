@@ -0,0 +1,8 @@
+package com.miro.widget.exception;
+
+public class VersionExpiredException extends RuntimeException {
+
+    public VersionExpiredException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,18 @@
+package com.miro.widget.execution;
+
+/**
+ * Threads serving web requests.
+ */
+public enum ExecutionMode {
+
+    /**
+     * Tomcat's bounded pool of platform threads, sized by {@code server.tomcat.threads.max}.
+     */
+    PLATFORM,
+
+    /**
+     * A new virtual thread per request, so requests waiting for the z-order lock park without holding a pooled
+     * thread. Needs Java 21 or later.
+     */
+    VIRTUAL
+}
@@ -0,0 +1,19 @@
+package com.miro.widget.execution;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "widget.execution")
+public class ExecutionProperties {
+
+    private ExecutionMode mode = ExecutionMode.PLATFORM;
+
+    /**
+     * Writes to /api that may be in flight at once, including those waiting for the z-order lock; further writes
+     * are rejected with 503 right away. Keeps request threads free for reads. 0 disables the limit.
+     */
+    private int maxConcurrentWrites = 64;
+}
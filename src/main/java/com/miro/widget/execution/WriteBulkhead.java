@@ -0,0 +1,60 @@
+package com.miro.widget.execution;
+
+import com.miro.widget.exception.ServiceUnavailableException;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Caps the number of concurrent writes. Writes serialize on the z-order lock of their board anyway, so a writer
+ * beyond the cap would only park a request thread in the lock's queue; with a bounded thread pool enough of them
+ * leave no thread for reads, which never wait for writers otherwise. Rejected writes fail fast with 503 instead of
+ * queueing, because a queue of waiting requests would hold the threads just the same.
+ */
+public class WriteBulkhead implements HandlerInterceptor {
+
+    private static final String PERMIT = WriteBulkhead.class.getName() + ".PERMIT";
+    private final Semaphore permits;
+
+    public WriteBulkhead(int maxConcurrentWrites) {
+        this.permits = new Semaphore(maxConcurrentWrites);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (isRead(request) || request.getAttribute(PERMIT) != null) {
+            return true;
+        }
+        if (!permits.tryAcquire()) {
+            throw new ServiceUnavailableException("Too many concurrent writes, retry after 1 s", 1);
+        }
+        request.setAttribute(PERMIT, Boolean.TRUE);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getAttribute(PERMIT) != null) {
+            request.removeAttribute(PERMIT);
+            permits.release();
+        }
+    }
+
+    int available() {
+        return permits.availablePermits();
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        switch (request.getMethod()) {
+            case "GET":
+            case "HEAD":
+            case "OPTIONS":
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.miro.widget.metrics;
+
+import com.miro.widget.repository.WidgetContainer;
+import com.miro.widget.service.BoardService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Meters the default board with {@code board=default} and all boards under {@code /api/boards} together with
+ * {@code board=boards}; a tag per board id would let any client create time series.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    @Bean
+    public WidgetMetrics widgetMetrics(WidgetContainer widgetContainer, MeterRegistry registry) {
+        WidgetMetrics widgetMetrics = new WidgetMetrics(registry, "default", widgetContainer::size);
+        widgetContainer.setMetrics(widgetMetrics);
+        return widgetMetrics;
+    }
+
+    @Bean
+    public WidgetMetrics boardMetrics(BoardService boardService, MeterRegistry registry) {
+        WidgetMetrics boardMetrics = new WidgetMetrics(registry, "boards", boardService::countWidgets);
+        boardService.setMetrics(boardMetrics);
+        return boardMetrics;
+    }
+}
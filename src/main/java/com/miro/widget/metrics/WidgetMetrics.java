@@ -0,0 +1,86 @@
+package com.miro.widget.metrics;
+
+import com.miro.widget.repository.RepositoryMetrics;
+import com.miro.widget.repository.WidgetContainer;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Micrometer meters of one or more {@link WidgetContainer}s, tagged with {@code board}. Meters are looked up once, so
+ * recording is an array access plus a histogram bucket increment; histograms are published for Prometheus instead of
+ * client-side percentiles.
+ * <ul>
+ * <li>{@code widget.repository.operations}: latency per {@code operation}</li>
+ * <li>{@code widget.zorder.shifted}: widgets shifted by each insert or move at a z-index</li>
+ * <li>{@code widget.zorder.lock.wait}: time writers waited for the z-order lock</li>
+ * <li>{@code widget.board.size}: number of widgets on the boards reported</li>
+ * </ul>
+ */
+public class WidgetMetrics implements RepositoryMetrics {
+
+    private final Timer[] operations;
+    private final DistributionSummary shifted;
+    private final Timer lockWait;
+
+    /**
+     * @param board   value of the {@code board} tag
+     * @param widgets number of widgets on the boards reported
+     */
+    public WidgetMetrics(MeterRegistry registry, String board, Supplier<Number> widgets) {
+        Tags tags = Tags.of("board", board);
+        Operation[] values = Operation.values();
+        operations = new Timer[values.length];
+        for (Operation operation : values) {
+            operations[operation.ordinal()] = Timer.builder("widget.repository.operations")
+                    .description("Latency of widget repository operations")
+                    .tags(tags)
+                    .tag("operation", operation.name().toLowerCase())
+                    .publishPercentileHistogram()
+                    .minimumExpectedValue(Duration.ofNanos(1_000))
+                    .maximumExpectedValue(Duration.ofSeconds(10))
+                    .register(registry);
+        }
+        shifted = DistributionSummary.builder("widget.zorder.shifted")
+                .description("Widgets shifted up by an insert or move at a z-index")
+                .baseUnit("widgets")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(1.0)
+                .maximumExpectedValue(10_000_000.0)
+                .register(registry);
+        lockWait = Timer.builder("widget.zorder.lock.wait")
+                .description("Time writers waited for the z-order lock")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(1_000))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(registry);
+        Gauge.builder("widget.board.size", widgets)
+                .description("Number of widgets on the boards")
+                .baseUnit("widgets")
+                .tags(tags)
+                .register(registry);
+    }
+
+    @Override
+    public void recordOperation(Operation operation, long nanos) {
+        operations[operation.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void recordShift(int shifted) {
+        this.shifted.record(shifted);
+    }
+
+    @Override
+    public void recordLockWait(long nanos) {
+        lockWait.record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,30 @@
+package com.miro.widget.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.UUID;
+
+/**
+ * Single create, update or delete inside a batch request. {@code id} is required for updates and deletes.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchOperation {
+
+    public enum Type {
+        CREATE, UPDATE, DELETE
+    }
+
+    private Type op;
+    private UUID id;
+    private WidgetAttributes attributes;
+
+    public static BatchOperation create(WidgetAttributes attributes) {
+        return new BatchOperation(Type.CREATE, null, attributes);
+    }
+}
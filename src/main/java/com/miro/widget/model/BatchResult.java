@@ -0,0 +1,19 @@
+package com.miro.widget.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.Value;
+
+import java.util.UUID;
+
+/**
+ * Outcome of one {@link BatchOperation}: final z-index and version after the whole batch, both absent for deletes.
+ */
+@Value
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchResult {
+    UUID id;
+    @JsonProperty(value = "z-index")
+    Integer zIndex;
+    Long version;
+}
@@ -0,0 +1,14 @@
+package com.miro.widget.model;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Page of a keyset scan. {@code next} is an opaque cursor for the following page and null on the last page.
+ */
+@Value
+public class CursorPage<T> {
+    List<T> content;
+    String next;
+}
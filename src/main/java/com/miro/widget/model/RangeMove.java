@@ -0,0 +1,23 @@
+package com.miro.widget.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Widgets to move to contiguous z-indexes starting at {@code z-index}, keeping their relative order.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class RangeMove {
+    private List<UUID> ids;
+    @JsonProperty(value = "z-index")
+    private Integer zIndex;
+}
@@ -2,33 +2,33 @@ package com.miro.widget.model;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Builder;
-import lombok.Getter;
-import lombok.Setter;
-import lombok.ToString;
+import lombok.Value;
+import lombok.With;
 
 import java.time.ZonedDateTime;
 import java.util.UUID;
 
-@Getter
-@Builder
-@Setter
-@ToString
+/**
+ * Immutable version of a widget. Every change produces a new instance with a higher {@code version}, so a reader
+ * never observes a partially applied update.
+ */
+@Value
+@Builder(toBuilder = true)
+@With
 public class Widget {
 
     @Builder.Default
-    private UUID id = UUID.randomUUID();
+    UUID id = UUID.randomUUID();
     @JsonProperty(value = "x-index")
-    private int xIndex;
+    int xIndex;
     @JsonProperty(value = "y-index")
-    private int yIndex;
+    int yIndex;
     @JsonProperty(value = "z-index")
-    private int zIndex;
-    private int height;
-    private int width;
+    int zIndex;
+    int height;
+    int width;
     @Builder.Default
-    private ZonedDateTime lastUpdatedAt = ZonedDateTime.now();
-
-    public void incrementZindex() {
-        zIndex++;
-    }
+    long version = 1;
+    @Builder.Default
+    ZonedDateTime lastUpdatedAt = ZonedDateTime.now();
 }
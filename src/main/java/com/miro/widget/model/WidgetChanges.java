@@ -0,0 +1,27 @@
+package com.miro.widget.model;
+
+import lombok.Value;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Changes of a board up to modification sequence {@code seq}. A client applies {@code shifts} in order (every widget
+ * at {@code from} or above moves up by {@code by}), then removes {@code deleted} and finally puts {@code changed},
+ * which carry their current z-index. If {@code full} is set the requested sequence was too old or unknown and
+ * {@code changed} holds the whole board, which replaces the client's copy.
+ */
+@Value
+public class WidgetChanges {
+    long seq;
+    boolean full;
+    List<Widget> changed;
+    List<UUID> deleted;
+    List<Shift> shifts;
+
+    @Value
+    public static class Shift {
+        int from;
+        int by;
+    }
+}
@@ -0,0 +1,19 @@
+package com.miro.widget.persistence;
+
+/**
+ * When appended log records are forced to disk.
+ */
+public enum FsyncPolicy {
+    /**
+     * Every write waits until its record is on disk. Concurrent writers share one force (group commit).
+     */
+    ALWAYS,
+    /**
+     * The log is forced in the background every {@code fsync-interval}; a crash loses at most that window.
+     */
+    INTERVAL,
+    /**
+     * The operating system decides when dirty pages are written.
+     */
+    OS
+}
@@ -0,0 +1,18 @@
+package com.miro.widget.persistence;
+
+import com.miro.widget.repository.WidgetContainer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "widget.persistence", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(PersistenceProperties.class)
+public class PersistenceConfiguration {
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public WidgetPersistence widgetPersistence(WidgetContainer widgetContainer, PersistenceProperties properties) {
+        return new WidgetPersistence(widgetContainer, properties);
+    }
+}
@@ -0,0 +1,43 @@
+package com.miro.widget.persistence;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "widget.persistence")
+public class PersistenceProperties {
+
+    /**
+     * Keep widgets in a write-ahead log and snapshots so they survive restarts.
+     */
+    private boolean enabled;
+
+    /**
+     * Directory of log segments and snapshots.
+     */
+    private Path directory = Paths.get("data");
+
+    private FsyncPolicy fsync = FsyncPolicy.INTERVAL;
+
+    /**
+     * Force interval of {@link FsyncPolicy#INTERVAL}.
+     */
+    private Duration fsyncInterval = Duration.ofMillis(10);
+
+    /**
+     * Size of one memory-mapped log segment, also the upper bound of a single record.
+     */
+    private DataSize segmentSize = DataSize.ofMegabytes(64);
+
+    /**
+     * How often a snapshot is written and older log segments are deleted.
+     */
+    private Duration snapshotInterval = Duration.ofMinutes(5);
+}
@@ -0,0 +1,122 @@
+package com.miro.widget.persistence;
+
+import com.miro.widget.model.Widget;
+import com.miro.widget.repository.Mutation;
+import com.miro.widget.repository.ZIndexEntry;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Fixed binary layout of widgets and mutations in log records and snapshots, also spoken by replication.
+ */
+public final class WidgetCodec {
+
+    private WidgetCodec() {
+    }
+
+    public static void writeMutation(DataOutput out, Mutation mutation) throws IOException {
+        out.writeByte(mutation.getType().ordinal());
+        switch (mutation.getType()) {
+            case CREATE:
+                writeWidget(out, mutation.getWidget());
+                break;
+            case UPDATE:
+                writeWidget(out, mutation.getWidget());
+                out.writeBoolean(Objects.nonNull(mutation.getZIndex()));
+                if (Objects.nonNull(mutation.getZIndex())) {
+                    out.writeInt(mutation.getZIndex());
+                }
+                break;
+            case DELETE:
+                writeUuid(out, mutation.getWidgetId());
+                break;
+            default:
+                out.writeInt(mutation.getMutations().size());
+                for (Mutation child : mutation.getMutations()) {
+                    writeMutation(out, child);
+                }
+        }
+    }
+
+    public static Mutation readMutation(DataInput in) throws IOException {
+        Mutation.Type type = Mutation.Type.values()[in.readUnsignedByte()];
+        switch (type) {
+            case CREATE:
+                return Mutation.create(readWidget(in));
+            case UPDATE:
+                Widget widget = readWidget(in);
+                return Mutation.update(widget, in.readBoolean() ? in.readInt() : null);
+            case DELETE:
+                return Mutation.delete(readUuid(in));
+            default:
+                int size = in.readInt();
+                List<Mutation> mutations = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    mutations.add(readMutation(in));
+                }
+                return Mutation.batch(mutations);
+        }
+    }
+
+    public static void writeWidget(DataOutput out, Widget widget) throws IOException {
+        writeUuid(out, widget.getId());
+        out.writeInt(widget.getXIndex());
+        out.writeInt(widget.getYIndex());
+        out.writeInt(widget.getZIndex());
+        out.writeInt(widget.getHeight());
+        out.writeInt(widget.getWidth());
+        out.writeLong(widget.getVersion());
+        ZonedDateTime lastUpdatedAt = widget.getLastUpdatedAt();
+        out.writeBoolean(Objects.nonNull(lastUpdatedAt));
+        if (Objects.nonNull(lastUpdatedAt)) {
+            out.writeLong(lastUpdatedAt.toEpochSecond());
+            out.writeInt(lastUpdatedAt.getNano());
+            out.writeUTF(lastUpdatedAt.getZone().getId());
+        }
+    }
+
+    public static Widget readWidget(DataInput in) throws IOException {
+        Widget.WidgetBuilder builder = Widget.builder()
+                .id(readUuid(in))
+                .xIndex(in.readInt())
+                .yIndex(in.readInt())
+                .zIndex(in.readInt())
+                .height(in.readInt())
+                .width(in.readInt())
+                .version(in.readLong());
+        if (in.readBoolean()) {
+            Instant instant = Instant.ofEpochSecond(in.readLong(), in.readInt());
+            builder.lastUpdatedAt(ZonedDateTime.ofInstant(instant, ZoneId.of(in.readUTF())));
+        } else {
+            builder.lastUpdatedAt(null);
+        }
+        return builder.build();
+    }
+
+    public static void writeEntry(DataOutput out, ZIndexEntry entry) throws IOException {
+        writeUuid(out, entry.getWidgetId());
+        out.writeInt(entry.getZIndex());
+    }
+
+    public static ZIndexEntry readEntry(DataInput in) throws IOException {
+        return new ZIndexEntry(readUuid(in), in.readInt());
+    }
+
+    private static void writeUuid(DataOutput out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(DataInput in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+}
@@ -0,0 +1,202 @@
+package com.miro.widget.persistence;
+
+import com.miro.widget.model.Widget;
+import com.miro.widget.repository.Mutation;
+import com.miro.widget.repository.MutationListener;
+import com.miro.widget.repository.WidgetContainer;
+import com.miro.widget.repository.ZIndexEntry;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Makes the {@link WidgetContainer} durable: every change is appended to a {@link WriteAheadLog}, snapshots are
+ * written periodically and on shutdown, and startup loads the latest snapshot and replays the log written after it.
+ * <p>
+ * A snapshot holds the z-order at a log position and the widget records read afterwards, which may be newer. Replay
+ * re-applies z-order changes from that position exactly and merges records by version, so the result is the same as
+ * if the snapshot had been taken atomically.
+ */
+@Slf4j
+public class WidgetPersistence implements MutationListener, Closeable {
+
+    static final String SNAPSHOT = "snapshot.bin";
+    private static final String SNAPSHOT_TMP = "snapshot.tmp";
+    private static final int MAGIC = 0x57444754;
+    private static final int FORMAT_VERSION = 1;
+
+    private final WidgetContainer widgetContainer;
+    private final PersistenceProperties properties;
+    private final ThreadLocal<long[]> lastPosition = ThreadLocal.withInitial(() -> new long[1]);
+    private WriteAheadLog writeAheadLog;
+    private ScheduledExecutorService scheduler;
+
+    public WidgetPersistence(WidgetContainer widgetContainer, PersistenceProperties properties) {
+        this.widgetContainer = widgetContainer;
+        this.properties = properties;
+    }
+
+    /**
+     * Recovers the container and starts logging. Must run before the container receives any change.
+     */
+    public void start() throws IOException {
+        long started = System.nanoTime();
+        Path directory = properties.getDirectory();
+        Files.createDirectories(directory);
+        long position = readSnapshot(directory.resolve(SNAPSHOT));
+        int lastSegment = WriteAheadLog.replay(directory, position, payload -> widgetContainer.replay(decode(payload)));
+        widgetContainer.completeRecovery();
+        writeAheadLog = new WriteAheadLog(directory, lastSegment + 1, (int) properties.getSegmentSize().toBytes(),
+                properties.getFsync(), properties.getFsyncInterval());
+        widgetContainer.addMutationListener(this);
+        log.info("Recovered {} widgets from {} in {} ms", widgetContainer.records().size(), directory,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "widget-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = properties.getSnapshotInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::snapshotQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onMutation(Mutation mutation) {
+        lastPosition.get()[0] = writeAheadLog.append(encode(mutation));
+    }
+
+    @Override
+    public void afterMutation() {
+        writeAheadLog.sync(lastPosition.get()[0]);
+    }
+
+    /**
+     * Writes a snapshot next to the log and deletes the segments it makes obsolete.
+     */
+    public synchronized void snapshot() throws IOException {
+        Checkpoint checkpoint = widgetContainer.snapshotZOrder(
+                order -> new Checkpoint(writeAheadLog.position(), order));
+        Path directory = properties.getDirectory();
+        Path tmp = directory.resolve(SNAPSHOT_TMP);
+        try (FileOutputStream file = new FileOutputStream(tmp.toFile())) {
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(file, 1 << 16), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(checkpoint.getPosition());
+            for (Iterator<ZIndexEntry> order = checkpoint.getOrder(); order.hasNext(); ) {
+                out.writeBoolean(true);
+                WidgetCodec.writeEntry(out, order.next());
+            }
+            out.writeBoolean(false);
+            for (Widget widget : widgetContainer.records()) {
+                out.writeBoolean(true);
+                WidgetCodec.writeWidget(out, widget);
+            }
+            out.writeBoolean(false);
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(tmp, directory.resolve(SNAPSHOT), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        writeAheadLog.truncateBefore(checkpoint.getPosition());
+    }
+
+    /**
+     * Writes a final snapshot and forces the log.
+     */
+    @Override
+    public void close() throws IOException {
+        scheduler.shutdown();
+        snapshot();
+        writeAheadLog.close();
+    }
+
+    private void snapshotQuietly() {
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to write snapshot", e);
+        }
+    }
+
+    /**
+     * @return log position the snapshot was taken at, 0 without a snapshot
+     */
+    private long readSnapshot(Path snapshot) throws IOException {
+        if (!Files.exists(snapshot)) {
+            return 0;
+        }
+        try (InputStream file = new BufferedInputStream(Files.newInputStream(snapshot), 1 << 16)) {
+            CheckedInputStream checked = new CheckedInputStream(file, new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot format : " + snapshot);
+            }
+            long position = in.readLong();
+            List<ZIndexEntry> order = new ArrayList<>();
+            while (in.readBoolean()) {
+                order.add(WidgetCodec.readEntry(in));
+            }
+            List<Widget> records = new ArrayList<>();
+            while (in.readBoolean()) {
+                records.add(WidgetCodec.readWidget(in));
+            }
+            long checksum = checked.getChecksum().getValue();
+            if (new DataInputStream(file).readLong() != checksum) {
+                throw new IOException("Corrupt snapshot : " + snapshot);
+            }
+            widgetContainer.restore(order, records.iterator());
+            return position;
+        }
+    }
+
+    private static byte[] encode(Mutation mutation) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try {
+            WidgetCodec.writeMutation(new DataOutputStream(bytes), mutation);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Mutation decode(byte[] payload) {
+        try {
+            return WidgetCodec.readMutation(new DataInputStream(new ByteArrayInputStream(payload)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Value
+    private static class Checkpoint {
+        long position;
+        Iterator<ZIndexEntry> order;
+    }
+}
@@ -0,0 +1,255 @@
+package com.miro.widget.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of memory-mapped, preallocated segment files {@code wal-<index>.log}. A record is
+ * {@code [int length][int crc32][payload]}; a zero length marks the end of a segment.
+ * <p>
+ * A position is {@code segment index << 32 | offset} of the end of a record, so positions grow with every append.
+ * With {@link FsyncPolicy#ALWAYS} a writer waiting for its position forces the segment for everybody who appended
+ * before the force started, which turns concurrent commits into one disk flush.
+ */
+@Slf4j
+final class WriteAheadLog implements Closeable {
+
+    private static final String PREFIX = "wal-";
+    private static final String SUFFIX = ".log";
+    private static final int HEADER = 2 * Integer.BYTES;
+
+    private final Path directory;
+    private final int segmentSize;
+    private final FsyncPolicy policy;
+    private final Object forceLock = new Object();
+    private final ScheduledExecutorService flusher;
+
+    private int segment;
+    private MappedByteBuffer buffer;
+    private volatile long durable;
+
+    /**
+     * Opens a new segment; segments are never appended to after a restart, so a torn tail stays where it is.
+     */
+    WriteAheadLog(Path directory, int firstSegment, int segmentSize, FsyncPolicy policy, Duration fsyncInterval)
+            throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.policy = policy;
+        this.segment = firstSegment;
+        this.buffer = map(firstSegment);
+        this.durable = position(firstSegment, 0);
+        if (policy == FsyncPolicy.INTERVAL) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "wal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = fsyncInterval.toNanos();
+            flusher.scheduleWithFixedDelay(this::forceQuietly, interval, interval, TimeUnit.NANOSECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    static long position(int segment, int offset) {
+        return (long) segment << 32 | offset;
+    }
+
+    static int segmentOf(long position) {
+        return (int) (position >>> 32);
+    }
+
+    static int offsetOf(long position) {
+        return (int) position;
+    }
+
+    /**
+     * @param payload record content
+     * @return position after the record
+     */
+    synchronized long append(byte[] payload) {
+        if (HEADER + payload.length > segmentSize) {
+            throw new IllegalArgumentException("record of " + payload.length + " bytes exceeds segment size");
+        }
+        if (buffer.remaining() < HEADER + payload.length) {
+            roll();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        buffer.putInt(payload.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(payload);
+        return position(segment, buffer.position());
+    }
+
+    /**
+     * @return position after the last appended record
+     */
+    synchronized long position() {
+        return position(segment, buffer.position());
+    }
+
+    /**
+     * Blocks until everything up to position is on disk if the policy is {@link FsyncPolicy#ALWAYS}.
+     *
+     * @param position position returned by {@link #append(byte[])}
+     */
+    void sync(long position) {
+        if (policy == FsyncPolicy.ALWAYS && durable < position) {
+            force();
+        }
+    }
+
+    /**
+     * Deletes segments that only hold records before position.
+     *
+     * @param position position of a snapshot
+     */
+    void truncateBefore(long position) throws IOException {
+        int firstKept = segmentOf(position);
+        for (Path file : segments(directory)) {
+            if (indexOf(file) < firstKept) {
+                Files.delete(file);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        force();
+    }
+
+    /**
+     * Reads all intact records from position on, stopping at the first torn or corrupt one.
+     *
+     * @param directory log directory
+     * @param position  position to start at
+     * @param consumer  receives every payload in log order
+     * @return index of the last existing segment, or the segment of position if there is none
+     */
+    static int replay(Path directory, long position, Consumer<byte[]> consumer) throws IOException {
+        int lastSegment = segmentOf(position);
+        boolean intact = true;
+        for (Path file : segments(directory)) {
+            int index = indexOf(file);
+            lastSegment = Math.max(lastSegment, index);
+            if (!intact || index < segmentOf(position)) {
+                continue;
+            }
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                segment.position(index == segmentOf(position) ? offsetOf(position) : 0);
+                intact = readRecords(segment, consumer);
+            }
+            if (!intact) {
+                log.warn("Stopped replay at torn record in {}", file);
+            }
+        }
+        return lastSegment;
+    }
+
+    private static boolean readRecords(MappedByteBuffer segment, Consumer<byte[]> consumer) {
+        while (segment.remaining() >= HEADER) {
+            int length = segment.getInt();
+            if (length == 0) {
+                return true;
+            }
+            int checksum = segment.getInt();
+            if (length < 0 || length > segment.remaining()) {
+                return false;
+            }
+            byte[] payload = new byte[length];
+            segment.get(payload);
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                return false;
+            }
+            consumer.accept(payload);
+        }
+        return true;
+    }
+
+    private void force() {
+        synchronized (forceLock) {
+            MappedByteBuffer current;
+            long target;
+            synchronized (this) {
+                current = buffer;
+                target = position(segment, buffer.position());
+            }
+            if (durable < target) {
+                current.force();
+                durable = target;
+            }
+        }
+    }
+
+    private void forceQuietly() {
+        try {
+            force();
+        } catch (RuntimeException e) {
+            log.error("Failed to force write-ahead log", e);
+        }
+    }
+
+    /**
+     * Finishes the current segment; unless the OS decides, it is forced first so that durable positions never skip
+     * over an unflushed segment.
+     */
+    private void roll() {
+        if (policy != FsyncPolicy.OS) {
+            buffer.force();
+        }
+        try {
+            buffer = map(segment + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        segment++;
+    }
+
+    private MappedByteBuffer map(int index) throws IOException {
+        Path file = directory.resolve(String.format("%s%010d%s", PREFIX, index, SUFFIX));
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(segmentSize);
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(PREFIX)
+                    && file.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static int indexOf(Path file) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
@@ -0,0 +1,59 @@
+package com.miro.widget.ratelimit;
+
+import com.miro.widget.exception.RateLimitExceededException;
+import io.github.bucket4j.ConsumptionProbe;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Charges every request to the bucket of its API key, or of its remote address without one, and rejects it with
+ * 429 once the bucket is empty. Forwarded-for headers are not trusted since clients could pick any address. Async
+ * dispatches, e.g. when a change feed stream completes, belong to a request that was already charged and pass.
+ */
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+    public static final String REMAINING_HEADER = "X-Rate-Limit-Remaining";
+    private final RateLimiter rateLimiter;
+    private final RateLimitProperties properties;
+
+    public RateLimitInterceptor(RateLimiter rateLimiter, RateLimitProperties properties) {
+        this.rateLimiter = rateLimiter;
+        this.properties = properties;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        ConsumptionProbe probe = rateLimiter.tryConsume(client(request), cost(request));
+        response.setHeader(REMAINING_HEADER, Long.toString(probe.getRemainingTokens()));
+        if (!probe.isConsumed()) {
+            long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(
+                    probe.getNanosToWaitForRefill() + TimeUnit.SECONDS.toNanos(1) - 1));
+            throw new RateLimitExceededException("Rate limit exceeded, retry after " + retryAfter + " s",
+                    retryAfter);
+        }
+        return true;
+    }
+
+    private String client(HttpServletRequest request) {
+        String apiKey = request.getHeader(properties.getApiKeyHeader());
+        return apiKey == null || apiKey.isEmpty() ? "ip:" + request.getRemoteAddr() : "key:" + apiKey;
+    }
+
+    private long cost(HttpServletRequest request) {
+        switch (request.getMethod()) {
+            case "GET":
+            case "HEAD":
+            case "OPTIONS":
+                return properties.getReadCost();
+            default:
+                return properties.getWriteCost();
+        }
+    }
+}
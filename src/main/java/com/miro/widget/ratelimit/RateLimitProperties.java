@@ -0,0 +1,55 @@
+package com.miro.widget.ratelimit;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "widget.rate-limit")
+public class RateLimitProperties {
+
+    /**
+     * Apply per-client token buckets to /api requests; off unless configured.
+     */
+    private boolean enabled;
+
+    /**
+     * Header identifying a client; requests without it are limited per remote address.
+     */
+    private String apiKeyHeader = "X-API-Key";
+
+    /**
+     * Tokens a bucket holds, i.e. the burst a client may send at once.
+     */
+    private long capacity = 1_000;
+
+    /**
+     * Tokens added per {@link #refillPeriod}, i.e. the sustained rate.
+     */
+    private long refillTokens = 1_000;
+
+    private Duration refillPeriod = Duration.ofSeconds(1);
+
+    /**
+     * Tokens taken by a read.
+     */
+    private long readCost = 1;
+
+    /**
+     * Tokens taken by any other request, e.g. a create, update or delete.
+     */
+    private long writeCost = 5;
+
+    /**
+     * Maximum number of clients tracked; the least recently seen bucket is dropped first.
+     */
+    private long maxClients = 100_000;
+
+    /**
+     * Buckets of clients idle for this long are dropped; a returning client starts with a full bucket.
+     */
+    private Duration idleTimeout = Duration.ofMinutes(10);
+}
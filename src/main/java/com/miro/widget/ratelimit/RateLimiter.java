@@ -0,0 +1,50 @@
+package com.miro.widget.ratelimit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.Bucket4j;
+import io.github.bucket4j.ConsumptionProbe;
+import io.github.bucket4j.Refill;
+
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps one token bucket per client in a bounded cache that forgets idle clients. Buckets are bucket4j's lock-free
+ * local buckets, so concurrent requests of one client compete with a CAS instead of a lock.
+ */
+public class RateLimiter {
+
+    private final Bandwidth bandwidth;
+    private final ConcurrentMap<String, Bucket> buckets;
+
+    public RateLimiter(RateLimitProperties properties) {
+        this.bandwidth = Bandwidth.classic(properties.getCapacity(),
+                Refill.greedy(properties.getRefillTokens(), properties.getRefillPeriod()));
+        Cache<String, Bucket> cache = CacheBuilder.newBuilder()
+                .maximumSize(properties.getMaxClients())
+                .expireAfterAccess(properties.getIdleTimeout())
+                .build();
+        this.buckets = cache.asMap();
+    }
+
+    /**
+     * Takes tokens from the bucket of client.
+     *
+     * @param client API key or address
+     * @param tokens cost of the request
+     * @return whether the tokens were taken, the tokens left and otherwise the time until they are available
+     */
+    public ConsumptionProbe tryConsume(String client, long tokens) {
+        Bucket bucket = buckets.get(client);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(client, key -> Bucket4j.builder().addLimit(bandwidth).build());
+        }
+        return bucket.tryConsumeAndReturnRemaining(tokens);
+    }
+
+    int clientCount() {
+        return buckets.size();
+    }
+}
@@ -0,0 +1,47 @@
+package com.miro.widget.replication;
+
+import com.miro.widget.exception.ReadOnlyReplicaException;
+import com.miro.widget.exception.ServiceUnavailableException;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Guards the API of a {@link ReplicationFollower}: writes are rejected with 405 because they belong to the leader,
+ * reads fail with 503 until the first snapshot is caught up, and every read answers with {@value #LAG_HEADER}, the
+ * milliseconds since the replica was last known to be in sync with the leader.
+ */
+public class ReplicaInterceptor implements HandlerInterceptor {
+
+    public static final String LAG_HEADER = "X-Replica-Lag";
+
+    private final ReplicationFollower follower;
+
+    public ReplicaInterceptor(ReplicationFollower follower) {
+        this.follower = follower;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!isRead(request)) {
+            throw new ReadOnlyReplicaException("Replica is read-only, send writes to the leader");
+        }
+        if (!follower.isReady()) {
+            throw new ServiceUnavailableException("Replica is catching up with the leader, retry after 1 s", 1);
+        }
+        response.setHeader(LAG_HEADER, Long.toString(follower.lagMillis()));
+        return true;
+    }
+
+    private static boolean isRead(HttpServletRequest request) {
+        switch (request.getMethod()) {
+            case "GET":
+            case "HEAD":
+            case "OPTIONS":
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.miro.widget.replication;
+
+import com.miro.widget.persistence.WidgetPersistence;
+import com.miro.widget.repository.WidgetContainer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@EnableConfigurationProperties(ReplicationProperties.class)
+public class ReplicationConfiguration implements WebMvcConfigurer {
+
+    private final ReplicationProperties properties;
+    private final ObjectProvider<ReplicationFollower> follower;
+
+    public ReplicationConfiguration(ReplicationProperties properties, ObjectProvider<ReplicationFollower> follower) {
+        this.properties = properties;
+        this.follower = follower;
+    }
+
+    /**
+     * Started after persistence, so followers never see a board that is still being recovered.
+     */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "widget.replication", name = "role", havingValue = "leader")
+    public ReplicationLeader replicationLeader(WidgetContainer widgetContainer,
+                                               ObjectProvider<WidgetPersistence> persistence) {
+        persistence.getIfAvailable();
+        return new ReplicationLeader(widgetContainer, properties);
+    }
+
+    /**
+     * @throws IllegalStateException if persistence is enabled; a follower starts over from the leader's snapshot
+     */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "widget.replication", name = "role", havingValue = "follower")
+    public ReplicationFollower replicationFollower(WidgetContainer widgetContainer,
+                                                   ObjectProvider<WidgetPersistence> persistence) {
+        if (persistence.getIfAvailable() != null) {
+            throw new IllegalStateException("A replication follower keeps widgets in memory only, "
+                    + "set widget.persistence.enabled=false");
+        }
+        return new ReplicationFollower(widgetContainer, properties);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (properties.getRole() == ReplicationRole.FOLLOWER) {
+            registry.addInterceptor(new ReplicaInterceptor(follower.getObject())).addPathPatterns("/api/**");
+        }
+    }
+}
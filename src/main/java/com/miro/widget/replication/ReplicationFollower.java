@@ -0,0 +1,178 @@
+package com.miro.widget.replication;
+
+import com.miro.widget.model.Widget;
+import com.miro.widget.persistence.WidgetCodec;
+import com.miro.widget.repository.WidgetContainer;
+import com.miro.widget.repository.ZIndexEntry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the {@link WidgetContainer} a copy of a {@link ReplicationLeader}'s: connects, installs a snapshot if the
+ * leader sends one, then applies its changes in order. Reconnects after {@code reconnect-delay} when the connection
+ * drops and continues from the last applied change if the leader still has it.
+ * <p>
+ * Until the first snapshot is installed and caught up the follower is not {@link #isReady() ready}. Afterwards it keeps
+ * serving what it has, and {@link #lagMillis()} tells how long ago it was last known to be in sync with the leader.
+ */
+@Slf4j
+public class ReplicationFollower implements Closeable {
+
+    private final WidgetContainer widgetContainer;
+    private final ReplicationProperties properties;
+    private volatile boolean ready;
+    private volatile long applied;
+    private volatile long syncedAt = System.nanoTime();
+    private volatile boolean closed;
+    private volatile Socket socket;
+    private long epoch;
+    private long readySeq;
+    private Thread thread;
+
+    public ReplicationFollower(WidgetContainer widgetContainer, ReplicationProperties properties) {
+        this.widgetContainer = widgetContainer;
+        this.properties = properties;
+    }
+
+    public void start() {
+        thread = new Thread(this::run, "widget-replication-follower");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return true once the container holds a consistent copy of the leader's board
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * @return milliseconds since the follower had applied every change the leader had told it about
+     */
+    public long lagMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - syncedAt);
+    }
+
+    /**
+     * @return sequence number of the last applied change of the leader
+     */
+    public long applied() {
+        return applied;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        thread.interrupt();
+        Socket current = socket;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private void run() {
+        while (!closed) {
+            try {
+                follow();
+            } catch (IOException e) {
+                if (!closed) {
+                    log.warn("Lost replication leader {}:{} : {}", properties.getLeaderHost(), properties.getPort(),
+                            e.getMessage());
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to apply change {} of the leader, requesting a snapshot", applied + 1, e);
+                epoch = 0;
+            }
+            try {
+                Thread.sleep(properties.getReconnectDelay().toMillis());
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void follow() throws IOException {
+        try (Socket connection = new Socket()) {
+            socket = connection;
+            if (closed) {
+                return;
+            }
+            int timeout = (int) properties.getTimeout().toMillis();
+            connection.connect(new InetSocketAddress(properties.getLeaderHost(), properties.getPort()), timeout);
+            connection.setSoTimeout(timeout);
+            connection.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream(), 1 << 16));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+            out.writeInt(ReplicationProtocol.MAGIC);
+            out.writeInt(ReplicationProtocol.VERSION);
+            out.writeLong(epoch);
+            out.writeLong(applied);
+            out.flush();
+
+            long leaderEpoch = in.readLong();
+            if (in.readBoolean()) {
+                install(in);
+            }
+            epoch = leaderEpoch;
+            while (!closed) {
+                byte type = in.readByte();
+                if (type == ReplicationProtocol.ENTRY) {
+                    long seq = in.readLong();
+                    long headSeq = in.readLong();
+                    if (seq != applied + 1) {
+                        throw new IOException("expected change " + (applied + 1) + " but got " + seq);
+                    }
+                    widgetContainer.applyReplicated(WidgetCodec.readMutation(in));
+                    applied = seq;
+                    caughtUp(headSeq);
+                } else if (type == ReplicationProtocol.HEARTBEAT) {
+                    caughtUp(in.readLong());
+                } else {
+                    throw new IOException("unknown frame " + type);
+                }
+            }
+        }
+    }
+
+    private void install(DataInputStream in) throws IOException {
+        ready = false;
+        epoch = 0;
+        long seq = in.readLong();
+        List<ZIndexEntry> order = new ArrayList<>();
+        while (in.readBoolean()) {
+            order.add(WidgetCodec.readEntry(in));
+        }
+        List<Widget> records = new ArrayList<>();
+        while (in.readBoolean()) {
+            records.add(WidgetCodec.readWidget(in));
+        }
+        readySeq = in.readLong();
+        widgetContainer.reset();
+        widgetContainer.restore(order, records.iterator());
+        widgetContainer.completeRecovery();
+        applied = seq;
+        caughtUp(readySeq);
+        log.info("Installed snapshot of {} widgets at {} from the leader", order.size(), seq);
+    }
+
+    private void caughtUp(long headSeq) {
+        if (applied >= readySeq) {
+            ready = true;
+        }
+        if (applied >= headSeq) {
+            syncedAt = System.nanoTime();
+        }
+    }
+}
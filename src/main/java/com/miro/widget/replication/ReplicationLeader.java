@@ -0,0 +1,272 @@
+package com.miro.widget.replication;
+
+import com.miro.widget.model.Widget;
+import com.miro.widget.persistence.WidgetCodec;
+import com.miro.widget.repository.Mutation;
+import com.miro.widget.repository.MutationListener;
+import com.miro.widget.repository.WidgetContainer;
+import com.miro.widget.repository.ZIndexEntry;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Numbers every change of the {@link WidgetContainer} and streams them over TCP to {@link ReplicationFollower}s, one
+ * thread per follower up to {@code maxFollowers}. The latest {@code backlog} changes are kept encoded in a ring buffer, so a follower that
+ * reconnects continues from where it stopped; a new follower, one that fell behind the ring or one that followed
+ * another leader process gets a snapshot first. See {@link ReplicationProtocol}.
+ * <p>
+ * Like in {@link com.miro.widget.persistence.WidgetPersistence}, the snapshot holds the z-order at a sequence number
+ * and the records read afterwards, and the follower applies the changes after that sequence number on top.
+ */
+@Slf4j
+public class ReplicationLeader implements MutationListener, Closeable {
+
+    private static final int MAX_FRAMES = 1024;
+
+    private final WidgetContainer widgetContainer;
+    private final ReplicationProperties properties;
+    private final long epoch = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+    private final byte[][] backlog;
+    private final Set<Socket> followers = ConcurrentHashMap.newKeySet();
+    private final AtomicLong snapshotsSent = new AtomicLong();
+    private long head;
+    private ServerSocket serverSocket;
+    private volatile boolean closed;
+
+    public ReplicationLeader(WidgetContainer widgetContainer, ReplicationProperties properties) {
+        this.widgetContainer = widgetContainer;
+        this.properties = properties;
+        this.backlog = new byte[properties.getBacklog()][];
+    }
+
+    /**
+     * Starts listening for followers. Must run before the container receives any change that is not in its state
+     * yet, e.g. after recovery.
+     */
+    public void start() throws IOException {
+        serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(properties.getPort()));
+        widgetContainer.addMutationListener(this);
+        Thread acceptor = new Thread(this::accept, "widget-replication-leader");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("Replication leader listening on port {}", port());
+    }
+
+    @Override
+    public void onMutation(Mutation mutation) {
+        byte[] payload = encode(mutation);
+        synchronized (this) {
+            head++;
+            backlog[slot(head)] = payload;
+            notifyAll();
+        }
+    }
+
+    /**
+     * @return port followers connect to
+     */
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * @return sequence number of the latest change
+     */
+    public synchronized long head() {
+        return head;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        followers.forEach(this::closeQuietly);
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+
+    int followerCount() {
+        return followers.size();
+    }
+
+    long snapshotsSent() {
+        return snapshotsSent.get();
+    }
+
+    /**
+     * Drops all follower connections; they reconnect by themselves.
+     */
+    void disconnectFollowers() {
+        followers.forEach(this::closeQuietly);
+    }
+
+    private void accept() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                if (followers.size() >= properties.getMaxFollowers()) {
+                    log.warn("Rejecting follower {}, {} are connected already", socket.getRemoteSocketAddress(),
+                            followers.size());
+                    closeQuietly(socket);
+                    continue;
+                }
+                followers.add(socket);
+                Thread sender = new Thread(() -> serve(socket),
+                        "widget-replication-" + socket.getRemoteSocketAddress());
+                sender.setDaemon(true);
+                sender.start();
+            } catch (IOException e) {
+                if (!closed) {
+                    log.error("Failed to accept follower", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Serves one follower; a connection that does not send its handshake within the timeout is dropped.
+     */
+    private void serve(Socket socket) {
+        try (socket) {
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout((int) properties.getTimeout().toMillis());
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+            if (in.readInt() != ReplicationProtocol.MAGIC || in.readInt() != ReplicationProtocol.VERSION) {
+                throw new IOException("unsupported protocol");
+            }
+            long followerEpoch = in.readLong();
+            long cursor = in.readLong();
+            socket.setSoTimeout(0);
+            out.writeLong(epoch);
+            if (followerEpoch == epoch && isRetained(cursor)) {
+                out.writeBoolean(false);
+                log.info("Follower {} continues after {}", socket.getRemoteSocketAddress(), cursor);
+            } else {
+                out.writeBoolean(true);
+                cursor = writeSnapshot(out);
+                snapshotsSent.incrementAndGet();
+                log.info("Sent snapshot at {} to follower {}", cursor, socket.getRemoteSocketAddress());
+            }
+            out.flush();
+            while (!closed) {
+                cursor = writeFrames(out, cursor);
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                log.info("Follower {} disconnected : {}", socket.getRemoteSocketAddress(), e.getMessage());
+            }
+        } finally {
+            followers.remove(socket);
+        }
+    }
+
+    private synchronized boolean isRetained(long cursor) {
+        return cursor <= head && cursor >= head - backlog.length;
+    }
+
+    private long writeSnapshot(DataOutputStream out) throws IOException {
+        Checkpoint checkpoint = widgetContainer.snapshotZOrder(order -> new Checkpoint(head(), order));
+        out.writeLong(checkpoint.getSeq());
+        for (Iterator<ZIndexEntry> order = checkpoint.getOrder(); order.hasNext(); ) {
+            out.writeBoolean(true);
+            WidgetCodec.writeEntry(out, order.next());
+        }
+        out.writeBoolean(false);
+        for (Widget widget : widgetContainer.records()) {
+            out.writeBoolean(true);
+            WidgetCodec.writeWidget(out, widget);
+        }
+        out.writeBoolean(false);
+        out.writeLong(head());
+        return checkpoint.getSeq();
+    }
+
+    /**
+     * Sends the changes after cursor, or a heartbeat if none arrive within the heartbeat interval.
+     *
+     * @return sequence number of the last change sent
+     */
+    private long writeFrames(DataOutputStream out, long cursor) throws IOException {
+        byte[][] payloads;
+        long headSeq;
+        synchronized (this) {
+            if (head == cursor && !closed) {
+                try {
+                    wait(properties.getHeartbeatInterval().toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted");
+                }
+            }
+            if (cursor < head - backlog.length) {
+                throw new IOException("fell behind the backlog");
+            }
+            payloads = new byte[(int) Math.min(head - cursor, MAX_FRAMES)][];
+            for (int i = 0; i < payloads.length; i++) {
+                payloads[i] = backlog[slot(cursor + 1 + i)];
+            }
+            headSeq = head;
+        }
+        if (payloads.length == 0) {
+            out.writeByte(ReplicationProtocol.HEARTBEAT);
+            out.writeLong(headSeq);
+        }
+        for (byte[] payload : payloads) {
+            out.writeByte(ReplicationProtocol.ENTRY);
+            out.writeLong(++cursor);
+            out.writeLong(headSeq);
+            out.write(payload);
+        }
+        out.flush();
+        return cursor;
+    }
+
+    private int slot(long seq) {
+        return (int) (seq % backlog.length);
+    }
+
+    private void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            log.debug("Failed to close follower connection", e);
+        }
+    }
+
+    private static byte[] encode(Mutation mutation) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try {
+            WidgetCodec.writeMutation(new DataOutputStream(bytes), mutation);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Value
+    private static class Checkpoint {
+        long seq;
+        Iterator<ZIndexEntry> order;
+    }
+}
@@ -0,0 +1,51 @@
+package com.miro.widget.replication;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "widget.replication")
+public class ReplicationProperties {
+
+    private ReplicationRole role = ReplicationRole.NONE;
+
+    /**
+     * TCP port the leader listens on and followers connect to; 0 lets a leader pick a free one.
+     */
+    private int port = 7070;
+
+    /**
+     * Host of the leader a follower connects to.
+     */
+    private String leaderHost = "localhost";
+
+    /**
+     * Latest changes a leader keeps for followers that reconnect; a follower further behind gets a snapshot.
+     */
+    private int backlog = 1 << 16;
+
+    /**
+     * How often an idle leader tells followers its position, which bounds the lag they report while in sync.
+     */
+    private Duration heartbeatInterval = Duration.ofMillis(100);
+
+    /**
+     * A follower drops the connection if nothing arrives from the leader for this long, a leader drops a connection
+     * whose handshake does not arrive within it.
+     */
+    private Duration timeout = Duration.ofSeconds(5);
+
+    /**
+     * Followers a leader serves at once, each on a thread of its own; further connections are closed right away.
+     */
+    private int maxFollowers = 16;
+
+    /**
+     * Pause of a follower between connection attempts.
+     */
+    private Duration reconnectDelay = Duration.ofSeconds(1);
+}
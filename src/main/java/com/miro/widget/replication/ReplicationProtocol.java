@@ -0,0 +1,27 @@
+package com.miro.widget.replication;
+
+/**
+ * Wire format between leader and followers, big-endian as written by {@link java.io.DataOutput}.
+ * <p>
+ * A follower opens with {@code MAGIC, VERSION, epoch, applied}: the epoch of the leader it last followed, 0 if none,
+ * and the sequence number of the last change it applied. The leader answers with its own epoch and a flag. If the
+ * epochs match and the changes after applied are still in the backlog, the flag is false and the log tail follows.
+ * Otherwise it is true and a snapshot comes first: the sequence number it was taken at, the z-order as
+ * {@code true, entry} pairs ending with {@code false}, the records the same way, and the sequence number the follower
+ * has to reach before its reads are consistent.
+ * <p>
+ * After that the leader sends frames: {@link #ENTRY} with sequence number, head sequence number of the leader and the
+ * mutation as written by {@link com.miro.widget.persistence.WidgetCodec}, and {@link #HEARTBEAT} with the head
+ * sequence number while there are no changes. A mutation that shifted widgets is sent alone; followers recompute the
+ * shift instead of receiving every widget it moved.
+ */
+final class ReplicationProtocol {
+
+    static final int MAGIC = 0x57444752;
+    static final int VERSION = 1;
+    static final byte ENTRY = 1;
+    static final byte HEARTBEAT = 2;
+
+    private ReplicationProtocol() {
+    }
+}
@@ -0,0 +1,22 @@
+package com.miro.widget.replication;
+
+/**
+ * Part an instance plays in replicating the default board.
+ */
+public enum ReplicationRole {
+
+    /**
+     * Stand-alone, nothing is replicated.
+     */
+    NONE,
+
+    /**
+     * Takes all writes and streams its changes to followers.
+     */
+    LEADER,
+
+    /**
+     * Mirrors a leader and serves reads only.
+     */
+    FOLLOWER
+}
@@ -0,0 +1,232 @@
+package com.miro.widget.repository;
+
+import com.miro.widget.model.Widget;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Uniform grid of widget bounding boxes for point queries. A widget covers
+ * [x-index, x-index + width] x [y-index, y-index + height] and is listed in every square cell it overlaps, so the
+ * widgets at a point are the few in its cell instead of a tree descent or a scan over the board.
+ * <p>
+ * The cell size is a power of two close to the mean widget extent, so a typical widget sits in at most four cells and
+ * a cell holds about as many widgets as overlap there. When the mean drifts away, the grid is rebuilt in O(N), at
+ * most once per N/2 changes, which keeps updates amortized O(1). Widgets spanning more than
+ * {@value #MAX_CELLS_PER_WIDGET} cells are kept in a separate list checked by every query instead.
+ * <p>
+ * Cells do not keep widgets in z-order: shifts would have to touch every cell of every shifted widget, which is what
+ * the {@link ZOrderTree} avoids. Callers rank the few candidates by their current z-index instead.
+ */
+final class GridIndex {
+
+    static final int MIN_CELL_SHIFT = 4;
+    static final int MAX_CELL_SHIFT = 24;
+    static final int MAX_CELLS_PER_WIDGET = 64;
+    private static final int MIN_CHANGES_BEFORE_RESIZE = 64;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, Entry> entries = new HashMap<>();
+    private final Map<Long, List<Entry>> cells = new HashMap<>();
+    private final List<Entry> oversized = new ArrayList<>();
+    private int cellShift = MIN_CELL_SHIFT + 2;
+    private long extentSum;
+    private int changesSinceResize;
+
+    /**
+     * Adds or replaces the bounding box of widgetId.
+     */
+    void put(UUID widgetId, int xIndex, int yIndex, int width, int height) {
+        Entry entry = new Entry(widgetId, xIndex, yIndex, (long) xIndex + width, (long) yIndex + height);
+        lock.writeLock().lock();
+        try {
+            Entry existing = entries.put(widgetId, entry);
+            if (existing != null) {
+                unlink(existing);
+            }
+            link(entry);
+            changed();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the content with widgets and picks the cell size for them.
+     */
+    void load(Collection<Widget> widgets) {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            extentSum = 0;
+            for (Widget widget : widgets) {
+                Entry entry = new Entry(widget.getId(), widget.getXIndex(), widget.getYIndex(),
+                        (long) widget.getXIndex() + widget.getWidth(), (long) widget.getYIndex() + widget.getHeight());
+                entries.put(entry.widgetId, entry);
+                extentSum += entry.extent();
+            }
+            rebuild(idealCellShift());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(UUID widgetId) {
+        lock.writeLock().lock();
+        try {
+            Entry existing = entries.remove(widgetId);
+            if (existing != null) {
+                unlink(existing);
+                changed();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return widgetIds whose bounding box contains (x, y), in no particular order
+     */
+    List<UUID> search(long x, long y) {
+        List<UUID> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            List<Entry> cell = cells.get(key(x >> cellShift, y >> cellShift));
+            if (cell != null) {
+                collect(cell, x, y, result);
+            }
+            collect(oversized, x, y, result);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    int cellSize() {
+        lock.readLock().lock();
+        try {
+            return 1 << cellShift;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void collect(List<Entry> candidates, long x, long y, List<UUID> result) {
+        for (Entry entry : candidates) {
+            if (entry.contains(x, y)) {
+                result.add(entry.widgetId);
+            }
+        }
+    }
+
+    private void link(Entry entry) {
+        extentSum += entry.extent();
+        if (cellCount(entry) > MAX_CELLS_PER_WIDGET) {
+            oversized.add(entry);
+            return;
+        }
+        for (long cx = entry.x1 >> cellShift; cx <= entry.x2 >> cellShift; cx++) {
+            for (long cy = entry.y1 >> cellShift; cy <= entry.y2 >> cellShift; cy++) {
+                cells.computeIfAbsent(key(cx, cy), k -> new ArrayList<>(4)).add(entry);
+            }
+        }
+    }
+
+    private void unlink(Entry entry) {
+        extentSum -= entry.extent();
+        if (cellCount(entry) > MAX_CELLS_PER_WIDGET) {
+            oversized.remove(entry);
+            return;
+        }
+        for (long cx = entry.x1 >> cellShift; cx <= entry.x2 >> cellShift; cx++) {
+            for (long cy = entry.y1 >> cellShift; cy <= entry.y2 >> cellShift; cy++) {
+                Long key = key(cx, cy);
+                List<Entry> cell = cells.get(key);
+                int index = cell.indexOf(entry);
+                cell.set(index, cell.get(cell.size() - 1));
+                cell.remove(cell.size() - 1);
+                if (cell.isEmpty()) {
+                    cells.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds with the ideal cell size once enough changes have accumulated and the size is off by more than a
+     * factor of two.
+     */
+    private void changed() {
+        if (++changesSinceResize < Math.max(MIN_CHANGES_BEFORE_RESIZE, entries.size() / 2)) {
+            return;
+        }
+        changesSinceResize = 0;
+        int ideal = idealCellShift();
+        if (Math.abs(ideal - cellShift) > 1) {
+            rebuild(ideal);
+        }
+    }
+
+    private int idealCellShift() {
+        long mean = entries.isEmpty() ? 0 : extentSum / entries.size();
+        int shift = 64 - Long.numberOfLeadingZeros(Math.max(1, mean));
+        return Math.max(MIN_CELL_SHIFT, Math.min(MAX_CELL_SHIFT, shift));
+    }
+
+    private void rebuild(int shift) {
+        cells.clear();
+        oversized.clear();
+        cellShift = shift;
+        extentSum = 0;
+        changesSinceResize = 0;
+        entries.values().forEach(this::link);
+    }
+
+    private long cellCount(Entry entry) {
+        return ((entry.x2 >> cellShift) - (entry.x1 >> cellShift) + 1)
+                * ((entry.y2 >> cellShift) - (entry.y1 >> cellShift) + 1);
+    }
+
+    private static Long key(long cx, long cy) {
+        return cx << 32 ^ (cy & 0xFFFFFFFFL);
+    }
+
+    private static final class Entry {
+        private final UUID widgetId;
+        private final long x1;
+        private final long y1;
+        private final long x2;
+        private final long y2;
+
+        private Entry(UUID widgetId, long x1, long y1, long x2, long y2) {
+            this.widgetId = widgetId;
+            this.x1 = x1;
+            this.y1 = y1;
+            this.x2 = x2;
+            this.y2 = y2;
+        }
+
+        private boolean contains(long x, long y) {
+            return x1 <= x && x <= x2 && y1 <= y && y <= y2;
+        }
+
+        private long extent() {
+            return Math.max(x2 - x1, y2 - y1);
+        }
+    }
+}
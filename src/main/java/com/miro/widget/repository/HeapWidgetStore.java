@@ -0,0 +1,69 @@
+package com.miro.widget.repository;
+
+import com.miro.widget.model.Widget;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BinaryOperator;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keeps widget objects in a {@link ConcurrentHashMap}.
+ */
+public class HeapWidgetStore implements WidgetStore {
+
+    private final ConcurrentHashMap<UUID, Widget> widgets = new ConcurrentHashMap<>();
+
+    @Override
+    public Widget get(UUID widgetId) {
+        return widgets.get(widgetId);
+    }
+
+    @Override
+    public boolean containsKey(UUID widgetId) {
+        return widgets.containsKey(widgetId);
+    }
+
+    @Override
+    public void put(Widget widget) {
+        widgets.put(widget.getId(), widget);
+    }
+
+    @Override
+    public Widget computeIfPresent(UUID widgetId, UnaryOperator<Widget> update) {
+        return widgets.computeIfPresent(widgetId, (id, widget) -> update.apply(widget));
+    }
+
+    @Override
+    public void merge(Widget widget, BinaryOperator<Widget> merger) {
+        widgets.merge(widget.getId(), widget, merger);
+    }
+
+    @Override
+    public void remove(UUID widgetId) {
+        widgets.remove(widgetId);
+    }
+
+    @Override
+    public void removeIf(Predicate<Widget> filter) {
+        widgets.values().removeIf(filter);
+    }
+
+    @Override
+    public int size() {
+        return widgets.size();
+    }
+
+    @Override
+    public Collection<Widget> values() {
+        return Collections.unmodifiableCollection(widgets.values());
+    }
+
+    @Override
+    public void clear() {
+        widgets.clear();
+    }
+}
@@ -0,0 +1,144 @@
+package com.miro.widget.repository;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Orders the changes of a {@link WidgetContainer} by a monotonically increasing modification sequence, so the changes
+ * since a sequence number are found by a range scan instead of a scan over the board.
+ * <p>
+ * Every widget has one entry at the sequence number of its latest create or update; restamping moves it. Deletes
+ * leave a tombstone and shifts an entry of their own. Only the latest {@code window} tombstones and shifts are kept;
+ * older sequence numbers fall below the floor and can no longer be answered with a delta.
+ * <p>
+ * The sequence starts at the creation time in microseconds, so numbers handed out before a restart are below the
+ * floor of the new process unless it averaged over a million changes per second.
+ */
+final class ModificationIndex {
+
+    private final int window;
+    private final NavigableMap<Long, Change> changes = new TreeMap<>();
+    private final UuidLongMap stamps = new UuidLongMap();
+    private final Deque<Long> expiring = new ArrayDeque<>();
+    private long seq;
+    private long floor;
+
+    ModificationIndex(int window) {
+        this.window = window;
+        this.seq = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        this.floor = seq;
+    }
+
+    /**
+     * Records a create or update of widgetId.
+     */
+    synchronized void stamp(UUID widgetId) {
+        unstamp(widgetId);
+        changes.put(++seq, new Change(widgetId, 0, false));
+        stamps.put(widgetId, seq);
+    }
+
+    /**
+     * Records a shift of all widgets at and above zIndex by one.
+     */
+    synchronized void shift(int zIndex) {
+        changes.put(++seq, new Change(null, zIndex, false));
+        expire(seq);
+    }
+
+    synchronized void delete(UUID widgetId) {
+        unstamp(widgetId);
+        changes.put(++seq, new Change(widgetId, 0, true));
+        expire(seq);
+    }
+
+    /**
+     * Forgets all changes; every sequence number handed out so far falls below the floor.
+     */
+    synchronized void reset() {
+        changes.clear();
+        stamps.clear();
+        expiring.clear();
+        floor = ++seq;
+    }
+
+    synchronized long seq() {
+        return seq;
+    }
+
+    /**
+     * @return changes after since in sequence order, adjacent shifts from the same z-index merged, or null if since
+     * is below the floor or ahead of the sequence
+     */
+    synchronized Delta since(long since) {
+        if (since < floor || since > seq) {
+            return null;
+        }
+        Delta delta = new Delta(seq);
+        for (Map.Entry<Long, Change> entry : changes.tailMap(since, false).entrySet()) {
+            Change change = entry.getValue();
+            if (change.widgetId == null) {
+                int last = delta.shifts.size() - 1;
+                if (last >= 0 && delta.shifts.get(last)[0] == change.zIndex) {
+                    delta.shifts.get(last)[1]++;
+                } else {
+                    delta.shifts.add(new int[]{change.zIndex, 1});
+                }
+            } else if (change.deleted) {
+                delta.deleted.add(change.widgetId);
+            } else {
+                delta.changed.add(change.widgetId);
+            }
+        }
+        return delta;
+    }
+
+    private void unstamp(UUID widgetId) {
+        long previous = stamps.remove(widgetId);
+        if (previous != UuidLongMap.NO_VALUE) {
+            changes.remove(previous);
+        }
+    }
+
+    private void expire(long added) {
+        expiring.addLast(added);
+        if (expiring.size() > window) {
+            long oldest = expiring.removeFirst();
+            changes.remove(oldest);
+            floor = oldest;
+        }
+    }
+
+    private static final class Change {
+        private final UUID widgetId;
+        private final int zIndex;
+        private final boolean deleted;
+
+        private Change(UUID widgetId, int zIndex, boolean deleted) {
+            this.widgetId = widgetId;
+            this.zIndex = zIndex;
+            this.deleted = deleted;
+        }
+    }
+
+    /**
+     * Changed widgetIds, deleted widgetIds and shifts as {from, by} pairs up to {@code seq}.
+     */
+    static final class Delta {
+        final long seq;
+        final List<UUID> changed = new ArrayList<>();
+        final List<UUID> deleted = new ArrayList<>();
+        final List<int[]> shifts = new ArrayList<>();
+
+        private Delta(long seq) {
+            this.seq = seq;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.miro.widget.repository;
+
+import com.miro.widget.model.Widget;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A committed change of the {@link WidgetContainer}. Creates and updates carry the widget record with its z-index at
+ * the time of the change. {@code zIndex} of an update is set when the widget was moved. {@code shifted} tells that all
+ * widgets at and above {@code zIndex} were shifted up by one to make room, which is not written to the log because
+ * replay recomputes it.
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class Mutation {
+
+    public enum Type {
+        CREATE, UPDATE, DELETE, BATCH
+    }
+
+    Type type;
+    UUID widgetId;
+    Widget widget;
+    Integer zIndex;
+    List<Mutation> mutations;
+    boolean shifted;
+
+    public static Mutation create(Widget widget) {
+        return create(widget, false);
+    }
+
+    public static Mutation create(Widget widget, boolean shifted) {
+        return new Mutation(Type.CREATE, widget.getId(), widget, widget.getZIndex(), null, shifted);
+    }
+
+    public static Mutation update(Widget widget, Integer movedTo) {
+        return update(widget, movedTo, false);
+    }
+
+    public static Mutation update(Widget widget, Integer movedTo, boolean shifted) {
+        return new Mutation(Type.UPDATE, widget.getId(), widget, movedTo, null, shifted);
+    }
+
+    public static Mutation delete(UUID widgetId) {
+        return new Mutation(Type.DELETE, widgetId, null, null, null, false);
+    }
+
+    public static Mutation batch(List<Mutation> mutations) {
+        return new Mutation(Type.BATCH, null, null, null, List.copyOf(mutations), false);
+    }
+}
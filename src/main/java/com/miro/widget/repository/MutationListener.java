@@ -0,0 +1,31 @@
+package com.miro.widget.repository;
+
+/**
+ * Observes changes of the {@link WidgetContainer}.
+ * <p>
+ * Changes are reported one at a time in the order they are committed, once readers can see them. Changes touching
+ * the z-order are reported while the z-order is still locked; attribute-only updates while no z-order change is in
+ * progress, so the z-index they carry is the one at their place in that order.
+ */
+public interface MutationListener {
+
+    /**
+     * Called for every committed change, possibly while holding locks. Must not block.
+     *
+     * @param mutation change
+     */
+    void onMutation(Mutation mutation);
+
+    /**
+     * Called by the writing thread once all locks are released, e.g. to wait until the change is durable.
+     */
+    default void afterMutation() {
+    }
+
+    /**
+     * Called when the container dropped all widgets without reporting them, e.g. before a replication follower
+     * installs a new snapshot of its leader.
+     */
+    default void onReset() {
+    }
+}
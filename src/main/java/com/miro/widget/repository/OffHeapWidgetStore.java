@@ -0,0 +1,389 @@
+package com.miro.widget.repository;
+
+import com.miro.widget.model.Widget;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BinaryOperator;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Keeps widgets outside the Java heap as {@value #RECORD_BYTES}-byte records in direct {@link ByteBuffer} slabs, so a
+ * board of millions of widgets adds a few slab objects to what the garbage collector has to trace instead of several
+ * objects per widget. A {@link UuidLongMap} maps WidgetIds to slots, and slots of deleted widgets are reused from a
+ * free list. Widgets are decoded into short-lived objects on every read.
+ * <p>
+ * Writers are serialized by a {@link StampedLock}; readers copy the raw record under an optimistic stamp and only
+ * decode it after validation, falling back to the read lock if a writer interfered.
+ * <p>
+ * Record layout: id (2 longs), x-index, y-index, z-index, height, width, zone (ints), version, epoch second (longs),
+ * nano, live flag (ints). Zones are interned in a table, -1 stands for no lastUpdatedAt.
+ */
+public class OffHeapWidgetStore implements WidgetStore {
+
+    static final int RECORD_BYTES = 64;
+    private static final int SLAB_SHIFT = 16;
+    private static final int SLAB_RECORDS = 1 << SLAB_SHIFT;
+    private static final int MSB = 0;
+    private static final int LSB = 8;
+    private static final int X_INDEX = 16;
+    private static final int Y_INDEX = 20;
+    private static final int Z_INDEX = 24;
+    private static final int HEIGHT = 28;
+    private static final int WIDTH = 32;
+    private static final int ZONE = 36;
+    private static final int VERSION = 40;
+    private static final int EPOCH_SECOND = 48;
+    private static final int NANO = 56;
+    private static final int LIVE = 60;
+    private static final int NO_ZONE = -1;
+
+    private final StampedLock lock = new StampedLock();
+    private final UuidLongMap index = new UuidLongMap();
+    private final Map<ZoneId, Integer> zoneIndexes = new HashMap<>();
+    private ZoneId[] zones = new ZoneId[0];
+    private ByteBuffer[] slabs = new ByteBuffer[0];
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int usedSlots;
+
+    @Override
+    public Widget get(UUID widgetId) {
+        long stamp = lock.tryOptimisticRead();
+        Record record = readRecord(widgetId);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                record = readRecord(widgetId);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return record == null ? null : record.toWidget();
+    }
+
+    @Override
+    public boolean containsKey(UUID widgetId) {
+        long stamp = lock.tryOptimisticRead();
+        boolean contains = index.containsKey(widgetId);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                contains = index.containsKey(widgetId);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return contains;
+    }
+
+    @Override
+    public void put(Widget widget) {
+        long stamp = lock.writeLock();
+        try {
+            long slot = index.get(widget.getId());
+            write(slot == UuidLongMap.NO_VALUE ? allocate(widget.getId()) : (int) slot, widget);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Widget computeIfPresent(UUID widgetId, UnaryOperator<Widget> update) {
+        long stamp = lock.writeLock();
+        try {
+            long slot = index.get(widgetId);
+            if (slot == UuidLongMap.NO_VALUE) {
+                return null;
+            }
+            Widget updated = update.apply(readSlot((int) slot).toWidget());
+            write((int) slot, updated);
+            return updated;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void merge(Widget widget, BinaryOperator<Widget> merger) {
+        long stamp = lock.writeLock();
+        try {
+            long slot = index.get(widget.getId());
+            if (slot == UuidLongMap.NO_VALUE) {
+                write(allocate(widget.getId()), widget);
+            } else {
+                write((int) slot, merger.apply(readSlot((int) slot).toWidget(), widget));
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void remove(UUID widgetId) {
+        long stamp = lock.writeLock();
+        try {
+            long slot = index.remove(widgetId);
+            if (slot != UuidLongMap.NO_VALUE) {
+                release((int) slot);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void removeIf(Predicate<Widget> filter) {
+        long stamp = lock.writeLock();
+        try {
+            for (int slot = 0; slot < usedSlots; slot++) {
+                Record record = readSlot(slot);
+                if (record != null) {
+                    Widget widget = record.toWidget();
+                    if (filter.test(widget)) {
+                        index.remove(widget.getId());
+                        release(slot);
+                    }
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int size = index.size();
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                size = index.size();
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public Collection<Widget> values() {
+        return new AbstractCollection<Widget>() {
+            @Override
+            public Iterator<Widget> iterator() {
+                return new SlotIterator();
+            }
+
+            @Override
+            public int size() {
+                return OffHeapWidgetStore.this.size();
+            }
+        };
+    }
+
+    @Override
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            index.clear();
+            slabs = new ByteBuffer[0];
+            freeCount = 0;
+            usedSlots = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Versions would keep every widget on the heap again, so containers over this store keep none.
+     */
+    @Override
+    public boolean isOnHeap() {
+        return false;
+    }
+
+    private Record readRecord(UUID widgetId) {
+        long slot = index.get(widgetId);
+        return slot == UuidLongMap.NO_VALUE ? null : readSlot((int) slot);
+    }
+
+    /**
+     * Copies the raw record at slot; tolerates concurrent writers as long as the caller validates before decoding.
+     *
+     * @return record or null if the slot is free or out of range
+     */
+    private Record readSlot(int slot) {
+        ByteBuffer[] currentSlabs = slabs;
+        if (slot < 0 || slot >> SLAB_SHIFT >= currentSlabs.length) {
+            return null;
+        }
+        ByteBuffer slab = currentSlabs[slot >> SLAB_SHIFT];
+        int offset = (slot & (SLAB_RECORDS - 1)) * RECORD_BYTES;
+        if (slab.getInt(offset + LIVE) == 0) {
+            return null;
+        }
+        Record record = new Record();
+        record.msb = slab.getLong(offset + MSB);
+        record.lsb = slab.getLong(offset + LSB);
+        record.xIndex = slab.getInt(offset + X_INDEX);
+        record.yIndex = slab.getInt(offset + Y_INDEX);
+        record.zIndex = slab.getInt(offset + Z_INDEX);
+        record.height = slab.getInt(offset + HEIGHT);
+        record.width = slab.getInt(offset + WIDTH);
+        record.version = slab.getLong(offset + VERSION);
+        record.epochSecond = slab.getLong(offset + EPOCH_SECOND);
+        record.nano = slab.getInt(offset + NANO);
+        int zone = slab.getInt(offset + ZONE);
+        ZoneId[] currentZones = zones;
+        record.zone = zone >= 0 && zone < currentZones.length ? currentZones[zone] : null;
+        return record;
+    }
+
+    private void write(int slot, Widget widget) {
+        ByteBuffer slab = slabs[slot >> SLAB_SHIFT];
+        int offset = (slot & (SLAB_RECORDS - 1)) * RECORD_BYTES;
+        slab.putLong(offset + MSB, widget.getId().getMostSignificantBits());
+        slab.putLong(offset + LSB, widget.getId().getLeastSignificantBits());
+        slab.putInt(offset + X_INDEX, widget.getXIndex());
+        slab.putInt(offset + Y_INDEX, widget.getYIndex());
+        slab.putInt(offset + Z_INDEX, widget.getZIndex());
+        slab.putInt(offset + HEIGHT, widget.getHeight());
+        slab.putInt(offset + WIDTH, widget.getWidth());
+        slab.putLong(offset + VERSION, widget.getVersion());
+        ZonedDateTime lastUpdatedAt = widget.getLastUpdatedAt();
+        if (lastUpdatedAt == null) {
+            slab.putInt(offset + ZONE, NO_ZONE);
+        } else {
+            slab.putInt(offset + ZONE, zoneIndex(lastUpdatedAt.getZone()));
+            slab.putLong(offset + EPOCH_SECOND, lastUpdatedAt.toEpochSecond());
+            slab.putInt(offset + NANO, lastUpdatedAt.getNano());
+        }
+        slab.putInt(offset + LIVE, 1);
+    }
+
+    private int allocate(UUID widgetId) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            slot = usedSlots++;
+            if (slot >> SLAB_SHIFT == slabs.length) {
+                ByteBuffer[] grown = Arrays.copyOf(slabs, slabs.length + 1);
+                grown[slabs.length] = ByteBuffer.allocateDirect(SLAB_RECORDS * RECORD_BYTES);
+                slabs = grown;
+            }
+        }
+        index.put(widgetId, slot);
+        return slot;
+    }
+
+    private void release(int slot) {
+        slabs[slot >> SLAB_SHIFT].putInt((slot & (SLAB_RECORDS - 1)) * RECORD_BYTES + LIVE, 0);
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    private int zoneIndex(ZoneId zone) {
+        return zoneIndexes.computeIfAbsent(zone, added -> {
+            zones = Arrays.copyOf(zones, zones.length + 1);
+            zones[zones.length - 1] = added;
+            return zones.length - 1;
+        });
+    }
+
+    private static final class Record {
+        private long msb;
+        private long lsb;
+        private int xIndex;
+        private int yIndex;
+        private int zIndex;
+        private int height;
+        private int width;
+        private long version;
+        private long epochSecond;
+        private int nano;
+        private ZoneId zone;
+
+        private Widget toWidget() {
+            return Widget.builder()
+                    .id(new UUID(msb, lsb))
+                    .xIndex(xIndex)
+                    .yIndex(yIndex)
+                    .zIndex(zIndex)
+                    .height(height)
+                    .width(width)
+                    .version(version)
+                    .lastUpdatedAt(zone == null ? null
+                            : ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond, nano), zone))
+                    .build();
+        }
+    }
+
+    /**
+     * Weakly consistent: reads each slot under its own stamp, like the iterators of concurrent collections.
+     */
+    private final class SlotIterator implements Iterator<Widget> {
+        private int slot;
+        private Widget next;
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && slot < usedSlots()) {
+                next = readValidated(slot++);
+            }
+            return next != null;
+        }
+
+        @Override
+        public Widget next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Widget widget = next;
+            next = null;
+            return widget;
+        }
+
+        private int usedSlots() {
+            long stamp = lock.tryOptimisticRead();
+            int used = usedSlots;
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    used = usedSlots;
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return used;
+        }
+
+        private Widget readValidated(int slot) {
+            long stamp = lock.tryOptimisticRead();
+            Record record = readSlot(slot);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    record = readSlot(slot);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return record == null ? null : record.toWidget();
+        }
+    }
+}
@@ -0,0 +1,377 @@
+package com.miro.widget.repository;
+
+import com.miro.widget.model.Widget;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory R-tree (Guttman, quadratic split) of widget bounding boxes. A widget covers
+ * [x-index, x-index + width] x [y-index, y-index + height]; rectangle queries visit only the subtrees whose bounding
+ * box intersects the query instead of scanning the whole board.
+ */
+final class RTreeIndex {
+
+    private static final int MAX_ENTRIES = 16;
+    private static final int MIN_ENTRIES = 6;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, Entry> entries = new HashMap<>();
+    private Node root = new Node(true);
+
+    /**
+     * Adds or replaces the bounding box of widgetId.
+     */
+    void put(UUID widgetId, int xIndex, int yIndex, int width, int height) {
+        Entry entry = new Entry(widgetId, xIndex, yIndex, (long) xIndex + width, (long) yIndex + height);
+        lock.writeLock().lock();
+        try {
+            Entry existing = entries.put(widgetId, entry);
+            if (existing != null) {
+                delete(existing);
+            }
+            insert(entry, 0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Bulk loads an empty index with Sort-Tile-Recursive packing, which is much faster than inserting one by one and
+     * yields fuller nodes. Falls back to single inserts if the index is not empty.
+     */
+    void load(Collection<Widget> widgets) {
+        lock.writeLock().lock();
+        try {
+            if (!entries.isEmpty()) {
+                widgets.forEach(widget -> put(widget.getId(), widget.getXIndex(), widget.getYIndex(),
+                        widget.getWidth(), widget.getHeight()));
+                return;
+            }
+            List<Rect> level = new ArrayList<>(widgets.size());
+            for (Widget widget : widgets) {
+                Entry entry = new Entry(widget.getId(), widget.getXIndex(), widget.getYIndex(),
+                        (long) widget.getXIndex() + widget.getWidth(), (long) widget.getYIndex() + widget.getHeight());
+                entries.put(entry.widgetId, entry);
+                level.add(entry);
+            }
+            boolean leaf = true;
+            while (level.size() > MAX_ENTRIES) {
+                level = pack(level, leaf);
+                leaf = false;
+            }
+            root = new Node(leaf);
+            level.forEach(root::add);
+            root.recalculate();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            entries.clear();
+            root = new Node(true);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(UUID widgetId) {
+        lock.writeLock().lock();
+        try {
+            Entry existing = entries.remove(widgetId);
+            if (existing != null) {
+                delete(existing);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return widgetIds whose bounding box intersects [x1, x2] x [y1, y2], in no particular order
+     */
+    List<UUID> search(long x1, long y1, long x2, long y2) {
+        List<UUID> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            search(root, x1, y1, x2, y2, result);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void search(Node node, long x1, long y1, long x2, long y2, List<UUID> result) {
+        for (Rect child : node.children) {
+            if (child.intersects(x1, y1, x2, y2)) {
+                if (node.leaf) {
+                    result.add(((Entry) child).widgetId);
+                } else {
+                    search((Node) child, x1, y1, x2, y2, result);
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts rect into a node at level (0 for leaves) and splits overflowing nodes up to the root.
+     */
+    private void insert(Rect rect, int level) {
+        Node node = chooseNode(rect, level);
+        node.add(rect);
+        Node sibling = node.children.size() > MAX_ENTRIES ? split(node) : null;
+        while (node != root) {
+            Node parent = node.parent;
+            node.recalculate();
+            if (sibling != null) {
+                parent.add(sibling);
+                sibling = parent.children.size() > MAX_ENTRIES ? split(parent) : null;
+            }
+            node = parent;
+        }
+        root.recalculate();
+        if (sibling != null) {
+            Node newRoot = new Node(false);
+            newRoot.add(root);
+            newRoot.add(sibling);
+            newRoot.recalculate();
+            root = newRoot;
+        }
+    }
+
+    private Node chooseNode(Rect rect, int level) {
+        Node node = root;
+        for (int height = root.height(); height > level; height--) {
+            Node best = null;
+            double bestEnlargement = Double.MAX_VALUE;
+            for (Rect child : node.children) {
+                double enlargement = child.enlargement(rect);
+                if (enlargement < bestEnlargement
+                        || (enlargement == bestEnlargement && child.area() < best.area())) {
+                    best = (Node) child;
+                    bestEnlargement = enlargement;
+                }
+            }
+            node = best;
+        }
+        return node;
+    }
+
+    private void delete(Entry entry) {
+        Node leaf = entry.leaf;
+        leaf.children.remove(entry);
+        List<Node> eliminated = new ArrayList<>();
+        Node node = leaf;
+        while (node != root) {
+            Node parent = node.parent;
+            if (node.children.size() < MIN_ENTRIES) {
+                parent.children.remove(node);
+                eliminated.add(node);
+            } else {
+                node.recalculate();
+            }
+            node = parent;
+        }
+        root.recalculate();
+        while (!root.leaf && root.children.size() <= 1) {
+            root = root.children.isEmpty() ? new Node(true) : (Node) root.children.get(0);
+            root.parent = null;
+        }
+        for (Node orphan : eliminated) {
+            reinsert(orphan);
+        }
+    }
+
+    private void reinsert(Node orphan) {
+        for (Rect child : orphan.children) {
+            if (orphan.leaf) {
+                insert(child, 0);
+            } else {
+                reinsert((Node) child);
+            }
+        }
+    }
+
+    /**
+     * Sorts rects into vertical slices by center x, each slice by center y, and groups runs of {@link #MAX_ENTRIES}.
+     */
+    private static List<Rect> pack(List<Rect> rects, boolean leaf) {
+        int nodes = (rects.size() + MAX_ENTRIES - 1) / MAX_ENTRIES;
+        int sliceSize = (int) Math.ceil(Math.sqrt(nodes)) * MAX_ENTRIES;
+        rects.sort(Comparator.comparingLong(rect -> rect.minX + rect.maxX));
+        List<Rect> parents = new ArrayList<>(nodes);
+        for (int slice = 0; slice < rects.size(); slice += sliceSize) {
+            List<Rect> sliceRects = rects.subList(slice, Math.min(rects.size(), slice + sliceSize));
+            sliceRects.sort(Comparator.comparingLong(rect -> rect.minY + rect.maxY));
+            for (int from = 0; from < sliceRects.size(); from += MAX_ENTRIES) {
+                Node node = new Node(leaf);
+                sliceRects.subList(from, Math.min(sliceRects.size(), from + MAX_ENTRIES)).forEach(node::add);
+                node.recalculate();
+                parents.add(node);
+            }
+        }
+        return parents;
+    }
+
+    /**
+     * Quadratic split: seeds are the pair wasting the most area, remaining children go to the group needing the
+     * least enlargement while keeping both groups at least {@link #MIN_ENTRIES} large.
+     */
+    private Node split(Node node) {
+        List<Rect> remaining = new ArrayList<>(node.children);
+        int seed1 = 0;
+        int seed2 = 1;
+        double worstWaste = -Double.MAX_VALUE;
+        for (int i = 0; i < remaining.size(); i++) {
+            for (int j = i + 1; j < remaining.size(); j++) {
+                double waste = remaining.get(i).unionArea(remaining.get(j))
+                        - remaining.get(i).area() - remaining.get(j).area();
+                if (waste > worstWaste) {
+                    worstWaste = waste;
+                    seed1 = i;
+                    seed2 = j;
+                }
+            }
+        }
+        Rect first = remaining.get(seed1);
+        Rect second = remaining.get(seed2);
+        remaining.remove(seed2);
+        remaining.remove(seed1);
+        node.children.clear();
+        node.add(first);
+        node.recalculate();
+        Node sibling = new Node(node.leaf);
+        sibling.add(second);
+        sibling.recalculate();
+
+        while (!remaining.isEmpty()) {
+            if (node.children.size() + remaining.size() == MIN_ENTRIES) {
+                remaining.forEach(node::add);
+                break;
+            }
+            if (sibling.children.size() + remaining.size() == MIN_ENTRIES) {
+                remaining.forEach(sibling::add);
+                break;
+            }
+            int next = 0;
+            double maxDifference = -1;
+            for (int i = 0; i < remaining.size(); i++) {
+                double difference = Math.abs(node.enlargement(remaining.get(i))
+                        - sibling.enlargement(remaining.get(i)));
+                if (difference > maxDifference) {
+                    maxDifference = difference;
+                    next = i;
+                }
+            }
+            Rect rect = remaining.remove(next);
+            double nodeEnlargement = node.enlargement(rect);
+            double siblingEnlargement = sibling.enlargement(rect);
+            Node target = nodeEnlargement < siblingEnlargement ? node
+                    : siblingEnlargement < nodeEnlargement ? sibling
+                    : node.children.size() <= sibling.children.size() ? node : sibling;
+            target.add(rect);
+            target.include(rect);
+        }
+        node.recalculate();
+        sibling.recalculate();
+        return sibling;
+    }
+
+    private abstract static class Rect {
+        long minX;
+        long minY;
+        long maxX;
+        long maxY;
+
+        boolean intersects(long x1, long y1, long x2, long y2) {
+            return minX <= x2 && maxX >= x1 && minY <= y2 && maxY >= y1;
+        }
+
+        double area() {
+            return (double) (maxX - minX) * (maxY - minY);
+        }
+
+        double unionArea(Rect other) {
+            return (double) (Math.max(maxX, other.maxX) - Math.min(minX, other.minX))
+                    * (Math.max(maxY, other.maxY) - Math.min(minY, other.minY));
+        }
+
+        double enlargement(Rect other) {
+            return unionArea(other) - area();
+        }
+
+        void include(Rect other) {
+            minX = Math.min(minX, other.minX);
+            minY = Math.min(minY, other.minY);
+            maxX = Math.max(maxX, other.maxX);
+            maxY = Math.max(maxY, other.maxY);
+        }
+    }
+
+    private static final class Entry extends Rect {
+        private final UUID widgetId;
+        private Node leaf;
+
+        private Entry(UUID widgetId, long minX, long minY, long maxX, long maxY) {
+            this.widgetId = widgetId;
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+    }
+
+    private static final class Node extends Rect {
+        private final boolean leaf;
+        private final List<Rect> children = new ArrayList<>(MAX_ENTRIES + 1);
+        private Node parent;
+
+        private Node(boolean leaf) {
+            this.leaf = leaf;
+        }
+
+        private void add(Rect child) {
+            children.add(child);
+            if (leaf) {
+                ((Entry) child).leaf = this;
+            } else {
+                ((Node) child).parent = this;
+            }
+        }
+
+        private int height() {
+            int height = 0;
+            for (Node node = this; !node.leaf; node = (Node) node.children.get(0)) {
+                height++;
+            }
+            return height;
+        }
+
+        private void recalculate() {
+            minX = Long.MAX_VALUE;
+            minY = Long.MAX_VALUE;
+            maxX = Long.MIN_VALUE;
+            maxY = Long.MIN_VALUE;
+            children.forEach(this::include);
+        }
+    }
+}
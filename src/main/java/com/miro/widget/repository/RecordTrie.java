@@ -0,0 +1,251 @@
+package com.miro.widget.repository;
+
+import com.miro.widget.model.Widget;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Persistent (copy-on-write) hash array mapped trie of widget records by WidgetId. Every change copies the O(log32 N)
+ * nodes on the path to the record and shares all others with the previous trie, so old tries stay readable without
+ * locking for as long as they are referenced.
+ * <p>
+ * Each level consumes {@value #BITS} bits of a 64-bit hash of the id; ids whose hashes are equal end up in a
+ * collision node scanned linearly.
+ */
+final class RecordTrie {
+
+    static final RecordTrie EMPTY = new RecordTrie(BitmapNode.EMPTY, 0);
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private final BitmapNode root;
+    private final int size;
+
+    private RecordTrie(BitmapNode root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return record of widgetId or null
+     */
+    Widget get(UUID widgetId) {
+        long hash = hash(widgetId);
+        Object node = root;
+        for (int shift = 0; ; shift += BITS) {
+            if (node instanceof CollisionNode) {
+                return ((CollisionNode) node).get(widgetId);
+            }
+            BitmapNode bitmapNode = (BitmapNode) node;
+            int bit = bit(hash, shift);
+            if ((bitmapNode.bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = bitmapNode.slots[bitmapNode.index(bit)];
+            if (slot instanceof Widget) {
+                Widget widget = (Widget) slot;
+                return widget.getId().equals(widgetId) ? widget : null;
+            }
+            node = slot;
+        }
+    }
+
+    /**
+     * @return trie with widget added or replacing the record of the same id
+     */
+    RecordTrie put(Widget widget) {
+        boolean[] added = new boolean[1];
+        BitmapNode updated = (BitmapNode) put(root, widget, hash(widget.getId()), 0, added);
+        return new RecordTrie(updated, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * @return trie without widgetId, or this trie if it has no such record
+     */
+    RecordTrie remove(UUID widgetId) {
+        Object updated = remove(root, widgetId, hash(widgetId), 0);
+        return updated == root ? this : new RecordTrie((BitmapNode) updated, size - 1);
+    }
+
+    private static Object put(Object node, Widget widget, long hash, int shift, boolean[] added) {
+        if (node instanceof CollisionNode) {
+            return ((CollisionNode) node).put(widget, added);
+        }
+        BitmapNode bitmapNode = (BitmapNode) node;
+        int bit = bit(hash, shift);
+        int index = bitmapNode.index(bit);
+        if ((bitmapNode.bitmap & bit) == 0) {
+            added[0] = true;
+            return bitmapNode.insert(bit, index, widget);
+        }
+        Object slot = bitmapNode.slots[index];
+        if (slot instanceof Widget) {
+            Widget existing = (Widget) slot;
+            if (existing.getId().equals(widget.getId())) {
+                return bitmapNode.replace(index, widget);
+            }
+            added[0] = true;
+            return bitmapNode.replace(index,
+                    branch(existing, hash(existing.getId()), widget, hash, shift + BITS));
+        }
+        return bitmapNode.replace(index, put(slot, widget, hash, shift + BITS, added));
+    }
+
+    /**
+     * @return node holding both records, branching from shift on
+     */
+    private static Object branch(Widget first, long firstHash, Widget second, long secondHash, int shift) {
+        if (shift >= Long.SIZE) {
+            return new CollisionNode(new Widget[]{first, second});
+        }
+        int firstBit = bit(firstHash, shift);
+        int secondBit = bit(secondHash, shift);
+        if (firstBit == secondBit) {
+            return new BitmapNode(firstBit, new Object[]{branch(first, firstHash, second, secondHash, shift + BITS)});
+        }
+        return new BitmapNode(firstBit | secondBit, Integer.compareUnsigned(firstBit, secondBit) < 0
+                ? new Object[]{first, second} : new Object[]{second, first});
+    }
+
+    /**
+     * @return node unchanged if widgetId is absent, otherwise the node without it; below the root a node left with a
+     * single record is replaced by that record and an empty one by null
+     */
+    private static Object remove(Object node, UUID widgetId, long hash, int shift) {
+        if (node instanceof CollisionNode) {
+            return ((CollisionNode) node).remove(widgetId);
+        }
+        BitmapNode bitmapNode = (BitmapNode) node;
+        int bit = bit(hash, shift);
+        if ((bitmapNode.bitmap & bit) == 0) {
+            return node;
+        }
+        int index = bitmapNode.index(bit);
+        Object slot = bitmapNode.slots[index];
+        Object updated;
+        if (slot instanceof Widget) {
+            if (!((Widget) slot).getId().equals(widgetId)) {
+                return node;
+            }
+            updated = null;
+        } else {
+            updated = remove(slot, widgetId, hash, shift + BITS);
+            if (updated == slot) {
+                return node;
+            }
+        }
+        if (updated != null) {
+            return bitmapNode.replace(index, updated);
+        }
+        BitmapNode removed = bitmapNode.delete(bit, index);
+        if (shift > 0 && removed.slots.length == 1 && removed.slots[0] instanceof Widget) {
+            return removed.slots[0];
+        }
+        return shift > 0 && removed.slots.length == 0 ? null : removed;
+    }
+
+    private static int bit(long hash, int shift) {
+        return 1 << (int) (hash >>> shift & MASK);
+    }
+
+    private static long hash(UUID widgetId) {
+        long hash = (widgetId.getMostSignificantBits() ^ widgetId.getLeastSignificantBits()) * 0x9E3779B97F4A7C15L;
+        return hash ^ hash >>> 32;
+    }
+
+    /**
+     * Up to 32 slots, each a {@link Widget} or a child node, present where the bitmap has a bit set.
+     */
+    private static final class BitmapNode {
+        private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+        private final Object[] slots;
+
+        private BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private BitmapNode insert(int bit, int index, Object slot) {
+            Object[] copy = new Object[slots.length + 1];
+            System.arraycopy(slots, 0, copy, 0, index);
+            copy[index] = slot;
+            System.arraycopy(slots, index, copy, index + 1, slots.length - index);
+            return new BitmapNode(bitmap | bit, copy);
+        }
+
+        private BitmapNode replace(int index, Object slot) {
+            Object[] copy = slots.clone();
+            copy[index] = slot;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        private BitmapNode delete(int bit, int index) {
+            Object[] copy = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, copy, 0, index);
+            System.arraycopy(slots, index + 1, copy, index, copy.length - index);
+            return new BitmapNode(bitmap & ~bit, copy);
+        }
+    }
+
+    /**
+     * Records of distinct ids with the same 64-bit hash.
+     */
+    private static final class CollisionNode {
+        private final Widget[] widgets;
+
+        private CollisionNode(Widget[] widgets) {
+            this.widgets = widgets;
+        }
+
+        private Widget get(UUID widgetId) {
+            int index = indexOf(widgetId);
+            return index < 0 ? null : widgets[index];
+        }
+
+        private CollisionNode put(Widget widget, boolean[] added) {
+            int index = indexOf(widget.getId());
+            Widget[] copy = Arrays.copyOf(widgets, index < 0 ? widgets.length + 1 : widgets.length);
+            copy[index < 0 ? widgets.length : index] = widget;
+            added[0] = index < 0;
+            return new CollisionNode(copy);
+        }
+
+        /**
+         * @return this node if widgetId is absent, the remaining record if only one is left, otherwise a new node
+         */
+        private Object remove(UUID widgetId) {
+            int index = indexOf(widgetId);
+            if (index < 0) {
+                return this;
+            }
+            if (widgets.length == 2) {
+                return widgets[1 - index];
+            }
+            Widget[] copy = new Widget[widgets.length - 1];
+            System.arraycopy(widgets, 0, copy, 0, index);
+            System.arraycopy(widgets, index + 1, copy, index, copy.length - index);
+            return new CollisionNode(copy);
+        }
+
+        private int indexOf(UUID widgetId) {
+            for (int i = 0; i < widgets.length; i++) {
+                if (widgets[i].getId().equals(widgetId)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
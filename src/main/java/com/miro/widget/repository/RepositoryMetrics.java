@@ -0,0 +1,34 @@
+package com.miro.widget.repository;
+
+/**
+ * Receives measurements of the {@link WidgetContainer} and its {@link ZIndexContainer}. Called on the hot path, so
+ * implementations must be cheap and must not block.
+ */
+public interface RepositoryMetrics {
+
+    RepositoryMetrics NOOP = new RepositoryMetrics() {
+    };
+
+    enum Operation {
+        SAVE_AS_FOREGROUND, SAVE_WITH_Z_INDEX, UPDATE, REORDER, DELETE, FIND_ALL, FIND_PAGE
+    }
+
+    /**
+     * @param operation operation
+     * @param nanos     time it took, including lock waits
+     */
+    default void recordOperation(Operation operation, long nanos) {
+    }
+
+    /**
+     * @param shifted number of widgets an insert or move shifted up, 0 if the target z-index was free
+     */
+    default void recordShift(int shifted) {
+    }
+
+    /**
+     * @param nanos time a writer waited for the z-order lock, 0 if it was free
+     */
+    default void recordLockWait(long nanos) {
+    }
+}
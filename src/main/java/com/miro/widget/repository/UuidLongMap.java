@@ -0,0 +1,169 @@
+package com.miro.widget.repository;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Open-addressing hash map from a UUID, stored as its two longs, to a primitive long. Linear probing with
+ * backward-shift deletion keeps the table free of tombstones. An entry takes 24 bytes of table per slot instead of a
+ * node, a boxed value and usually a key object per entry in a {@link java.util.HashMap}.
+ * <p>
+ * Writes must be serialized by the caller. Reads may run concurrently with a writer: they always terminate, but may
+ * return a stale or wrong result, so they have to be validated, e.g. with an optimistic
+ * {@link java.util.concurrent.locks.StampedLock} stamp, and retried under a lock.
+ */
+final class UuidLongMap {
+
+    /**
+     * Returned for absent keys; cannot be stored.
+     */
+    static final long NO_VALUE = Long.MIN_VALUE;
+    private static final int MIN_CAPACITY = 16;
+
+    private Table table = new Table(MIN_CAPACITY);
+    private int size;
+
+    /**
+     * @return value of key or {@link #NO_VALUE}
+     */
+    long get(UUID key) {
+        Table current = table;
+        long msb = key.getMostSignificantBits();
+        long lsb = key.getLeastSignificantBits();
+        int slot = current.slot(msb, lsb);
+        for (int probes = 0; probes <= current.mask; probes++) {
+            long value = current.values[slot];
+            if (value == NO_VALUE) {
+                return NO_VALUE;
+            }
+            if (current.msbs[slot] == msb && current.lsbs[slot] == lsb) {
+                return value;
+            }
+            slot = (slot + 1) & current.mask;
+        }
+        return NO_VALUE;
+    }
+
+    boolean containsKey(UUID key) {
+        return get(key) != NO_VALUE;
+    }
+
+    /**
+     * @return previous value of key or {@link #NO_VALUE}
+     */
+    long put(UUID key, long value) {
+        if (value == NO_VALUE) {
+            throw new IllegalArgumentException("value is reserved");
+        }
+        long msb = key.getMostSignificantBits();
+        long lsb = key.getLeastSignificantBits();
+        int slot = table.slot(msb, lsb);
+        while (table.values[slot] != NO_VALUE) {
+            if (table.msbs[slot] == msb && table.lsbs[slot] == lsb) {
+                long previous = table.values[slot];
+                table.values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & table.mask;
+        }
+        table.msbs[slot] = msb;
+        table.lsbs[slot] = lsb;
+        table.values[slot] = value;
+        if (++size > table.capacity() >> 1) {
+            table = table.resize(table.capacity() << 1);
+        }
+        return NO_VALUE;
+    }
+
+    /**
+     * @return removed value of key or {@link #NO_VALUE}
+     */
+    long remove(UUID key) {
+        long msb = key.getMostSignificantBits();
+        long lsb = key.getLeastSignificantBits();
+        int slot = table.slot(msb, lsb);
+        while (table.values[slot] != NO_VALUE) {
+            if (table.msbs[slot] == msb && table.lsbs[slot] == lsb) {
+                long previous = table.values[slot];
+                shiftBack(slot);
+                size--;
+                return previous;
+            }
+            slot = (slot + 1) & table.mask;
+        }
+        return NO_VALUE;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        table = new Table(MIN_CAPACITY);
+        size = 0;
+    }
+
+    /**
+     * Closes the gap at slot by moving back following entries whose home slot is at or before it.
+     */
+    private void shiftBack(int gap) {
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & table.mask;
+            if (table.values[slot] == NO_VALUE) {
+                break;
+            }
+            int home = table.slot(table.msbs[slot], table.lsbs[slot]);
+            if (((slot - home) & table.mask) >= ((slot - gap) & table.mask)) {
+                table.msbs[gap] = table.msbs[slot];
+                table.lsbs[gap] = table.lsbs[slot];
+                table.values[gap] = table.values[slot];
+                gap = slot;
+            }
+        }
+        table.values[gap] = NO_VALUE;
+    }
+
+    /**
+     * Arrays are final so a reader that sees a new table also sees its contents as of the resize.
+     */
+    private static final class Table {
+        private final long[] msbs;
+        private final long[] lsbs;
+        private final long[] values;
+        private final int mask;
+
+        private Table(int capacity) {
+            msbs = new long[capacity];
+            lsbs = new long[capacity];
+            values = new long[capacity];
+            Arrays.fill(values, NO_VALUE);
+            mask = capacity - 1;
+        }
+
+        private int capacity() {
+            return mask + 1;
+        }
+
+        private int slot(long msb, long lsb) {
+            long hash = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ hash >>> 32) & mask;
+        }
+
+        private Table resize(int capacity) {
+            Table resized = new Table(capacity);
+            for (int i = 0; i <= mask; i++) {
+                if (values[i] != NO_VALUE) {
+                    int slot = resized.slot(msbs[i], lsbs[i]);
+                    while (resized.values[slot] != NO_VALUE) {
+                        slot = (slot + 1) & resized.mask;
+                    }
+                    resized.msbs[slot] = msbs[i];
+                    resized.lsbs[slot] = lsbs[i];
+                    resized.values[slot] = values[i];
+                }
+            }
+            return resized;
+        }
+    }
+}
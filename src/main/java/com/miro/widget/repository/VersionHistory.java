@@ -0,0 +1,131 @@
+package com.miro.widget.repository;
+
+import com.miro.widget.model.Widget;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Immutable versions of a {@link WidgetContainer}'s board, each a z-order {@link ZOrderTree} and a {@link RecordTrie}
+ * of the records at one modification sequence number. Both are persistent, so a commit costs O(log N) per changed
+ * widget and shares everything else with the previous version; a reader takes one version and iterates it without
+ * locking and without seeing later changes.
+ * <p>
+ * The latest {@code retention} versions besides the current one are kept for point-in-time reads; older ones are
+ * dropped and garbage collected once no reader holds them.
+ */
+final class VersionHistory {
+
+    private final int retention;
+    private final Deque<Version> versions = new ArrayDeque<>();
+    private RecordTrie records = RecordTrie.EMPTY;
+    private volatile Version current;
+
+    VersionHistory(int retention, long seq) {
+        this.retention = retention;
+        this.current = new Version(seq, ZOrderTree.EMPTY, RecordTrie.EMPTY);
+        versions.addLast(current);
+    }
+
+    /**
+     * @return the latest committed version
+     */
+    Version current() {
+        return current;
+    }
+
+    /**
+     * Applies mutations to the records and commits them as a new version.
+     *
+     * @param seq       modification sequence number the version includes
+     * @param tree      z-order after the mutations, or null if they did not change it
+     * @param mutations creates, updates and deletes in the order they were applied
+     */
+    synchronized void commit(long seq, ZOrderTree tree, List<Mutation> mutations) {
+        mutations.forEach(this::apply);
+        add(new Version(seq, tree == null ? current.tree : tree, records));
+    }
+
+    /**
+     * Replaces all versions with a single one, e.g. after recovery.
+     */
+    synchronized void load(long seq, ZOrderTree tree, Collection<Widget> widgets) {
+        RecordTrie loaded = RecordTrie.EMPTY;
+        for (Widget widget : widgets) {
+            loaded = loaded.put(widget);
+        }
+        records = loaded;
+        versions.clear();
+        add(new Version(seq, tree, records));
+    }
+
+    /**
+     * @return the latest version committed at or before seq, or null if it is no longer kept
+     */
+    synchronized Version asOf(long seq) {
+        Iterator<Version> newestFirst = versions.descendingIterator();
+        while (newestFirst.hasNext()) {
+            Version version = newestFirst.next();
+            if (version.seq <= seq) {
+                return version;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return sequence number of the oldest version kept
+     */
+    synchronized long oldestSeq() {
+        return versions.getFirst().seq;
+    }
+
+    /**
+     * Updates only replace a record they are newer than, since attribute-only updates of one widget may commit out of
+     * order; an update of a deleted widget is dropped.
+     */
+    private void apply(Mutation mutation) {
+        switch (mutation.getType()) {
+            case CREATE:
+                records = records.put(mutation.getWidget());
+                break;
+            case UPDATE:
+                Widget existing = records.get(mutation.getWidgetId());
+                if (existing != null && mutation.getWidget().getVersion() > existing.getVersion()) {
+                    records = records.put(mutation.getWidget());
+                }
+                break;
+            case DELETE:
+                records = records.remove(mutation.getWidgetId());
+                break;
+            default:
+                mutation.getMutations().forEach(this::apply);
+        }
+    }
+
+    private void add(Version version) {
+        versions.addLast(version);
+        if (versions.size() > retention + 1) {
+            versions.removeFirst();
+        }
+        current = version;
+    }
+
+    /**
+     * Board at one modification sequence number; z-indexes come from the tree, records may carry older ones.
+     */
+    static final class Version {
+        final long seq;
+        final ZOrderTree tree;
+        final RecordTrie records;
+
+        private Version(long seq, ZOrderTree tree, RecordTrie records) {
+            this.seq = seq;
+            this.tree = tree;
+            this.records = records;
+        }
+    }
+}
@@ -1,39 +1,95 @@
 package com.miro.widget.repository;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.miro.widget.exception.InvalidRequestException;
+import com.miro.widget.exception.PreconditionFailedException;
+import com.miro.widget.exception.VersionExpiredException;
 import com.miro.widget.exception.WidgetNotFoundException;
+import com.miro.widget.model.BatchOperation;
+import com.miro.widget.model.BatchResult;
 import com.miro.widget.model.Widget;
 import com.miro.widget.model.WidgetAttributes;
+import com.miro.widget.model.WidgetChanges;
 import lombok.AccessLevel;
 import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static java.util.Optional.ofNullable;
 
 /**
- * Saves Widgets in {@link ConcurrentHashMap} with WidgetId as Keys.
+ * Saves Widgets in a {@link WidgetStore} with WidgetId as Keys, on the heap by default or off-heap. Stored widgets are
+ * immutable and replaced atomically per key, so reads never block and never see a half-applied update; only z-index
+ * changes go through the {@link ZIndexContainer} write lock.
+ * <p>
+ * Creates, deletes and moves change the record while holding the z-order lock, so the lock order is always z-order
+ * lock before store and every such change is reported to {@link MutationListener}s in the order it was applied.
+ * <p>
+ * Over an on-heap store, every change also commits an immutable version of the board to a {@link VersionHistory}.
+ * Full reads iterate the current version without locking, so they never mix records of different moments, and the
+ * latest {@value #VERSION_RETENTION} versions answer point-in-time reads.
  */
 @Repository
 public class WidgetContainer {
 
+    /**
+     * Number of deletes and shifts kept for delta queries.
+     */
+    static final int TOMBSTONE_WINDOW = 1 << 16;
+
+    /**
+     * Number of past versions kept for point-in-time reads.
+     */
+    static final int VERSION_RETENTION = 1 << 10;
+
     @Getter(onMethod = @__(@VisibleForTesting), value = AccessLevel.PACKAGE)
-    private final ConcurrentHashMap<UUID, Widget> widgetStore;
+    private final WidgetStore widgetStore;
     private final ZIndexContainer zIndexContainer;
+    private final RTreeIndex spatialIndex = new RTreeIndex();
+    private final GridIndex hitIndex = new GridIndex();
+    private final ModificationIndex modifications = new ModificationIndex(TOMBSTONE_WINDOW);
+    private final VersionHistory versions;
+    /**
+     * Changes of the running z-order batch, guarded by the z-order lock.
+     */
+    private final List<Mutation> staged = new ArrayList<>();
+    private final Object commitLock = new Object();
+    private final List<MutationListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile RepositoryMetrics metrics = RepositoryMetrics.NOOP;
 
     public WidgetContainer(ZIndexContainer zIndexContainer) {
+        this(zIndexContainer, new HeapWidgetStore());
+    }
+
+    @Autowired
+    public WidgetContainer(ZIndexContainer zIndexContainer, WidgetStore widgetStore) {
         this.zIndexContainer = zIndexContainer;
-        widgetStore = new ConcurrentHashMap<>();
+        this.widgetStore = widgetStore;
+        this.versions = widgetStore.isOnHeap() ? new VersionHistory(VERSION_RETENTION, modifications.seq()) : null;
     }
 
     /**
@@ -43,39 +99,38 @@ public class WidgetContainer {
      * @return Saved {@link Widget}
      */
     public Widget saveAsForeground(Widget widget) {
-        return widgetStore.computeIfAbsent(widget.getId(), id -> {
-            widget.setZIndex(zIndexContainer.addWidgetId(id));
-            return widget;
-        });
+        return timed(RepositoryMetrics.Operation.SAVE_AS_FOREGROUND, () -> save(widget, null));
     }
 
     /**
-     * Saves widget to provided z-index.
+     * Saves widget to provided z-index. Widgets at and above the z-index are shifted by the {@link ZIndexContainer}.
      *
      * @param widget {@link Widget}
      * @return Saved {@link Widget}
      */
     public Widget saveWithZIndex(Widget widget) {
-        adjustExistingWidgets(widget.getZIndex());
-        return widgetStore.computeIfAbsent(widget.getId(), id -> {
-            zIndexContainer.addWidgetId(id, widget.getZIndex());
-            return widget;
-        });
-    }
-
-    private void adjustExistingWidgets(int zIndex) {
-        synchronized (widgetStore) {
-            zIndexContainer.reverseSortedTailZIndexes(zIndex).stream()
-                    .map(widgetStore::get)
-                    .forEach(this::updateAdjustedWidgets);
-        }
+        return timed(RepositoryMetrics.Operation.SAVE_WITH_Z_INDEX, () -> save(widget, widget.getZIndex()));
     }
 
-    private void updateAdjustedWidgets(Widget widget) {
-        zIndexContainer.removeWidgetId(widget.getZIndex());
-        widget.incrementZindex();
-        zIndexContainer.addWidgetId(widget.getId(), widget.getZIndex());
-        widgetStore.put(widget.getId(), widget);
+    /**
+     * @param zIndex z-index to insert at or null for the foreground
+     */
+    private Widget save(Widget widget, Integer zIndex) {
+        Widget saved = write(batch -> {
+            Widget existing = widgetStore.get(widget.getId());
+            if (Objects.nonNull(existing)) {
+                return existing;
+            }
+            boolean shifted = Objects.nonNull(zIndex) && batch.isOccupied(zIndex);
+            Widget created = widget.withZIndex(Objects.isNull(zIndex) ? batch.addWidgetId(widget.getId())
+                    : batch.addWidgetId(widget.getId(), zIndex));
+            publish(Mutation.create(created, shifted));
+            widgetStore.put(created);
+            indexArea(created);
+            return created;
+        });
+        afterMutation();
+        return withCurrentZIndex(saved);
     }
 
     /**
@@ -84,20 +139,127 @@ public class WidgetContainer {
      * @return Optional of {@link Widget}
      */
     public Optional<Widget> findById(UUID widgetId) {
-        return ofNullable(widgetStore.get(widgetId));
+        return ofNullable(widgetStore.get(widgetId)).map(this::withCurrentZIndex);
     }
 
     /**
      * Find all widgets.
      *
-     * @return List of WidgetId's
+     * @return List of Widgets sorted by z-index
      */
     public List<Widget> findAll() {
-        return zIndexContainer.findAll().stream()
+        return timed(RepositoryMetrics.Operation.FIND_ALL, () -> streamAll()
+                .collect(Collectors.toCollection(() -> new ArrayList<>(zIndexContainer.size()))));
+    }
+
+    /**
+     * Lazily walks the current version of the board, so concurrent changes can neither duplicate nor skip widgets and
+     * every record is of the same moment as the z-order. Without versions, walks one snapshot of the z-order with
+     * current records and leaves out widgets deleted after the snapshot was taken.
+     *
+     * @return Stream of Widgets sorted by z-index
+     */
+    public Stream<Widget> streamAll() {
+        return Objects.isNull(versions) ? stream(zIndexContainer.iterator()) : stream(versions.current());
+    }
+
+    /**
+     * Finds all widgets as they were at a past modification sequence number, from the latest version committed at or
+     * before it. Iterates that version without locking.
+     *
+     * @param seq modification sequence number, e.g. from a previous list ETag
+     * @return List of Widgets sorted by z-index
+     * @throws InvalidRequestException if seq is ahead of the board or the store keeps no versions
+     * @throws VersionExpiredException if the version is older than the retention window
+     */
+    public List<Widget> findAllAsOf(long seq) {
+        VersionHistory.Version version = version(seq);
+        return stream(version).collect(Collectors.toCollection(() -> new ArrayList<>(version.tree.size())));
+    }
+
+    /**
+     * @param seq modification sequence number
+     * @return sequence number of the version {@link #findAllAsOf(long)} reads for seq
+     * @throws InvalidRequestException if seq is ahead of the board or the store keeps no versions
+     * @throws VersionExpiredException if the version is older than the retention window
+     */
+    public long versionAsOf(long seq) {
+        return version(seq).seq;
+    }
+
+    private VersionHistory.Version version(long seq) {
+        if (Objects.isNull(versions)) {
+            throw new InvalidRequestException("Versions are not kept by the off-heap store");
+        }
+        if (seq > modificationSeq()) {
+            throw new InvalidRequestException("Version " + seq + " is ahead of the board");
+        }
+        VersionHistory.Version version = versions.asOf(seq);
+        if (Objects.isNull(version)) {
+            throw new VersionExpiredException("Version " + seq + " is older than the oldest kept version "
+                    + versions.oldestSeq());
+        }
+        return version;
+    }
+
+    private static Stream<Widget> stream(VersionHistory.Version version) {
+        Spliterator<ZIndexEntry> entries = Spliterators.spliterator(version.tree.iterator(), version.tree.size(),
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(entries, false)
+                .map(entry -> version.records.get(entry.getWidgetId()).withZIndex(entry.getZIndex()));
+    }
+
+    /**
+     * Lazily resolves widgets of a z-order snapshot, e.g. one taken by {@link #snapshotZOrder(Function)}. Widgets
+     * deleted since are left out, records are the current ones.
+     *
+     * @param order entries in ascending z-order
+     * @return Stream of Widgets sorted by z-index
+     */
+    public Stream<Widget> stream(Iterator<ZIndexEntry> order) {
+        Spliterator<ZIndexEntry> entries = Spliterators.spliteratorUnknownSize(order,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(entries, false)
+                .map(entry -> ofNullable(widgetStore.get(entry.getWidgetId()))
+                        .map(widget -> widget.withZIndex(entry.getZIndex())))
+                .flatMap(Optional::stream);
+    }
+
+    /**
+     * Find widgets intersecting the rectangle [x1, x2] x [y1, y2] using the spatial index.
+     *
+     * @return List of Widgets sorted by z-index
+     */
+    public List<Widget> findAllInArea(int x1, int y1, int x2, int y2) {
+        return spatialIndex.search(x1, y1, x2, y2).stream()
                 .map(widgetStore::get)
+                .filter(Objects::nonNull)
+                .map(this::withCurrentZIndex)
+                .sorted(Comparator.comparingInt(Widget::getZIndex))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Finds the widget on top at (x, y), i.e. the one with the highest z-index whose bounding box contains the point.
+     * Candidates come from one cell of the {@link GridIndex} and are ranked by their current z-index, O(c logN) for c
+     * widgets in the cell.
+     *
+     * @return Optional of {@link Widget}
+     */
+    public Optional<Widget> findTopmostAt(int x, int y) {
+        UUID topmost = null;
+        int topZIndex = Integer.MIN_VALUE;
+        for (UUID widgetId : hitIndex.search(x, y)) {
+            OptionalInt zIndex = zIndexContainer.findZIndex(widgetId);
+            if (zIndex.isPresent() && (topmost == null || zIndex.getAsInt() > topZIndex)) {
+                topmost = widgetId;
+                topZIndex = zIndex.getAsInt();
+            }
+        }
+        int zIndex = topZIndex;
+        return ofNullable(topmost).map(widgetStore::get).map(widget -> widget.withZIndex(zIndex));
+    }
+
     /**
      * Updates existing Widget.
      *
@@ -106,41 +268,733 @@ public class WidgetContainer {
      * @return {@link Widget}
      */
     public Widget update(UUID widgetId, WidgetAttributes widgetAttributes) {
+        return update(widgetId, widgetAttributes, null);
+    }
+
+    /**
+     * Updates the widget only if its version still is expectedVersion. The version is compared while the record is
+     * replaced, so concurrent updates of the same widget cannot both pass without any global lock.
+     *
+     * @param expectedVersion version the caller has seen or null to update unconditionally
+     * @throws PreconditionFailedException if the widget has another version
+     */
+    public Widget update(UUID widgetId, WidgetAttributes widgetAttributes, Long expectedVersion) {
+        return timed(RepositoryMetrics.Operation.UPDATE, () -> {
+            Widget updated = Objects.isNull(widgetAttributes.getZIndex())
+                    ? updateAttributes(widgetId, widgetAttributes, expectedVersion)
+                    : write(batch -> moveAndUpdate(widgetId, widgetAttributes, expectedVersion,
+                    batch));
+            afterMutation();
+            return withCurrentZIndex(updated);
+        });
+    }
+
+    /**
+     * Attribute-only updates replace the record without the z-order lock and only take its read side to commit a
+     * version of their own, so the z-index they report is the one of the last committed z-order. Nothing is committed
+     * if the record was replaced or deleted again before the commit; that later change commits the newest record.
+     * The area indexes are updated in the commit too, from the newest record, so they are not locked while the
+     * record is.
+     */
+    private Widget updateAttributes(UUID widgetId, WidgetAttributes widgetAttributes, Long expectedVersion) {
         Widget updated = widgetStore.computeIfPresent(widgetId,
-                (id, widget) -> updateWidgetAttributes(widgetId, widgetAttributes, widget));
+                widget -> applyAttributes(widgetAttributes, requireVersion(widget, expectedVersion)));
         if (Objects.isNull(updated)) {
             throw new WidgetNotFoundException("WidgetId not found : " + widgetId);
         }
+        zIndexContainer.read(() -> {
+            synchronized (commitLock) {
+                Widget current = widgetStore.get(widgetId);
+                if (Objects.nonNull(current) && changesArea(widgetAttributes)) {
+                    indexArea(current);
+                }
+                if (Objects.nonNull(current) && current.getVersion() == updated.getVersion()) {
+                    commit(null, List.of(Mutation.update(withCurrentZIndex(updated), null)));
+                }
+            }
+            return null;
+        });
         return updated;
     }
 
-    private Widget updateWidgetAttributes(UUID widgetId, WidgetAttributes widgetAttributes, Widget widget) {
-        ofNullable(widgetAttributes.getHeight()).ifPresent(widget::setHeight);
-        ofNullable(widgetAttributes.getWidth()).ifPresent(widget::setWidth);
-        ofNullable(widgetAttributes.getXIndex()).ifPresent(widget::setXIndex);
-        ofNullable(widgetAttributes.getYIndex()).ifPresent(widget::setYIndex);
-        ofNullable(widgetAttributes.getZIndex()).ifPresent(index -> {
-            adjustExistingWidgets(index);
-            zIndexContainer.removeWidgetId(widget.getZIndex());
-            zIndexContainer.addWidgetId(widgetId, index);
-            widget.setZIndex(index);
+    private Widget moveAndUpdate(UUID widgetId, WidgetAttributes widgetAttributes, Long expectedVersion,
+                                 ZIndexContainer.Batch batch) {
+        if (!batch.contains(widgetId)) {
+            throw new WidgetNotFoundException("WidgetId not found : " + widgetId);
+        }
+        boolean shifted = batch.isOccupied(widgetAttributes.getZIndex());
+        batch.moveWidgetId(widgetId, widgetAttributes.getZIndex());
+        Widget updated = widgetStore.computeIfPresent(widgetId,
+                widget -> applyAttributes(widgetAttributes, requireVersion(widget, expectedVersion)));
+        if (changesArea(widgetAttributes)) {
+            indexArea(updated);
+        }
+        publish(Mutation.update(updated, widgetAttributes.getZIndex(), shifted));
+        return updated;
+    }
+
+    /**
+     * Moves the widget above all others, like an update to the z-index after the foreground widget. No-op if it
+     * already is the foreground widget.
+     *
+     * @return {@link Widget}
+     * @throws WidgetNotFoundException if the widget does not exist
+     */
+    public Widget bringToFront(UUID widgetId) {
+        return reorder(widgetId, batch -> batch.lastZIndex() == zIndexOf(widgetId, batch) ? null
+                : batch.lastZIndex() + 1);
+    }
+
+    /**
+     * Moves the widget below all others, like an update to the z-index of the background widget, which shifts every
+     * other widget up by one in O(logN). No-op if it already is the background widget.
+     *
+     * @return {@link Widget}
+     * @throws WidgetNotFoundException if the widget does not exist
+     */
+    public Widget sendToBack(UUID widgetId) {
+        return reorder(widgetId, batch -> batch.firstZIndex() == zIndexOf(widgetId, batch) ? null
+                : batch.firstZIndex());
+    }
+
+    /**
+     * Moves the widget directly below otherId, like an update to otherId's z-index. No-op if it already is there.
+     *
+     * @return {@link Widget}
+     * @throws WidgetNotFoundException if either widget does not exist
+     * @throws InvalidRequestException if both ids are the same
+     */
+    public Widget moveBefore(UUID widgetId, UUID otherId) {
+        return reorder(widgetId, batch -> {
+            int zIndex = zIndexOf(requireOther(widgetId, otherId), batch);
+            return widgetId.equals(batch.widgetIdBelow(zIndex)) ? null : zIndex;
+        });
+    }
+
+    /**
+     * Moves the widget directly above otherId, like an update to the z-index after otherId's. No-op if it already is
+     * there.
+     *
+     * @return {@link Widget}
+     * @throws WidgetNotFoundException if either widget does not exist
+     * @throws InvalidRequestException if both ids are the same
+     */
+    public Widget moveAfter(UUID widgetId, UUID otherId) {
+        return reorder(widgetId, batch -> {
+            int zIndex = zIndexOf(requireOther(widgetId, otherId), batch);
+            return widgetId.equals(batch.widgetIdAbove(zIndex)) ? null : zIndex + 1;
+        });
+    }
+
+    /**
+     * Moves the widgets to the contiguous z-indexes starting at zIndex, keeping their relative order. The result is
+     * the same as updating them one after the other, lowest first, to zIndex, zIndex + 1 and so on, skipping those
+     * already in place; each move shifts in O(logN), so k widgets cost O(k logN) whatever the board size. All moves
+     * are published as one batch.
+     *
+     * @param widgetIds widgets to move
+     * @param zIndex    z-index of the lowest moved widget
+     * @return moved widgets sorted by z-index
+     * @throws WidgetNotFoundException if a widget does not exist, in which case nothing is changed
+     * @throws InvalidRequestException if widgetIds is empty, contains duplicates or the range exceeds the z-index range
+     */
+    public List<Widget> moveRange(List<UUID> widgetIds, int zIndex) {
+        if (widgetIds.isEmpty() || new HashSet<>(widgetIds).size() != widgetIds.size()) {
+            throw new InvalidRequestException("WidgetIds must be distinct and not empty");
+        }
+        if ((long) zIndex + widgetIds.size() - 1 > Integer.MAX_VALUE) {
+            throw new InvalidRequestException("Range exceeds the z-index range");
+        }
+        return timed(RepositoryMetrics.Operation.REORDER, () -> {
+            List<UUID> ordered = write(batch -> {
+                List<ZIndexEntry> selected = new ArrayList<>(widgetIds.size());
+                for (UUID widgetId : widgetIds) {
+                    selected.add(new ZIndexEntry(widgetId, zIndexOf(widgetId, batch)));
+                }
+                selected.sort(Comparator.comparingInt(ZIndexEntry::getZIndex));
+                List<Mutation> mutations = new ArrayList<>(selected.size());
+                for (int i = 0; i < selected.size(); i++) {
+                    UUID widgetId = selected.get(i).getWidgetId();
+                    if (zIndexOf(widgetId, batch) != zIndex + i) {
+                        mutations.add(move(widgetId, zIndex + i, batch));
+                    }
+                }
+                if (!mutations.isEmpty()) {
+                    publish(Mutation.batch(mutations));
+                }
+                return selected.stream().map(ZIndexEntry::getWidgetId).collect(Collectors.toList());
+            });
+            afterMutation();
+            return ordered.stream().map(this::findById).flatMap(Optional::stream).collect(Collectors.toList());
         });
-        widget.setLastUpdatedAt(ZonedDateTime.now());
+    }
+
+    /**
+     * @param target z-index to move to, or null to leave the widget where it is
+     */
+    private Widget reorder(UUID widgetId, Function<ZIndexContainer.Batch, Integer> target) {
+        return timed(RepositoryMetrics.Operation.REORDER, () -> {
+            Widget widget = write(batch -> {
+                zIndexOf(widgetId, batch);
+                Integer zIndex = target.apply(batch);
+                if (Objects.isNull(zIndex)) {
+                    return widgetStore.get(widgetId);
+                }
+                Mutation mutation = move(widgetId, zIndex, batch);
+                publish(mutation);
+                return mutation.getWidget();
+            });
+            afterMutation();
+            return withCurrentZIndex(widget);
+        });
+    }
+
+    /**
+     * Moves a widget known to exist like an update of its z-index alone.
+     */
+    private Mutation move(UUID widgetId, int zIndex, ZIndexContainer.Batch batch) {
+        WidgetAttributes attributes = new WidgetAttributes();
+        attributes.setZIndex(zIndex);
+        boolean shifted = batch.isOccupied(zIndex);
+        batch.moveWidgetId(widgetId, zIndex);
+        Widget updated = widgetStore.computeIfPresent(widgetId, widget -> applyAttributes(attributes, widget));
+        return Mutation.update(updated, zIndex, shifted);
+    }
+
+    private static int zIndexOf(UUID widgetId, ZIndexContainer.Batch batch) {
+        return batch.findZIndex(widgetId)
+                .orElseThrow(() -> new WidgetNotFoundException("WidgetId not found : " + widgetId));
+    }
+
+    private static UUID requireOther(UUID widgetId, UUID otherId) {
+        if (widgetId.equals(otherId)) {
+            throw new InvalidRequestException("Cannot move a widget relative to itself");
+        }
+        return otherId;
+    }
+
+    private static Widget requireVersion(Widget widget, Long expectedVersion) {
+        if (Objects.nonNull(expectedVersion) && widget.getVersion() != expectedVersion) {
+            throw new PreconditionFailedException("Widget " + widget.getId() + " has version " + widget.getVersion()
+                    + ", expected " + expectedVersion);
+        }
         return widget;
     }
 
+    private static Widget applyAttributes(WidgetAttributes widgetAttributes, Widget widget) {
+        Widget.WidgetBuilder builder = widget.toBuilder();
+        ofNullable(widgetAttributes.getHeight()).ifPresent(builder::height);
+        ofNullable(widgetAttributes.getWidth()).ifPresent(builder::width);
+        ofNullable(widgetAttributes.getXIndex()).ifPresent(builder::xIndex);
+        ofNullable(widgetAttributes.getYIndex()).ifPresent(builder::yIndex);
+        ofNullable(widgetAttributes.getZIndex()).ifPresent(builder::zIndex);
+        return builder.version(widget.getVersion() + 1).lastUpdatedAt(ZonedDateTime.now()).build();
+    }
+
+    private static boolean changesArea(WidgetAttributes widgetAttributes) {
+        return Stream.of(widgetAttributes.getHeight(), widgetAttributes.getWidth(), widgetAttributes.getXIndex(),
+                widgetAttributes.getYIndex()).anyMatch(Objects::nonNull);
+    }
+
+    /**
+     * Applies creates, updates and deletes in order. All ids are validated before anything changes, and the
+     * resulting z-order is published once for the whole batch instead of once per operation.
+     *
+     * @param operations batch operations
+     * @return one result per operation with the z-index after the whole batch
+     * @throws WidgetNotFoundException if an update or delete refers to a missing widget
+     * @throws InvalidRequestException  if the batch is empty or an operation is incomplete
+     */
+    public List<BatchResult> applyBatch(List<BatchOperation> operations) {
+        if (operations.isEmpty()) {
+            throw new InvalidRequestException("Batch contains no operations");
+        }
+        List<UUID> widgetIds = write(batch -> {
+            validate(operations, batch);
+            List<Placement> placements = new ArrayList<>(operations.size());
+            for (BatchOperation operation : operations) {
+                placements.add(applyZIndex(operation, batch));
+            }
+            List<Mutation> mutations = new ArrayList<>(operations.size());
+            List<UUID> ids = new ArrayList<>(operations.size());
+            for (int i = 0; i < operations.size(); i++) {
+                mutations.add(applyRecord(operations.get(i), placements.get(i)));
+                ids.add(mutations.get(i).getWidgetId());
+            }
+            publish(Mutation.batch(mutations));
+            return ids;
+        });
+        afterMutation();
+        return widgetIds.stream().map(this::toBatchResult).collect(Collectors.toList());
+    }
+
+    private void validate(List<BatchOperation> operations, ZIndexContainer.Batch batch) {
+        Set<UUID> deleted = new HashSet<>();
+        for (BatchOperation operation : operations) {
+            if (Objects.isNull(operation.getOp())) {
+                throw new InvalidRequestException("Batch operation type is missing");
+            }
+            if (operation.getOp() == BatchOperation.Type.CREATE) {
+                continue;
+            }
+            if (operation.getOp() == BatchOperation.Type.UPDATE && Objects.isNull(operation.getAttributes())) {
+                throw new InvalidRequestException("Attributes missing for update of : " + operation.getId());
+            }
+            if (Objects.isNull(operation.getId()) || deleted.contains(operation.getId())
+                    || !batch.contains(operation.getId())) {
+                throw new WidgetNotFoundException("WidgetId not found : " + operation.getId());
+            }
+            if (operation.getOp() == BatchOperation.Type.DELETE) {
+                deleted.add(operation.getId());
+            }
+        }
+    }
+
+    /**
+     * Changes the z-order for one operation and records where the widget was at that point, which later operations
+     * of the batch may still shift.
+     */
+    private Placement applyZIndex(BatchOperation operation, ZIndexContainer.Batch batch) {
+        WidgetAttributes attributes = operation.getAttributes();
+        switch (operation.getOp()) {
+            case CREATE:
+                WidgetAttributes createAttributes = ofNullable(attributes).orElseGet(WidgetAttributes::new);
+                Widget widget = WidgetAttributes.toWidget(createAttributes);
+                Integer requested = createAttributes.getZIndex();
+                boolean shifted = Objects.nonNull(requested) && batch.isOccupied(requested);
+                int zIndex = Objects.isNull(requested) ? batch.addWidgetId(widget.getId())
+                        : batch.addWidgetId(widget.getId(), requested);
+                return new Placement(widget.withZIndex(zIndex), zIndex, shifted);
+            case UPDATE:
+                Integer movedTo = attributes.getZIndex();
+                if (Objects.isNull(movedTo)) {
+                    return new Placement(null, batch.findZIndex(operation.getId()).getAsInt(), false);
+                }
+                boolean moveShifted = batch.isOccupied(movedTo);
+                batch.moveWidgetId(operation.getId(), movedTo);
+                return new Placement(null, movedTo, moveShifted);
+            default:
+                batch.removeWidgetId(operation.getId());
+                return null;
+        }
+    }
+
+    private Mutation applyRecord(BatchOperation operation, Placement placement) {
+        switch (operation.getOp()) {
+            case CREATE:
+                widgetStore.put(placement.created);
+                indexArea(placement.created);
+                return Mutation.create(placement.created, placement.shifted);
+            case UPDATE:
+                Widget updated = widgetStore.computeIfPresent(operation.getId(),
+                        widget -> applyAttributes(operation.getAttributes(), widget));
+                if (changesArea(operation.getAttributes())) {
+                    indexArea(updated);
+                }
+                return Mutation.update(updated.withZIndex(placement.zIndex), operation.getAttributes().getZIndex(),
+                        placement.shifted);
+            default:
+                widgetStore.remove(operation.getId());
+                spatialIndex.remove(operation.getId());
+                hitIndex.remove(operation.getId());
+                return Mutation.delete(operation.getId());
+        }
+    }
+
+    private BatchResult toBatchResult(UUID widgetId) {
+        return findById(widgetId)
+                .map(widget -> new BatchResult(widgetId, widget.getZIndex(), widget.getVersion()))
+                .orElseGet(() -> new BatchResult(widgetId, null, null));
+    }
+
+    private void indexArea(Widget widget) {
+        spatialIndex.put(widget.getId(), widget.getXIndex(), widget.getYIndex(), widget.getWidth(), widget.getHeight());
+        hitIndex.put(widget.getId(), widget.getXIndex(), widget.getYIndex(), widget.getWidth(), widget.getHeight());
+    }
+
+    /**
+     * Stored widgets keep the z-index they were saved with; shifts only happen in the {@link ZIndexContainer}.
+     */
+    private Widget withCurrentZIndex(Widget widget) {
+        OptionalInt zIndex = zIndexContainer.findZIndex(widget.getId());
+        return zIndex.isPresent() ? widget.withZIndex(zIndex.getAsInt()) : widget;
+    }
+
+    /**
+     * Find a page of widgets without materializing the whole board.
+     *
+     * @param pageable page request
+     * @return {@link Page} of Widgets sorted by z-index
+     */
     public Page<Widget> findAll(Pageable pageable) {
-        int start = (int) pageable.getOffset();
-        int end = Math.min((start + pageable.getPageSize()), widgetStore.size());
-        return new PageImpl<>(findAll().subList(start, end), pageable, widgetStore.size());
+        return timed(RepositoryMetrics.Operation.FIND_PAGE, () -> {
+            Page<ZIndexEntry> entries = zIndexContainer.findAll(pageable);
+            List<Widget> widgets = new ArrayList<>(entries.getNumberOfElements());
+            entries.forEach(entry -> ofNullable(widgetStore.get(entry.getWidgetId()))
+                    .map(widget -> widget.withZIndex(entry.getZIndex()))
+                    .ifPresent(widgets::add));
+            return new PageImpl<>(widgets, pageable, entries.getTotalElements());
+        });
+    }
+
+    /**
+     * Find widgets following after in z-order without counting the board.
+     *
+     * @param after z-index of the last widget of the previous page or null for the first page
+     * @param limit maximum number of widgets
+     * @return List of Widgets sorted by z-index
+     * @see ZIndexContainer#findAfter(Integer, int)
+     */
+    public List<Widget> findAfter(Integer after, int limit) {
+        List<ZIndexEntry> entries = zIndexContainer.findAfter(after, limit);
+        List<Widget> widgets = new ArrayList<>(entries.size());
+        entries.forEach(entry -> ofNullable(widgetStore.get(entry.getWidgetId()))
+                .map(widget -> widget.withZIndex(entry.getZIndex()))
+                .ifPresent(widgets::add));
+        return widgets;
     }
 
     public void delete(UUID widgetId) {
-        Widget widget = widgetStore.remove(widgetId);
-        if (Objects.isNull(widget)) {
-            throw new WidgetNotFoundException("WidgetId not found : " + widgetId);
+        timed(RepositoryMetrics.Operation.DELETE, () -> {
+            write(batch -> {
+                if (!batch.contains(widgetId)) {
+                    throw new WidgetNotFoundException("WidgetId not found : " + widgetId);
+                }
+                batch.removeWidgetId(widgetId);
+                publish(Mutation.delete(widgetId));
+                widgetStore.remove(widgetId);
+                spatialIndex.remove(widgetId);
+                hitIndex.remove(widgetId);
+                return null;
+            });
+            afterMutation();
+            return null;
+        });
+    }
+
+    /**
+     * @return current modification sequence number, which changes with every create, update, shift and delete; all
+     * changes up to it are visible to reads that start afterwards
+     */
+    public long modificationSeq() {
+        return Objects.isNull(versions) ? modifications.seq() : versions.current().seq;
+    }
+
+    /**
+     * @return number of widgets
+     */
+    public int size() {
+        return zIndexContainer.size();
+    }
+
+    /**
+     * Finds what changed after a modification sequence number. Costs O(d logN) for d changes since then; a sequence
+     * number older than the tombstone window or unknown, e.g. from before a restart, returns the whole board.
+     *
+     * @param since sequence number of a previous result, 0 for the first call
+     * @return {@link WidgetChanges}
+     */
+    public WidgetChanges findChangesSince(long since) {
+        Located located = zIndexContainer.batch(batch -> {
+            ModificationIndex.Delta delta = modifications.since(since);
+            if (Objects.isNull(delta)) {
+                return new Located(modifications.seq(), null, zIndexContainer.iterator());
+            }
+            List<ZIndexEntry> changed = new ArrayList<>(delta.changed.size());
+            for (UUID widgetId : delta.changed) {
+                batch.findZIndex(widgetId).ifPresent(zIndex -> changed.add(new ZIndexEntry(widgetId, zIndex)));
+            }
+            return new Located(delta.seq, delta, changed.iterator());
+        });
+        List<Widget> changed = stream(located.order).collect(Collectors.toList());
+        ModificationIndex.Delta delta = located.delta;
+        if (Objects.isNull(delta)) {
+            return new WidgetChanges(located.seq, true, changed, List.of(), List.of());
+        }
+        List<WidgetChanges.Shift> shifts = delta.shifts.stream()
+                .map(shift -> new WidgetChanges.Shift(shift[0], shift[1]))
+                .collect(Collectors.toList());
+        return new WidgetChanges(located.seq, false, changed, delta.deleted, shifts);
+    }
+
+    /**
+     * Reports operation latencies, shifts and lock waits of this container to metrics.
+     *
+     * @param metrics {@link RepositoryMetrics}
+     */
+    public void setMetrics(RepositoryMetrics metrics) {
+        this.metrics = metrics;
+        zIndexContainer.setMetrics(metrics);
+    }
+
+    /**
+     * Registers a listener for all following changes.
+     *
+     * @param listener {@link MutationListener}
+     */
+    public void addMutationListener(MutationListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Captures the z-order while no z-index can change and lets marker record what belongs to that moment, e.g. the
+     * position of a log. Records read afterwards are at least as new as the captured z-order.
+     *
+     * @param marker called with the z-order while it is locked
+     * @param <T>    marker result
+     * @return result of marker
+     */
+    public <T> T snapshotZOrder(Function<Iterator<ZIndexEntry>, T> marker) {
+        return zIndexContainer.batch(batch -> marker.apply(zIndexContainer.iterator()));
+    }
+
+    /**
+     * @return stored widget records; their z-index is the one they were saved with
+     */
+    public Collection<Widget> records() {
+        return widgetStore.values();
+    }
+
+    /**
+     * Loads a snapshot into an empty container. Listeners are not notified.
+     *
+     * @param order   widgetIds with z-index in ascending z-order
+     * @param records widget records, possibly newer than order or of widgets no longer in it
+     */
+    public void restore(List<ZIndexEntry> order, Iterator<Widget> records) {
+        zIndexContainer.load(order);
+        records.forEachRemaining(this::mergeRecord);
+    }
+
+    /**
+     * Re-applies a logged change after {@link #restore(List, Iterator)}. Z-order changes must be replayed in their
+     * original order; records are merged by version, so replaying a record the snapshot already holds is harmless.
+     *
+     * @param mutation logged change
+     */
+    public void replay(Mutation mutation) {
+        zIndexContainer.batch(batch -> {
+            replay(mutation, batch);
+            return null;
+        });
+    }
+
+    private void replay(Mutation mutation, ZIndexContainer.Batch batch) {
+        switch (mutation.getType()) {
+            case CREATE:
+                batch.addWidgetId(mutation.getWidgetId(), mutation.getZIndex());
+                mergeRecord(mutation.getWidget());
+                break;
+            case UPDATE:
+                if (Objects.nonNull(mutation.getZIndex()) && batch.contains(mutation.getWidgetId())) {
+                    batch.moveWidgetId(mutation.getWidgetId(), mutation.getZIndex());
+                }
+                mergeRecord(mutation.getWidget());
+                break;
+            case DELETE:
+                if (batch.contains(mutation.getWidgetId())) {
+                    batch.removeWidgetId(mutation.getWidgetId());
+                }
+                widgetStore.remove(mutation.getWidgetId());
+                break;
+            default:
+                mutation.getMutations().forEach(child -> replay(child, batch));
+        }
+    }
+
+    /**
+     * Drops records of widgets that are not in the z-order any more and rebuilds the spatial index once replay is
+     * done.
+     */
+    public void completeRecovery() {
+        widgetStore.removeIf(widget -> !zIndexContainer.contains(widget.getId()));
+        zIndexContainer.findAll().stream()
+                .filter(widgetId -> !widgetStore.containsKey(widgetId))
+                .forEach(zIndexContainer::removeWidgetId);
+        spatialIndex.load(widgetStore.values());
+        hitIndex.load(widgetStore.values());
+        if (Objects.nonNull(versions)) {
+            versions.load(modifications.seq(), zIndexContainer.tree(), widgetStore.values());
+        }
+    }
+
+    /**
+     * Drops all widgets before a new {@link #restore(List, Iterator)}, e.g. when a replication follower installs a
+     * snapshot of its leader. Delta queries from before return the whole board, listeners only see
+     * {@link MutationListener#onReset()}.
+     */
+    public void reset() {
+        zIndexContainer.clear();
+        widgetStore.clear();
+        spatialIndex.clear();
+        hitIndex.load(List.of());
+        modifications.reset();
+        listeners.forEach(MutationListener::onReset);
+    }
+
+    /**
+     * Applies a change committed by a replication leader after recovery is complete. Z-order changes must arrive in
+     * their original order and are applied exactly; records are merged by version, and an update of a widget that is
+     * gone already is dropped. Unlike {@link #replay(Mutation)} it keeps indexes and versions current, recomputes
+     * shifts, which are not logged, and notifies listeners.
+     *
+     * @param mutation change of the leader
+     */
+    public void applyReplicated(Mutation mutation) {
+        write(batch -> {
+            Mutation applied = applyReplicated(mutation, batch);
+            if (Objects.nonNull(applied)) {
+                publish(applied);
+            }
+            return null;
+        });
+        afterMutation();
+    }
+
+    private Mutation applyReplicated(Mutation mutation, ZIndexContainer.Batch batch) {
+        UUID widgetId = mutation.getWidgetId();
+        Integer zIndex = mutation.getZIndex();
+        boolean shifted;
+        switch (mutation.getType()) {
+            case CREATE:
+                shifted = batch.isOccupied(zIndex);
+                batch.addWidgetId(widgetId, zIndex);
+                mergeRecord(mutation.getWidget());
+                indexArea(widgetStore.get(widgetId));
+                return Mutation.create(mutation.getWidget(), shifted);
+            case UPDATE:
+                if (!batch.contains(widgetId)) {
+                    return null;
+                }
+                shifted = Objects.nonNull(zIndex) && batch.isOccupied(zIndex);
+                if (Objects.nonNull(zIndex)) {
+                    batch.moveWidgetId(widgetId, zIndex);
+                }
+                mergeRecord(mutation.getWidget());
+                indexArea(widgetStore.get(widgetId));
+                return Mutation.update(widgetStore.get(widgetId), zIndex, shifted);
+            case DELETE:
+                if (!batch.contains(widgetId)) {
+                    return null;
+                }
+                batch.removeWidgetId(widgetId);
+                widgetStore.remove(widgetId);
+                spatialIndex.remove(widgetId);
+                hitIndex.remove(widgetId);
+                return mutation;
+            default:
+                List<Mutation> applied = new ArrayList<>(mutation.getMutations().size());
+                for (Mutation child : mutation.getMutations()) {
+                    Optional.ofNullable(applyReplicated(child, batch)).ifPresent(applied::add);
+                }
+                return applied.isEmpty() ? null : Mutation.batch(applied);
+        }
+    }
+
+    private void mergeRecord(Widget widget) {
+        widgetStore.merge(widget,
+                (current, replayed) -> replayed.getVersion() > current.getVersion() ? replayed : current);
+    }
+
+    /**
+     * Z-order part of a delta query, captured while the z-order is locked.
+     */
+    private static final class Located {
+        private final long seq;
+        private final ModificationIndex.Delta delta;
+        private final Iterator<ZIndexEntry> order;
+
+        private Located(long seq, ModificationIndex.Delta delta, Iterator<ZIndexEntry> order) {
+            this.seq = seq;
+            this.delta = delta;
+            this.order = order;
+        }
+    }
+
+    private static final class Placement {
+        private final Widget created;
+        private final int zIndex;
+        private final boolean shifted;
+
+        private Placement(Widget created, int zIndex, boolean shifted) {
+            this.created = created;
+            this.zIndex = zIndex;
+            this.shifted = shifted;
         }
-        zIndexContainer.removeWidgetId(widget.getZIndex());
+    }
+
+    private <T> T timed(RepositoryMetrics.Operation operation, Supplier<T> call) {
+        RepositoryMetrics current = metrics;
+        if (current == RepositoryMetrics.NOOP) {
+            return call.get();
+        }
+        long started = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            current.recordOperation(operation, System.nanoTime() - started);
+        }
+    }
+
+    /**
+     * Applies operations in a z-order batch, makes the new z-order visible and then commits the changes they publish.
+     */
+    private <T> T write(Function<ZIndexContainer.Batch, T> operations) {
+        return zIndexContainer.batch(batch -> {
+            staged.clear();
+            T result = operations.apply(batch);
+            if (!staged.isEmpty()) {
+                batch.publish();
+                commit(batch.tree(), staged);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Stages a change made inside {@link #write(Function)}; it is committed with the batch.
+     */
+    private void publish(Mutation mutation) {
+        staged.add(mutation);
+    }
+
+    /**
+     * Stamps changes readers can already see, reports them to listeners and commits them as one version. Commits are
+     * serialized, so modification sequence numbers, versions and listener calls share one order, and a sequence
+     * number is only handed out once everything up to it is visible.
+     *
+     * @param tree z-order after the changes, or null if they did not change it
+     */
+    private void commit(ZOrderTree tree, List<Mutation> mutations) {
+        synchronized (commitLock) {
+            for (Mutation mutation : mutations) {
+                stamp(mutation);
+                listeners.forEach(listener -> listener.onMutation(mutation));
+            }
+            if (Objects.nonNull(versions)) {
+                versions.commit(modifications.seq(), tree, mutations);
+            }
+        }
+    }
+
+    private void stamp(Mutation mutation) {
+        switch (mutation.getType()) {
+            case BATCH:
+                mutation.getMutations().forEach(this::stamp);
+                break;
+            case DELETE:
+                modifications.delete(mutation.getWidgetId());
+                break;
+            default:
+                if (mutation.isShifted()) {
+                    modifications.shift(mutation.getZIndex());
+                }
+                modifications.stamp(mutation.getWidgetId());
+        }
+    }
+
+    private void afterMutation() {
+        listeners.forEach(MutationListener::afterMutation);
     }
 
 }
@@ -0,0 +1,57 @@
+package com.miro.widget.repository;
+
+import com.miro.widget.model.Widget;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.function.BinaryOperator;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * Widget records of a {@link WidgetContainer} by WidgetId. Reads never block; every write replaces a whole record
+ * atomically, so readers see either the old or the new widget.
+ */
+public interface WidgetStore {
+
+    /**
+     * @return widget or null
+     */
+    Widget get(UUID widgetId);
+
+    boolean containsKey(UUID widgetId);
+
+    void put(Widget widget);
+
+    /**
+     * Atomically replaces the widget with the result of update if present.
+     *
+     * @return updated widget or null if absent
+     */
+    Widget computeIfPresent(UUID widgetId, UnaryOperator<Widget> update);
+
+    /**
+     * Stores widget, or if one with the same id exists, the result of merger applied to both.
+     */
+    void merge(Widget widget, BinaryOperator<Widget> merger);
+
+    void remove(UUID widgetId);
+
+    void removeIf(Predicate<Widget> filter);
+
+    int size();
+
+    /**
+     * @return weakly consistent, unmodifiable view of all widgets
+     */
+    Collection<Widget> values();
+
+    void clear();
+
+    /**
+     * @return whether records are heap objects, which {@link WidgetContainer} versions can share instead of copying
+     */
+    default boolean isOnHeap() {
+        return true;
+    }
+}
@@ -0,0 +1,10 @@
+package com.miro.widget.repository;
+
+/**
+ * Creates an empty {@link WidgetStore} of the configured engine, one per board.
+ */
+@FunctionalInterface
+public interface WidgetStoreFactory {
+
+    WidgetStore create();
+}
@@ -1,33 +1,45 @@
 package com.miro.widget.repository;
 
 import com.google.common.annotations.VisibleForTesting;
-import lombok.AccessLevel;
-import lombok.Getter;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Repository;
 
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.NoSuchElementException;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.OptionalInt;
+import java.util.TreeMap;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentSkipListMap;
-
-import static java.util.Collections.emptyList;
-import static java.util.stream.Collectors.toUnmodifiableList;
-import static org.springframework.data.mapping.Alias.ofNullable;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
- * Tracks z-index and WidgetId's at the position. Saves in {@link ConcurrentSkipListMap} with z-index as key and value
- * as a Set of WidgetId's.
+ * Tracks z-index and WidgetId's at the position. Saves in a persistent {@link ZOrderTree}, so inserting at an
+ * occupied z-index shifts every widget above in O(logN) instead of re-inserting each of them.
+ * <p>
+ * Writers are serialized by a {@link StampedLock} and publish a new tree; readers use optimistic stamps and never
+ * block writers. Each widget's label is kept in a primitive {@link UuidLongMap}, which is only written under the lock
+ * and read under a validated stamp.
  */
 @Repository
 public class ZIndexContainer {
 
-    @Getter(onMethod = @__(@VisibleForTesting), value = AccessLevel.PACKAGE)
-    private final ConcurrentSkipListMap<Integer, UUID> zIndexTracker;
+    static final long MIN_LABEL = -(1L << 61);
+    static final long MAX_LABEL = 1L << 61;
+    static final long LABEL_STEP = 1L << 20;
+    static final long MIN_LABEL_SPACING = 1L << 10;
+    private static final int MIN_RELABEL_WINDOW = 8;
 
-    public ZIndexContainer() {
-        this.zIndexTracker = new ConcurrentSkipListMap<>(Comparator.comparingInt(Integer::intValue));
-    }
+    private final StampedLock lock = new StampedLock();
+    private final UuidLongMap labels = new UuidLongMap();
+    private volatile ZOrderTree tree = ZOrderTree.EMPTY;
+    private volatile RepositoryMetrics metrics = RepositoryMetrics.NOOP;
 
     /**
      * Adds widgetId to foreground zIndex
@@ -36,53 +48,464 @@ public class ZIndexContainer {
      * @return foreground zIndex
      */
     public int addWidgetId(UUID widgetId) {
-        Integer foregroundIndex;
-        try {
-            foregroundIndex = zIndexTracker.lastKey();
-            foregroundIndex++;
-        } catch (NoSuchElementException exc) {
-            foregroundIndex = 0;
-        }
-        zIndexTracker.put(foregroundIndex, widgetId);
-        return foregroundIndex;
+        return batch(batch -> batch.addWidgetId(widgetId));
     }
 
     /**
-     * Adds widgetId at zIndex position
+     * Adds widgetId at zIndex position. Widget at zIndex and all widgets above are shifted up by one.
      *
      * @param widgetId widgetId
      * @param zIndex   zIndex to be added
      * @return zIndex
-     * @throws IllegalStateException if existing zIndex is present
+     * @throws IllegalStateException if widgetId is already present
      */
     public int addWidgetId(UUID widgetId, int zIndex) {
-        if (ofNullable(zIndexTracker.putIfAbsent(zIndex, widgetId)).isPresent()) {
-            throw new IllegalStateException("zIndex already exists");
+        return batch(batch -> batch.addWidgetId(widgetId, zIndex));
+    }
+
+    /**
+     * Moves widgetId to zIndex. Widget at zIndex and all widgets above are shifted up by one before the widget leaves
+     * its current position.
+     *
+     * @param widgetId widgetId
+     * @param zIndex   new zIndex
+     * @return zIndex
+     * @throws IllegalArgumentException if widgetId is not present
+     */
+    public int moveWidgetId(UUID widgetId, int zIndex) {
+        return batch(batch -> batch.moveWidgetId(widgetId, zIndex));
+    }
+
+    /**
+     * Removes widgetId. Widgets above keep their zIndex.
+     *
+     * @param widgetId widgetId
+     * @throws IllegalArgumentException if widgetId is not present
+     */
+    public void removeWidgetId(UUID widgetId) {
+        batch(batch -> {
+            batch.removeWidgetId(widgetId);
+            return null;
+        });
+    }
+
+    /**
+     * Applies several changes against a private copy of the z-order and publishes the result once, so readers see
+     * either none or all of them. If operations throw, nothing is published.
+     *
+     * @param operations changes to apply
+     * @param <T>        result type
+     * @return result of operations
+     */
+    public <T> T batch(Function<Batch, T> operations) {
+        long stamp = lock.tryWriteLock();
+        if (stamp == 0) {
+            long requested = System.nanoTime();
+            stamp = lock.writeLock();
+            metrics.recordLockWait(System.nanoTime() - requested);
+        } else {
+            metrics.recordLockWait(0);
+        }
+        ZOrderTree before = tree;
+        Batch batch = new Batch(before);
+        try {
+            T result = operations.apply(batch);
+            tree = batch.tree;
+            return result;
+        } catch (RuntimeException e) {
+            tree = before;
+            batch.rollback();
+            throw e;
+        } finally {
+            lock.unlockWrite(stamp);
         }
-        return zIndex;
     }
 
     /**
-     * Returns reverse sorted Widgets with zIndex greater than or equal to zIndex
+     * Runs operations while no batch is running, so the z-order they read is the one the last batch published. Other
+     * readers run concurrently.
      *
-     * @param zIndex zIndex
-     * @return List of reverse sorted widgetIds
+     * @param operations reads to run
+     * @param <T>        result type
+     * @return result of operations
+     */
+    public <T> T read(Supplier<T> operations) {
+        long stamp = lock.readLock();
+        try {
+            return operations.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Loads entries into an empty container in O(N), e.g. from a snapshot.
+     *
+     * @param entries entries with strictly ascending zIndex
+     * @throws IllegalStateException if the container is not empty
+     */
+    public void load(List<ZIndexEntry> entries) {
+        long stamp = lock.writeLock();
+        try {
+            if (!tree.isEmpty()) {
+                throw new IllegalStateException("container is not empty");
+            }
+            for (int rank = 0; rank < entries.size(); rank++) {
+                labels.put(entries.get(rank).getWidgetId(), rank * LABEL_STEP);
+            }
+            tree = ZOrderTree.build(entries, rank -> rank * LABEL_STEP);
+        } catch (RuntimeException e) {
+            labels.clear();
+            throw e;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Removes all entries.
      */
-    public List<UUID> reverseSortedTailZIndexes(int zIndex) {
-        if (!zIndexTracker.containsKey(zIndex)) {
-            return emptyList();
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            labels.clear();
+            tree = ZOrderTree.EMPTY;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean contains(UUID widgetId) {
+        long stamp = lock.tryOptimisticRead();
+        boolean contains = labels.containsKey(widgetId);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                contains = labels.containsKey(widgetId);
+            } finally {
+                lock.unlockRead(stamp);
+            }
         }
-        return zIndexTracker.tailMap(zIndex).descendingMap().values().stream().collect(toUnmodifiableList());
+        return contains;
     }
 
-    public void removeWidgetId(int zIndex) {
-        if (!zIndexTracker.containsKey(zIndex)) {
-            throw new IllegalArgumentException("zIndex not found");
+    /**
+     * Returns current zIndex of widgetId.
+     *
+     * @param widgetId widgetId
+     * @return zIndex or empty if widgetId is not present
+     */
+    public OptionalInt findZIndex(UUID widgetId) {
+        long stamp = lock.tryOptimisticRead();
+        long zIndex = zIndexOf(widgetId);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                zIndex = zIndexOf(widgetId);
+            } finally {
+                lock.unlockRead(stamp);
+            }
         }
-        zIndexTracker.remove(zIndex);
+        return zIndex == ZOrderTree.NOT_FOUND ? OptionalInt.empty() : OptionalInt.of((int) zIndex);
     }
 
     public List<UUID> findAll() {
-        return zIndexTracker.values().stream().collect(toUnmodifiableList());
+        return tree.widgetIds();
+    }
+
+    /**
+     * Returns an iterator over a consistent snapshot of the z-order, unaffected by later changes.
+     *
+     * @return entries sorted by zIndex
+     */
+    public Iterator<ZIndexEntry> iterator() {
+        return tree.iterator();
+    }
+
+    /**
+     * Returns a page of entries read from one snapshot, so content and total count always agree. Seeks to the offset
+     * in O(logN) and only materializes the requested entries.
+     *
+     * @param pageable page request
+     * @return {@link Page} of entries sorted by zIndex
+     */
+    public Page<ZIndexEntry> findAll(Pageable pageable) {
+        ZOrderTree snapshot = tree;
+        int size = snapshot.size();
+        List<ZIndexEntry> entries = new ArrayList<>();
+        if (pageable.getOffset() < size) {
+            Iterator<ZIndexEntry> iterator = snapshot.iterator((int) pageable.getOffset());
+            while (iterator.hasNext() && entries.size() < pageable.getPageSize()) {
+                entries.add(iterator.next());
+            }
+        }
+        return new PageImpl<>(entries, pageable, size);
+    }
+
+    /**
+     * Returns up to limit entries with a zIndex above after, read from one snapshot. This is keyset paging on the
+     * zIndex alone: where the widget that ended the previous page is now does not matter, so moving it between pages
+     * neither skips nor restarts the scan. Widgets shifted across the boundary between two pages may be repeated or
+     * missed, like rows updated during any keyset scan. Costs O(logN + limit) regardless of the position.
+     *
+     * @param after zIndex of the last entry of the previous page or null for the first page
+     * @param limit maximum number of entries
+     * @return entries sorted by zIndex
+     */
+    public List<ZIndexEntry> findAfter(Integer after, int limit) {
+        if (after != null && after == Integer.MAX_VALUE) {
+            return List.of();
+        }
+        ZOrderTree snapshot = tree;
+        int rank = after == null ? 0 : snapshot.rankOf(after + 1);
+        List<ZIndexEntry> entries = new ArrayList<>(Math.min(limit, Math.max(0, snapshot.size() - rank)));
+        if (rank < snapshot.size()) {
+            Iterator<ZIndexEntry> iterator = snapshot.iterator(rank);
+            while (iterator.hasNext() && entries.size() < limit) {
+                entries.add(iterator.next());
+            }
+        }
+        return entries;
+    }
+
+    public int size() {
+        return tree.size();
+    }
+
+    /**
+     * @return the published z-order
+     */
+    ZOrderTree tree() {
+        return tree;
+    }
+
+    void setMetrics(RepositoryMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @VisibleForTesting
+    NavigableMap<Integer, UUID> getZIndexTracker() {
+        NavigableMap<Integer, UUID> zIndexTracker = new TreeMap<>();
+        tree.iterator().forEachRemaining(entry -> zIndexTracker.put(entry.getZIndex(), entry.getWidgetId()));
+        return zIndexTracker;
+    }
+
+    private long zIndexOf(UUID widgetId) {
+        long label = labels.get(widgetId);
+        return label == UuidLongMap.NO_VALUE ? ZOrderTree.NOT_FOUND : tree.zIndexOf(label);
+    }
+
+    /**
+     * Inserts at a free zIndex, picking a label between the neighbours or relabelling a window around them when
+     * there is no room left.
+     */
+    private ZOrderTree insert(ZOrderTree current, UUID widgetId, int zIndex, ZOrderTree.RelabelListener listener) {
+        int rank = current.rankOf(zIndex);
+        long lower = rank > 0 ? current.labelAtRank(rank - 1) : MIN_LABEL;
+        long upper = rank < current.size() ? current.labelAtRank(rank) : MAX_LABEL;
+        long label;
+        if (lower == MIN_LABEL && upper == MAX_LABEL) {
+            label = 0;
+        } else if (upper == MAX_LABEL) {
+            label = lower + LABEL_STEP;
+        } else if (lower == MIN_LABEL) {
+            label = upper - LABEL_STEP;
+        } else {
+            label = lower + (upper - lower) / 2;
+        }
+        if (label <= lower || label >= upper) {
+            return relabelAndInsert(current, widgetId, zIndex, rank, listener);
+        }
+        listener.relabelled(widgetId, label);
+        return current.insert(widgetId, label, zIndex);
+    }
+
+    /**
+     * Spreads labels evenly over the smallest window around rank that leaves at least {@link #MIN_LABEL_SPACING}
+     * between neighbours, reserving a slot for the new widget.
+     */
+    private ZOrderTree relabelAndInsert(ZOrderTree current, UUID widgetId, int zIndex, int rank,
+                                        ZOrderTree.RelabelListener listener) {
+        int size = current.size();
+        for (int half = MIN_RELABEL_WINDOW; ; half <<= 1) {
+            int from = Math.max(0, rank - half);
+            int to = Math.min(size, rank + half);
+            long lower = from > 0 ? current.labelAtRank(from - 1) : MIN_LABEL;
+            long upper = to < size ? current.labelAtRank(to) : MAX_LABEL;
+            long spacing = (upper - lower) / (to - from + 2);
+            if (spacing >= MIN_LABEL_SPACING || (from == 0 && to == size)) {
+                ZOrderTree relabelled = current.relabel(from, to,
+                        r -> lower + spacing * (r - from + (r >= rank ? 2 : 1)), listener);
+                long label = lower + spacing * (rank - from + 1);
+                listener.relabelled(widgetId, label);
+                return relabelled.insert(widgetId, label, zIndex);
+            }
+        }
+    }
+
+    /**
+     * Changes applied inside {@link #batch(Function)}. Label updates are recorded so they can be undone when the batch
+     * fails.
+     */
+    public final class Batch {
+        private final Map<UUID, Long> previousLabels = new HashMap<>();
+        private ZOrderTree tree;
+
+        private Batch(ZOrderTree tree) {
+            this.tree = tree;
+        }
+
+        /**
+         * @return z-order with the changes applied so far, published when the batch completes
+         */
+        ZOrderTree tree() {
+            return tree;
+        }
+
+        /**
+         * Makes the changes applied so far visible to readers before the batch completes, so they can be reported
+         * once readers see them. If the batch fails afterwards the previous z-order is restored.
+         */
+        void publish() {
+            ZIndexContainer.this.tree = tree;
+        }
+
+        public boolean contains(UUID widgetId) {
+            return labels.containsKey(widgetId);
+        }
+
+        /**
+         * @return whether a widget is at zIndex, i.e. whether adding or moving a widget there shifts the widgets at
+         * and above zIndex
+         */
+        public boolean isOccupied(int zIndex) {
+            return tree.isOccupied(zIndex);
+        }
+
+        /**
+         * @return z-index of the background widget
+         * @throws java.util.NoSuchElementException if there are no widgets
+         */
+        public int firstZIndex() {
+            return tree.firstZIndex();
+        }
+
+        /**
+         * @return z-index of the foreground widget
+         * @throws java.util.NoSuchElementException if there are no widgets
+         */
+        public int lastZIndex() {
+            return tree.lastZIndex();
+        }
+
+        /**
+         * @return widgetId directly below zIndex in z-order, i.e. the one with the highest z-index less than zIndex,
+         * or null
+         */
+        public UUID widgetIdBelow(int zIndex) {
+            int rank = tree.rankOf(zIndex);
+            return rank > 0 ? tree.widgetIdAtRank(rank - 1) : null;
+        }
+
+        /**
+         * @return widgetId directly above zIndex in z-order, i.e. the one with the lowest z-index greater than zIndex,
+         * or null
+         */
+        public UUID widgetIdAbove(int zIndex) {
+            if (zIndex == Integer.MAX_VALUE) {
+                return null;
+            }
+            int rank = tree.rankOf(zIndex + 1);
+            return rank < tree.size() ? tree.widgetIdAtRank(rank) : null;
+        }
+
+        /**
+         * @see ZIndexContainer#addWidgetId(UUID)
+         */
+        public int addWidgetId(UUID widgetId) {
+            requireAbsent(widgetId);
+            int foregroundIndex = tree.isEmpty() ? 0 : tree.lastZIndex() + 1;
+            tree = insert(tree, widgetId, foregroundIndex, this::putLabel);
+            return foregroundIndex;
+        }
+
+        /**
+         * @see ZIndexContainer#addWidgetId(UUID, int)
+         */
+        public int addWidgetId(UUID widgetId, int zIndex) {
+            requireAbsent(widgetId);
+            recordShift(zIndex);
+            tree = insert(tree.shift(zIndex), widgetId, zIndex, this::putLabel);
+            return zIndex;
+        }
+
+        /**
+         * @see ZIndexContainer#moveWidgetId(UUID, int)
+         */
+        public int moveWidgetId(UUID widgetId, int zIndex) {
+            long label = removeLabel(widgetId);
+            recordShift(zIndex);
+            tree = insert(tree.shift(zIndex).remove(label), widgetId, zIndex, this::putLabel);
+            return zIndex;
+        }
+
+        /**
+         * Counts the widgets a shift at zIndex moves, O(logN); skipped without metrics.
+         */
+        private void recordShift(int zIndex) {
+            if (metrics != RepositoryMetrics.NOOP) {
+                metrics.recordShift(tree.isOccupied(zIndex) ? tree.size() - tree.rankOf(zIndex) : 0);
+            }
+        }
+
+        /**
+         * @see ZIndexContainer#removeWidgetId(UUID)
+         */
+        public void removeWidgetId(UUID widgetId) {
+            tree = tree.remove(removeLabel(widgetId));
+        }
+
+        /**
+         * @return zIndex of widgetId including changes of this batch
+         */
+        public OptionalInt findZIndex(UUID widgetId) {
+            long label = labels.get(widgetId);
+            long zIndex = label == UuidLongMap.NO_VALUE ? ZOrderTree.NOT_FOUND : tree.zIndexOf(label);
+            return zIndex == ZOrderTree.NOT_FOUND ? OptionalInt.empty() : OptionalInt.of((int) zIndex);
+        }
+
+        private void requireAbsent(UUID widgetId) {
+            if (labels.containsKey(widgetId)) {
+                throw new IllegalStateException("widgetId already exists");
+            }
+        }
+
+        private long removeLabel(UUID widgetId) {
+            long label = labels.remove(widgetId);
+            if (label == UuidLongMap.NO_VALUE) {
+                throw new IllegalArgumentException("widgetId not found");
+            }
+            if (!previousLabels.containsKey(widgetId)) {
+                previousLabels.put(widgetId, label);
+            }
+            return label;
+        }
+
+        private void putLabel(UUID widgetId, long label) {
+            long previous = labels.put(widgetId, label);
+            if (!previousLabels.containsKey(widgetId)) {
+                previousLabels.put(widgetId, previous == UuidLongMap.NO_VALUE ? null : previous);
+            }
+        }
+
+        private void rollback() {
+            previousLabels.forEach((widgetId, label) -> {
+                if (label == null) {
+                    labels.remove(widgetId);
+                } else {
+                    labels.put(widgetId, label);
+                }
+            });
+        }
     }
 }
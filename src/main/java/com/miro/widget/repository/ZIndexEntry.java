@@ -0,0 +1,14 @@
+package com.miro.widget.repository;
+
+import lombok.Value;
+
+import java.util.UUID;
+
+/**
+ * WidgetId together with its z-index at the time it was read.
+ */
+@Value
+public class ZIndexEntry {
+    UUID widgetId;
+    int zIndex;
+}
@@ -0,0 +1,516 @@
+package com.miro.widget.repository;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Persistent (copy-on-write) treap holding widgetIds in z-order. Every mutation returns a new tree sharing all
+ * untouched nodes with the previous one, so a published tree can be read without locking.
+ * <p>
+ * Nodes are ordered by an opaque {@code label} which never changes when widgets are shifted. The public z-index is not
+ * stored; each node keeps the {@code gap} to its predecessor's z-index and every subtree keeps the sum of
+ * {@code gap + 1} of its nodes, so a z-index is the prefix sum up to the node. Shifting all widgets at and above a
+ * z-index by one therefore only touches the node at that z-index.
+ */
+final class ZOrderTree {
+
+    static final ZOrderTree EMPTY = new ZOrderTree(null);
+
+    /**
+     * Returned by {@link #zIndexOf(long)} when no node carries the label.
+     */
+    static final long NOT_FOUND = Long.MIN_VALUE;
+
+    /**
+     * Priority range per depth of {@link #build(List, RankLabeler)}; 64 bands cover every int.
+     */
+    private static final int BUILD_PRIORITY_BAND = 1 << 26;
+
+    private final Node root;
+
+    private ZOrderTree(Node root) {
+        this.root = root;
+    }
+
+    /**
+     * Builds a balanced tree in O(N). Priorities decrease by depth band, so the heap order holds and later random
+     * priorities still mix into the upper levels.
+     *
+     * @param entries entries with strictly ascending zIndex
+     * @param labeler ascending label per rank
+     * @return new tree
+     */
+    static ZOrderTree build(List<ZIndexEntry> entries, RankLabeler labeler) {
+        for (int i = 1; i < entries.size(); i++) {
+            if (entries.get(i).getZIndex() <= entries.get(i - 1).getZIndex()) {
+                throw new IllegalArgumentException("zIndexes must be strictly ascending");
+            }
+        }
+        return new ZOrderTree(build(entries, 0, entries.size(), 0, labeler));
+    }
+
+    private static Node build(List<ZIndexEntry> entries, int from, int to, int depth, RankLabeler labeler) {
+        if (from >= to) {
+            return null;
+        }
+        int rank = (from + to) >>> 1;
+        Node left = build(entries, from, rank, depth + 1, labeler);
+        Node right = build(entries, rank + 1, to, depth + 1, labeler);
+        ZIndexEntry entry = entries.get(rank);
+        long previous = rank == 0 ? -1 : entries.get(rank - 1).getZIndex();
+        int band = Integer.MAX_VALUE - (depth + 1) * BUILD_PRIORITY_BAND;
+        int priority = band + ThreadLocalRandom.current().nextInt(BUILD_PRIORITY_BAND);
+        return new Node(entry.getWidgetId(), labeler.labelFor(rank), (int) (entry.getZIndex() - previous - 1),
+                priority, left, right);
+    }
+
+    int size() {
+        return size(root);
+    }
+
+    boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * @return z-index of the foreground widget
+     * @throws NoSuchElementException if the tree is empty
+     */
+    int lastZIndex() {
+        if (root == null) {
+            throw new NoSuchElementException();
+        }
+        return (int) (root.weight - 1);
+    }
+
+    /**
+     * @return z-index of the background widget
+     * @throws NoSuchElementException if the tree is empty
+     */
+    int firstZIndex() {
+        if (root == null) {
+            throw new NoSuchElementException();
+        }
+        return first(root).gap;
+    }
+
+    /**
+     * @param label node label
+     * @return z-index of the node with label or {@link #NOT_FOUND}
+     */
+    long zIndexOf(long label) {
+        long before = 0;
+        Node node = root;
+        while (node != null) {
+            if (label < node.label) {
+                node = node.left;
+            } else {
+                long zIndex = before + weight(node.left) + node.gap;
+                if (label == node.label) {
+                    return zIndex;
+                }
+                before = zIndex + 1;
+                node = node.right;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * @param zIndex z-index
+     * @return widgetId at zIndex or null
+     */
+    UUID widgetIdAt(int zIndex) {
+        Node node = nodeAt(root, zIndex);
+        return node == null ? null : node.widgetId;
+    }
+
+    /**
+     * @param zIndex z-index
+     * @return number of widgets below zIndex
+     */
+    int rankOf(int zIndex) {
+        int rank = 0;
+        long before = 0;
+        Node node = root;
+        while (node != null) {
+            long nodeZIndex = before + weight(node.left) + node.gap;
+            if (nodeZIndex < zIndex) {
+                rank += size(node.left) + 1;
+                before = nodeZIndex + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * @param rank position in z-order, starting with 0
+     * @return widgetId at rank
+     */
+    UUID widgetIdAtRank(int rank) {
+        Node node = root;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (rank < leftSize) {
+                node = node.left;
+            } else if (rank == leftSize) {
+                return node.widgetId;
+            } else {
+                rank -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        throw new IndexOutOfBoundsException("rank out of bounds : " + rank);
+    }
+
+    /**
+     * @param label label
+     * @return number of nodes with a label below label
+     */
+    int rankOfLabel(long label) {
+        int rank = 0;
+        Node node = root;
+        while (node != null) {
+            if (node.label < label) {
+                rank += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return rank;
+    }
+
+    /**
+     * @param rank position in z-order, starting with 0
+     * @return label of the node at rank
+     */
+    long labelAtRank(int rank) {
+        Node node = root;
+        while (node != null) {
+            int leftSize = size(node.left);
+            if (rank < leftSize) {
+                node = node.left;
+            } else if (rank == leftSize) {
+                return node.label;
+            } else {
+                rank -= leftSize + 1;
+                node = node.right;
+            }
+        }
+        throw new IndexOutOfBoundsException("rank out of bounds : " + rank);
+    }
+
+    /**
+     * Moves the widget at zIndex and every widget above it one position up. No-op if zIndex is free.
+     *
+     * @param zIndex z-index
+     * @return new tree
+     */
+    ZOrderTree shift(int zIndex) {
+        if (!isOccupied(zIndex)) {
+            return this;
+        }
+        return new ZOrderTree(incrementGapAt(root, 0, zIndex));
+    }
+
+    boolean isOccupied(int zIndex) {
+        return nodeAt(root, zIndex) != null;
+    }
+
+    /**
+     * Inserts widgetId at a free zIndex. Caller guarantees the label sorts between the neighbours at zIndex.
+     *
+     * @param widgetId widgetId
+     * @param label    label
+     * @param zIndex   unoccupied z-index
+     * @return new tree
+     */
+    ZOrderTree insert(UUID widgetId, long label, int zIndex) {
+        Node[] parts = new Node[2];
+        splitByZIndex(root, 0, zIndex, parts);
+        Node below = parts[0];
+        Node above = parts[1];
+        int gap = (int) (zIndex - weight(below));
+        if (above != null) {
+            above = addToFirstGap(above, -(gap + 1));
+        }
+        Node node = new Node(widgetId, label, gap, ThreadLocalRandom.current().nextInt(), null, null);
+        return new ZOrderTree(merge(merge(below, node), above));
+    }
+
+    /**
+     * Removes the node with label. Widgets above keep their z-index.
+     *
+     * @param label label
+     * @return new tree
+     */
+    ZOrderTree remove(long label) {
+        Node[] parts = new Node[2];
+        splitByLabel(root, label, parts);
+        Node removed = first(parts[1]);
+        if (removed == null || removed.label != label) {
+            throw new IllegalArgumentException("label not found");
+        }
+        Node above = removeFirst(parts[1]);
+        if (above != null) {
+            above = addToFirstGap(above, removed.gap + 1);
+        }
+        return new ZOrderTree(merge(parts[0], above));
+    }
+
+    /**
+     * Assigns new labels to the nodes with rank in [from, to). Labels must keep the existing order.
+     *
+     * @param from     first rank, inclusive
+     * @param to       last rank, exclusive
+     * @param labeler  new label per rank
+     * @param listener notified for every relabelled node
+     * @return new tree
+     */
+    ZOrderTree relabel(int from, int to, RankLabeler labeler, RelabelListener listener) {
+        return new ZOrderTree(relabel(root, 0, from, to, labeler, listener));
+    }
+
+    /**
+     * @return widgetIds in z-order
+     */
+    List<UUID> widgetIds() {
+        List<UUID> widgetIds = new ArrayList<>(size());
+        for (Iterator<ZIndexEntry> it = iterator(); it.hasNext(); ) {
+            widgetIds.add(it.next().getWidgetId());
+        }
+        return widgetIds;
+    }
+
+    /**
+     * @return iterator over all entries in z-order
+     */
+    Iterator<ZIndexEntry> iterator() {
+        return iterator(0);
+    }
+
+    /**
+     * Seeks to rank in O(logN) using subtree sizes, each further entry costs amortized O(1).
+     *
+     * @param fromRank rank of the first entry, starting with 0
+     * @return iterator over entries in z-order starting at fromRank
+     */
+    Iterator<ZIndexEntry> iterator(int fromRank) {
+        return new EntryIterator(root, fromRank);
+    }
+
+    private static Node nodeAt(Node node, long zIndex) {
+        long before = 0;
+        while (node != null) {
+            long nodeZIndex = before + weight(node.left) + node.gap;
+            if (zIndex < nodeZIndex) {
+                node = node.left;
+            } else if (zIndex == nodeZIndex) {
+                return node;
+            } else {
+                before = nodeZIndex + 1;
+                node = node.right;
+            }
+        }
+        return null;
+    }
+
+    private static Node incrementGapAt(Node node, long before, long zIndex) {
+        long nodeZIndex = before + weight(node.left) + node.gap;
+        if (zIndex < nodeZIndex) {
+            return node.withChildren(incrementGapAt(node.left, before, zIndex), node.right);
+        } else if (zIndex == nodeZIndex) {
+            return node.withGap(node.gap + 1);
+        }
+        return node.withChildren(node.left, incrementGapAt(node.right, nodeZIndex + 1, zIndex));
+    }
+
+    private static void splitByZIndex(Node node, long before, long zIndex, Node[] parts) {
+        if (node == null) {
+            parts[0] = null;
+            parts[1] = null;
+            return;
+        }
+        long nodeZIndex = before + weight(node.left) + node.gap;
+        if (nodeZIndex < zIndex) {
+            splitByZIndex(node.right, nodeZIndex + 1, zIndex, parts);
+            parts[0] = node.withChildren(node.left, parts[0]);
+        } else {
+            splitByZIndex(node.left, before, zIndex, parts);
+            parts[1] = node.withChildren(parts[1], node.right);
+        }
+    }
+
+    private static void splitByLabel(Node node, long label, Node[] parts) {
+        if (node == null) {
+            parts[0] = null;
+            parts[1] = null;
+            return;
+        }
+        if (node.label < label) {
+            splitByLabel(node.right, label, parts);
+            parts[0] = node.withChildren(node.left, parts[0]);
+        } else {
+            splitByLabel(node.left, label, parts);
+            parts[1] = node.withChildren(parts[1], node.right);
+        }
+    }
+
+    private static Node merge(Node low, Node high) {
+        if (low == null) {
+            return high;
+        }
+        if (high == null) {
+            return low;
+        }
+        if (low.priority > high.priority) {
+            return low.withChildren(low.left, merge(low.right, high));
+        }
+        return high.withChildren(merge(low, high.left), high.right);
+    }
+
+    private static Node first(Node node) {
+        if (node == null) {
+            return null;
+        }
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node;
+    }
+
+    private static Node removeFirst(Node node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return node.withChildren(removeFirst(node.left), node.right);
+    }
+
+    private static Node addToFirstGap(Node node, int delta) {
+        if (node.left == null) {
+            return node.withGap(node.gap + delta);
+        }
+        return node.withChildren(addToFirstGap(node.left, delta), node.right);
+    }
+
+    private static Node relabel(Node node, int offset, int from, int to, RankLabeler labeler,
+                                RelabelListener listener) {
+        if (node == null || offset + node.size <= from || offset >= to) {
+            return node;
+        }
+        int rank = offset + size(node.left);
+        Node left = relabel(node.left, offset, from, to, labeler, listener);
+        Node right = relabel(node.right, rank + 1, from, to, labeler, listener);
+        long label = node.label;
+        if (rank >= from && rank < to) {
+            label = labeler.labelFor(rank);
+            listener.relabelled(node.widgetId, label);
+        }
+        return new Node(node.widgetId, label, node.gap, node.priority, left, right);
+    }
+
+    private static int size(Node node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static long weight(Node node) {
+        return node == null ? 0 : node.weight;
+    }
+
+    @FunctionalInterface
+    interface RankLabeler {
+        long labelFor(int rank);
+    }
+
+    @FunctionalInterface
+    interface RelabelListener {
+        void relabelled(UUID widgetId, long label);
+    }
+
+    private static final class Node {
+        private final UUID widgetId;
+        private final long label;
+        private final int gap;
+        private final int priority;
+        private final Node left;
+        private final Node right;
+        private final int size;
+        private final long weight;
+
+        private Node(UUID widgetId, long label, int gap, int priority, Node left, Node right) {
+            this.widgetId = widgetId;
+            this.label = label;
+            this.gap = gap;
+            this.priority = priority;
+            this.left = left;
+            this.right = right;
+            this.size = size(left) + size(right) + 1;
+            this.weight = weight(left) + weight(right) + gap + 1L;
+        }
+
+        private Node withChildren(Node left, Node right) {
+            return new Node(widgetId, label, gap, priority, left, right);
+        }
+
+        private Node withGap(int gap) {
+            return new Node(widgetId, label, gap, priority, left, right);
+        }
+    }
+
+    private static final class EntryIterator implements Iterator<ZIndexEntry> {
+        private final ArrayDeque<Node> stack = new ArrayDeque<>();
+        private long before;
+
+        private EntryIterator(Node root, int rank) {
+            Node node = root;
+            while (node != null) {
+                int leftSize = size(node.left);
+                if (rank < leftSize) {
+                    stack.push(node);
+                    node = node.left;
+                } else if (rank == leftSize) {
+                    stack.push(node);
+                    before += weight(node.left);
+                    return;
+                } else {
+                    rank -= leftSize + 1;
+                    before += weight(node.left) + node.gap + 1;
+                    node = node.right;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !stack.isEmpty();
+        }
+
+        @Override
+        public ZIndexEntry next() {
+            if (stack.isEmpty()) {
+                throw new NoSuchElementException();
+            }
+            Node node = stack.pop();
+            long zIndex = before + node.gap;
+            before = zIndex + 1;
+            pushLeft(node.right);
+            return new ZIndexEntry(node.widgetId, (int) zIndex);
+        }
+
+        private void pushLeft(Node node) {
+            while (node != null) {
+                stack.push(node);
+                node = node.left;
+            }
+        }
+    }
+}
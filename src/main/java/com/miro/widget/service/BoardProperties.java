@@ -0,0 +1,21 @@
+package com.miro.widget.service;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "widget.boards")
+public class BoardProperties {
+
+    /**
+     * Number of shards boards are spread over; each shard is an independent registry.
+     */
+    private int shards = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Maximum number of boards, so unknown board ids cannot grow memory without bound.
+     */
+    private int maxBoards = 10_000;
+}
@@ -0,0 +1,143 @@
+package com.miro.widget.service;
+
+import com.miro.widget.exception.BoardNotFoundException;
+import com.miro.widget.exception.InvalidRequestException;
+import com.miro.widget.repository.RepositoryMetrics;
+import com.miro.widget.repository.WidgetContainer;
+import com.miro.widget.repository.WidgetStoreFactory;
+import com.miro.widget.repository.ZIndexContainer;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+/**
+ * Boards by id. The default board behind {@code /api/widgets} is registered as {@value #DEFAULT_BOARD_ID}; it is
+ * created with the application, does not count towards the board limit and cannot be removed. Every board owns its
+ * {@link WidgetContainer}, i.e. its own store, z-order and lock, so a shift on one
+ * board never waits for another. Boards are spread by id hash over independent shards; creating or dropping a board
+ * only touches its shard. All boards report to one {@link RepositoryMetrics}, so the number of meters does not grow
+ * with the number of boards.
+ */
+@Service
+public class BoardService {
+
+    public static final String DEFAULT_BOARD_ID = "default";
+    private static final Pattern BOARD_ID = Pattern.compile("[A-Za-z0-9_-]{1,64}");
+
+    private final WidgetService defaultBoard;
+    private final WidgetStoreFactory widgetStoreFactory;
+    private final List<ConcurrentHashMap<String, WidgetService>> shards;
+    private final AtomicInteger boards = new AtomicInteger();
+    private final int maxBoards;
+    private volatile RepositoryMetrics metrics = RepositoryMetrics.NOOP;
+
+    public BoardService(WidgetService defaultBoard, WidgetStoreFactory widgetStoreFactory,
+                        BoardProperties boardProperties) {
+        if (boardProperties.getShards() < 1) {
+            throw new IllegalArgumentException("widget.boards.shards must be positive");
+        }
+        this.defaultBoard = defaultBoard;
+        this.widgetStoreFactory = widgetStoreFactory;
+        this.maxBoards = boardProperties.getMaxBoards();
+        shards = new ArrayList<>(boardProperties.getShards());
+        for (int i = 0; i < boardProperties.getShards(); i++) {
+            shards.add(new ConcurrentHashMap<>());
+        }
+        shardOf(DEFAULT_BOARD_ID).put(DEFAULT_BOARD_ID, defaultBoard);
+    }
+
+    /**
+     * Reports operation latencies, shifts and lock waits of boards created from now on to metrics; the default board
+     * reports to its own.
+     *
+     * @param metrics {@link RepositoryMetrics}
+     */
+    public void setMetrics(RepositoryMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns the board, creating an empty one on first use.
+     *
+     * @param boardId board id, 1 to 64 letters, digits, '-' or '_'
+     * @return {@link WidgetService} of the board
+     * @throws InvalidRequestException if boardId is malformed or the board limit is reached
+     */
+    public WidgetService getOrCreateBoard(String boardId) {
+        validate(boardId);
+        return shardOf(boardId).computeIfAbsent(boardId, id -> {
+            if (boards.incrementAndGet() > maxBoards) {
+                boards.decrementAndGet();
+                throw new InvalidRequestException("Board limit of " + maxBoards + " reached");
+            }
+            WidgetContainer widgetContainer = new WidgetContainer(new ZIndexContainer(), widgetStoreFactory.create());
+            widgetContainer.setMetrics(metrics);
+            return new WidgetService(widgetContainer);
+        });
+    }
+
+    /**
+     * @param boardId board id
+     * @return {@link WidgetService} of the board
+     * @throws BoardNotFoundException if the board does not exist
+     */
+    public WidgetService findBoard(String boardId) {
+        validate(boardId);
+        WidgetService board = shardOf(boardId).get(boardId);
+        if (Objects.isNull(board)) {
+            throw new BoardNotFoundException("BoardId not found : " + boardId);
+        }
+        return board;
+    }
+
+    /**
+     * Drops a board with all its widgets.
+     *
+     * @param boardId board id
+     * @throws BoardNotFoundException if the board does not exist
+     * @throws InvalidRequestException if boardId is the default board
+     */
+    public void removeBoard(String boardId) {
+        validate(boardId);
+        if (DEFAULT_BOARD_ID.equals(boardId)) {
+            throw new InvalidRequestException("The default board cannot be removed");
+        }
+        if (Objects.isNull(shardOf(boardId).remove(boardId))) {
+            throw new BoardNotFoundException("BoardId not found : " + boardId);
+        }
+        boards.decrementAndGet();
+    }
+
+    /**
+     * @return number of widgets on all boards but the default one
+     */
+    public long countWidgets() {
+        return shards.stream().flatMap(shard -> shard.values().stream())
+                .filter(board -> board != defaultBoard)
+                .mapToLong(WidgetService::countWidgets)
+                .sum();
+    }
+
+    int shardIndex(String boardId) {
+        return Math.floorMod(boardId.hashCode() * 0x9E3779B9, shards.size());
+    }
+
+    int boardsInShard(int shard) {
+        return shards.get(shard).size();
+    }
+
+    private ConcurrentHashMap<String, WidgetService> shardOf(String boardId) {
+        return shards.get(shardIndex(boardId));
+    }
+
+    private static void validate(String boardId) {
+        if (Objects.isNull(boardId) || !BOARD_ID.matcher(boardId).matches()) {
+            throw new InvalidRequestException("Invalid boardId : " + boardId);
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.miro.widget.service;
+
+import com.miro.widget.exception.InvalidRequestException;
+import com.miro.widget.model.Widget;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Encodes the z-index of the last widget of a page as a URL-safe token; the next page starts above it.
+ */
+final class WidgetCursor {
+
+    private static final int LENGTH = Integer.BYTES;
+
+    private WidgetCursor() {
+    }
+
+    static String encode(Widget widget) {
+        ByteBuffer buffer = ByteBuffer.allocate(LENGTH).putInt(widget.getZIndex());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    static int decode(String cursor) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidRequestException("Invalid cursor : " + cursor);
+        }
+        if (bytes.length != LENGTH) {
+            throw new InvalidRequestException("Invalid cursor : " + cursor);
+        }
+        return ByteBuffer.wrap(bytes).getInt();
+    }
+}
@@ -1,8 +1,16 @@
 package com.miro.widget.service;
 
+import com.google.common.base.Strings;
+import com.miro.widget.exception.InvalidRequestException;
+import com.miro.widget.exception.PreconditionFailedException;
+import com.miro.widget.exception.VersionExpiredException;
 import com.miro.widget.exception.WidgetNotFoundException;
+import com.miro.widget.model.BatchOperation;
+import com.miro.widget.model.BatchResult;
+import com.miro.widget.model.CursorPage;
 import com.miro.widget.model.Widget;
 import com.miro.widget.model.WidgetAttributes;
+import com.miro.widget.model.WidgetChanges;
 import com.miro.widget.repository.WidgetContainer;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
@@ -10,6 +18,8 @@ import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static java.util.Optional.ofNullable;
 
@@ -34,6 +44,27 @@ public class WidgetService {
                 .orElseGet(() -> widgetContainer.saveAsForeground(newWidget));
     }
 
+    /**
+     * Adds several Widgets with a single z-order update.
+     *
+     * @param widgetAttributes attributes per widget
+     * @return one {@link BatchResult} per widget, in request order
+     */
+    public List<BatchResult> addWidgets(List<WidgetAttributes> widgetAttributes) {
+        return applyBatch(widgetAttributes.stream().map(BatchOperation::create).collect(Collectors.toList()));
+    }
+
+    /**
+     * Applies creates, updates and deletes atomically. Throws {@link WidgetNotFoundException} if any update or delete
+     * refers to a missing widget, in which case nothing is changed.
+     *
+     * @param operations batch operations
+     * @return one {@link BatchResult} per operation, in request order
+     */
+    public List<BatchResult> applyBatch(List<BatchOperation> operations) {
+        return widgetContainer.applyBatch(operations);
+    }
+
     /**
      * Updates existing {@link Widget}. Throws {@link WidgetNotFoundException} if not found.
      *
@@ -45,6 +76,82 @@ public class WidgetService {
         return widgetContainer.update(widgetId, widgetAttributes);
     }
 
+    /**
+     * Update the widget only if it still has expectedVersion.
+     *
+     * @throws PreconditionFailedException if the widget was changed meanwhile
+     */
+    public Widget updateWidget(UUID widgetId, WidgetAttributes widgetAttributes, long expectedVersion) {
+        return widgetContainer.update(widgetId, widgetAttributes, expectedVersion);
+    }
+
+    /**
+     * Moves a {@link Widget} above all others.
+     *
+     * @param widgetId Unique WidgetId
+     * @return moved {@link Widget}
+     */
+    public Widget bringToFront(UUID widgetId) {
+        return widgetContainer.bringToFront(widgetId);
+    }
+
+    /**
+     * Moves a {@link Widget} below all others.
+     *
+     * @param widgetId Unique WidgetId
+     * @return moved {@link Widget}
+     */
+    public Widget sendToBack(UUID widgetId) {
+        return widgetContainer.sendToBack(widgetId);
+    }
+
+    /**
+     * Moves a {@link Widget} directly below another one.
+     *
+     * @param widgetId Unique WidgetId
+     * @param otherId  WidgetId to move below
+     * @return moved {@link Widget}
+     */
+    public Widget moveBefore(UUID widgetId, UUID otherId) {
+        return widgetContainer.moveBefore(widgetId, otherId);
+    }
+
+    /**
+     * Moves a {@link Widget} directly above another one.
+     *
+     * @param widgetId Unique WidgetId
+     * @param otherId  WidgetId to move above
+     * @return moved {@link Widget}
+     */
+    public Widget moveAfter(UUID widgetId, UUID otherId) {
+        return widgetContainer.moveAfter(widgetId, otherId);
+    }
+
+    /**
+     * Moves Widgets to contiguous z-indexes starting at zIndex, keeping their relative order.
+     *
+     * @param widgetIds Unique WidgetIds
+     * @param zIndex    z-index of the lowest of them
+     * @return moved {@link Widget}'s sorted by z-index
+     */
+    public List<Widget> moveRange(List<UUID> widgetIds, int zIndex) {
+        return widgetContainer.moveRange(widgetIds, zIndex);
+    }
+
+    /**
+     * @return number of widgets on the board
+     */
+    public int countWidgets() {
+        return widgetContainer.size();
+    }
+
+    /**
+     * @return number changing with every modification of the board, e.g. to derive ETags of list reads
+     */
+    public long getModificationSeq() {
+        return widgetContainer.modificationSeq();
+    }
+
     /**
      * Deletes a {@link Widget}. Throws {@link WidgetNotFoundException} if not found.
      *
@@ -63,6 +170,35 @@ public class WidgetService {
         return widgetContainer.findAll();
     }
 
+    /**
+     * Returns the Widgets as they were at a past modification sequence number.
+     *
+     * @param asOf modification sequence number, e.g. from a previous list ETag
+     * @return List of {@link Widget}'s sorted by z-index
+     * @throws InvalidRequestException if asOf is ahead of the board or versions are not kept
+     * @throws VersionExpiredException if asOf is older than the retention window
+     */
+    public List<Widget> findAllWidgetsAsOf(long asOf) {
+        return widgetContainer.findAllAsOf(asOf);
+    }
+
+    /**
+     * @param asOf modification sequence number
+     * @return sequence number of the version {@link #findAllWidgetsAsOf(long)} reads, e.g. to derive its ETag
+     */
+    public long getVersionAsOf(long asOf) {
+        return widgetContainer.versionAsOf(asOf);
+    }
+
+    /**
+     * Returns saved Widgets lazily, read from a snapshot of the z-order taken now.
+     *
+     * @return Stream of {@link Widget}'s sorted by z-index
+     */
+    public Stream<Widget> streamAllWidgets() {
+        return widgetContainer.streamAll();
+    }
+
     /**
      * Returns List of saved Widgets with paging.
      *
@@ -74,6 +210,53 @@ public class WidgetService {
         return widgetContainer.findAll(PageRequest.of(page, size));
     }
 
+    /**
+     * Returns the Widgets following a cursor. Seeks in O(logN) whatever the position and does not count the board.
+     *
+     * @param cursor cursor of the previous page, empty or null for the first page
+     * @param size   Nos of elements
+     * @return {@link CursorPage} of {@link Widget}'s sorted by z-index
+     * @throws InvalidRequestException if the cursor is malformed
+     */
+    public CursorPage<Widget> findWidgetsAfter(String cursor, int size) {
+        Integer after = Strings.isNullOrEmpty(cursor) ? null : WidgetCursor.decode(cursor);
+        List<Widget> widgets = widgetContainer.findAfter(after, size + 1);
+        if (widgets.size() <= size) {
+            return new CursorPage<>(widgets, null);
+        }
+        List<Widget> content = widgets.subList(0, size);
+        return new CursorPage<>(content, WidgetCursor.encode(content.get(size - 1)));
+    }
+
+    /**
+     * Returns Widgets intersecting the rectangle [x1, x2] x [y1, y2].
+     *
+     * @return List of {@link Widget}'s sorted by z-index
+     */
+    public List<Widget> findWidgetsInArea(int x1, int y1, int x2, int y2) {
+        return widgetContainer.findAllInArea(x1, y1, x2, y2);
+    }
+
+    /**
+     * Find what changed after a modification sequence number, or the whole board if it is too old.
+     *
+     * @param since seq of a previous result, 0 for the first call
+     * @return {@link WidgetChanges}
+     */
+    public WidgetChanges findChangesSince(long since) {
+        return widgetContainer.findChangesSince(since);
+    }
+
+    /**
+     * Returns the topmost {@link Widget} containing (x, y). Throws {@link WidgetNotFoundException} if there is none.
+     *
+     * @return {@link Widget}
+     */
+    public Widget findWidgetAt(int x, int y) {
+        return widgetContainer.findTopmostAt(x, y)
+                .orElseThrow(() -> new WidgetNotFoundException("No widget at : " + x + ", " + y));
+    }
+
     /**
      * Returns existing {@link Widget}. Throws {@link WidgetNotFoundException} if not found.
      *
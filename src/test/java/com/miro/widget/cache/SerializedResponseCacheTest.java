@@ -0,0 +1,56 @@
+package com.miro.widget.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SerializedResponseCacheTest {
+
+    @Test
+    void shouldEncodeOncePerVersion() {
+        SerializedResponseCache cache = new SerializedResponseCache(new ResponseCacheProperties());
+        AtomicInteger encodings = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            cache.get("default", "all", 0, 0, 1, () -> new byte[encodings.incrementAndGet()]);
+        }
+        cache.get("default", "all", 0, 0, 2, () -> new byte[encodings.incrementAndGet()]);
+        cache.get("default", "page", 0, 10, 2, () -> new byte[encodings.incrementAndGet()]);
+        cache.get("team-a", "page", 0, 10, 2, () -> new byte[encodings.incrementAndGet()]);
+
+        assertThat(encodings).hasValue(4);
+    }
+
+    @Test
+    void shouldKeepGzipCopyOfLargeBodies() throws IOException {
+        SerializedResponseCache cache = new SerializedResponseCache(new ResponseCacheProperties());
+        byte[] body = "[{\"id\":1}]".repeat(200).getBytes();
+
+        SerializedResponseCache.CachedResponse large = cache.get("default", "all", 0, 0, 1, () -> body);
+        SerializedResponseCache.CachedResponse small = cache.get("default", "all", 0, 0, 2, () -> new byte[10]);
+
+        assertThat(large.getGzip()).isNotNull().hasSizeLessThan(body.length);
+        assertThat(new GZIPInputStream(new ByteArrayInputStream(large.getGzip())).readAllBytes()).isEqualTo(body);
+        assertThat(small.getGzip()).isNull();
+    }
+
+    @Test
+    void shouldEvictBeyondMaxSize() {
+        ResponseCacheProperties properties = new ResponseCacheProperties();
+        properties.setMaxSize(DataSize.ofKilobytes(10));
+        properties.setGzip(false);
+        SerializedResponseCache cache = new SerializedResponseCache(properties);
+
+        for (int version = 0; version < 100; version++) {
+            cache.get("default", "all", 0, 0, version, () -> new byte[1024]);
+        }
+
+        assertThat(cache.size()).isLessThanOrEqualTo(10);
+    }
+}
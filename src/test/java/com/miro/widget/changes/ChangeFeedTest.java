@@ -0,0 +1,331 @@
+package com.miro.widget.changes;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miro.widget.exception.ServiceUnavailableException;
+import com.miro.widget.model.BatchOperation;
+import com.miro.widget.model.Widget;
+import com.miro.widget.model.WidgetAttributes;
+import com.miro.widget.repository.WidgetContainer;
+import com.miro.widget.repository.ZIndexContainer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChangeFeedTest {
+
+    private final WidgetContainer widgetContainer = new WidgetContainer(new ZIndexContainer());
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private ChangeFeed changeFeed = feed(4096);
+
+    @AfterEach
+    void close() {
+        changeFeed.close();
+    }
+
+    @Test
+    void shouldPublishOneEventPerShift() {
+        for (int i = 0; i < 100; i++) {
+            widgetContainer.saveWithZIndex(Widget.builder().zIndex(i).build());
+        }
+        long cursor = changeFeed.lastSeq();
+        Widget inserted = widgetContainer.saveWithZIndex(Widget.builder().zIndex(10).build());
+
+        List<ChangeEvent> events = changeFeed.since(cursor);
+        assertThat(events).extracting(ChangeEvent::getType)
+                .containsExactly(ChangeEvent.Type.SHIFTED, ChangeEvent.Type.CREATED);
+        assertThat(events.get(0).getFrom()).isEqualTo(10);
+        assertThat(events.get(0).getBy()).isEqualTo(1);
+        assertThat(events.get(1).getWidget().getId()).isEqualTo(inserted.getId());
+    }
+
+    @Test
+    void shouldResyncSubscribersAfterReset() {
+        widgetContainer.saveAsForeground(Widget.builder().build());
+        long cursor = changeFeed.lastSeq();
+        widgetContainer.reset();
+
+        assertThat(changeFeed.since(cursor)).extracting(ChangeEvent::getType)
+                .containsExactly(ChangeEvent.Type.RESYNC);
+        long current = changeFeed.lastSeq();
+        Widget created = widgetContainer.saveAsForeground(Widget.builder().build());
+        assertThat(changeFeed.since(current)).extracting(ChangeEvent::getWidget).extracting(Widget::getId)
+                .containsExactly(created.getId());
+    }
+
+    @Test
+    void shouldCoalesceRecordsAndShifts() {
+        Widget widget = widgetContainer.saveWithZIndex(Widget.builder().zIndex(0).build());
+        for (int i = 0; i < 3; i++) {
+            widgetContainer.update(widget.getId(), new WidgetAttributes(10 + i, 10));
+        }
+        widgetContainer.saveWithZIndex(Widget.builder().zIndex(0).build());
+        widgetContainer.saveWithZIndex(Widget.builder().zIndex(0).build());
+
+        List<ChangeEvent> events = changeFeed.since(0);
+        assertThat(events).extracting(ChangeEvent::getType).containsExactly(ChangeEvent.Type.UPDATED,
+                ChangeEvent.Type.SHIFTED, ChangeEvent.Type.CREATED, ChangeEvent.Type.SHIFTED,
+                ChangeEvent.Type.CREATED);
+        assertThat(events.get(0).getWidget().getHeight()).isEqualTo(12);
+        assertThat(events.get(events.size() - 1).getSeq()).isEqualTo(changeFeed.lastSeq());
+        assertReplays(events);
+    }
+
+    @Test
+    void shouldMergeAdjacentShifts() {
+        List<ChangeEvent> events = List.of(ChangeEvent.shifted(1, 3, 1), ChangeEvent.shifted(2, 3, 1),
+                ChangeEvent.shifted(3, 4, 1));
+
+        assertThat(ChangeFeed.coalesce(events)).containsExactly(ChangeEvent.shifted(2, 3, 2),
+                ChangeEvent.shifted(3, 4, 1));
+    }
+
+    @Test
+    void shouldReplayRandomChanges() {
+        Random random = new Random(7);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            int operation = random.nextInt(5);
+            if (ids.isEmpty() || operation == 0) {
+                ids.add(widgetContainer.saveWithZIndex(Widget.builder().zIndex(random.nextInt(50)).build()).getId());
+            } else if (operation == 1) {
+                widgetContainer.delete(ids.remove(random.nextInt(ids.size())));
+            } else if (operation == 2) {
+                WidgetAttributes move = new WidgetAttributes(1, 1);
+                move.setZIndex(random.nextInt(50));
+                widgetContainer.update(ids.get(random.nextInt(ids.size())), move);
+            } else if (operation == 3) {
+                widgetContainer.update(ids.get(random.nextInt(ids.size())), new WidgetAttributes(2, 2));
+            } else {
+                WidgetAttributes create = new WidgetAttributes(3, 3);
+                create.setZIndex(random.nextInt(50));
+                WidgetAttributes move = new WidgetAttributes(4, 4);
+                move.setZIndex(random.nextInt(50));
+                widgetContainer.applyBatch(List.of(BatchOperation.create(create),
+                        new BatchOperation(BatchOperation.Type.UPDATE, ids.get(random.nextInt(ids.size())), move)));
+            }
+        }
+
+        assertReplays(changeFeed.since(0));
+    }
+
+    @Test
+    void shouldReplayConcurrentChanges() throws Exception {
+        changeFeed.close();
+        changeFeed = feed(1 << 16);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ids.add(widgetContainer.saveWithZIndex(Widget.builder().zIndex(i).build()).getId());
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 4; i++) {
+            executor.submit(() -> {
+                for (int n = 0; n < 2_000; n++) {
+                    widgetContainer.saveWithZIndex(Widget.builder().zIndex(ThreadLocalRandom.current().nextInt(50))
+                            .build());
+                }
+            });
+            executor.submit(() -> {
+                for (int n = 0; n < 4_000; n++) {
+                    widgetContainer.update(ids.get(ThreadLocalRandom.current().nextInt(ids.size())),
+                            new WidgetAttributes(n, n));
+                }
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+        assertReplays(changeFeed.since(0));
+    }
+
+    @Test
+    void shouldKeepThreadCountFlatWithStalledSubscribers() throws Exception {
+        long threadsBefore = dispatcherThreads();
+        List<TestChannel> stalled = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            TestChannel channel = new TestChannel(false);
+            changeFeed.subscribe(0L, channel::connect);
+            stalled.add(channel);
+        }
+        TestChannel ready = new TestChannel(true);
+        changeFeed.subscribe(0L, ready::connect);
+
+        for (int i = 0; i < 10; i++) {
+            widgetContainer.saveAsForeground(Widget.builder().build());
+        }
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (ready.frames.size() < 10 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThat(ready.frames).hasSize(10);
+        assertThat(stalled).allSatisfy(channel -> assertThat(channel.frames).isEmpty());
+        assertThat(dispatcherThreads() - threadsBefore)
+                .isLessThanOrEqualTo(new ChangeFeedProperties().getDispatcherThreads());
+    }
+
+    @Test
+    void shouldResumeWhenChannelBecomesWritable() throws Exception {
+        TestChannel channel = new TestChannel(false);
+        changeFeed.subscribe(0L, channel::connect);
+        Widget widget = widgetContainer.saveAsForeground(Widget.builder().build());
+
+        channel.ready = true;
+        channel.listener.onWritable();
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (channel.frames.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThat(channel.frames).hasSize(1);
+        assertThat(channel.frames.get(0)).startsWith("id:" + changeFeed.lastSeq() + "\nevent:change\ndata:")
+                .contains(widget.getId().toString());
+    }
+
+    @Test
+    void shouldDisconnectStalledSubscriberBehindBuffer() throws Exception {
+        changeFeed.close();
+        changeFeed = feed(4);
+        TestChannel channel = new TestChannel(false);
+        changeFeed.subscribe(null, channel::connect);
+
+        for (int i = 0; i < 10; i++) {
+            widgetContainer.saveAsForeground(Widget.builder().build());
+        }
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!channel.closed && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThat(channel.closed).isTrue();
+        assertThat(changeFeed.subscriberCount()).isZero();
+    }
+
+    @Test
+    void shouldRejectSubscribersBeyondMaximum() {
+        changeFeed.close();
+        ChangeFeedProperties properties = new ChangeFeedProperties();
+        properties.setMaxSubscribers(2);
+        changeFeed = new ChangeFeed(widgetContainer, properties, objectMapper);
+        TestChannel first = new TestChannel(true);
+        changeFeed.subscribe(null, first::connect);
+        changeFeed.subscribe(null, new TestChannel(true)::connect);
+
+        assertThatThrownBy(() -> changeFeed.subscribe(null, new TestChannel(true)::connect))
+                .isInstanceOf(ServiceUnavailableException.class);
+        first.listener.onClosed();
+        changeFeed.subscribe(null, new TestChannel(true)::connect);
+        assertThat(changeFeed.subscriberCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRequestResyncWhenBehindBuffer() {
+        changeFeed.close();
+        changeFeed = feed(4);
+        for (int i = 0; i < 10; i++) {
+            widgetContainer.saveAsForeground(Widget.builder().build());
+        }
+
+        assertThat(changeFeed.since(1)).extracting(ChangeEvent::getType).containsExactly(ChangeEvent.Type.RESYNC);
+        assertThat(changeFeed.since(6)).hasSize(4);
+        assertThat(changeFeed.since(11)).extracting(ChangeEvent::getType).containsExactly(ChangeEvent.Type.RESYNC);
+    }
+
+    @Test
+    void shouldSnapshotAtFeedPosition() {
+        widgetContainer.saveWithZIndex(Widget.builder().zIndex(3).build());
+        widgetContainer.saveWithZIndex(Widget.builder().zIndex(3).build());
+
+        ChangeSnapshot snapshot = changeFeed.snapshot();
+
+        assertThat(snapshot.getSeq()).isEqualTo(changeFeed.lastSeq());
+        assertThat(snapshot.getWidgets()).usingFieldByFieldElementComparator()
+                .containsExactlyElementsOf(widgetContainer.findAll());
+    }
+
+    private ChangeFeed feed(int capacity) {
+        ChangeFeedProperties properties = new ChangeFeedProperties();
+        properties.setCapacity(capacity);
+        ChangeFeed feed = new ChangeFeed(widgetContainer, properties, objectMapper);
+        widgetContainer.addMutationListener(feed);
+        return feed;
+    }
+
+    private static long dispatcherThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().startsWith("widget-changes-"))
+                .count();
+    }
+
+    /**
+     * Applies events to an empty board the way a client would and compares ids and z-indexes.
+     */
+    private void assertReplays(List<ChangeEvent> events) {
+        Map<UUID, Integer> board = new HashMap<>();
+        for (ChangeEvent event : events) {
+            switch (event.getType()) {
+                case SHIFTED:
+                    board.replaceAll((id, zIndex) -> zIndex >= event.getFrom() ? zIndex + event.getBy() : zIndex);
+                    break;
+                case DELETED:
+                    board.remove(event.getId());
+                    break;
+                default:
+                    board.put(event.getId(), event.getWidget().getZIndex());
+            }
+        }
+        Map<UUID, Integer> expected = new HashMap<>();
+        widgetContainer.findAll().forEach(widget -> expected.put(widget.getId(), widget.getZIndex()));
+        assertThat(board).isEqualTo(expected);
+    }
+
+    private static final class TestChannel implements ChangeFeed.Channel {
+        private final List<String> frames = new CopyOnWriteArrayList<>();
+        private volatile boolean ready;
+        private volatile boolean closed;
+        private volatile ChangeFeed.ChannelListener listener;
+
+        private TestChannel(boolean ready) {
+            this.ready = ready;
+        }
+
+        private ChangeFeed.Channel connect(ChangeFeed.ChannelListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public void write(byte[] frame) {
+            frames.add(new String(frame, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
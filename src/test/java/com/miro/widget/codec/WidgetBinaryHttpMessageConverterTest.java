@@ -0,0 +1,73 @@
+package com.miro.widget.codec;
+
+import com.miro.widget.model.Widget;
+import com.miro.widget.model.WidgetAttributes;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+import java.lang.reflect.Type;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WidgetBinaryHttpMessageConverterTest {
+
+    private static final Type WIDGET_LIST = new ParameterizedTypeReference<List<Widget>>() {
+    }.getType();
+
+    WidgetBinaryHttpMessageConverter converter = new WidgetBinaryHttpMessageConverter();
+
+    @Test
+    void shouldRoundTripWidget() throws Exception {
+        Widget widget = Widget.builder().xIndex(-3).yIndex(4).zIndex(5).height(6).width(7).version(8)
+                .lastUpdatedAt(ZonedDateTime.of(2020, 1, 2, 3, 4, 5, 6_000_000, ZoneOffset.UTC)).build();
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        converter.write(widget, Widget.class, WidgetBinaryHttpMessageConverter.MEDIA_TYPE, output);
+
+        assertThat(output.getBodyAsBytes()).hasSize(WidgetBinaryCodec.WIDGET_BYTES);
+        Object read = converter.read(Widget.class, null, new MockHttpInputMessage(output.getBodyAsBytes()));
+        assertThat(read).isEqualTo(widget);
+    }
+
+    @Test
+    void shouldRoundTripWidgetListLargerThanBuffer() throws Exception {
+        List<Widget> widgets = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            widgets.add(Widget.builder().zIndex(i).lastUpdatedAt(null).build());
+        }
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        assertThat(converter.canWrite(WIDGET_LIST, ArrayList.class, WidgetBinaryHttpMessageConverter.MEDIA_TYPE))
+                .isTrue();
+        converter.write(widgets, WIDGET_LIST, WidgetBinaryHttpMessageConverter.MEDIA_TYPE, output);
+
+        assertThat(output.getBodyAsBytes()).hasSize(Integer.BYTES + 1_000 * WidgetBinaryCodec.WIDGET_BYTES);
+        Object read = converter.read(WIDGET_LIST, null, new MockHttpInputMessage(output.getBodyAsBytes()));
+        assertThat(read).isEqualTo(widgets);
+    }
+
+    @Test
+    void shouldKeepAbsentAttributes() throws Exception {
+        WidgetAttributes attributes = new WidgetAttributes(10, 20);
+        attributes.setZIndex(-1);
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        converter.write(attributes, WidgetAttributes.class, WidgetBinaryHttpMessageConverter.MEDIA_TYPE, output);
+
+        WidgetAttributes read = (WidgetAttributes) converter.read(WidgetAttributes.class, null,
+                new MockHttpInputMessage(output.getBodyAsBytes()));
+        assertThat(read).usingRecursiveComparison().isEqualTo(attributes);
+        assertThat(read.getXIndex()).isNull();
+    }
+
+    @Test
+    void shouldRejectTruncatedBody() {
+        Assertions.assertThrows(HttpMessageNotReadableException.class,
+                () -> converter.read(Widget.class, null, new MockHttpInputMessage(new byte[10])));
+    }
+}
@@ -0,0 +1,60 @@
+package com.miro.widget.codec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.miro.widget.exception.InvalidRequestException;
+import com.miro.widget.model.CursorPage;
+import com.miro.widget.model.Widget;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WidgetProjectionTest {
+
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    Widget widget = Widget.builder().xIndex(-3).yIndex(4).zIndex(5).height(6).width(7).version(8)
+            .lastUpdatedAt(ZonedDateTime.of(2020, 1, 2, 3, 4, 5, 6_000_000, ZoneOffset.UTC)).build();
+
+    @Test
+    void shouldWriteSelectedFieldsOnly() throws Exception {
+        JsonNode projected = objectMapper.readTree(objectMapper.writeValueAsString(
+                WidgetProjection.parse("z-index, id").apply(widget)));
+
+        assertThat(projected.size()).isEqualTo(2);
+        assertThat(projected.get("id").asText()).isEqualTo(widget.getId().toString());
+        assertThat(projected.get("z-index").asInt()).isEqualTo(5);
+    }
+
+    @Test
+    void shouldWriteFieldsLikeFullRepresentation() throws Exception {
+        WidgetProjection projection = WidgetProjection.parse(
+                "id,x-index,y-index,z-index,height,width,version,lastUpdatedAt");
+        JsonNode full = objectMapper.readTree(objectMapper.writeValueAsString(widget));
+        JsonNode projected = objectMapper.readTree(objectMapper.writeValueAsString(
+                projection.apply(new CursorPage<>(List.of(widget), "next"))));
+
+        assertThat(projected.get("next").asText()).isEqualTo("next");
+        JsonNode content = projected.get("content").get(0);
+        assertThat(content.size()).isEqualTo(WidgetProjection.Field.values().length);
+        content.fieldNames().forEachRemaining(name -> assertThat(content.get(name)).isEqualTo(full.get(name)));
+    }
+
+    @Test
+    void shouldShareProjectionForSameFields() {
+        assertThat(WidgetProjection.parse("id,z-index")).isSameAs(WidgetProjection.parse("z-index,id,"));
+    }
+
+    @Test
+    void shouldRejectUnknownOrMissingFields() {
+        Assertions.assertThrows(InvalidRequestException.class, () -> WidgetProjection.parse("id,colour"));
+        Assertions.assertThrows(InvalidRequestException.class, () -> WidgetProjection.parse(" , "));
+    }
+}
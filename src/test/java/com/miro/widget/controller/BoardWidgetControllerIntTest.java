@@ -0,0 +1,124 @@
+package com.miro.widget.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miro.widget.codec.WidgetBinaryCodec;
+import com.miro.widget.codec.WidgetBinaryHttpMessageConverter;
+import com.miro.widget.model.Widget;
+import com.miro.widget.model.WidgetAttributes;
+import com.miro.widget.service.BoardService;
+import com.miro.widget.service.WidgetService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+class BoardWidgetControllerIntTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private WidgetService widgetService;
+
+    @Test
+    void shouldManageWidgetsPerBoard() throws Exception {
+        WidgetAttributes attributes = new WidgetAttributes(10, 10);
+        attributes.setZIndex(0);
+        String body = objectMapper.writeValueAsString(attributes);
+        JsonNode created = objectMapper.readTree(mockMvc.perform(post("/api/boards/alpha/widgets")
+                .contentType("application/json").content(body))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString());
+        mockMvc.perform(post("/api/boards/alpha/widgets").contentType("application/json").content(body))
+                .andExpect(status().isCreated());
+        mockMvc.perform(post("/api/boards/beta/widgets").contentType("application/json").content(body))
+                .andExpect(status().isCreated());
+
+        mockMvc.perform(get("/api/boards/alpha/widgets/" + created.get("id").asText()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.z-index").value(1));
+        mockMvc.perform(get("/api/boards/alpha/widgets"))
+                .andExpect(jsonPath("$.length()").value(2));
+        byte[] binary = mockMvc.perform(get("/api/boards/alpha/widgets")
+                .accept(WidgetBinaryHttpMessageConverter.MEDIA_TYPE))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        assertThat(ByteBuffer.wrap(binary).getInt()).isEqualTo(2);
+        assertThat(binary).hasSize(Integer.BYTES + 2 * WidgetBinaryCodec.WIDGET_BYTES);
+        mockMvc.perform(get("/api/boards/beta/widgets/page").param("size", "1"))
+                .andExpect(jsonPath("$.totalElements").value(1));
+        mockMvc.perform(get("/api/boards/beta/widgets/" + created.get("id").asText()))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(delete("/api/boards/alpha")).andExpect(status().isNoContent());
+        mockMvc.perform(delete("/api/boards/beta")).andExpect(status().isNoContent());
+        mockMvc.perform(get("/api/boards/alpha/widgets")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldServeBoardsLikeDefaultBoard() throws Exception {
+        String body = objectMapper.writeValueAsString(new WidgetAttributes(10, 10));
+        for (int i = 0; i < 20; i++) {
+            mockMvc.perform(post("/api/boards/gamma/widgets").contentType("application/json").content(body))
+                    .andExpect(status().isCreated());
+        }
+
+        byte[] compressed = mockMvc.perform(get("/api/boards/gamma/widgets").header("Accept-Encoding", "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().stringValues("Vary", "Accept", "Accept-Encoding"))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertThat(objectMapper.readTree(new GZIPInputStream(new ByteArrayInputStream(compressed))).size())
+                .isEqualTo(20);
+        MvcResult result = mockMvc.perform(get("/api/boards/gamma/widgets")
+                .accept(WidgetController.APPLICATION_NDJSON_VALUE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String lines = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertThat(lines.split("\n")).hasSize(20);
+
+        mockMvc.perform(delete("/api/boards/gamma")).andExpect(status().isNoContent());
+    }
+
+    @Test
+    void shouldServeDefaultBoardAsOrdinaryBoard() throws Exception {
+        Widget widget = widgetService.addWidget(new WidgetAttributes(10, 10));
+
+        mockMvc.perform(get("/api/boards/" + BoardService.DEFAULT_BOARD_ID + "/widgets/" + widget.getId()))
+                .andExpect(status().isOk());
+        mockMvc.perform(delete("/api/boards/" + BoardService.DEFAULT_BOARD_ID))
+                .andExpect(status().isBadRequest());
+        widgetService.removeWidget(widget.getId());
+    }
+
+    @Test
+    void shouldRejectInvalidBoardId() throws Exception {
+        mockMvc.perform(post("/api/boards/" + "x".repeat(65) + "/widgets")
+                .contentType("application/json").content("{}"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,150 @@
+package com.miro.widget.controller;
+
+import com.miro.widget.changes.ChangeFeed;
+import com.miro.widget.model.Widget;
+import com.miro.widget.model.WidgetAttributes;
+import com.miro.widget.service.WidgetService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Streams are read from a real server, since the feed writes in non-blocking mode, which MockMvc does not support.
+ * Closed streams keep their subscriber slot until the server next writes to them, so the test filling all slots
+ * discards the context.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "widget.changes.max-subscribers=4")
+@AutoConfigureMockMvc
+class ChangeFeedControllerIntTest {
+
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ChangeFeed changeFeed;
+
+    @Autowired
+    private WidgetService widgetService;
+
+    @Test
+    void shouldStreamChangesAfterCursor() throws Exception {
+        HttpResponse<InputStream> response = subscribe("?since=" + changeFeed.lastSeq());
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("Content-Type")).hasValueSatisfying(
+                contentType -> assertThat(contentType).startsWith("text/event-stream"));
+
+        Widget widget1 = widgetService.addWidget(new WidgetAttributes(10, 10));
+        WidgetAttributes below = new WidgetAttributes(10, 10);
+        below.setZIndex(widget1.getZIndex());
+        Widget widget2 = widgetService.addWidget(below);
+
+        String stream = readUntil(response, "\"seq\":" + changeFeed.lastSeq());
+        assertThat(stream).contains("event:change", "\"type\":\"CREATED\"", "\"type\":\"SHIFTED\"",
+                "id:" + changeFeed.lastSeq());
+        widgetService.removeWidget(widget1.getId());
+        widgetService.removeWidget(widget2.getId());
+    }
+
+    @Test
+    void shouldRequestResyncForUnknownCursor() throws Exception {
+        HttpResponse<InputStream> response = subscribe("?since=" + (changeFeed.lastSeq() + 100));
+
+        assertThat(readUntil(response, "event:resync")).contains("event:resync");
+    }
+
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    void shouldRejectSubscribersBeyondMaximum() throws Exception {
+        List<HttpResponse<InputStream>> responses = new ArrayList<>();
+        for (int i = 0; i <= 4 && responses.stream().allMatch(response -> response.statusCode() == 200); i++) {
+            responses.add(subscribe(""));
+        }
+
+        HttpResponse<InputStream> rejected = responses.get(responses.size() - 1);
+        assertThat(rejected.statusCode()).isEqualTo(503);
+        assertThat(rejected.headers().firstValue("Retry-After")).isPresent();
+        assertThat(new String(rejected.body().readAllBytes(), StandardCharsets.UTF_8)).contains("subscribers");
+        for (HttpResponse<InputStream> response : responses) {
+            response.body().close();
+        }
+    }
+
+    @Test
+    void shouldReturnSnapshotWithPosition() throws Exception {
+        mockMvc.perform(get("/api/widgets/changes/snapshot"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.seq").isNumber())
+                .andExpect(jsonPath("$.widgets").isArray());
+    }
+
+    private HttpResponse<InputStream> subscribe(String query) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/widgets/changes"
+                + query)).header("Accept", "text/event-stream").build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    /**
+     * @return the stream read so far once it contains marker, or after five seconds
+     */
+    private String readUntil(HttpResponse<InputStream> response, String marker) throws Exception {
+        StringBuilder stream = new StringBuilder();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8));
+        CompletableFuture<Void> read = CompletableFuture.runAsync(() -> {
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    synchronized (stream) {
+                        stream.append(line).append('\n');
+                        if (stream.indexOf(marker) >= 0) {
+                            return;
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        try {
+            read.get(5, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            read.cancel(true);
+        }
+        response.body().close();
+        synchronized (stream) {
+            return stream.toString();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.miro.widget.controller;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(properties = {"widget.rate-limit.enabled=true", "widget.rate-limit.capacity=2", "widget.rate-limit.refill-tokens=1",
+        "widget.rate-limit.refill-period=1h"})
+@AutoConfigureMockMvc
+class RateLimitIntTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    void shouldRejectClientOverLimit() throws Exception {
+        mockMvc.perform(get("/api/widgets").header("X-API-Key", "noisy"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Rate-Limit-Remaining", "1"));
+        mockMvc.perform(get("/api/widgets").header("X-API-Key", "noisy"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Rate-Limit-Remaining", "0"));
+        mockMvc.perform(get("/api/widgets").header("X-API-Key", "noisy"))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"))
+                .andExpect(jsonPath("$.message").exists());
+
+        mockMvc.perform(get("/api/widgets").header("X-API-Key", "quiet"))
+                .andExpect(status().isOk());
+    }
+}
@@ -1,6 +1,10 @@
 package com.miro.widget.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.miro.widget.codec.WidgetBinaryCodec;
+import com.miro.widget.codec.WidgetBinaryHttpMessageConverter;
+import com.miro.widget.model.BatchOperation;
 import com.miro.widget.model.Widget;
 import com.miro.widget.model.WidgetAttributes;
 import com.miro.widget.service.WidgetService;
@@ -9,13 +13,26 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.http.MockHttpOutputMessage;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
@@ -45,6 +62,22 @@ class WidgetControllerIntTest {
                 .andExpect(jsonPath("$.z-index").value(3));
     }
 
+    @Test
+    void shouldSerializeWidgetWithHyphenatedIndexesOnly() throws Exception {
+        String response = mockMvc.perform(post("/api/widgets")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(new WidgetAttributes(10, 10))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        JsonNode widget = objectMapper.readTree(response);
+        List<String> fields = new ArrayList<>();
+        widget.fieldNames().forEachRemaining(fields::add);
+        assertThat(fields).containsExactlyInAnyOrder("id", "x-index", "y-index", "z-index", "height", "width",
+                "version", "lastUpdatedAt");
+        widgetService.removeWidget(UUID.fromString(widget.get("id").asText()));
+    }
+
     @Test
     void shouldUpdateWidget() throws Exception {
         WidgetAttributes attributes = new WidgetAttributes(10, 10);
@@ -55,7 +88,8 @@ class WidgetControllerIntTest {
                 .content(objectMapper.writeValueAsString(attributes)))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.height").value(20))
-                .andExpect(jsonPath("$.width").value(20));
+                .andExpect(jsonPath("$.width").value(20))
+                .andExpect(jsonPath("$.version").value(2));
     }
 
     @Test
@@ -91,13 +125,378 @@ class WidgetControllerIntTest {
     @Test
     void shouldListWidgets() throws Exception {
         widgetService.addWidget(new WidgetAttributes(10, 10));
-        Widget widget = widgetService.addWidget(new WidgetAttributes(20, 20));
-        widget.setZIndex(3);
+        widgetService.addWidget(new WidgetAttributes(20, 20));
         mockMvc.perform(get("/api/widgets/")
+                .accept("*/*")
                 .contentType("application/json"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("@[0].height").value(10))
                 .andExpect(jsonPath("@[1].height").value(20));
     }
 
-}
\ No newline at end of file
+    @Test
+    void shouldFindWidgetsInArea() throws Exception {
+        WidgetAttributes attributes = new WidgetAttributes(10, 10);
+        attributes.setXIndex(-1_000);
+        attributes.setYIndex(-1_000);
+        Widget widget = widgetService.addWidget(attributes);
+        mockMvc.perform(get("/api/widgets/area?x1=-1005&y1=-1005&x2=-995&y2=-995")
+                .contentType("application/json"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("@[0].id").value(widget.getId().toString()))
+                .andExpect(jsonPath("$.length()").value(1));
+        widgetService.removeWidget(widget.getId());
+    }
+
+    @Test
+    void shouldRejectInvertedArea() throws Exception {
+        mockMvc.perform(get("/api/widgets/area?x1=10&y1=0&x2=0&y2=10")
+                .contentType("application/json"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldApplyBatch() throws Exception {
+        Widget widget = widgetService.addWidget(new WidgetAttributes(10, 10));
+        List<BatchOperation> operations = List.of(
+                BatchOperation.create(new WidgetAttributes(10, 10)),
+                new BatchOperation(BatchOperation.Type.DELETE, widget.getId(), null));
+        String response = mockMvc.perform(post("/api/widgets/batch")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(operations)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("@[0].version").value(1))
+                .andExpect(jsonPath("@[1].id").value(widget.getId().toString()))
+                .andExpect(jsonPath("@[1].z-index").doesNotExist())
+                .andReturn().getResponse().getContentAsString();
+        JsonNode created = objectMapper.readTree(response).get(0);
+        List<String> fields = new ArrayList<>();
+        created.fieldNames().forEachRemaining(fields::add);
+        assertThat(fields).containsExactlyInAnyOrder("id", "z-index", "version");
+        widgetService.removeWidget(UUID.fromString(created.get("id").asText()));
+    }
+
+    @Test
+    void shouldRejectEmptyBatch() throws Exception {
+        mockMvc.perform(post("/api/widgets/batch")
+                .contentType("application/json")
+                .content("[]"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldRejectBatchWithMissingWidget() throws Exception {
+        List<BatchOperation> operations = List.of(
+                new BatchOperation(BatchOperation.Type.DELETE, UUID.randomUUID(), null));
+        mockMvc.perform(post("/api/widgets/batch")
+                .contentType("application/json")
+                .content(objectMapper.writeValueAsString(operations)))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldStreamWidgetsAsNdjson() throws Exception {
+        Widget widget = widgetService.addWidget(new WidgetAttributes(10, 10));
+        MvcResult result = mockMvc.perform(get("/api/widgets")
+                .accept(WidgetController.APPLICATION_NDJSON_VALUE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String content = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(WidgetController.APPLICATION_NDJSON_VALUE))
+                .andReturn().getResponse().getContentAsString();
+        List<String> widgetIds = new ArrayList<>();
+        List<Integer> zIndexes = new ArrayList<>();
+        for (String line : content.split("\n")) {
+            JsonNode node = objectMapper.readTree(line);
+            widgetIds.add(node.get("id").asText());
+            zIndexes.add(node.get("z-index").asInt());
+        }
+        assertThat(content).endsWith("\n");
+        assertThat(widgetIds).contains(widget.getId().toString());
+        assertThat(zIndexes).isSorted();
+        widgetService.removeWidget(widget.getId());
+    }
+
+    @Test
+    void shouldStreamWidgetsOnRequest() throws Exception {
+        MvcResult result = mockMvc.perform(get("/api/widgets?stream=true"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(WidgetController.APPLICATION_NDJSON_VALUE));
+    }
+
+    @Test
+    void shouldPageWithCursor() throws Exception {
+        Widget widget1 = widgetService.addWidget(new WidgetAttributes(10, 10));
+        Widget widget2 = widgetService.addWidget(new WidgetAttributes(10, 10));
+        int size = widgetService.findAllWidgets().size();
+        String response = mockMvc.perform(get("/api/widgets/page?after=&size=" + (size - 1))
+                .contentType("application/json"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content.length()").value(size - 1))
+                .andExpect(jsonPath("$.totalElements").doesNotExist())
+                .andReturn().getResponse().getContentAsString();
+        String next = objectMapper.readTree(response).get("next").asText();
+        mockMvc.perform(get("/api/widgets/page?size=1&after=" + next)
+                .contentType("application/json"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("@.content[0].id").value(widget2.getId().toString()))
+                .andExpect(jsonPath("$.next").isEmpty());
+        widgetService.removeWidget(widget1.getId());
+        widgetService.removeWidget(widget2.getId());
+    }
+
+    @Test
+    void shouldRejectInvalidCursor() throws Exception {
+        mockMvc.perform(get("/api/widgets/page?after=invalid&size=1")
+                .contentType("application/json"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnChangesSinceSequence() throws Exception {
+        JsonNode initial = objectMapper.readTree(mockMvc.perform(get("/api/widgets/delta"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.full").value(true))
+                .andReturn().getResponse().getContentAsString());
+        Widget widget = widgetService.addWidget(new WidgetAttributes(10, 10));
+
+        mockMvc.perform(get("/api/widgets/delta").param("since", initial.get("seq").asText()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.full").value(false))
+                .andExpect(jsonPath("$.changed.length()").value(1))
+                .andExpect(jsonPath("$.changed[0].id").value(widget.getId().toString()));
+        widgetService.removeWidget(widget.getId());
+    }
+
+    @Test
+    void shouldExposeRepositoryMetrics() throws Exception {
+        widgetService.findAllWidgets();
+        String metrics = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        assertThat(metrics).contains(
+                "widget_repository_operations_seconds_bucket{board=\"default\",operation=\"find_all\"",
+                "widget_zorder_shifted_widgets_bucket", "widget_zorder_lock_wait_seconds_bucket",
+                "widget_board_size_widgets{board=\"default\",}", "widget_board_size_widgets{board=\"boards\",}");
+    }
+
+    @Test
+    void shouldAnswerConditionalReads() throws Exception {
+        Widget widget = widgetService.addWidget(new WidgetAttributes(10, 10));
+        String widgetTag = mockMvc.perform(get("/api/widgets/" + widget.getId()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        String listTag = mockMvc.perform(get("/api/widgets"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/api/widgets/" + widget.getId()).header("If-None-Match", widgetTag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/api/widgets").header("If-None-Match", listTag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/widgets/page").header("If-None-Match", listTag))
+                .andExpect(status().isNotModified());
+
+        WidgetAttributes below = new WidgetAttributes(10, 10);
+        below.setZIndex(widget.getZIndex());
+        Widget shifting = widgetService.addWidget(below);
+        mockMvc.perform(get("/api/widgets/" + widget.getId()).header("If-None-Match", widgetTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.z-index").value(widget.getZIndex() + 1));
+        mockMvc.perform(get("/api/widgets").header("If-None-Match", listTag))
+                .andExpect(status().isOk());
+        widgetService.removeWidget(widget.getId());
+        widgetService.removeWidget(shifting.getId());
+    }
+
+    @Test
+    void shouldRejectUpdateWithStaleIfMatch() throws Exception {
+        Widget widget = widgetService.addWidget(new WidgetAttributes(10, 10));
+        String tag = mockMvc.perform(get("/api/widgets/" + widget.getId()))
+                .andReturn().getResponse().getHeader("ETag");
+        String body = objectMapper.writeValueAsString(new WidgetAttributes(20, 20));
+
+        String updatedTag = mockMvc.perform(put("/api/widgets/" + widget.getId()).header("If-Match", tag)
+                .contentType("application/json").content(body))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(widget.getVersion() + 1))
+                .andReturn().getResponse().getHeader("ETag");
+        mockMvc.perform(put("/api/widgets/" + widget.getId()).header("If-Match", tag)
+                .contentType("application/json").content(body))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(put("/api/widgets/" + widget.getId()).header("If-Match", updatedTag)
+                .contentType("application/json").content(body))
+                .andExpect(status().isOk());
+        widgetService.removeWidget(widget.getId());
+    }
+
+    @Test
+    void shouldReorderWidgets() throws Exception {
+        Widget a = widgetService.addWidget(new WidgetAttributes(10, 10));
+        Widget b = widgetService.addWidget(new WidgetAttributes(10, 10));
+
+        mockMvc.perform(post("/api/widgets/" + a.getId() + "/front"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.z-index").value(b.getZIndex() + 1));
+        mockMvc.perform(post("/api/widgets/" + a.getId() + "/back"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.z-index").value(widgetService.findAllWidgets().get(0).getZIndex()));
+        mockMvc.perform(post("/api/widgets/" + a.getId() + "/after/" + b.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.z-index").value(widgetService.findWidget(b.getId()).getZIndex() + 1));
+        mockMvc.perform(post("/api/widgets/" + a.getId() + "/before/" + a.getId()))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/widgets/" + UUID.randomUUID() + "/front"))
+                .andExpect(status().isNotFound());
+
+        mockMvc.perform(post("/api/widgets/move-range").contentType("application/json")
+                .content("{\"ids\":[\"" + a.getId() + "\",\"" + b.getId() + "\"],\"z-index\":-2}"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id").value(contains(b.getId().toString(), a.getId().toString())))
+                .andExpect(jsonPath("$[*].z-index").value(contains(-2, -1)));
+        mockMvc.perform(post("/api/widgets/move-range").contentType("application/json").content("{\"ids\":[]}"))
+                .andExpect(status().isBadRequest());
+        widgetService.removeWidget(a.getId());
+        widgetService.removeWidget(b.getId());
+    }
+
+    @Test
+    void shouldFindTopmostWidgetAtPoint() throws Exception {
+        WidgetAttributes attributes = new WidgetAttributes(10, 10);
+        attributes.setXIndex(-5_000);
+        attributes.setYIndex(-5_000);
+        Widget widget = widgetService.addWidget(attributes);
+
+        mockMvc.perform(get("/api/widgets/at").param("x", "-4995").param("y", "-4990"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(widget.getId().toString()));
+        mockMvc.perform(get("/api/widgets/at").param("x", "-4980").param("y", "-4990"))
+                .andExpect(status().isNotFound());
+        widgetService.removeWidget(widget.getId());
+    }
+
+    @Test
+    void shouldServeCachedListAsGzip() throws Exception {
+        List<Widget> widgets = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            widgets.add(widgetService.addWidget(new WidgetAttributes(10, 10)));
+        }
+        String plain = mockMvc.perform(get("/api/widgets"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andReturn().getResponse().getContentAsString();
+        byte[] compressed = mockMvc.perform(get("/api/widgets").header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().stringValues("Vary", "Accept", "Accept-Encoding"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertThat(new String(new GZIPInputStream(new ByteArrayInputStream(compressed)).readAllBytes()))
+                .isEqualTo(plain);
+        assertThat(objectMapper.readTree(plain).size()).isGreaterThanOrEqualTo(20);
+        widgets.forEach(widget -> widgetService.removeWidget(widget.getId()));
+    }
+
+    @Test
+    void shouldProjectSelectedFields() throws Exception {
+        Widget widget = widgetService.addWidget(new WidgetAttributes(10, 10));
+        String list = mockMvc.perform(get("/api/widgets").param("fields", "id,z-index"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        String page = mockMvc.perform(get("/api/widgets/page").param("fields", "x-index"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        mockMvc.perform(get("/api/widgets").param("fields", "colour"))
+                .andExpect(status().isBadRequest());
+
+        JsonNode listed = objectMapper.readTree(list).get(0);
+        assertThat(listed.size()).isEqualTo(2);
+        assertThat(listed.has("id")).isTrue();
+        assertThat(listed.has("z-index")).isTrue();
+        JsonNode paged = objectMapper.readTree(page).get("content").get(0);
+        assertThat(paged.size()).isEqualTo(1);
+        assertThat(paged.has("x-index")).isTrue();
+        widgetService.removeWidget(widget.getId());
+    }
+
+    @Test
+    void shouldReadBoardAsOfPastVersion() throws Exception {
+        Widget widget = widgetService.addWidget(new WidgetAttributes(10, 10));
+        long version = widgetService.getModificationSeq();
+        widgetService.removeWidget(widget.getId());
+
+        mockMvc.perform(get("/api/widgets").param("asOf", Long.toString(version)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"" + version + "\""))
+                .andExpect(jsonPath("$[?(@.id == '" + widget.getId() + "')]").exists());
+        mockMvc.perform(get("/api/widgets").param("asOf", "0"))
+                .andExpect(status().isGone());
+        mockMvc.perform(get("/api/widgets").param("asOf", Long.toString(Long.MAX_VALUE)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldExchangeBinaryWidgets() throws Exception {
+        WidgetAttributes attributes = new WidgetAttributes(10, 10);
+        MockHttpOutputMessage body = new MockHttpOutputMessage();
+        new WidgetBinaryHttpMessageConverter().write(attributes, WidgetBinaryHttpMessageConverter.MEDIA_TYPE, body);
+        byte[] created = mockMvc.perform(post("/api/widgets")
+                .contentType(WidgetBinaryHttpMessageConverter.MEDIA_TYPE)
+                .accept(WidgetBinaryHttpMessageConverter.MEDIA_TYPE)
+                .content(body.getBodyAsBytes()))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentType(WidgetBinaryHttpMessageConverter.MEDIA_TYPE))
+                .andReturn().getResponse().getContentAsByteArray();
+        Widget widget = WidgetBinaryCodec.readWidget(ByteBuffer.wrap(created));
+        assertThat(widget.getHeight()).isEqualTo(10);
+
+        mockMvc.perform(get("/api/widgets/" + widget.getId())
+                .accept(WidgetBinaryHttpMessageConverter.MEDIA_TYPE))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(created));
+        widgetService.removeWidget(widget.getId());
+    }
+
+    @Test
+    void shouldListWidgetsInBinary() throws Exception {
+        Widget first = widgetService.addWidget(new WidgetAttributes(10, 10));
+        Widget second = widgetService.addWidget(new WidgetAttributes(20, 20));
+        long version = widgetService.getModificationSeq();
+
+        byte[] body = mockMvc.perform(get("/api/widgets").accept(WidgetBinaryHttpMessageConverter.MEDIA_TYPE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(WidgetBinaryHttpMessageConverter.MEDIA_TYPE))
+                .andExpect(header().string("ETag", "\"" + version + "\""))
+                .andExpect(header().string("Vary", "Accept"))
+                .andReturn().getResponse().getContentAsByteArray();
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        List<Widget> widgets = new ArrayList<>();
+        for (int i = buffer.getInt(); i > 0; i--) {
+            widgets.add(WidgetBinaryCodec.readWidget(buffer));
+        }
+        assertThat(buffer.hasRemaining()).isFalse();
+        assertThat(widgets).extracting(Widget::getId)
+                .containsExactlyElementsOf(widgetService.findAllWidgets().stream().map(Widget::getId)
+                        .collect(Collectors.toList()))
+                .contains(first.getId(), second.getId());
+
+        mockMvc.perform(get("/api/widgets").accept(WidgetBinaryHttpMessageConverter.MEDIA_TYPE)
+                .header("If-None-Match", "\"" + version + "\""))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/widgets?asOf=" + version).accept(WidgetBinaryHttpMessageConverter.MEDIA_TYPE))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(body));
+        mockMvc.perform(get("/api/widgets"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/json"));
+        widgetService.removeWidget(first.getId());
+        widgetService.removeWidget(second.getId());
+    }
+
+}
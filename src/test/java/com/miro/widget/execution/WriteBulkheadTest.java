@@ -0,0 +1,60 @@
+package com.miro.widget.execution;
+
+import com.miro.widget.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WriteBulkheadTest {
+
+    private final WriteBulkhead bulkhead = new WriteBulkhead(2);
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+
+    @Test
+    void shouldRejectWritesBeyondLimitButNotReads() {
+        bulkhead.preHandle(request("POST"), response, null);
+        bulkhead.preHandle(request("PUT"), response, null);
+
+        assertThatThrownBy(() -> bulkhead.preHandle(request("DELETE"), response, null))
+                .isInstanceOf(ServiceUnavailableException.class)
+                .extracting("retryAfterSeconds").isEqualTo(1L);
+        assertThat(bulkhead.preHandle(request("GET"), response, null)).isTrue();
+        assertThat(bulkhead.available()).isZero();
+    }
+
+    @Test
+    void shouldReleasePermitOnceOnCompletion() {
+        MockHttpServletRequest write = request("POST");
+        bulkhead.preHandle(write, response, null);
+        bulkhead.preHandle(write, response, null);
+        assertThat(bulkhead.available()).isEqualTo(1);
+
+        bulkhead.afterCompletion(write, response, null, null);
+        bulkhead.afterCompletion(write, response, null, null);
+        bulkhead.afterCompletion(request("GET"), response, null, null);
+
+        assertThat(bulkhead.available()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldCreateVirtualThreadExecutorOnlyWhereSupported() throws Exception {
+        if (Runtime.version().feature() < 21) {
+            assertThatThrownBy(ExecutionConfiguration::newVirtualThreadPerTaskExecutor)
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("Java 21");
+            return;
+        }
+        ExecutorService executor = ExecutionConfiguration.newVirtualThreadPerTaskExecutor();
+        assertThat(executor.submit(() -> Thread.currentThread().toString()).get()).contains("Virtual");
+        executor.shutdown();
+    }
+
+    private static MockHttpServletRequest request(String method) {
+        return new MockHttpServletRequest(method, "/api/widgets");
+    }
+}
@@ -0,0 +1,46 @@
+package com.miro.widget.metrics;
+
+import com.miro.widget.model.Widget;
+import com.miro.widget.model.WidgetAttributes;
+import com.miro.widget.repository.WidgetContainer;
+import com.miro.widget.repository.ZIndexContainer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WidgetMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final WidgetContainer widgetContainer = new WidgetContainer(new ZIndexContainer());
+
+    @Test
+    void shouldRecordOperationsShiftsAndBoardSize() {
+        widgetContainer.setMetrics(new WidgetMetrics(registry, "default", widgetContainer::size));
+        for (int i = 0; i < 10; i++) {
+            widgetContainer.saveWithZIndex(Widget.builder().zIndex(i).build());
+        }
+        Widget inserted = widgetContainer.saveWithZIndex(Widget.builder().zIndex(4).build());
+        widgetContainer.saveAsForeground(Widget.builder().build());
+        widgetContainer.update(inserted.getId(), new WidgetAttributes(20, 20));
+        widgetContainer.delete(inserted.getId());
+        widgetContainer.findAll();
+        widgetContainer.findAll(PageRequest.of(0, 5));
+
+        assertThat(timerCount("save_with_z_index")).isEqualTo(11);
+        assertThat(timerCount("save_as_foreground")).isEqualTo(1);
+        assertThat(timerCount("update")).isEqualTo(1);
+        assertThat(timerCount("delete")).isEqualTo(1);
+        assertThat(timerCount("find_all")).isEqualTo(1);
+        assertThat(timerCount("find_page")).isEqualTo(1);
+        assertThat(registry.get("widget.zorder.shifted").summary().count()).isEqualTo(11);
+        assertThat(registry.get("widget.zorder.shifted").summary().max()).isEqualTo(6);
+        assertThat(registry.get("widget.zorder.lock.wait").timer().count()).isEqualTo(13);
+        assertThat(registry.get("widget.board.size").tag("board", "default").gauge().value()).isEqualTo(11);
+    }
+
+    private long timerCount(String operation) {
+        return registry.get("widget.repository.operations").tag("operation", operation).timer().count();
+    }
+}
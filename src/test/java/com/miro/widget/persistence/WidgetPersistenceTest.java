@@ -0,0 +1,70 @@
+package com.miro.widget.persistence;
+
+import com.miro.widget.model.BatchOperation;
+import com.miro.widget.model.Widget;
+import com.miro.widget.model.WidgetAttributes;
+import com.miro.widget.repository.WidgetContainer;
+import com.miro.widget.repository.ZIndexContainer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WidgetPersistenceTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldRecoverSnapshotAndLogTail() throws Exception {
+        WidgetContainer widgetContainer = new WidgetContainer(new ZIndexContainer());
+        WidgetPersistence persistence = start(widgetContainer);
+        Widget widget1 = widgetContainer.saveAsForeground(Widget.builder().height(10).width(10).build());
+        Widget widget2 = widgetContainer.saveWithZIndex(Widget.builder().zIndex(5).build());
+        persistence.snapshot();
+
+        widgetContainer.saveWithZIndex(Widget.builder().zIndex(0).build());
+        WidgetAttributes move = new WidgetAttributes(20, 20);
+        move.setZIndex(1);
+        widgetContainer.update(widget2.getId(), move);
+        widgetContainer.update(widget1.getId(), new WidgetAttributes(30, 30));
+        widgetContainer.applyBatch(List.of(BatchOperation.create(new WidgetAttributes(40, 40)),
+                new BatchOperation(BatchOperation.Type.DELETE, widget1.getId(), null)));
+
+        WidgetContainer recovered = new WidgetContainer(new ZIndexContainer());
+        start(recovered);
+        assertThat(recovered.findAll()).usingFieldByFieldElementComparator()
+                .containsExactlyElementsOf(widgetContainer.findAll());
+        assertThat(recovered.findAllInArea(0, 0, 40, 40)).usingFieldByFieldElementComparator()
+                .containsExactlyElementsOf(widgetContainer.findAllInArea(0, 0, 40, 40));
+    }
+
+    @Test
+    void shouldRecoverFromSnapshotWrittenOnClose() throws Exception {
+        WidgetContainer widgetContainer = new WidgetContainer(new ZIndexContainer());
+        WidgetPersistence persistence = start(widgetContainer);
+        for (int i = 0; i < 100; i++) {
+            widgetContainer.saveWithZIndex(Widget.builder().zIndex(i % 7).build());
+        }
+        persistence.close();
+
+        WidgetContainer recovered = new WidgetContainer(new ZIndexContainer());
+        start(recovered);
+        assertThat(recovered.findAll()).usingFieldByFieldElementComparator()
+                .containsExactlyElementsOf(widgetContainer.findAll());
+    }
+
+    private WidgetPersistence start(WidgetContainer widgetContainer) throws Exception {
+        PersistenceProperties properties = new PersistenceProperties();
+        properties.setDirectory(directory);
+        properties.setFsync(FsyncPolicy.ALWAYS);
+        properties.setSegmentSize(DataSize.ofKilobytes(1));
+        WidgetPersistence persistence = new WidgetPersistence(widgetContainer, properties);
+        persistence.start();
+        return persistence;
+    }
+}
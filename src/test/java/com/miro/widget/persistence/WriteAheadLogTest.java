@@ -0,0 +1,81 @@
+package com.miro.widget.persistence;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void shouldReplayRecordsAcrossSegments() throws Exception {
+        WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 1, 64, FsyncPolicy.ALWAYS, Duration.ZERO);
+        long position = 0;
+        for (int i = 0; i < 10; i++) {
+            position = writeAheadLog.append(("record-" + i).getBytes(StandardCharsets.UTF_8));
+            writeAheadLog.sync(position);
+        }
+        writeAheadLog.close();
+
+        List<String> records = new ArrayList<>();
+        int lastSegment = WriteAheadLog.replay(directory, 0,
+                payload -> records.add(new String(payload, StandardCharsets.UTF_8)));
+        assertThat(records).hasSize(10).startsWith("record-0").endsWith("record-9");
+        assertThat(lastSegment).isEqualTo(WriteAheadLog.segmentOf(position)).isGreaterThan(1);
+    }
+
+    @Test
+    void shouldReplayFromPositionAndTruncateOlderSegments() throws Exception {
+        WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 1, 64, FsyncPolicy.OS, Duration.ZERO);
+        for (int i = 0; i < 5; i++) {
+            writeAheadLog.append(("record-" + i).getBytes(StandardCharsets.UTF_8));
+        }
+        long position = writeAheadLog.position();
+        writeAheadLog.append("after".getBytes(StandardCharsets.UTF_8));
+        writeAheadLog.truncateBefore(position);
+        writeAheadLog.close();
+
+        List<String> records = new ArrayList<>();
+        WriteAheadLog.replay(directory, position, payload -> records.add(new String(payload, StandardCharsets.UTF_8)));
+        assertThat(records).containsExactly("after");
+        assertThat(segments()).allMatch(file -> file.compareTo(String.format("wal-%010d.log",
+                WriteAheadLog.segmentOf(position))) >= 0);
+    }
+
+    @Test
+    void shouldStopAtCorruptRecord() throws Exception {
+        WriteAheadLog writeAheadLog = new WriteAheadLog(directory, 1, 1024, FsyncPolicy.INTERVAL,
+                Duration.ofMillis(1));
+        writeAheadLog.append("first".getBytes(StandardCharsets.UTF_8));
+        long position = writeAheadLog.append("second".getBytes(StandardCharsets.UTF_8));
+        writeAheadLog.append("third".getBytes(StandardCharsets.UTF_8));
+        writeAheadLog.close();
+        try (RandomAccessFile file = new RandomAccessFile(directory.resolve(segments().get(0)).toFile(), "rw")) {
+            file.seek(WriteAheadLog.offsetOf(position) + 8);
+            file.write('X');
+        }
+
+        List<String> records = new ArrayList<>();
+        WriteAheadLog.replay(directory, 0, payload -> records.add(new String(payload, StandardCharsets.UTF_8)));
+        assertThat(records).containsExactly("first", "second");
+    }
+
+    private List<String> segments() throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.miro.widget.ratelimit;
+
+import com.miro.widget.exception.RateLimitExceededException;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.DispatcherType;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RateLimitInterceptorTest {
+
+    private final RateLimitProperties properties = properties();
+    private final RateLimiter rateLimiter = new RateLimiter(properties);
+    private final RateLimitInterceptor interceptor = new RateLimitInterceptor(rateLimiter, properties);
+
+    @Test
+    void shouldChargeWritesMoreThanReads() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertThat(interceptor.preHandle(request("POST", "a"), response, null)).isTrue();
+        assertThat(response.getHeader(RateLimitInterceptor.REMAINING_HEADER)).isEqualTo("5");
+
+        response = new MockHttpServletResponse();
+        interceptor.preHandle(request("GET", "a"), response, null);
+        assertThat(response.getHeader(RateLimitInterceptor.REMAINING_HEADER)).isEqualTo("4");
+    }
+
+    @Test
+    void shouldRejectEmptyBucketWithRetryAfter() {
+        interceptor.preHandle(request("PUT", "a"), new MockHttpServletResponse(), null);
+        interceptor.preHandle(request("PUT", "a"), new MockHttpServletResponse(), null);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertThatThrownBy(() -> interceptor.preHandle(request("PUT", "a"), response, null))
+                .isInstanceOf(RateLimitExceededException.class)
+                .extracting("retryAfterSeconds").isEqualTo(50L);
+        assertThat(response.getHeader(RateLimitInterceptor.REMAINING_HEADER)).isEqualTo("0");
+    }
+
+    @Test
+    void shouldKeepSeparateBucketsPerKeyAndAddress() {
+        interceptor.preHandle(request("DELETE", "a"), new MockHttpServletResponse(), null);
+        interceptor.preHandle(request("DELETE", "a"), new MockHttpServletResponse(), null);
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertThat(interceptor.preHandle(request("DELETE", "b"), response, null)).isTrue();
+        assertThat(interceptor.preHandle(request("DELETE", null), response, null)).isTrue();
+        assertThat(rateLimiter.clientCount()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldNotChargeAsyncDispatch() {
+        MockHttpServletRequest request = request("GET", "a");
+        request.setDispatcherType(DispatcherType.ASYNC);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThat(interceptor.preHandle(request, response, null)).isTrue();
+        assertThat(response.getHeader(RateLimitInterceptor.REMAINING_HEADER)).isNull();
+        assertThat(rateLimiter.clientCount()).isZero();
+    }
+
+    private static MockHttpServletRequest request(String method, String apiKey) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/widgets");
+        if (apiKey != null) {
+            request.addHeader("X-API-Key", apiKey);
+        }
+        return request;
+    }
+
+    /**
+     * 10 tokens refilled at one per 10 s; a write costs 5.
+     */
+    private static RateLimitProperties properties() {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setCapacity(10);
+        properties.setRefillTokens(6);
+        properties.setRefillPeriod(Duration.ofMinutes(1));
+        return properties;
+    }
+}
@@ -0,0 +1,167 @@
+package com.miro.widget.replication;
+
+import com.miro.widget.exception.ReadOnlyReplicaException;
+import com.miro.widget.exception.ServiceUnavailableException;
+import com.miro.widget.model.BatchOperation;
+import com.miro.widget.model.Widget;
+import com.miro.widget.model.WidgetAttributes;
+import com.miro.widget.model.WidgetChanges;
+import com.miro.widget.repository.WidgetContainer;
+import com.miro.widget.repository.ZIndexContainer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReplicationTest {
+
+    private final WidgetContainer leaderContainer = new WidgetContainer(new ZIndexContainer());
+    private final WidgetContainer followerContainer = new WidgetContainer(new ZIndexContainer());
+    private final ReplicationProperties properties = new ReplicationProperties();
+    private ReplicationLeader leader;
+    private ReplicationFollower follower;
+
+    @AfterEach
+    void stop() throws IOException {
+        if (follower != null) {
+            follower.close();
+        }
+        if (leader != null) {
+            leader.close();
+        }
+    }
+
+    @Test
+    void shouldInstallSnapshotAndApplyChangesInOrder() throws Exception {
+        for (int i = 0; i < 20; i++) {
+            leaderContainer.saveWithZIndex(Widget.builder().zIndex(i % 7).height(10).width(10).build());
+        }
+        start(1024);
+        awaitSync();
+        assertReplicated();
+        long since = followerContainer.modificationSeq();
+
+        Widget widget = leaderContainer.saveWithZIndex(Widget.builder().zIndex(0).build());
+        WidgetAttributes move = new WidgetAttributes(20, 20);
+        move.setZIndex(3);
+        leaderContainer.update(widget.getId(), move);
+        Widget other = leaderContainer.findAll().get(10);
+        leaderContainer.update(other.getId(), new WidgetAttributes(30, 30));
+        leaderContainer.applyBatch(List.of(BatchOperation.create(new WidgetAttributes(40, 40)),
+                new BatchOperation(BatchOperation.Type.DELETE, leaderContainer.findAll().get(5).getId(), null)));
+        leaderContainer.bringToFront(leaderContainer.findAll().get(0).getId());
+        leaderContainer.delete(other.getId());
+        awaitSync();
+
+        assertReplicated();
+        assertThat(leader.snapshotsSent()).isEqualTo(1);
+        WidgetChanges changes = followerContainer.findChangesSince(since);
+        assertThat(changes.isFull()).isFalse();
+        assertThat(changes.getShifts()).isNotEmpty();
+        assertThat(changes.getDeleted()).hasSize(2);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertThat(new ReplicaInterceptor(follower).preHandle(request("GET"), response, null)).isTrue();
+        assertThat(Long.parseLong(response.getHeader(ReplicaInterceptor.LAG_HEADER))).isNotNegative();
+    }
+
+    @Test
+    void shouldContinueFromBacklogOrFallBackToSnapshot() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            leaderContainer.saveAsForeground(Widget.builder().build());
+        }
+        start(8);
+        awaitSync();
+
+        leader.disconnectFollowers();
+        for (int i = 0; i < 3; i++) {
+            leaderContainer.saveWithZIndex(Widget.builder().zIndex(1).build());
+        }
+        awaitSync();
+        assertReplicated();
+        assertThat(leader.snapshotsSent()).isEqualTo(1);
+
+        leader.disconnectFollowers();
+        for (int i = 0; i < 20; i++) {
+            leaderContainer.saveWithZIndex(Widget.builder().zIndex(2).build());
+        }
+        awaitSync();
+        assertReplicated();
+        assertThat(leader.snapshotsSent()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldRejectWritesAndReadsBeforeCatchingUp() {
+        ReplicaInterceptor interceptor = new ReplicaInterceptor(new ReplicationFollower(followerContainer, properties));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThatThrownBy(() -> interceptor.preHandle(request("POST"), response, null))
+                .isInstanceOf(ReadOnlyReplicaException.class);
+        assertThatThrownBy(() -> interceptor.preHandle(request("GET"), response, null))
+                .isInstanceOf(ServiceUnavailableException.class);
+    }
+
+    @Test
+    void shouldDropConnectionsWithoutHandshakeOrOverLimit() throws Exception {
+        properties.setTimeout(Duration.ofMillis(200));
+        properties.setMaxFollowers(1);
+        start(8);
+        awaitSync();
+
+        try (Socket extra = new Socket("localhost", leader.port())) {
+            extra.setSoTimeout(5000);
+            assertThat(extra.getInputStream().read()).isEqualTo(-1);
+        }
+        follower.close();
+        follower = null;
+        long deadline = System.currentTimeMillis() + 5000;
+        while (leader.followerCount() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        long connected = System.nanoTime();
+        try (Socket silent = new Socket("localhost", leader.port())) {
+            silent.setSoTimeout(5000);
+            assertThat(silent.getInputStream().read()).isEqualTo(-1);
+        }
+        assertThat(Duration.ofNanos(System.nanoTime() - connected)).isGreaterThanOrEqualTo(properties.getTimeout());
+    }
+
+    private void start(int backlog) throws IOException {
+        properties.setPort(0);
+        properties.setBacklog(backlog);
+        properties.setReconnectDelay(Duration.ofMillis(200));
+        leader = new ReplicationLeader(leaderContainer, properties);
+        leader.start();
+        properties.setPort(leader.port());
+        follower = new ReplicationFollower(followerContainer, properties);
+        follower.start();
+    }
+
+    private void awaitSync() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!(follower.isReady() && follower.applied() == leader.head())
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(follower.isReady()).isTrue();
+        assertThat(follower.applied()).isEqualTo(leader.head());
+    }
+
+    private void assertReplicated() {
+        assertThat(followerContainer.findAll()).usingFieldByFieldElementComparator()
+                .containsExactlyElementsOf(leaderContainer.findAll());
+        assertThat(followerContainer.findAllInArea(0, 0, 40, 40)).usingFieldByFieldElementComparator()
+                .containsExactlyInAnyOrderElementsOf(leaderContainer.findAllInArea(0, 0, 40, 40));
+    }
+
+    private static MockHttpServletRequest request(String method) {
+        return new MockHttpServletRequest(method, "/api/widgets");
+    }
+}
@@ -0,0 +1,106 @@
+package com.miro.widget.repository;
+
+import com.miro.widget.model.Widget;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GridIndexTest {
+
+    GridIndex gridIndex;
+
+    @BeforeEach
+    void setUp() {
+        gridIndex = new GridIndex();
+    }
+
+    @Test
+    void shouldFindWidgetsContainingPoint() {
+        UUID small = UUID.randomUUID();
+        UUID negative = UUID.randomUUID();
+        UUID huge = UUID.randomUUID();
+        gridIndex.put(small, 10, 10, 5, 5);
+        gridIndex.put(negative, -100, -100, 110, 110);
+        gridIndex.put(huge, -1_000_000, -1_000_000, 2_000_000, 2_000_000);
+
+        assertThat(gridIndex.search(10, 10)).containsExactlyInAnyOrder(small, negative, huge);
+        assertThat(gridIndex.search(15, 15)).containsExactlyInAnyOrder(small, huge);
+        assertThat(gridIndex.search(-50, -1)).containsExactlyInAnyOrder(negative, huge);
+        assertThat(gridIndex.search(2_000_000, 0)).isEmpty();
+    }
+
+    @Test
+    void shouldMoveAndRemoveWidgets() {
+        UUID widgetId = UUID.randomUUID();
+        gridIndex.put(widgetId, 0, 0, 10, 10);
+        gridIndex.put(widgetId, 50, 50, 10, 10);
+        assertThat(gridIndex.search(5, 5)).isEmpty();
+        assertThat(gridIndex.search(55, 55)).containsExactly(widgetId);
+        gridIndex.remove(widgetId);
+        assertThat(gridIndex.search(55, 55)).isEmpty();
+        assertThat(gridIndex.size()).isZero();
+    }
+
+    @Test
+    void shouldAdaptCellSizeToWidgets() {
+        List<Widget> widgets = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            widgets.add(Widget.builder().xIndex(i * 10).yIndex(0).width(10).height(10).build());
+        }
+        gridIndex.load(widgets);
+        int smallCells = gridIndex.cellSize();
+        List<UUID> large = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            large.add(UUID.randomUUID());
+            gridIndex.put(large.get(i), i * 5_000 + 1, 0, 5_000, 5_000);
+        }
+
+        assertThat(smallCells).isEqualTo(16);
+        assertThat(gridIndex.cellSize()).isGreaterThanOrEqualTo(1024);
+        assertThat(gridIndex.search(15, 5)).containsExactlyInAnyOrder(widgets.get(1).getId(), large.get(0));
+    }
+
+    @Test
+    void shouldMatchLinearScan() {
+        Random random = new Random(7);
+        Map<UUID, int[]> reference = new HashMap<>();
+        List<UUID> widgetIds = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            if (widgetIds.isEmpty() || random.nextInt(4) > 0) {
+                UUID widgetId = random.nextBoolean() || widgetIds.isEmpty() ? UUID.randomUUID()
+                        : widgetIds.get(random.nextInt(widgetIds.size()));
+                int size = random.nextInt(20) == 0 ? 5_000 : 50;
+                int[] rect = {random.nextInt(2_000) - 1_000, random.nextInt(2_000) - 1_000, random.nextInt(size),
+                        random.nextInt(size)};
+                if (reference.put(widgetId, rect) == null) {
+                    widgetIds.add(widgetId);
+                }
+                gridIndex.put(widgetId, rect[0], rect[1], rect[2], rect[3]);
+            } else {
+                UUID widgetId = widgetIds.remove(random.nextInt(widgetIds.size()));
+                reference.remove(widgetId);
+                gridIndex.remove(widgetId);
+            }
+        }
+        for (int i = 0; i < 500; i++) {
+            int x = random.nextInt(2_200) - 1_100;
+            int y = random.nextInt(2_200) - 1_100;
+            List<UUID> expected = reference.entrySet().stream()
+                    .filter(entry -> entry.getValue()[0] <= x && x <= entry.getValue()[0] + entry.getValue()[2]
+                            && entry.getValue()[1] <= y && y <= entry.getValue()[1] + entry.getValue()[3])
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+            assertThat(gridIndex.search(x, y)).containsExactlyInAnyOrderElementsOf(expected);
+        }
+        assertThat(gridIndex.size()).isEqualTo(reference.size());
+    }
+}
@@ -0,0 +1,57 @@
+package com.miro.widget.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ModificationIndexTest {
+
+    @Test
+    void shouldKeepLatestStampPerWidget() {
+        ModificationIndex index = new ModificationIndex(16);
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        long start = index.seq();
+        index.stamp(first);
+        index.stamp(second);
+        long middle = index.seq();
+        index.stamp(first);
+
+        assertThat(index.since(start).changed).containsExactly(second, first);
+        assertThat(index.since(middle).changed).containsExactly(first);
+        assertThat(index.since(index.seq()).changed).isEmpty();
+    }
+
+    @Test
+    void shouldRecordTombstonesAndMergeShifts() {
+        ModificationIndex index = new ModificationIndex(16);
+        UUID widgetId = UUID.randomUUID();
+        long start = index.seq();
+        index.stamp(widgetId);
+        index.shift(3);
+        index.shift(3);
+        index.shift(5);
+        index.delete(widgetId);
+
+        ModificationIndex.Delta delta = index.since(start);
+        assertThat(delta.changed).isEmpty();
+        assertThat(delta.deleted).containsExactly(widgetId);
+        assertThat(delta.shifts).containsExactly(new int[]{3, 2}, new int[]{5, 1});
+    }
+
+    @Test
+    void shouldRejectSequenceOutsideWindow() {
+        ModificationIndex index = new ModificationIndex(2);
+        long start = index.seq();
+        index.delete(UUID.randomUUID());
+        long afterFirst = index.seq();
+        index.delete(UUID.randomUUID());
+        index.delete(UUID.randomUUID());
+
+        assertThat(index.since(start)).isNull();
+        assertThat(index.since(afterFirst).deleted).hasSize(2);
+        assertThat(index.since(index.seq() + 1)).isNull();
+    }
+}
@@ -0,0 +1,86 @@
+package com.miro.widget.repository;
+
+import com.miro.widget.model.Widget;
+import com.miro.widget.model.WidgetAttributes;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class OffHeapWidgetStoreTest {
+
+    OffHeapWidgetStore widgetStore = new OffHeapWidgetStore();
+
+    @Test
+    void shouldRoundTripWidgets() {
+        Widget widget = Widget.builder().xIndex(-1).yIndex(2).zIndex(3).height(4).width(5).version(6)
+                .lastUpdatedAt(ZonedDateTime.of(2020, 1, 2, 3, 4, 5, 6, ZoneId.of("Europe/Amsterdam"))).build();
+        Widget withoutTimestamp = Widget.builder().lastUpdatedAt(null).build();
+        widgetStore.put(widget);
+        widgetStore.put(withoutTimestamp);
+
+        assertThat(widgetStore.get(widget.getId())).isEqualTo(widget);
+        assertThat(widgetStore.get(withoutTimestamp.getId())).isEqualTo(withoutTimestamp);
+        assertThat(widgetStore.containsKey(widget.getId())).isTrue();
+        assertThat(widgetStore.values()).containsExactlyInAnyOrder(widget, withoutTimestamp);
+    }
+
+    @Test
+    void shouldUpdateMergeAndRemove() {
+        Widget widget = Widget.builder().build();
+        widgetStore.put(widget);
+
+        Widget updated = widgetStore.computeIfPresent(widget.getId(), current -> current.withHeight(10));
+        assertThat(widgetStore.get(widget.getId())).isEqualTo(updated);
+        assertThat(widgetStore.computeIfPresent(Widget.builder().build().getId(), current -> current)).isNull();
+
+        widgetStore.merge(widget, (current, merged) -> current);
+        assertThat(widgetStore.get(widget.getId())).isEqualTo(updated);
+
+        widgetStore.remove(widget.getId());
+        assertThat(widgetStore.get(widget.getId())).isNull();
+        assertThat(widgetStore.size()).isZero();
+        assertThat(widgetStore.values()).isEmpty();
+    }
+
+    @Test
+    void shouldReuseFreedSlotsAcrossSlabs() {
+        List<Widget> widgets = new ArrayList<>();
+        for (int i = 0; i < 70_000; i++) {
+            Widget widget = Widget.builder().zIndex(i).build();
+            widgets.add(widget);
+            widgetStore.put(widget);
+        }
+        widgetStore.removeIf(widget -> widget.getZIndex() % 2 == 0);
+        for (int i = 0; i < 35_000; i++) {
+            widgetStore.put(Widget.builder().zIndex(-i).build());
+        }
+
+        assertThat(widgetStore.size()).isEqualTo(70_000);
+        assertThat(widgetStore.values()).hasSize(70_000);
+        widgets.forEach(widget -> assertThat(widgetStore.containsKey(widget.getId()))
+                .isEqualTo(widget.getZIndex() % 2 != 0));
+    }
+
+    @Test
+    void shouldBackWidgetContainer() {
+        WidgetContainer widgetContainer = new WidgetContainer(new ZIndexContainer(), widgetStore);
+        Widget widget = widgetContainer.saveWithZIndex(Widget.builder().zIndex(1).width(10).height(10).build());
+        Widget below = widgetContainer.saveWithZIndex(Widget.builder().zIndex(1).build());
+        WidgetAttributes attributes = new WidgetAttributes();
+        attributes.setWidth(20);
+        widgetContainer.update(widget.getId(), attributes);
+
+        assertThat(widgetContainer.findAll()).extracting(Widget::getId).containsExactly(below.getId(), widget.getId());
+        assertThat(widgetContainer.findById(widget.getId())).get()
+                .extracting(found -> tuple(found.getZIndex(), found.getWidth(), found.getVersion()))
+                .isEqualTo(tuple(2, 20, 2L));
+        assertThat(widgetContainer.findAllInArea(15, 0, 16, 1)).extracting(Widget::getId)
+                .containsExactly(widget.getId());
+    }
+}
@@ -0,0 +1,119 @@
+package com.miro.widget.repository;
+
+import com.miro.widget.model.Widget;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RTreeIndexTest {
+
+    RTreeIndex rTreeIndex;
+
+    @BeforeEach
+    void setUp() {
+        rTreeIndex = new RTreeIndex();
+    }
+
+    @Test
+    void shouldFindIntersectingWidgets() {
+        UUID inside = UUID.randomUUID();
+        UUID overlapping = UUID.randomUUID();
+        UUID outside = UUID.randomUUID();
+        rTreeIndex.put(inside, 10, 10, 5, 5);
+        rTreeIndex.put(overlapping, -5, -5, 10, 10);
+        rTreeIndex.put(outside, 100, 100, 5, 5);
+        assertThat(rTreeIndex.search(0, 0, 20, 20)).containsExactlyInAnyOrder(inside, overlapping);
+    }
+
+    @Test
+    void shouldMoveAndRemoveWidgets() {
+        UUID widgetId = UUID.randomUUID();
+        rTreeIndex.put(widgetId, 0, 0, 10, 10);
+        rTreeIndex.put(widgetId, 50, 50, 10, 10);
+        assertThat(rTreeIndex.search(0, 0, 20, 20)).isEmpty();
+        assertThat(rTreeIndex.search(40, 40, 55, 55)).containsExactly(widgetId);
+        rTreeIndex.remove(widgetId);
+        assertThat(rTreeIndex.search(40, 40, 55, 55)).isEmpty();
+        assertThat(rTreeIndex.size()).isZero();
+    }
+
+    @Test
+    void shouldMatchLinearScan() {
+        Random random = new Random(7);
+        Map<UUID, int[]> reference = new HashMap<>();
+        List<UUID> widgetIds = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            if (widgetIds.isEmpty() || random.nextInt(4) > 0) {
+                UUID widgetId = random.nextBoolean() || widgetIds.isEmpty() ? UUID.randomUUID()
+                        : widgetIds.get(random.nextInt(widgetIds.size()));
+                int[] rect = {random.nextInt(1_000), random.nextInt(1_000), random.nextInt(50), random.nextInt(50)};
+                if (reference.put(widgetId, rect) == null) {
+                    widgetIds.add(widgetId);
+                }
+                rTreeIndex.put(widgetId, rect[0], rect[1], rect[2], rect[3]);
+            } else {
+                UUID widgetId = widgetIds.remove(random.nextInt(widgetIds.size()));
+                reference.remove(widgetId);
+                rTreeIndex.remove(widgetId);
+            }
+        }
+        assertMatchesLinearScan(reference, random);
+    }
+
+    @Test
+    void shouldMatchLinearScanAfterBulkLoad() {
+        Random random = new Random(11);
+        Map<UUID, int[]> reference = new HashMap<>();
+        List<Widget> widgets = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            Widget widget = Widget.builder().xIndex(random.nextInt(1_000)).yIndex(random.nextInt(1_000))
+                    .width(random.nextInt(50)).height(random.nextInt(50)).build();
+            widgets.add(widget);
+            reference.put(widget.getId(), new int[]{widget.getXIndex(), widget.getYIndex(), widget.getWidth(),
+                    widget.getHeight()});
+        }
+        rTreeIndex.load(widgets);
+        assertMatchesLinearScan(reference, random);
+
+        for (int i = 0; i < 1_000; i++) {
+            Widget widget = widgets.get(random.nextInt(widgets.size()));
+            if (random.nextBoolean()) {
+                reference.remove(widget.getId());
+                rTreeIndex.remove(widget.getId());
+            } else {
+                int[] rect = {random.nextInt(1_000), random.nextInt(1_000), random.nextInt(50), random.nextInt(50)};
+                reference.put(widget.getId(), rect);
+                rTreeIndex.put(widget.getId(), rect[0], rect[1], rect[2], rect[3]);
+            }
+        }
+        assertMatchesLinearScan(reference, random);
+    }
+
+    private void assertMatchesLinearScan(Map<UUID, int[]> reference, Random random) {
+        for (int i = 0; i < 200; i++) {
+            int x1 = random.nextInt(1_000);
+            int y1 = random.nextInt(1_000);
+            int x2 = x1 + random.nextInt(200);
+            int y2 = y1 + random.nextInt(200);
+            List<UUID> expected = reference.entrySet().stream()
+                    .filter(entry -> intersects(entry.getValue(), x1, y1, x2, y2))
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+            assertThat(rTreeIndex.search(x1, y1, x2, y2)).containsExactlyInAnyOrderElementsOf(expected);
+        }
+        assertThat(rTreeIndex.size()).isEqualTo(reference.size());
+    }
+
+    private static boolean intersects(int[] rect, int x1, int y1, int x2, int y2) {
+        return rect[0] <= x2 && rect[0] + rect[2] >= x1 && rect[1] <= y2 && rect[1] + rect[3] >= y1;
+    }
+}
@@ -0,0 +1,76 @@
+package com.miro.widget.repository;
+
+import com.miro.widget.model.Widget;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecordTrieTest {
+
+    @Test
+    void shouldPutReplaceAndRemoveRecords() {
+        List<Widget> widgets = new ArrayList<>();
+        RecordTrie trie = RecordTrie.EMPTY;
+        for (int i = 0; i < 10_000; i++) {
+            Widget widget = Widget.builder().zIndex(i).build();
+            widgets.add(widget);
+            trie = trie.put(widget);
+        }
+        Widget replaced = widgets.get(43).withVersion(2);
+        trie = trie.put(replaced);
+        widgets.set(43, replaced);
+        for (int i = 0; i < widgets.size(); i += 2) {
+            trie = trie.remove(widgets.get(i).getId());
+        }
+
+        assertThat(trie.size()).isEqualTo(5_000);
+        assertThat(trie.get(widgets.get(42).getId())).isNull();
+        for (int i = 1; i < widgets.size(); i += 2) {
+            assertThat(trie.get(widgets.get(i).getId())).isEqualTo(widgets.get(i));
+        }
+        assertThat(trie.get(UUID.randomUUID())).isNull();
+        assertThat(trie.remove(UUID.randomUUID())).isSameAs(trie);
+    }
+
+    @Test
+    void shouldLeavePreviousTriesUnchanged() {
+        Widget first = Widget.builder().build();
+        Widget second = Widget.builder().build();
+        RecordTrie one = RecordTrie.EMPTY.put(first);
+        RecordTrie two = one.put(second);
+        RecordTrie updated = two.put(first.withVersion(2));
+        RecordTrie removed = updated.remove(second.getId());
+
+        assertThat(one.size()).isEqualTo(1);
+        assertThat(one.get(second.getId())).isNull();
+        assertThat(two.get(first.getId()).getVersion()).isEqualTo(1);
+        assertThat(updated.get(first.getId()).getVersion()).isEqualTo(2);
+        assertThat(updated.get(second.getId())).isEqualTo(second);
+        assertThat(removed.size()).isEqualTo(1);
+        assertThat(removed.get(second.getId())).isNull();
+    }
+
+    @Test
+    void shouldKeepIdsWithEqualHashes() {
+        UUID firstId = new UUID(5, 3);
+        UUID secondId = new UUID(6, 0);
+        UUID thirdId = new UUID(0, 6);
+        Widget first = Widget.builder().id(firstId).build();
+        Widget second = Widget.builder().id(secondId).build();
+        Widget third = Widget.builder().id(thirdId).build();
+        RecordTrie trie = RecordTrie.EMPTY.put(first).put(second).put(third);
+
+        assertThat(trie.size()).isEqualTo(3);
+        assertThat(trie.get(firstId)).isEqualTo(first);
+        assertThat(trie.get(secondId)).isEqualTo(second);
+        assertThat(trie.get(thirdId)).isEqualTo(third);
+        RecordTrie removed = trie.remove(secondId).remove(firstId);
+        assertThat(removed.size()).isEqualTo(1);
+        assertThat(removed.get(thirdId)).isEqualTo(third);
+        assertThat(removed.get(firstId)).isNull();
+    }
+}
@@ -0,0 +1,59 @@
+package com.miro.widget.repository;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UuidLongMapTest {
+
+    UuidLongMap map = new UuidLongMap();
+
+    @Test
+    void shouldPutGetAndRemove() {
+        UUID key = UUID.randomUUID();
+        assertThat(map.get(key)).isEqualTo(UuidLongMap.NO_VALUE);
+        assertThat(map.put(key, 1)).isEqualTo(UuidLongMap.NO_VALUE);
+        assertThat(map.put(key, 2)).isEqualTo(1);
+        assertThat(map.get(key)).isEqualTo(2);
+        assertThat(map.containsKey(key)).isTrue();
+        assertThat(map.remove(key)).isEqualTo(2);
+        assertThat(map.containsKey(key)).isFalse();
+        assertThat(map.size()).isZero();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> map.put(key, UuidLongMap.NO_VALUE));
+    }
+
+    /**
+     * Keys with equal halves all hash to the same slot, so removals have to shift long probe chains back.
+     */
+    @Test
+    void shouldMatchHashMapWithCollidingKeys() {
+        Random random = new Random(42);
+        Map<UUID, Long> expected = new HashMap<>();
+        List<UUID> keys = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            keys.add(new UUID(i, i));
+            keys.add(UUID.randomUUID());
+        }
+        for (int i = 0; i < 20_000; i++) {
+            UUID key = keys.get(random.nextInt(keys.size()));
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key)).isEqualTo(expected.getOrDefault(key, UuidLongMap.NO_VALUE));
+                expected.remove(key);
+            } else {
+                long value = random.nextLong() >> 1;
+                assertThat(map.put(key, value)).isEqualTo(expected.getOrDefault(key, UuidLongMap.NO_VALUE));
+                expected.put(key, value);
+            }
+        }
+        assertThat(map.size()).isEqualTo(expected.size());
+        keys.forEach(key -> assertThat(map.get(key)).isEqualTo(expected.getOrDefault(key, UuidLongMap.NO_VALUE)));
+    }
+}
@@ -0,0 +1,242 @@
+package com.miro.widget.repository;
+
+import com.miro.widget.model.Widget;
+import com.miro.widget.model.WidgetAttributes;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Writers set x, y, width and height of a widget to the same value, so any reader seeing them differ observed a
+ * torn widget. A board read after its modification sequence number must include every change up to it.
+ */
+class WidgetContainerConcurrencyTest {
+
+    private static final int WIDGETS = 64;
+    private static final int WRITERS = 32;
+    private static final int READERS = 4;
+    private static final int UPDATES_PER_WRITER = 2_000;
+
+    @Test
+    void shouldNotExposeTornWidgetsUnderConcurrentWriters() throws Exception {
+        WidgetContainer widgetContainer = new WidgetContainer(new ZIndexContainer());
+        List<UUID> widgetIds = new ArrayList<>();
+        for (int i = 0; i < WIDGETS; i++) {
+            widgetIds.add(widgetContainer.saveAsForeground(Widget.builder().build()).getId());
+        }
+        AtomicLongArray updates = new AtomicLongArray(WIDGETS);
+        Queue<String> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch writersDone = new CountDownLatch(WRITERS);
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS + READERS);
+
+        for (int i = 0; i < WRITERS; i++) {
+            executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                    for (int n = 0; n < UPDATES_PER_WRITER; n++) {
+                        int index = random.nextInt(WIDGETS);
+                        int value = random.nextInt(1_000);
+                        WidgetAttributes attributes = new WidgetAttributes(value, value);
+                        attributes.setXIndex(value);
+                        attributes.setYIndex(value);
+                        if (random.nextInt(4) == 0) {
+                            attributes.setZIndex(random.nextInt(WIDGETS * 2));
+                        }
+                        widgetContainer.update(widgetIds.get(index), attributes);
+                        updates.incrementAndGet(index);
+                    }
+                } catch (Exception e) {
+                    failures.add("writer failed: " + e);
+                } finally {
+                    writersDone.countDown();
+                }
+            });
+        }
+        for (int i = 0; i < READERS; i++) {
+            executor.submit(() -> {
+                Map<UUID, Long> lastSeenVersions = new HashMap<>();
+                try {
+                    start.await();
+                    while (writersDone.getCount() > 0) {
+                        List<Widget> widgets = widgetContainer.findAll();
+                        if (widgets.size() != WIDGETS) {
+                            failures.add("findAll returned " + widgets.size() + " widgets");
+                        }
+                        for (int n = 0; n < widgets.size(); n++) {
+                            Widget widget = widgets.get(n);
+                            checkCoherent(widget, failures);
+                            if (n > 0 && widgets.get(n - 1).getZIndex() >= widget.getZIndex()) {
+                                failures.add("z-order not strictly increasing at " + widget);
+                            }
+                            Long lastSeen = lastSeenVersions.put(widget.getId(), widget.getVersion());
+                            if (lastSeen != null && lastSeen > widget.getVersion()) {
+                                failures.add("version went back from " + lastSeen + " for " + widget);
+                            }
+                        }
+                    }
+                } catch (Exception e) {
+                    failures.add("reader failed: " + e);
+                }
+            });
+        }
+
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+        assertThat(failures).isEmpty();
+
+        List<Widget> widgets = widgetContainer.findAll();
+        assertThat(widgets).hasSize(WIDGETS);
+        assertThat(widgets).extracting(Widget::getZIndex).doesNotHaveDuplicates().isSorted();
+        for (int i = 0; i < WIDGETS; i++) {
+            Widget widget = widgetContainer.findById(widgetIds.get(i)).orElseThrow();
+            checkCoherent(widget, failures);
+            assertThat(widget.getVersion()).isEqualTo(1 + updates.get(i));
+            int corner = widget.getXIndex() + widget.getWidth();
+            List<Widget> found = widgetContainer.findAllInArea(corner, corner, corner, corner);
+            assertThat(found).extracting(Widget::getId).as("area index of %s", widget).contains(widget.getId());
+            assertThat(found).as("area index at %d", corner).allMatch(other -> other.getXIndex() <= corner
+                    && corner <= other.getXIndex() + other.getWidth());
+        }
+        assertThat(failures).isEmpty();
+    }
+
+    @Test
+    void shouldNotReadBoardOlderThanModificationSeq() throws Exception {
+        WidgetContainer widgetContainer = new WidgetContainer(new ZIndexContainer());
+        long initialSeq = widgetContainer.modificationSeq();
+        Queue<long[]> reads = new ConcurrentLinkedQueue<>();
+        Queue<String> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch writerDone = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(1 + READERS);
+
+        executor.submit(() -> {
+            try {
+                start.await();
+                for (int n = 0; n < UPDATES_PER_WRITER; n++) {
+                    widgetContainer.saveAsForeground(Widget.builder().build());
+                }
+            } catch (Exception e) {
+                failures.add("writer failed: " + e);
+            } finally {
+                writerDone.countDown();
+            }
+        });
+        for (int i = 0; i < READERS; i++) {
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    while (writerDone.getCount() > 0) {
+                        long seq = widgetContainer.modificationSeq();
+                        reads.add(new long[]{seq, widgetContainer.findAll().size()});
+                        seq = widgetContainer.modificationSeq();
+                        reads.add(new long[]{seq, widgetContainer.findAll(PageRequest.of(0, 1)).getTotalElements()});
+                    }
+                } catch (Exception e) {
+                    failures.add("reader failed: " + e);
+                }
+            });
+        }
+
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+        assertThat(failures).isEmpty();
+
+        // every foreground create stamps exactly once, so the n-th create is at initialSeq + n
+        assertThat(widgetContainer.modificationSeq()).isEqualTo(initialSeq + UPDATES_PER_WRITER);
+        for (long[] read : reads) {
+            assertThat(read[1]).as("widgets read at seq %d", read[0]).isGreaterThanOrEqualTo(read[0] - initialSeq);
+        }
+    }
+
+    @Test
+    void shouldKeepPastVersionsStableUnderConcurrentUpdates() throws Exception {
+        WidgetContainer widgetContainer = new WidgetContainer(new ZIndexContainer());
+        List<UUID> widgetIds = new ArrayList<>();
+        for (int i = 0; i < WIDGETS; i++) {
+            widgetIds.add(widgetContainer.saveAsForeground(Widget.builder().build()).getId());
+        }
+        Map<Long, List<Widget>> reads = new ConcurrentHashMap<>();
+        Queue<String> failures = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        int writers = READERS;
+        CountDownLatch writersDone = new CountDownLatch(writers);
+        ExecutorService executor = Executors.newFixedThreadPool(writers + READERS);
+        // stays within the retention window, so every version read is still kept at the end
+        int updatesPerWriter = WidgetContainer.VERSION_RETENTION / (2 * writers);
+
+        for (int i = 0; i < writers; i++) {
+            executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                try {
+                    start.await();
+                    for (int n = 0; n < updatesPerWriter; n++) {
+                        WidgetAttributes attributes = new WidgetAttributes(n, n);
+                        if (random.nextInt(4) == 0) {
+                            attributes.setZIndex(random.nextInt(WIDGETS * 2));
+                        }
+                        widgetContainer.update(widgetIds.get(random.nextInt(WIDGETS)), attributes);
+                    }
+                } catch (Exception e) {
+                    failures.add("writer failed: " + e);
+                } finally {
+                    writersDone.countDown();
+                }
+            });
+        }
+        for (int i = 0; i < READERS; i++) {
+            executor.submit(() -> {
+                try {
+                    start.await();
+                    while (writersDone.getCount() > 0) {
+                        long seq = widgetContainer.modificationSeq();
+                        List<Widget> widgets = widgetContainer.findAllAsOf(seq);
+                        List<Widget> previous = reads.putIfAbsent(seq, widgets);
+                        if (previous != null && !previous.equals(widgets)) {
+                            failures.add("version " + seq + " changed while it was read");
+                        }
+                    }
+                } catch (Exception e) {
+                    failures.add("reader failed: " + e);
+                }
+            });
+        }
+
+        start.countDown();
+        executor.shutdown();
+        assertThat(executor.awaitTermination(2, TimeUnit.MINUTES)).isTrue();
+        assertThat(failures).isEmpty();
+
+        reads.forEach((seq, widgets) ->
+                assertThat(widgetContainer.findAllAsOf(seq)).as("board as of %d", seq).isEqualTo(widgets));
+        assertThat(widgetContainer.findAllAsOf(widgetContainer.modificationSeq()))
+                .isEqualTo(widgetContainer.findAll());
+    }
+
+    private static void checkCoherent(Widget widget, Queue<String> failures) {
+        if (widget.getXIndex() != widget.getYIndex() || widget.getXIndex() != widget.getWidth()
+                || widget.getXIndex() != widget.getHeight()) {
+            failures.add("torn widget " + widget);
+        }
+    }
+}
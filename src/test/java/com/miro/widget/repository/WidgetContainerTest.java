@@ -1,30 +1,41 @@
 package com.miro.widget.repository;
 
+import com.miro.widget.exception.InvalidRequestException;
+import com.miro.widget.exception.PreconditionFailedException;
+import com.miro.widget.exception.VersionExpiredException;
+import com.miro.widget.exception.WidgetNotFoundException;
+import com.miro.widget.model.BatchOperation;
+import com.miro.widget.model.BatchResult;
 import com.miro.widget.model.Widget;
 import com.miro.widget.model.WidgetAttributes;
+import com.miro.widget.model.WidgetChanges;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
-import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 
 import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
-import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
+import static org.assertj.core.api.Assertions.tuple;
 
 @ExtendWith(MockitoExtension.class)
 class WidgetContainerTest {
 
-    @Mock
+    @Spy
     ZIndexContainer zIndexContainer;
 
+    @Spy
+    HeapWidgetStore widgetStore;
+
     @InjectMocks
     WidgetContainer widgetContainer;
 
@@ -37,63 +48,58 @@ class WidgetContainerTest {
     void shouldSaveAsForeground() {
         Widget widget = Widget.builder().build();
         widgetContainer.saveAsForeground(widget);
-        assertThat(widgetContainer.getWidgetStore()).hasSize(1).containsValue(widget);
-        verify(zIndexContainer).addWidgetId(widget.getId());
+        assertThat(widgetContainer.getWidgetStore().values()).hasSize(1).contains(widget);
+        assertThat(zIndexContainer.findZIndex(widget.getId())).hasValue(0);
     }
 
     @Test
     void shouldSaveWithZindex() {
         Widget widget = Widget.builder().zIndex(2).build();
         widgetContainer.saveWithZIndex(widget);
-        assertThat(widgetContainer.getWidgetStore()).hasSize(1).containsValue(widget);
-        verify(zIndexContainer).addWidgetId(widget.getId(), 2);
+        assertThat(widgetContainer.getWidgetStore().values()).hasSize(1).contains(widget);
+        assertThat(zIndexContainer.findZIndex(widget.getId())).hasValue(2);
     }
 
     @Test
     void shouldSaveWithZindexAdjustExistingIndex() {
-        Widget widget1 = Widget.builder().zIndex(2).build();
-        Widget widget2 = Widget.builder().zIndex(3).build();
-        Widget widget3 = Widget.builder().zIndex(4).build();
+        Widget widget1 = widgetContainer.saveWithZIndex(Widget.builder().zIndex(2).build());
+        Widget widget2 = widgetContainer.saveWithZIndex(Widget.builder().zIndex(3).build());
+        Widget widget3 = widgetContainer.saveWithZIndex(Widget.builder().zIndex(4).build());
         Widget newWidget = Widget.builder().zIndex(2).build();
-        widgetContainer.getWidgetStore().putAll(Map.of(widget1.getId(), widget1, widget2.getId(), widget2, widget3.getId(), widget3));
-        when(zIndexContainer.reverseSortedTailZIndexes(2)).thenReturn(List.of(widget3.getId(), widget2.getId(), widget1.getId()));
         Widget result = widgetContainer.saveWithZIndex(newWidget);
 
-        assertThat(widgetContainer.getWidgetStore()).hasSize(4);
-        assertThat(widgetContainer.getWidgetStore().get(widget1.getId()).getZIndex()).isEqualTo(3);
-        assertThat(widgetContainer.getWidgetStore().get(widget2.getId()).getZIndex()).isEqualTo(4);
-        assertThat(widgetContainer.getWidgetStore().get(widget3.getId()).getZIndex()).isEqualTo(5);
-        assertThat(widgetContainer.getWidgetStore().get(newWidget.getId()).getZIndex()).isEqualTo(2);
-        assertThat(result).isEqualTo(newWidget);
-        verify(zIndexContainer).addWidgetId(result.getId(), result.getZIndex());
+        assertThat(widgetContainer.getWidgetStore().values()).hasSize(4);
+        assertThat(widgetContainer.findById(widget1.getId())).get().extracting(Widget::getZIndex).isEqualTo(3);
+        assertThat(widgetContainer.findById(widget2.getId())).get().extracting(Widget::getZIndex).isEqualTo(4);
+        assertThat(widgetContainer.findById(widget3.getId())).get().extracting(Widget::getZIndex).isEqualTo(5);
+        assertThat(widgetContainer.findById(newWidget.getId())).get().extracting(Widget::getZIndex).isEqualTo(2);
+        assertThat(result.getId()).isEqualTo(newWidget.getId());
+        assertThat(zIndexContainer.findZIndex(result.getId())).hasValue(result.getZIndex());
     }
 
     @Test
     void shouldFindAll() {
         Widget widget1 = Widget.builder().build();
         Widget widget2 = Widget.builder().zIndex(2).build();
-        when(zIndexContainer.findAll()).thenReturn(List.of(widget1.getId(), widget2.getId()));
         widgetContainer.saveAsForeground(widget1);
         widgetContainer.saveWithZIndex(widget2);
         List<Widget> result = widgetContainer.findAll();
-        assertThat(widgetContainer.getWidgetStore()).hasSize(2);
-        assertThat(result).hasSize(2).containsExactly(widget1, widget2);
-        verify(zIndexContainer).findAll();
+        assertThat(widgetContainer.getWidgetStore().values()).hasSize(2);
+        assertThat(result).hasSize(2).extracting(Widget::getId).containsExactly(widget1.getId(), widget2.getId());
+        assertThat(result).extracting(Widget::getZIndex).containsExactly(0, 2);
     }
 
     @Test
     void shouldFindAllWithPaging() {
         Widget widget1 = Widget.builder().build();
         Widget widget2 = Widget.builder().zIndex(2).build();
-        when(zIndexContainer.findAll()).thenReturn(List.of(widget1.getId(), widget2.getId()));
         widgetContainer.saveAsForeground(widget1);
         widgetContainer.saveWithZIndex(widget2);
         Page<Widget> resultPage = widgetContainer.findAll(PageRequest.of(1, 1));
-        assertThat(widgetContainer.getWidgetStore()).hasSize(2);
+        assertThat(widgetContainer.getWidgetStore().values()).hasSize(2);
         assertThat(resultPage.getTotalElements()).isEqualTo(2);
         assertThat(resultPage.getTotalPages()).isEqualTo(2);
-        assertThat(resultPage.getContent()).hasSize(1).containsExactly(widget2);
-        verify(zIndexContainer).findAll();
+        assertThat(resultPage.getContent()).hasSize(1).extracting(Widget::getId).containsExactly(widget2.getId());
     }
 
     @Test
@@ -104,30 +110,267 @@ class WidgetContainerTest {
         updateAttributes.setZIndex(2);
         updateAttributes.setHeight(2);
         Widget updated = widgetContainer.update(widget.getId(), updateAttributes);
-        assertThat(widgetContainer.findById(widget.getId())).isNotEmpty().isEqualTo(Optional.of(updated));
+        assertThat(widgetContainer.findById(widget.getId())).get()
+                .extracting(found -> tuple(found.getZIndex(), found.getHeight())).isEqualTo(tuple(2, 2));
         assertThat(updated.getHeight()).isEqualTo(2);
-        verify(zIndexContainer).removeWidgetId(0);
-        verify(zIndexContainer).addWidgetId(widget.getId(), 2);
+        assertThat(updated.getZIndex()).isEqualTo(2);
+        assertThat(zIndexContainer.findZIndex(widget.getId())).hasValue(2);
     }
 
     @Test
     void shouldUpdateWidgetByAdjustingOthers() {
-        Widget widget = Widget.builder().zIndex(1).build();
-        Widget widget1 = Widget.builder().zIndex(2).build();
-        Widget widget2 = Widget.builder().zIndex(3).build();
-        widgetContainer.getWidgetStore().putAll(Map.of(widget.getId(), widget, widget1.getId(), widget1, widget2.getId(), widget2));
-        when(zIndexContainer.reverseSortedTailZIndexes(2)).thenReturn(List.of(widget2.getId(), widget1.getId()));
+        Widget widget = widgetContainer.saveWithZIndex(Widget.builder().zIndex(1).build());
+        Widget widget1 = widgetContainer.saveWithZIndex(Widget.builder().zIndex(2).build());
+        Widget widget2 = widgetContainer.saveWithZIndex(Widget.builder().zIndex(3).build());
         WidgetAttributes updateAttributes = new WidgetAttributes();
         updateAttributes.setZIndex(2);
         updateAttributes.setHeight(2);
         Widget updated = widgetContainer.update(widget.getId(), updateAttributes);
-        assertThat(widgetContainer.findById(widget.getId())).isNotEmpty().isEqualTo(Optional.of(updated));
-        assertThat(widgetContainer.getWidgetStore()).hasSize(3);
-        assertThat(widgetContainer.getWidgetStore().get(widget1.getId()).getZIndex()).isEqualTo(3);
-        assertThat(widgetContainer.getWidgetStore().get(widget2.getId()).getZIndex()).isEqualTo(4);
+        assertThat(widgetContainer.findById(widget.getId())).get().extracting(Widget::getZIndex).isEqualTo(2);
+        assertThat(widgetContainer.getWidgetStore().values()).hasSize(3);
+        assertThat(widgetContainer.findById(widget1.getId())).get().extracting(Widget::getZIndex).isEqualTo(3);
+        assertThat(widgetContainer.findById(widget2.getId())).get().extracting(Widget::getZIndex).isEqualTo(4);
         assertThat(updated.getHeight()).isEqualTo(2);
         assertThat(updated.getZIndex()).isEqualTo(2);
-        verify(zIndexContainer).removeWidgetId(2);
-        verify(zIndexContainer).addWidgetId(widget.getId(), 2);
+        assertThat(zIndexContainer.findZIndex(widget.getId())).hasValue(2);
+    }
+
+    @Test
+    void shouldDeleteWidgetKeepingOthersZIndex() {
+        Widget widget1 = widgetContainer.saveAsForeground(Widget.builder().build());
+        Widget widget2 = widgetContainer.saveAsForeground(Widget.builder().build());
+        widgetContainer.delete(widget1.getId());
+        assertThat(widgetContainer.findById(widget1.getId())).isEmpty();
+        assertThat(widgetContainer.findById(widget2.getId())).get().extracting(Widget::getZIndex).isEqualTo(1);
+        assertThat(zIndexContainer.findZIndex(widget1.getId())).isEmpty();
+    }
+
+    @Test
+    void shouldFindAllInAreaSortedByZIndex() {
+        Widget top = widgetContainer.saveAsForeground(Widget.builder().xIndex(10).yIndex(10).width(5).height(5).build());
+        Widget bottom = widgetContainer.saveWithZIndex(Widget.builder().zIndex(-1).width(20).height(20).build());
+        widgetContainer.saveAsForeground(Widget.builder().xIndex(100).yIndex(100).width(5).height(5).build());
+        List<Widget> result = widgetContainer.findAllInArea(8, 8, 12, 12);
+        assertThat(result).extracting(Widget::getId).containsExactly(bottom.getId(), top.getId());
+
+        WidgetAttributes moveAway = new WidgetAttributes();
+        moveAway.setXIndex(500);
+        widgetContainer.update(top.getId(), moveAway);
+        widgetContainer.delete(bottom.getId());
+        assertThat(widgetContainer.findAllInArea(8, 8, 12, 12)).isEmpty();
+    }
+
+    @Test
+    void shouldApplyBatch() {
+        Widget existing = widgetContainer.saveWithZIndex(Widget.builder().zIndex(1).build());
+        Widget removed = widgetContainer.saveAsForeground(Widget.builder().build());
+        WidgetAttributes update = new WidgetAttributes(30, 30);
+        WidgetAttributes create = new WidgetAttributes(10, 10);
+        create.setZIndex(1);
+
+        List<BatchResult> results = widgetContainer.applyBatch(List.of(
+                BatchOperation.create(create),
+                new BatchOperation(BatchOperation.Type.UPDATE, existing.getId(), update),
+                new BatchOperation(BatchOperation.Type.DELETE, removed.getId(), null)));
+
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0).getZIndex()).isEqualTo(1);
+        assertThat(results.get(1)).isEqualTo(new BatchResult(existing.getId(), 2, 2L));
+        assertThat(results.get(2)).isEqualTo(new BatchResult(removed.getId(), null, null));
+        assertThat(widgetContainer.findAll()).extracting(Widget::getId)
+                .containsExactly(results.get(0).getId(), existing.getId());
+        assertThat(widgetContainer.findById(existing.getId())).get().extracting(Widget::getHeight).isEqualTo(30);
+    }
+
+    @Test
+    void shouldNotApplyBatchWithMissingWidget() {
+        Widget existing = widgetContainer.saveAsForeground(Widget.builder().build());
+        List<BatchOperation> operations = List.of(
+                BatchOperation.create(new WidgetAttributes(10, 10)),
+                new BatchOperation(BatchOperation.Type.DELETE, existing.getId(), null),
+                new BatchOperation(BatchOperation.Type.DELETE, UUID.randomUUID(), null));
+
+        Assertions.assertThrows(WidgetNotFoundException.class, () -> widgetContainer.applyBatch(operations));
+        assertThat(widgetContainer.findAll()).extracting(Widget::getId).containsExactly(existing.getId());
+        assertThat(zIndexContainer.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRejectEmptyBatch() {
+        long seq = widgetContainer.modificationSeq();
+
+        Assertions.assertThrows(InvalidRequestException.class, () -> widgetContainer.applyBatch(List.of()));
+        assertThat(widgetContainer.modificationSeq()).isEqualTo(seq);
+    }
+
+    @Test
+    void shouldStreamSnapshotUnaffectedByLaterShifts() {
+        Widget widget1 = widgetContainer.saveAsForeground(Widget.builder().build());
+        Widget widget2 = widgetContainer.saveAsForeground(Widget.builder().build());
+        Stream<Widget> stream = widgetContainer.streamAll();
+        widgetContainer.saveWithZIndex(Widget.builder().zIndex(0).build());
+        List<Widget> result = stream.collect(Collectors.toList());
+        assertThat(result).extracting(Widget::getId).containsExactly(widget1.getId(), widget2.getId());
+        assertThat(result).extracting(Widget::getZIndex).containsExactly(0, 1);
+    }
+
+    @Test
+    void shouldFindChangesSince() {
+        Widget kept = widgetContainer.saveWithZIndex(Widget.builder().zIndex(1).build());
+        Widget deleted = widgetContainer.saveWithZIndex(Widget.builder().zIndex(2).build());
+        WidgetChanges initial = widgetContainer.findChangesSince(0);
+        assertThat(initial.isFull()).isTrue();
+        assertThat(initial.getChanged()).extracting(Widget::getId).containsExactly(kept.getId(), deleted.getId());
+
+        Widget created = widgetContainer.saveWithZIndex(Widget.builder().zIndex(1).build());
+        widgetContainer.delete(deleted.getId());
+        WidgetChanges changes = widgetContainer.findChangesSince(initial.getSeq());
+
+        assertThat(changes.isFull()).isFalse();
+        assertThat(changes.getShifts()).containsExactly(new WidgetChanges.Shift(1, 1));
+        assertThat(changes.getDeleted()).containsExactly(deleted.getId());
+        assertThat(changes.getChanged()).extracting(Widget::getId, Widget::getZIndex)
+                .containsExactly(tuple(created.getId(), 1));
+        assertThat(widgetContainer.findChangesSince(changes.getSeq()).getChanged()).isEmpty();
+    }
+
+    @Test
+    void shouldUpdateOnlyExpectedVersion() {
+        Widget widget = widgetContainer.saveAsForeground(Widget.builder().build());
+        Widget updated = widgetContainer.update(widget.getId(), new WidgetAttributes(10, 10), widget.getVersion());
+
+        WidgetAttributes move = new WidgetAttributes(20, 20);
+        move.setZIndex(5);
+        Assertions.assertThrows(PreconditionFailedException.class,
+                () -> widgetContainer.update(widget.getId(), move, widget.getVersion()));
+        Widget current = widgetContainer.findById(widget.getId()).orElseThrow();
+        assertThat(current.getVersion()).isEqualTo(updated.getVersion());
+        assertThat(current.getZIndex()).isEqualTo(updated.getZIndex());
+    }
+
+    @Test
+    void shouldBringToFrontAndSendToBack() {
+        Widget a = widgetContainer.saveAsForeground(Widget.builder().build());
+        Widget b = widgetContainer.saveAsForeground(Widget.builder().build());
+        Widget c = widgetContainer.saveAsForeground(Widget.builder().build());
+
+        Widget back = widgetContainer.sendToBack(c.getId());
+        assertThat(back.getZIndex()).isZero();
+        assertThat(back.getVersion()).isEqualTo(c.getVersion() + 1);
+        assertThat(widgetContainer.findAll()).extracting(Widget::getId, Widget::getZIndex)
+                .containsExactly(tuple(c.getId(), 0), tuple(a.getId(), 1), tuple(b.getId(), 2));
+        assertThat(widgetContainer.sendToBack(c.getId())).isEqualTo(back);
+
+        Widget front = widgetContainer.bringToFront(a.getId());
+        assertThat(front.getZIndex()).isEqualTo(3);
+        assertThat(widgetContainer.findAll()).extracting(Widget::getId).containsExactly(c.getId(), b.getId(), a.getId());
+        assertThat(widgetContainer.bringToFront(a.getId())).isEqualTo(front);
+        Assertions.assertThrows(WidgetNotFoundException.class, () -> widgetContainer.bringToFront(UUID.randomUUID()));
+    }
+
+    @Test
+    void shouldMoveBeforeAndAfterOtherWidget() {
+        Widget a = widgetContainer.saveAsForeground(Widget.builder().build());
+        Widget b = widgetContainer.saveAsForeground(Widget.builder().build());
+        Widget c = widgetContainer.saveAsForeground(Widget.builder().build());
+
+        widgetContainer.moveBefore(c.getId(), a.getId());
+        assertThat(widgetContainer.findAll()).extracting(Widget::getId, Widget::getZIndex)
+                .containsExactly(tuple(c.getId(), 0), tuple(a.getId(), 1), tuple(b.getId(), 2));
+
+        widgetContainer.moveAfter(c.getId(), b.getId());
+        assertThat(widgetContainer.findAll()).extracting(Widget::getId, Widget::getZIndex)
+                .containsExactly(tuple(a.getId(), 1), tuple(b.getId(), 2), tuple(c.getId(), 3));
+
+        long version = widgetContainer.findById(b.getId()).orElseThrow().getVersion();
+        assertThat(widgetContainer.moveAfter(b.getId(), a.getId()).getVersion()).isEqualTo(version);
+        assertThat(widgetContainer.moveBefore(b.getId(), c.getId()).getVersion()).isEqualTo(version);
+        Assertions.assertThrows(InvalidRequestException.class, () -> widgetContainer.moveAfter(a.getId(), a.getId()));
+        Assertions.assertThrows(WidgetNotFoundException.class,
+                () -> widgetContainer.moveBefore(a.getId(), UUID.randomUUID()));
+    }
+
+    @Test
+    void shouldMoveRangeLikeSuccessiveUpdates() {
+        List<Widget> widgets = Stream.generate(() -> widgetContainer.saveAsForeground(Widget.builder().build()))
+                .limit(5).collect(Collectors.toList());
+        WidgetContainer expected = new WidgetContainer(new ZIndexContainer());
+        widgets.forEach(widget -> expected.saveAsForeground(Widget.builder().id(widget.getId()).build()));
+        for (int i = 0; i < 2; i++) {
+            WidgetAttributes move = new WidgetAttributes();
+            move.setZIndex(i);
+            expected.update(widgets.get(1 + 2 * i).getId(), move);
+        }
+
+        List<Widget> moved = widgetContainer.moveRange(List.of(widgets.get(3).getId(), widgets.get(1).getId()), 0);
+
+        assertThat(moved).extracting(Widget::getId, Widget::getZIndex)
+                .containsExactly(tuple(widgets.get(1).getId(), 0), tuple(widgets.get(3).getId(), 1));
+        assertThat(widgetContainer.findAll()).extracting(Widget::getId, Widget::getZIndex)
+                .containsExactlyElementsOf(expected.findAll().stream()
+                        .map(widget -> tuple(widget.getId(), widget.getZIndex())).collect(Collectors.toList()));
+    }
+
+    @Test
+    void shouldNotMoveRangeWithMissingWidget() {
+        Widget a = widgetContainer.saveAsForeground(Widget.builder().build());
+        Widget b = widgetContainer.saveAsForeground(Widget.builder().build());
+
+        Assertions.assertThrows(WidgetNotFoundException.class,
+                () -> widgetContainer.moveRange(List.of(b.getId(), UUID.randomUUID()), 0));
+        Assertions.assertThrows(InvalidRequestException.class,
+                () -> widgetContainer.moveRange(List.of(b.getId(), b.getId()), 0));
+        assertThat(widgetContainer.findAll()).extracting(Widget::getId, Widget::getZIndex)
+                .containsExactly(tuple(a.getId(), 0), tuple(b.getId(), 1));
+    }
+
+    @Test
+    void shouldFindTopmostWidgetAtPoint() {
+        Widget bottom = widgetContainer.saveAsForeground(Widget.builder().width(100).height(100).build());
+        Widget top = widgetContainer.saveAsForeground(Widget.builder().xIndex(50).yIndex(50).width(10).height(10)
+                .build());
+
+        assertThat(widgetContainer.findTopmostAt(55, 55)).get().extracting(Widget::getId).isEqualTo(top.getId());
+        assertThat(widgetContainer.findTopmostAt(20, 20)).get().extracting(Widget::getId).isEqualTo(bottom.getId());
+        assertThat(widgetContainer.findTopmostAt(200, 200)).isEmpty();
+
+        widgetContainer.bringToFront(bottom.getId());
+        assertThat(widgetContainer.findTopmostAt(55, 55)).get()
+                .extracting(found -> tuple(found.getId(), found.getZIndex())).isEqualTo(tuple(bottom.getId(), 2));
+        widgetContainer.delete(bottom.getId());
+        assertThat(widgetContainer.findTopmostAt(55, 55)).get().extracting(Widget::getId).isEqualTo(top.getId());
+    }
+
+    @Test
+    void shouldReadPastVersions() {
+        Widget a = widgetContainer.saveAsForeground(Widget.builder().build());
+        long created = widgetContainer.modificationSeq();
+        Widget b = widgetContainer.saveWithZIndex(Widget.builder().zIndex(0).build());
+        widgetContainer.update(a.getId(), new WidgetAttributes(5, 5));
+        long updated = widgetContainer.modificationSeq();
+        widgetContainer.delete(b.getId());
+
+        assertThat(widgetContainer.findAllAsOf(created)).extracting(Widget::getId, Widget::getZIndex, Widget::getHeight)
+                .containsExactly(tuple(a.getId(), 0, a.getHeight()));
+        assertThat(widgetContainer.findAllAsOf(updated)).extracting(Widget::getId, Widget::getZIndex, Widget::getHeight)
+                .containsExactly(tuple(b.getId(), 0, b.getHeight()), tuple(a.getId(), 1, 5));
+        assertThat(widgetContainer.findAllAsOf(widgetContainer.modificationSeq()))
+                .isEqualTo(widgetContainer.findAll());
+        assertThat(widgetContainer.versionAsOf(created + 1)).isEqualTo(created);
+        Assertions.assertThrows(InvalidRequestException.class,
+                () -> widgetContainer.findAllAsOf(widgetContainer.modificationSeq() + 1));
+    }
+
+    @Test
+    void shouldExpireVersionsOutsideRetention() {
+        Widget widget = widgetContainer.saveAsForeground(Widget.builder().build());
+        long created = widgetContainer.modificationSeq();
+        for (int i = 0; i <= WidgetContainer.VERSION_RETENTION; i++) {
+            widgetContainer.update(widget.getId(), new WidgetAttributes(i, i));
+        }
+
+        Assertions.assertThrows(VersionExpiredException.class, () -> widgetContainer.findAllAsOf(created));
+        assertThat(widgetContainer.findAllAsOf(widgetContainer.modificationSeq() - 1)).extracting(Widget::getHeight)
+                .containsExactly(WidgetContainer.VERSION_RETENTION - 1);
     }
-}
\ No newline at end of file
+}
@@ -3,9 +3,16 @@ package com.miro.widget.repository;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -61,14 +68,49 @@ class ZIndexContainerTest {
     }
 
     @Test
-    void shouldGetWidgetsToShiftZIndex() {
+    void shouldShiftWidgetsAtAndAboveZIndex() {
         UUID widgetId1 = UUID.randomUUID();
         zIndexContainer.addWidgetId(widgetId1, 3);
         UUID widgetId2 = UUID.randomUUID();
         zIndexContainer.addWidgetId(widgetId2, 4);
         UUID widgetId3 = UUID.randomUUID();
+        zIndexContainer.addWidgetId(widgetId3, 6);
+        UUID widgetId4 = UUID.randomUUID();
+        zIndexContainer.addWidgetId(widgetId4, 4);
+        assertThat(zIndexContainer.getZIndexTracker().keySet()).containsExactly(3, 4, 5, 7);
+        assertThat(zIndexContainer.getZIndexTracker().values())
+                .containsExactly(widgetId1, widgetId4, widgetId2, widgetId3);
+    }
+
+    @Test
+    void shouldNotShiftWhenZIndexIsFree() {
+        UUID widgetId1 = UUID.randomUUID();
+        zIndexContainer.addWidgetId(widgetId1, 3);
+        UUID widgetId2 = UUID.randomUUID();
+        zIndexContainer.addWidgetId(widgetId2, 6);
+        UUID widgetId3 = UUID.randomUUID();
         zIndexContainer.addWidgetId(widgetId3, 5);
-        assertThat(zIndexContainer.reverseSortedTailZIndexes(4)).hasSize(2).containsExactly(widgetId3, widgetId2);
+        assertThat(zIndexContainer.getZIndexTracker().keySet()).containsExactly(3, 5, 6);
+        assertThat(zIndexContainer.findZIndex(widgetId2)).hasValue(6);
+    }
+
+    @Test
+    void shouldMoveWidgetId() {
+        UUID widgetId0 = UUID.randomUUID();
+        UUID widgetId1 = UUID.randomUUID();
+        UUID widgetId2 = UUID.randomUUID();
+        zIndexContainer.addWidgetId(widgetId0);
+        zIndexContainer.addWidgetId(widgetId1);
+        zIndexContainer.addWidgetId(widgetId2);
+        zIndexContainer.moveWidgetId(widgetId0, 2);
+        assertThat(zIndexContainer.getZIndexTracker().keySet()).containsExactly(1, 2, 3);
+        assertThat(zIndexContainer.getZIndexTracker().values()).containsExactly(widgetId1, widgetId0, widgetId2);
+    }
+
+    @Test
+    void shouldFailToMoveMissingWidgetId() {
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> zIndexContainer.moveWidgetId(UUID.randomUUID(), 1));
     }
 
     @Test
@@ -77,7 +119,7 @@ class ZIndexContainerTest {
         UUID widgetId2 = UUID.randomUUID();
         zIndexContainer.addWidgetId(widgetId1, 2);
         zIndexContainer.addWidgetId(widgetId2, 3);
-        zIndexContainer.removeWidgetId(2);
+        zIndexContainer.removeWidgetId(widgetId1);
         assertThat(zIndexContainer.getZIndexTracker()).hasSize(1).containsKeys(3);
         assertThat(zIndexContainer.getZIndexTracker().values()).containsExactly(widgetId2);
     }
@@ -97,4 +139,172 @@ class ZIndexContainerTest {
         assertThat(zIndexContainer.getZIndexTracker().keySet()).containsExactly(-2, 0, 1, 2);
         assertThat(widgetIds).hasSize(4).containsExactly(widgetId2, widgetId0, widgetId11, widgetId12);
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldFindPageByRank() {
+        List<UUID> widgetIds = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            UUID widgetId = UUID.randomUUID();
+            zIndexContainer.addWidgetId(widgetId, i * 2);
+            widgetIds.add(widgetId);
+        }
+        Page<ZIndexEntry> page = zIndexContainer.findAll(PageRequest.of(3, 10));
+        assertThat(page.getTotalElements()).isEqualTo(100);
+        assertThat(page.getContent()).extracting(ZIndexEntry::getWidgetId)
+                .containsExactlyElementsOf(widgetIds.subList(30, 40));
+        assertThat(page.getContent()).extracting(ZIndexEntry::getZIndex).startsWith(60, 62).endsWith(78);
+        assertThat(zIndexContainer.findAll(PageRequest.of(10, 10)).getContent()).isEmpty();
+    }
+
+    @Test
+    void shouldResumeAboveCursorZIndexAfterShift() {
+        UUID widgetId1 = UUID.randomUUID();
+        UUID widgetId2 = UUID.randomUUID();
+        UUID widgetId3 = UUID.randomUUID();
+        zIndexContainer.addWidgetId(widgetId1);
+        zIndexContainer.addWidgetId(widgetId2);
+        zIndexContainer.addWidgetId(widgetId3);
+        List<ZIndexEntry> first = zIndexContainer.findAfter(null, 2);
+        assertThat(first).extracting(ZIndexEntry::getWidgetId).containsExactly(widgetId1, widgetId2);
+
+        UUID inserted = UUID.randomUUID();
+        zIndexContainer.addWidgetId(inserted, 0);
+        assertThat(zIndexContainer.findAfter(first.get(1).getZIndex(), 2))
+                .containsExactly(new ZIndexEntry(widgetId2, 2), new ZIndexEntry(widgetId3, 3));
+    }
+
+    @Test
+    void shouldNotSkipOrRestartWhenCursorWidgetMoves() {
+        List<UUID> widgetIds = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            widgetIds.add(UUID.randomUUID());
+            zIndexContainer.addWidgetId(widgetIds.get(i), i);
+        }
+        List<ZIndexEntry> first = zIndexContainer.findAfter(null, 2);
+
+        zIndexContainer.moveWidgetId(widgetIds.get(1), 10);
+        assertThat(zIndexContainer.findAfter(first.get(1).getZIndex(), 2)).extracting(ZIndexEntry::getWidgetId)
+                .containsExactly(widgetIds.get(2), widgetIds.get(3));
+
+        zIndexContainer.moveWidgetId(widgetIds.get(1), -1);
+        assertThat(zIndexContainer.findAfter(first.get(1).getZIndex(), 2)).extracting(ZIndexEntry::getWidgetId)
+                .containsExactly(widgetIds.get(2), widgetIds.get(3));
+    }
+
+    @Test
+    void shouldResumeAboveZIndexOfRemovedCursor() {
+        UUID widgetId1 = UUID.randomUUID();
+        UUID widgetId2 = UUID.randomUUID();
+        zIndexContainer.addWidgetId(widgetId1, 1);
+        zIndexContainer.addWidgetId(widgetId2, 5);
+        zIndexContainer.removeWidgetId(widgetId1);
+        assertThat(zIndexContainer.findAfter(1, 10)).containsExactly(new ZIndexEntry(widgetId2, 5));
+        assertThat(zIndexContainer.findAfter(5, 10)).isEmpty();
+    }
+
+    @Test
+    void shouldEndScanAfterHighestZIndex() {
+        UUID widgetId = UUID.randomUUID();
+        zIndexContainer.addWidgetId(UUID.randomUUID(), 0);
+        zIndexContainer.addWidgetId(widgetId, Integer.MAX_VALUE);
+        assertThat(zIndexContainer.findAfter(0, 10))
+                .containsExactly(new ZIndexEntry(widgetId, Integer.MAX_VALUE));
+        assertThat(zIndexContainer.findAfter(Integer.MAX_VALUE, 10)).isEmpty();
+    }
+
+    @Test
+    void shouldKeepOrderWhenInsertingRepeatedlyAtSameZIndex() {
+        List<UUID> expected = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            UUID widgetId = UUID.randomUUID();
+            zIndexContainer.addWidgetId(widgetId, 5);
+            expected.add(0, widgetId);
+        }
+        assertThat(zIndexContainer.findAll()).containsExactlyElementsOf(expected);
+        assertThat(zIndexContainer.getZIndexTracker().firstKey()).isEqualTo(5);
+        assertThat(zIndexContainer.getZIndexTracker().lastKey()).isEqualTo(1_004);
+        assertThat(zIndexContainer.findZIndex(expected.get(500))).hasValue(505);
+    }
+
+    @Test
+    void shouldApplyBatchAtomically() {
+        UUID existingId = UUID.randomUUID();
+        UUID widgetId1 = UUID.randomUUID();
+        UUID widgetId2 = UUID.randomUUID();
+        zIndexContainer.addWidgetId(existingId, 1);
+        zIndexContainer.batch(batch -> {
+            batch.addWidgetId(widgetId1, 1);
+            batch.addWidgetId(widgetId2);
+            return batch.moveWidgetId(existingId, 0);
+        });
+        assertThat(zIndexContainer.getZIndexTracker()).containsExactly(
+                Map.entry(0, existingId), Map.entry(1, widgetId1), Map.entry(3, widgetId2));
+    }
+
+    @Test
+    void shouldRollbackFailedBatch() {
+        UUID existingId = UUID.randomUUID();
+        zIndexContainer.addWidgetId(existingId, 1);
+        Assertions.assertThrows(IllegalArgumentException.class, () -> zIndexContainer.batch(batch -> {
+            batch.addWidgetId(UUID.randomUUID(), 1);
+            batch.removeWidgetId(existingId);
+            batch.removeWidgetId(UUID.randomUUID());
+            return null;
+        }));
+        assertThat(zIndexContainer.getZIndexTracker()).containsExactly(Map.entry(1, existingId));
+        assertThat(zIndexContainer.findZIndex(existingId)).hasValue(1);
+        assertThat(zIndexContainer.size()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldMatchSkipListShiftSemantics() {
+        Random random = new Random(42);
+        ConcurrentSkipListMap<Integer, UUID> reference = new ConcurrentSkipListMap<>();
+        Map<UUID, Integer> zIndexes = new HashMap<>();
+        List<UUID> widgetIds = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            int operation = random.nextInt(10);
+            int zIndex = random.nextInt(200) - 50;
+            if (operation < 4 || widgetIds.isEmpty()) {
+                UUID widgetId = UUID.randomUUID();
+                shiftReference(reference, zIndexes, zIndex);
+                reference.put(zIndex, widgetId);
+                zIndexes.put(widgetId, zIndex);
+                widgetIds.add(widgetId);
+                zIndexContainer.addWidgetId(widgetId, zIndex);
+            } else if (operation < 6) {
+                UUID widgetId = UUID.randomUUID();
+                int foregroundIndex = reference.isEmpty() ? 0 : reference.lastKey() + 1;
+                reference.put(foregroundIndex, widgetId);
+                zIndexes.put(widgetId, foregroundIndex);
+                widgetIds.add(widgetId);
+                assertThat(zIndexContainer.addWidgetId(widgetId)).isEqualTo(foregroundIndex);
+            } else if (operation < 8) {
+                UUID widgetId = widgetIds.get(random.nextInt(widgetIds.size()));
+                shiftReference(reference, zIndexes, zIndex);
+                reference.remove(zIndexes.get(widgetId));
+                reference.put(zIndex, widgetId);
+                zIndexes.put(widgetId, zIndex);
+                zIndexContainer.moveWidgetId(widgetId, zIndex);
+            } else {
+                UUID widgetId = widgetIds.remove(random.nextInt(widgetIds.size()));
+                reference.remove(zIndexes.remove(widgetId));
+                zIndexContainer.removeWidgetId(widgetId);
+            }
+        }
+        assertThat(zIndexContainer.getZIndexTracker()).isEqualTo(reference);
+        zIndexes.forEach((widgetId, zIndex) -> assertThat(zIndexContainer.findZIndex(widgetId)).hasValue(zIndex));
+    }
+
+    private static void shiftReference(ConcurrentSkipListMap<Integer, UUID> reference, Map<UUID, Integer> zIndexes,
+                                       int zIndex) {
+        if (!reference.containsKey(zIndex)) {
+            return;
+        }
+        reference.tailMap(zIndex).descendingMap().forEach((index, widgetId) -> {
+            reference.remove(index);
+            reference.put(index + 1, widgetId);
+            zIndexes.put(widgetId, index + 1);
+        });
+    }
+}
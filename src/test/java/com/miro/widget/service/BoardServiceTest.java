@@ -0,0 +1,95 @@
+package com.miro.widget.service;
+
+import com.miro.widget.exception.BoardNotFoundException;
+import com.miro.widget.exception.InvalidRequestException;
+import com.miro.widget.metrics.WidgetMetrics;
+import com.miro.widget.model.Widget;
+import com.miro.widget.model.WidgetAttributes;
+import com.miro.widget.repository.HeapWidgetStore;
+import com.miro.widget.repository.WidgetContainer;
+import com.miro.widget.repository.ZIndexContainer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BoardServiceTest {
+
+    BoardService boardService;
+
+    @BeforeEach
+    void setUp() {
+        BoardProperties boardProperties = new BoardProperties();
+        boardProperties.setShards(4);
+        boardProperties.setMaxBoards(100);
+        boardService = new BoardService(new WidgetService(new WidgetContainer(new ZIndexContainer())),
+                HeapWidgetStore::new, boardProperties);
+    }
+
+    @Test
+    void shouldKeepBoardsIndependent() {
+        WidgetAttributes attributes = new WidgetAttributes(10, 10);
+        attributes.setZIndex(0);
+        Widget first = boardService.getOrCreateBoard("first").addWidget(attributes);
+        Widget second = boardService.getOrCreateBoard("second").addWidget(attributes);
+        boardService.getOrCreateBoard("first").addWidget(attributes);
+
+        assertThat(boardService.findBoard("first").findWidget(first.getId()).getZIndex()).isEqualTo(1);
+        assertThat(boardService.findBoard("second").findAllWidgets()).containsExactly(second);
+        Assertions.assertThrows(RuntimeException.class,
+                () -> boardService.findBoard("second").findWidget(first.getId()));
+    }
+
+    @Test
+    void shouldCreateBoardsOnlyOnWrite() {
+        Assertions.assertThrows(BoardNotFoundException.class, () -> boardService.findBoard("missing"));
+        WidgetService board = boardService.getOrCreateBoard("board");
+        assertThat(boardService.getOrCreateBoard("board")).isSameAs(board);
+        boardService.removeBoard("board");
+        Assertions.assertThrows(BoardNotFoundException.class, () -> boardService.findBoard("board"));
+        Assertions.assertThrows(BoardNotFoundException.class, () -> boardService.removeBoard("board"));
+    }
+
+    @Test
+    void shouldHoldDefaultBoardOutsideLimit() {
+        WidgetService defaultBoard = boardService.findBoard(BoardService.DEFAULT_BOARD_ID);
+
+        assertThat(boardService.getOrCreateBoard(BoardService.DEFAULT_BOARD_ID)).isSameAs(defaultBoard);
+        Assertions.assertThrows(InvalidRequestException.class,
+                () -> boardService.removeBoard(BoardService.DEFAULT_BOARD_ID));
+        IntStream.range(0, 100).forEach(i -> boardService.getOrCreateBoard("board-" + i));
+        defaultBoard.addWidget(new WidgetAttributes(10, 10));
+        assertThat(boardService.countWidgets()).isZero();
+    }
+
+    @Test
+    void shouldSpreadBoardsOverShards() {
+        IntStream.range(0, 100).forEach(i -> boardService.getOrCreateBoard("board-" + i));
+        IntStream.range(0, 4).forEach(shard -> assertThat(boardService.boardsInShard(shard)).isBetween(10, 40));
+    }
+
+    @Test
+    void shouldReportAllBoardsToSharedMetrics() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        boardService.setMetrics(new WidgetMetrics(registry, "boards", boardService::countWidgets));
+        boardService.getOrCreateBoard("first").addWidget(new WidgetAttributes(10, 10));
+        boardService.getOrCreateBoard("second").addWidget(new WidgetAttributes(10, 10));
+        boardService.getOrCreateBoard("second").addWidget(new WidgetAttributes(10, 10));
+
+        assertThat(registry.get("widget.board.size").tag("board", "boards").gauge().value()).isEqualTo(3);
+        assertThat(registry.get("widget.repository.operations").tag("board", "boards")
+                .tag("operation", "save_as_foreground").timer().count()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldRejectInvalidBoardsAndLimit() {
+        Assertions.assertThrows(InvalidRequestException.class, () -> boardService.getOrCreateBoard("a/b"));
+        Assertions.assertThrows(InvalidRequestException.class, () -> boardService.getOrCreateBoard(""));
+        IntStream.range(0, 100).forEach(i -> boardService.getOrCreateBoard("board-" + i));
+        Assertions.assertThrows(InvalidRequestException.class, () -> boardService.getOrCreateBoard("one-too-many"));
+    }
+}
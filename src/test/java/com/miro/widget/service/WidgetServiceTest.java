@@ -1,14 +1,19 @@
 package com.miro.widget.service;
 
+import com.miro.widget.exception.InvalidRequestException;
+import com.miro.widget.model.CursorPage;
 import com.miro.widget.model.Widget;
 import com.miro.widget.model.WidgetAttributes;
 import com.miro.widget.repository.WidgetContainer;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.verify;
@@ -45,4 +50,26 @@ class WidgetServiceTest {
         assertThat(added.getHeight()).isZero();
         verify(widgetContainer).saveWithZIndex(any(Widget.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldReturnCursorForNextPage() {
+        Widget widget1 = Widget.builder().zIndex(0).build();
+        Widget widget2 = Widget.builder().zIndex(1).build();
+        Widget widget3 = Widget.builder().zIndex(4).build();
+        when(widgetContainer.findAfter(null, 3)).thenReturn(List.of(widget1, widget2, widget3));
+        when(widgetContainer.findAfter(1, 3)).thenReturn(List.of(widget3));
+
+        CursorPage<Widget> first = widgetService.findWidgetsAfter("", 2);
+        assertThat(first.getContent()).containsExactly(widget1, widget2);
+        assertThat(first.getNext()).isNotNull();
+
+        CursorPage<Widget> last = widgetService.findWidgetsAfter(first.getNext(), 2);
+        assertThat(last.getContent()).containsExactly(widget3);
+        assertThat(last.getNext()).isNull();
+    }
+
+    @Test
+    void shouldRejectMalformedCursor() {
+        Assertions.assertThrows(InvalidRequestException.class, () -> widgetService.findWidgetsAfter("not-a-cursor", 2));
+    }
+}